@@ -304,6 +304,39 @@ public interface IValidationSupport {
 		return null;
 	}
 
+	/**
+	 * Validates a batch of codes. This is equivalent to calling
+	 * {@link #validateCode(ValidationSupportContext, ConceptValidationOptions, String, String, String, String)}
+	 * once for each request, and the default implementation does exactly that. Modules which are able
+	 * to validate many codes more efficiently at once (e.g. using a single database query or a single
+	 * remote request) may override this method.
+	 *
+	 * @param theValidationSupportContext The validation support module will be passed in to this method. This is convenient in cases where the operation needs to make calls to
+	 *                                    other method in the support chain, so that they can be passed through the entire chain. Implementations of this interface may always safely ignore this parameter.
+	 * @param theOptions                  Provides options controlling the validation
+	 * @param theRequests                 The codes to validate
+	 * @return Returns a list containing exactly one entry for each request, in the same order as the requests. An
+	 * entry is <code>null</code> if this validation support module can not handle the corresponding request.
+	 * @since 7.6.0
+	 */
+	@Nonnull
+	default List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		List<CodeValidationResult> retVal = new ArrayList<>(theRequests.size());
+		for (CodeValidationRequest next : theRequests) {
+			retVal.add(validateCode(
+					theValidationSupportContext,
+					theOptions,
+					next.getSystem(),
+					next.getCode(),
+					next.getDisplay(),
+					next.getValueSetUrl()));
+		}
+		return retVal;
+	}
+
 	/**
 	 * Validates that the given code exists and if possible returns a display
 	 * name. This method is called to check codes which are found in "example"
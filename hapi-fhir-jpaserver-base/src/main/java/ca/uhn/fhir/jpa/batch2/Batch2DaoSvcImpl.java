@@ -46,8 +46,11 @@ import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.tuple.Pair;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -158,6 +161,90 @@ public class Batch2DaoSvcImpl implements IBatch2DaoSvc {
 		return rowStream.map(Batch2DaoSvcImpl::typedPidFromQueryArray);
 	}
 
+	/**
+	 * The ranges are evenly sized, so they are only approximately balanced if the PIDs of the
+	 * resource type are unevenly spread out.
+	 */
+	@Nonnull
+	@Override
+	public List<Pair<Long, Long>> fetchResourcePidRanges(
+			Date theStart,
+			Date theEnd,
+			@Nullable RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			int theResourcesPerRange) {
+		Validate.isTrue(theResourcesPerRange > 0, "theResourcesPerRange must be positive");
+		List<Object[]> rows = myTransactionService
+				.withSystemRequest()
+				.withRequestPartitionId(theRequestPartitionId)
+				.readOnly()
+				.execute(() -> findCountAndMinAndMaxIds(theStart, theEnd, theRequestPartitionId, theResourceType));
+
+		List<Pair<Long, Long>> retVal = new ArrayList<>();
+		if (rows.isEmpty() || rows.get(0)[1] == null) {
+			return retVal;
+		}
+		long count = (Long) rows.get(0)[0];
+		long min = (Long) rows.get(0)[1];
+		long max = (Long) rows.get(0)[2];
+
+		long rangeCount = Math.max(1, (count + theResourcesPerRange - 1) / theResourcesPerRange);
+		long rangeWidth = Math.max(1, (max - min + rangeCount) / rangeCount);
+		for (long start = min; start <= max; start += rangeWidth) {
+			retVal.add(Pair.of(start, Math.min(start + rangeWidth, max + 1)));
+		}
+		return retVal;
+	}
+
+	private List<Object[]> findCountAndMinAndMaxIds(
+			Date theStart, Date theEnd, RequestPartitionId theRequestPartitionId, String theResourceType) {
+		if (theRequestPartitionId == null || theRequestPartitionId.isAllPartitions()) {
+			return myResourceTableDao.findCountAndMinAndMaxIdsOfResourcesOfType(theResourceType, theStart, theEnd);
+		} else if (theRequestPartitionId.isDefaultPartition()) {
+			return myResourceTableDao.findCountAndMinAndMaxIdsOfResourcesOfTypeForDefaultPartition(
+					theResourceType, theStart, theEnd);
+		} else {
+			return myResourceTableDao.findCountAndMinAndMaxIdsOfResourcesOfTypeForPartitionIds(
+					theResourceType, theStart, theEnd, theRequestPartitionId.getPartitionIds());
+		}
+	}
+
+	@Override
+	public IResourcePidStream fetchResourceIdStreamForPidRange(
+			Date theStart,
+			Date theEnd,
+			@Nullable RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			long theStartPid,
+			long theEndPid) {
+		return makeStreamResult(
+				theRequestPartitionId,
+				() -> streamResourceIdsForPidRange(
+						theStart, theEnd, theRequestPartitionId, theResourceType, theStartPid, theEndPid));
+	}
+
+	@Nonnull
+	private Stream<TypedResourcePid> streamResourceIdsForPidRange(
+			Date theStart,
+			Date theEnd,
+			RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			long theStartPid,
+			long theEndPid) {
+		Stream<Long> pidStream;
+		if (theRequestPartitionId == null || theRequestPartitionId.isAllPartitions()) {
+			pidStream = myResourceTableDao.streamIdsOfResourcesOfTypeWithinPidRange(
+					theResourceType, theStartPid, theEndPid, theStart, theEnd);
+		} else if (theRequestPartitionId.isDefaultPartition()) {
+			pidStream = myResourceTableDao.streamIdsOfResourcesOfTypeWithinPidRangeForDefaultPartition(
+					theResourceType, theStartPid, theEndPid, theStart, theEnd);
+		} else {
+			pidStream = myResourceTableDao.streamIdsOfResourcesOfTypeWithinPidRangeForPartitionIds(
+					theResourceType, theStartPid, theEndPid, theStart, theEnd, theRequestPartitionId.getPartitionIds());
+		}
+		return pidStream.map(pid -> new TypedResourcePid(theResourceType, JpaPid.fromId(pid)));
+	}
+
 	@Deprecated(since = "6.11", forRemoval = true) // delete once the default method in the interface is gone.
 	@Override
 	public IResourcePidList fetchResourceIdsPage(
@@ -345,6 +345,41 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 		theCallback.accept(updated);
 	}
 
+	/**
+	 * Transitions the whole batch with a single UPDATE.  If some of the chunks were not READY anymore
+	 * (e.g. they were enqueued concurrently by the {@link ca.uhn.fhir.batch2.coordinator.JobDataSink}),
+	 * we can't tell which rows were updated, so the batch update is rolled back and the chunks are
+	 * transitioned one at a time instead.
+	 */
+	@Override
+	public void enqueueWorkChunksForProcessing(List<String> theChunkIds, Consumer<List<String>> theCallback) {
+		if (theChunkIds.isEmpty()) {
+			theCallback.accept(List.of());
+			return;
+		}
+
+		boolean enqueuedAll = myTransactionService
+				.withSystemRequestOnDefaultPartition()
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.execute(theStatus -> {
+					int updated = myWorkChunkRepository.updateChunkStatusForIds(
+							theChunkIds, WorkChunkStatusEnum.READY, WorkChunkStatusEnum.QUEUED);
+					if (updated != theChunkIds.size()) {
+						theStatus.setRollbackOnly();
+						return false;
+					}
+					theCallback.accept(theChunkIds);
+					return true;
+				});
+
+		if (!enqueuedAll) {
+			ourLog.debug(
+					"Some of the {} work chunks were not READY anymore, enqueuing them one at a time",
+					theChunkIds.size());
+			IJobPersistence.super.enqueueWorkChunksForProcessing(theChunkIds, theCallback);
+		}
+	}
+
 	@Override
 	public int updatePollWaitingChunksForJobIfReady(String theInstanceId) {
 		return myWorkChunkRepository.updateWorkChunksForPollWaiting(
@@ -526,9 +561,15 @@ public class JpaJobPersistenceImpl implements IJobPersistence {
 
 	@Override
 	public Stream<WorkChunk> fetchAllWorkChunksForStepStream(String theInstanceId, String theStepId) {
+		// Detach each entity once converted so the persistence context doesn't end up holding the
+		// data of every chunk in the step (this can be hundreds of thousands for a reduction step)
 		return myWorkChunkRepository
 				.fetchChunksForStep(theInstanceId, theStepId)
-				.map(this::toChunk);
+				.map(entity -> {
+					WorkChunk chunk = toChunk(entity);
+					myEntityManager.detach(entity);
+					return chunk;
+				});
 	}
 
 	@Override
@@ -35,6 +35,8 @@ import ca.uhn.fhir.jpa.bulk.export.model.ExportPIDIteratorParameters;
 import ca.uhn.fhir.jpa.dao.IResultIterator;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
+import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
+import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
 import ca.uhn.fhir.jpa.dao.mdm.MdmExpansionCacheSvc;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.entity.MdmLink;
@@ -72,6 +74,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -125,6 +130,12 @@ public class JpaBulkExportProcessor implements IBulkExportProcessor<JpaPid> {
 	@Autowired
 	private ISearchParamRegistry mySearchParamRegistry;
 
+	@Autowired
+	private IResourceLinkDao myResourceLinkDao;
+
+	@Autowired
+	private IResourceTableDao myResourceTableDao;
+
 	private IFhirPath myFhirPath;
 
 	@Override
@@ -153,6 +164,139 @@ public class JpaBulkExportProcessor implements IBulkExportProcessor<JpaPid> {
 				});
 	}
 
+	@Override
+	public Iterator<JpaPid> getPatientPidIteratorForCompartmentExport(ExportPIDIteratorParameters theParams) {
+		return myHapiTransactionService
+				.withSystemRequest()
+				.withRequestPartitionId(theParams.getPartitionIdOrAllPartitions())
+				.readOnly()
+				.execute(() -> {
+					Set<JpaPid> pids;
+					if (theParams.getExportStyle() == BulkExportJobParameters.ExportStyle.GROUP) {
+						pids = expandAllPatientPidsFromGroup(theParams);
+					} else {
+						pids = getPatientPidsForPatientStyleCompartmentExport(theParams);
+					}
+
+					// Sort the patients so that partitions cover contiguous ranges of PIDs
+					List<JpaPid> retVal = new ArrayList<>(pids);
+					retVal.sort(Comparator.comparing(JpaPid::getId));
+					ourLog.info("Found {} patients for partitioned compartment export", retVal.size());
+					return retVal.iterator();
+				});
+	}
+
+	@Override
+	public Iterator<JpaPid> getPatientCompartmentPidIterator(
+			ExportPIDIteratorParameters theParams, Collection<String> thePatientPids) {
+		return myHapiTransactionService
+				.withSystemRequest()
+				.withRequestPartitionId(theParams.getPartitionIdOrAllPartitions())
+				.readOnly()
+				.execute(() -> {
+					boolean includePatients =
+							theParams.getRequestedResourceTypes().contains("Patient");
+					Set<String> sourcePaths = new HashSet<>();
+					for (String resourceType : theParams.getRequestedResourceTypes()) {
+						if ("Patient".equals(resourceType)) {
+							continue;
+						}
+						RuntimeSearchParam patientSearchParam =
+								getPatientSearchParamForCurrentResourceType(resourceType);
+						RuntimeSearchParam activeSearchParam = patientSearchParam != null
+								? mySearchParamRegistry.getActiveSearchParam(resourceType, patientSearchParam.getName())
+								: null;
+						if (activeSearchParam == null) {
+							ourLog.warn("No active patient compartment search parameter(s) for resource type "
+									+ resourceType);
+							continue;
+						}
+						sourcePaths.addAll(activeSearchParam.getPathsSplitForResourceType(resourceType));
+					}
+
+					Date since = theParams.getStartDate();
+					RequestPartitionId partitionId = theParams.getPartitionIdOrAllPartitions();
+					List<Long> patientIds =
+							thePatientPids.stream().map(Long::parseLong).collect(Collectors.toList());
+					List<JpaPid> retVal = new ArrayList<>();
+
+					new QueryChunker<Long>().chunk(patientIds, idChunk -> {
+						if (includePatients) {
+							List<Long> patientPids = since != null
+									? myResourceTableDao.findIdsOfResourcesUpdatedSince(idChunk, since)
+									: idChunk;
+							patientPids.forEach(pid -> retVal.add(JpaPid.fromIdAndResourceType(pid, "Patient")));
+						}
+
+						if (!sourcePaths.isEmpty()) {
+							Map<Long, String> sourcePidToType = new HashMap<>();
+							for (Object[] next : findSourcePidsAndTypes(idChunk, sourcePaths, partitionId)) {
+								sourcePidToType.put((Long) next[0], (String) next[1]);
+							}
+							if (since != null) {
+								// Filtering by PK afterward avoids joining every link row to its source resource
+								new QueryChunker<Long>()
+										.chunk(
+												new ArrayList<>(sourcePidToType.keySet()),
+												sourceChunk -> myResourceTableDao
+														.findIdsOfResourcesUpdatedSince(sourceChunk, since)
+														.forEach(pid -> retVal.add(JpaPid.fromIdAndResourceType(
+																pid, sourcePidToType.get(pid)))));
+							} else {
+								sourcePidToType.forEach(
+										(pid, type) -> retVal.add(JpaPid.fromIdAndResourceType(pid, type)));
+							}
+						}
+					});
+
+					ourLog.debug(
+							"Bulk export job[{}] chunk[{}] found {} resources in the compartments of {} patients",
+							theParams.getInstanceId(),
+							theParams.getChunkId(),
+							retVal.size(),
+							patientIds.size());
+					return retVal.iterator();
+				});
+	}
+
+	private Collection<Object[]> findSourcePidsAndTypes(
+			List<Long> theTargetPids, Set<String> theSourcePaths, RequestPartitionId theRequestPartitionId) {
+		if (theRequestPartitionId.isAllPartitions()) {
+			return myResourceLinkDao.findSourcePidsAndTypesForTargetPids(theTargetPids, theSourcePaths);
+		} else if (theRequestPartitionId.isDefaultPartition()) {
+			return myResourceLinkDao.findSourcePidsAndTypesForTargetPidsForDefaultPartition(
+					theTargetPids, theSourcePaths);
+		} else {
+			return myResourceLinkDao.findSourcePidsAndTypesForTargetPidsForPartitionIds(
+					theTargetPids, theSourcePaths, theRequestPartitionId.getPartitionIds());
+		}
+	}
+
+	private Set<JpaPid> getPatientPidsForPatientStyleCompartmentExport(ExportPIDIteratorParameters theParams)
+			throws IOException {
+		Set<JpaPid> pids = new HashSet<>();
+		RuntimeResourceDefinition def = myContext.getResourceDefinition("Patient");
+		List<SearchParameterMap> maps =
+				myBulkExportHelperSvc.createSearchParameterMapsForResourceType(def, theParams, false);
+		for (SearchParameterMap map : maps) {
+			if (theParams.getPatientIds() != null) {
+				map.add(PARAM_ID, getReferenceOrListParam(theParams));
+			}
+
+			ISearchBuilder<JpaPid> searchBuilder = getSearchBuilderForResourceType("Patient");
+			try (IResultIterator<JpaPid> resultIterator = searchBuilder.createQuery(
+					map,
+					new SearchRuntimeDetails(null, theParams.getInstanceId()),
+					new SystemRequestDetails(),
+					theParams.getPartitionIdOrAllPartitions())) {
+				while (resultIterator.hasNext()) {
+					pids.add(resultIterator.next());
+				}
+			}
+		}
+		return pids;
+	}
+
 	@SuppressWarnings("unchecked")
 	private LinkedHashSet<JpaPid> getPidsForPatientStyleExport(
 			ExportPIDIteratorParameters theParams,
@@ -64,8 +64,13 @@ public class Batch2SupportConfig {
 			ResourceTableFKProvider theResourceTableFKProvider,
 			JpaStorageSettings theStorageSettings,
 			IIdHelperService theIdHelper,
-			IResourceLinkDao theResourceLinkDao) {
+			IResourceLinkDao theResourceLinkDao,
+			HibernatePropertiesProvider theHibernatePropertiesProvider) {
 		return new DeleteExpungeSqlBuilder(
-				theResourceTableFKProvider, theStorageSettings, theIdHelper, theResourceLinkDao);
+				theResourceTableFKProvider,
+				theStorageSettings,
+				theIdHelper,
+				theResourceLinkDao,
+				theHibernatePropertiesProvider);
 	}
 }
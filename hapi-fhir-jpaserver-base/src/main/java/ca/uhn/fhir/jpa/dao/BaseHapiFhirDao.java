@@ -240,7 +240,7 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 	private SearchParamWithInlineReferencesExtractor mySearchParamWithInlineReferencesExtractor;
 
 	@Autowired
-	private DaoSearchParamSynchronizer myDaoSearchParamSynchronizer;
+	protected DaoSearchParamSynchronizer myDaoSearchParamSynchronizer;
 
 	private FhirContext myContext;
 	private ApplicationContext myApplicationContext;
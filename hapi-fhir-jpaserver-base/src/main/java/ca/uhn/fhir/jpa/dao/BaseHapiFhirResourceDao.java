@@ -25,6 +25,7 @@ import ca.uhn.fhir.batch2.jobs.reindex.ReindexJobParameters;
 import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
@@ -66,6 +67,8 @@ import ca.uhn.fhir.jpa.search.cache.SearchCacheStatusEnum;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.ResourceSearch;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
@@ -222,6 +225,9 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 	@Autowired
 	private IFhirSystemDao<?, ?> mySystemDao;
 
+	@Autowired
+	private SearchParamExtractorService mySearchParamExtractorService;
+
 	@Nullable
 	public static <T extends IBaseResource> T invokeStoragePreShowResources(
 			IInterceptorBroadcaster theInterceptorBroadcaster, RequestDetails theRequest, T retVal) {
@@ -1633,7 +1639,12 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		}
 
 		if (theReindexParameters.getReindexSearchParameters() == ReindexParameters.ReindexSearchParametersEnum.ALL) {
-			reindexSearchParameters(entity, retVal, theTransactionDetails);
+			if (theReindexParameters.getSearchParameterNames().isEmpty()) {
+				reindexSearchParameters(entity, retVal, theTransactionDetails);
+			} else {
+				reindexSelectedSearchParameters(
+						entity, theReindexParameters.getSearchParameterNames(), retVal, theTransactionDetails);
+			}
 		}
 		if (theReindexParameters.getOptimizeStorage() != ReindexParameters.OptimizeStorageModeEnum.NONE) {
 			reindexOptimizeStorage(entity, theReindexParameters.getOptimizeStorage());
@@ -1655,6 +1666,66 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 		}
 	}
 
+	/**
+	 * Re-extracts only the given search parameters and rewrites only their index rows. Unlike
+	 * a full reindex, this does not touch the resource body, the other index tables or the
+	 * combo indexes, so it is much cheaper when only a single search parameter has changed.
+	 */
+	private void reindexSelectedSearchParameters(
+			ResourceTable theEntity,
+			Set<String> theSearchParameterNames,
+			ReindexOutcome theReindexOutcome,
+			TransactionDetails theTransactionDetails) {
+		if (theEntity.getDeleted() != null) {
+			return;
+		}
+
+		List<RuntimeSearchParam> searchParams = new ArrayList<>();
+		for (String next : theSearchParameterNames) {
+			RuntimeSearchParam searchParam =
+					mySearchParamRegistry.getActiveSearchParam(theEntity.getResourceType(), next);
+			if (searchParam != null) {
+				searchParams.add(searchParam);
+			}
+		}
+		if (searchParams.isEmpty()) {
+			return;
+		}
+
+		try {
+			IBaseResource resource = myJpaStorageResourceParser.toResource(theEntity, false);
+
+			RequestPartitionId requestPartitionId;
+			if (!myPartitionSettings.isPartitioningEnabled()) {
+				requestPartitionId = RequestPartitionId.allPartitions();
+			} else if (theEntity.getPartitionId() != null) {
+				requestPartitionId = theEntity.getPartitionId().toPartitionId();
+			} else {
+				requestPartitionId = RequestPartitionId.defaultPartition();
+			}
+
+			ResourceIndexedSearchParams newParams = ResourceIndexedSearchParams.withSets();
+			mySearchParamExtractorService.extractFromResource(
+					requestPartitionId,
+					new SystemRequestDetails(),
+					newParams,
+					ResourceIndexedSearchParams.empty(),
+					theEntity,
+					resource,
+					theTransactionDetails,
+					false,
+					params -> params.stream()
+							.filter(t -> theSearchParameterNames.contains(t.getName()))
+							.collect(Collectors.toSet()));
+
+			myDaoSearchParamSynchronizer.synchronizeSelectedSearchParamsToDatabase(newParams, theEntity, searchParams);
+		} catch (Exception e) {
+			ourLog.warn("Failure during reindex: {}", e.toString());
+			theReindexOutcome.addWarning("Failed to reindex resource " + theEntity.getIdDt() + ": " + e);
+			myResourceTableDao.updateIndexStatus(theEntity.getId(), INDEX_STATUS_INDEXING_FAILED);
+		}
+	}
+
 	/**
 	 * @deprecated Use {@link #reindex(IResourcePersistentId, ReindexParameters, RequestDetails, TransactionDetails)}
 	 */
@@ -22,10 +22,13 @@ package ca.uhn.fhir.jpa.dao.data;
 import ca.uhn.fhir.batch2.model.BatchWorkChunkStatusDTO;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.jpa.entity.Batch2WorkChunkEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
@@ -60,8 +63,14 @@ public interface IBatch2WorkChunkRepository
 	Set<WorkChunkStatusEnum> getDistinctStatusesForStep(
 			@Param("instanceId") String theInstanceId, @Param("stepId") String theStepId);
 
+	/**
+	 * Streams the chunks for a step, including their data. The fetch size hint keeps the JDBC
+	 * driver from buffering the whole result set, so callers must detach each entity once they
+	 * are done with it to keep memory bounded.
+	 */
 	@Query(
 			"SELECT e FROM Batch2WorkChunkEntity e WHERE e.myInstanceId = :instanceId AND e.myTargetStepId = :targetStepId ORDER BY e.mySequence ASC")
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100")})
 	Stream<Batch2WorkChunkEntity> fetchChunksForStep(
 			@Param("instanceId") String theInstanceId, @Param("targetStepId") String theTargetStepId);
 
@@ -129,6 +138,14 @@ public interface IBatch2WorkChunkRepository
 			@Param("oldStatus") WorkChunkStatusEnum theOldStatus,
 			@Param("newStatus") WorkChunkStatusEnum theNewStatus);
 
+	@Modifying
+	@Query(
+			"UPDATE Batch2WorkChunkEntity e SET e.myStatus = :newStatus WHERE e.myId IN (:ids) AND e.myStatus = :oldStatus")
+	int updateChunkStatusForIds(
+			@Param("ids") List<String> theChunkIds,
+			@Param("oldStatus") WorkChunkStatusEnum theOldStatus,
+			@Param("newStatus") WorkChunkStatusEnum theNewStatus);
+
 	@Modifying
 	@Query(
 			"UPDATE Batch2WorkChunkEntity e SET e.myStatus = :newStatus WHERE e.myInstanceId = :instanceId AND e.myTargetStepId = :stepId AND e.myStatus IN ( :oldStatuses )")
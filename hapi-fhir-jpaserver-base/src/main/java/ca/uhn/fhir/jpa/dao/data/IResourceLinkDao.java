@@ -25,6 +25,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface IResourceLinkDao extends JpaRepository<ResourceLink, Long>, IHapiFhirJpaRepository {
@@ -45,4 +46,35 @@ public interface IResourceLinkDao extends JpaRepository<ResourceLink, Long>, IHa
 	 */
 	@Query("SELECT t FROM ResourceLink t LEFT JOIN FETCH t.myTargetResource tr WHERE t.myId in :pids")
 	List<ResourceLink> findByPidAndFetchTargetDetails(@Param("pids") List<Long> thePids);
+
+	/**
+	 * Returns the PID and resource type of every resource with a link at one of the given
+	 * source paths to one of the given target resources.
+	 */
+	@Query(
+			"SELECT DISTINCT t.mySourceResourcePid, t.mySourceResourceType FROM ResourceLink t WHERE t.myTargetResourcePid IN (:targetPids) AND t.mySourcePath IN (:sourcePaths)")
+	Collection<Object[]> findSourcePidsAndTypesForTargetPids(
+			@Param("targetPids") Collection<Long> theTargetPids,
+			@Param("sourcePaths") Collection<String> theSourcePaths);
+
+	/**
+	 * Same as {@link #findSourcePidsAndTypesForTargetPids(Collection, Collection)}, but only returns
+	 * source resources in the default partition.
+	 */
+	@Query(
+			"SELECT DISTINCT t.mySourceResourcePid, t.mySourceResourceType FROM ResourceLink t WHERE t.myTargetResourcePid IN (:targetPids) AND t.mySourcePath IN (:sourcePaths) AND t.myPartitionIdValue IS NULL")
+	Collection<Object[]> findSourcePidsAndTypesForTargetPidsForDefaultPartition(
+			@Param("targetPids") Collection<Long> theTargetPids,
+			@Param("sourcePaths") Collection<String> theSourcePaths);
+
+	/**
+	 * Same as {@link #findSourcePidsAndTypesForTargetPids(Collection, Collection)}, but only returns
+	 * source resources in the given partitions.
+	 */
+	@Query(
+			"SELECT DISTINCT t.mySourceResourcePid, t.mySourceResourceType FROM ResourceLink t WHERE t.myTargetResourcePid IN (:targetPids) AND t.mySourcePath IN (:sourcePaths) AND t.myPartitionIdValue IN (:partition_ids)")
+	Collection<Object[]> findSourcePidsAndTypesForTargetPidsForPartitionIds(
+			@Param("targetPids") Collection<Long> theTargetPids,
+			@Param("sourcePaths") Collection<String> theSourcePaths,
+			@Param("partition_ids") List<Integer> thePartitionIds);
 }
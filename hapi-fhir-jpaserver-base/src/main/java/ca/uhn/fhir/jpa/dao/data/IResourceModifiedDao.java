@@ -23,13 +23,19 @@ package ca.uhn.fhir.jpa.dao.data;
 import ca.uhn.fhir.jpa.model.entity.IPersistedResourceModifiedMessage;
 import ca.uhn.fhir.jpa.model.entity.PersistedResourceModifiedMessageEntityPK;
 import ca.uhn.fhir.jpa.model.entity.ResourceModifiedEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+
 public interface IResourceModifiedDao
 		extends JpaRepository<ResourceModifiedEntity, PersistedResourceModifiedMessageEntityPK>,
 				IHapiFhirJpaRepository {
@@ -37,6 +43,15 @@ public interface IResourceModifiedDao
 	@Query("SELECT r FROM ResourceModifiedEntity r ORDER BY r.myCreatedTime ASC")
 	Page<IPersistedResourceModifiedMessage> findAllOrderedByCreatedTime(Pageable thePage);
 
+	/**
+	 * Lock timeout of -2 is translated by Hibernate into <code>SKIP LOCKED</code> (or the dialect
+	 * equivalent) so rows already claimed by another server are not returned.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints({@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")})
+	@Query("SELECT r FROM ResourceModifiedEntity r ORDER BY r.myCreatedTime ASC")
+	List<IPersistedResourceModifiedMessage> findAndLockOldestUnclaimed(Pageable thePage);
+
 	@Modifying
 	@Query("delete from ResourceModifiedEntity r where r.myResourceModifiedEntityPK =:pk")
 	int removeById(@Param("pk") PersistedResourceModifiedMessageEntityPK thePK);
@@ -56,6 +56,9 @@ public interface IResourceTableDao
 			"SELECT t.myResourceType as type, COUNT(t.myResourceType) as count FROM ResourceTable t GROUP BY t.myResourceType")
 	List<Map<?, ?>> getResourceCounts();
 
+	@Query("SELECT t.myId FROM ResourceTable t WHERE t.myId IN (:pids) AND t.myUpdated >= :low")
+	List<Long> findIdsOfResourcesUpdatedSince(@Param("pids") Collection<Long> thePids, @Param("low") Date theLow);
+
 	@Query(
 			"SELECT t.myId FROM ResourceTable t WHERE t.myUpdated >= :low AND t.myUpdated <= :high ORDER BY t.myUpdated DESC")
 	Slice<Long> findIdsOfResourcesWithinUpdatedRangeOrderedFromNewest(
@@ -119,6 +122,52 @@ public interface IResourceTableDao
 			@Param("low") Date theLow,
 			@Param("high") Date theHigh);
 
+	@Query(
+			"SELECT COUNT(t.myId), MIN(t.myId), MAX(t.myId) FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myDeleted IS NULL AND t.myUpdated >= :low AND t.myUpdated <= :high")
+	List<Object[]> findCountAndMinAndMaxIdsOfResourcesOfType(
+			@Param("restype") String theResourceType, @Param("low") Date theLow, @Param("high") Date theHigh);
+
+	@Query(
+			"SELECT COUNT(t.myId), MIN(t.myId), MAX(t.myId) FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myDeleted IS NULL AND t.myUpdated >= :low AND t.myUpdated <= :high AND t.myPartitionIdValue IS NULL")
+	List<Object[]> findCountAndMinAndMaxIdsOfResourcesOfTypeForDefaultPartition(
+			@Param("restype") String theResourceType, @Param("low") Date theLow, @Param("high") Date theHigh);
+
+	@Query(
+			"SELECT COUNT(t.myId), MIN(t.myId), MAX(t.myId) FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myDeleted IS NULL AND t.myUpdated >= :low AND t.myUpdated <= :high AND t.myPartitionIdValue IN (:partition_ids)")
+	List<Object[]> findCountAndMinAndMaxIdsOfResourcesOfTypeForPartitionIds(
+			@Param("restype") String theResourceType,
+			@Param("low") Date theLow,
+			@Param("high") Date theHigh,
+			@Param("partition_ids") List<Integer> theRequestPartitionIds);
+
+	@Query(
+			"SELECT t.myId FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myId >= :startpid AND t.myId < :endpid AND t.myUpdated >= :low AND t.myUpdated <= :high AND t.myDeleted IS NULL ORDER BY t.myId ASC")
+	Stream<Long> streamIdsOfResourcesOfTypeWithinPidRange(
+			@Param("restype") String theResourceType,
+			@Param("startpid") Long theStartPid,
+			@Param("endpid") Long theEndPid,
+			@Param("low") Date theLow,
+			@Param("high") Date theHigh);
+
+	@Query(
+			"SELECT t.myId FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myId >= :startpid AND t.myId < :endpid AND t.myUpdated >= :low AND t.myUpdated <= :high AND t.myDeleted IS NULL AND t.myPartitionIdValue IS NULL ORDER BY t.myId ASC")
+	Stream<Long> streamIdsOfResourcesOfTypeWithinPidRangeForDefaultPartition(
+			@Param("restype") String theResourceType,
+			@Param("startpid") Long theStartPid,
+			@Param("endpid") Long theEndPid,
+			@Param("low") Date theLow,
+			@Param("high") Date theHigh);
+
+	@Query(
+			"SELECT t.myId FROM ResourceTable t WHERE t.myResourceType = :restype AND t.myId >= :startpid AND t.myId < :endpid AND t.myUpdated >= :low AND t.myUpdated <= :high AND t.myDeleted IS NULL AND t.myPartitionIdValue IN (:partition_ids) ORDER BY t.myId ASC")
+	Stream<Long> streamIdsOfResourcesOfTypeWithinPidRangeForPartitionIds(
+			@Param("restype") String theResourceType,
+			@Param("startpid") Long theStartPid,
+			@Param("endpid") Long theEndPid,
+			@Param("low") Date theLow,
+			@Param("high") Date theHigh,
+			@Param("partition_ids") List<Integer> theRequestPartitionIds);
+
 	@Modifying
 	@Query("UPDATE ResourceTable t SET t.myIndexStatus = :status WHERE t.myId = :id")
 	void updateIndexStatus(@Param("id") Long theId, @Param("status") Long theIndexStatus);
@@ -20,12 +20,16 @@
 package ca.uhn.fhir.jpa.dao.data;
 
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Collection;
+import java.util.stream.Stream;
 
 public interface ITermConceptParentChildLinkDao
 		extends JpaRepository<TermConceptParentChildLink, Long>, IHapiFhirJpaRepository {
@@ -33,6 +37,14 @@ public interface ITermConceptParentChildLinkDao
 	@Query("SELECT t.myParentPid FROM TermConceptParentChildLink t WHERE t.myChildPid = :child_pid")
 	Collection<Long> findAllWithChild(@Param("child_pid") Long theConceptPid);
 
+	/**
+	 * Returns the parent and child concept PIDs of every link in the given code system version
+	 */
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000")})
+	@Query(
+			"SELECT t.myParentPid, t.myChildPid FROM TermConceptParentChildLink t WHERE t.myCodeSystemVersionPid = :cs_pid")
+	Stream<Object[]> streamParentAndChildPidsForCodeSystemVersion(@Param("cs_pid") Long theCodeSystemVersionPid);
+
 	@Modifying
 	@Query("DELETE FROM TermConceptParentChildLink WHERE myCodeSystemVersionPid = :cs_pid")
 	int deleteByCodeSystemVersion(@Param("cs_pid") Long thePid);
@@ -20,14 +20,18 @@
 package ca.uhn.fhir.jpa.dao.data;
 
 import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ITermValueSetConceptDao extends JpaRepository<TermValueSetConcept, Long>, IHapiFhirJpaRepository {
 
@@ -75,6 +79,14 @@ public interface ITermValueSetConceptDao extends JpaRepository<TermValueSetConce
 			@Param("system_version") String theSystemVersion,
 			@Param("codeval") String theCode);
 
+	/**
+	 * Returns the system, system version, code and display of every concept in the given pre-expanded ValueSet
+	 */
+	@QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000")})
+	@Query(
+			"SELECT vsc.mySystem, vsc.mySystemVer, vsc.myCode, vsc.myDisplay FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid")
+	Stream<Object[]> streamMembersByTermValueSetId(@Param("pid") Long theValueSetId);
+
 	@Query("SELECT vsc.myId FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid ORDER BY vsc.myId")
 	List<Long> findIdsByTermValueSetId(@Param("pid") Long theValueSetId);
 
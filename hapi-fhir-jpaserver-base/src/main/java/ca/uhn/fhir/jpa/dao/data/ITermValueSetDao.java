@@ -24,6 +24,7 @@ import ca.uhn.fhir.jpa.entity.TermValueSetPreExpansionStatusEnum;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -44,6 +45,23 @@ public interface ITermValueSetDao extends JpaRepository<TermValueSet, Long>, IHa
 	Slice<TermValueSet> findByExpansionStatus(
 			Pageable pageable, @Param("expansion_status") TermValueSetPreExpansionStatusEnum theExpansionStatus);
 
+	@Query("SELECT vs.myId FROM TermValueSet vs WHERE vs.myExpansionStatus = :expansion_status")
+	List<Long> findPidsByExpansionStatus(
+			@Param("expansion_status") TermValueSetPreExpansionStatusEnum theExpansionStatus);
+
+	/**
+	 * Moves the given ValueSet from one expansion status to another, but only if it is
+	 * still in the expected status. Returns the number of rows updated, so a caller
+	 * can tell whether it won the transition or another thread got there first.
+	 */
+	@Modifying
+	@Query(
+			"UPDATE TermValueSet vs SET vs.myExpansionStatus = :new_status, vs.myTotalConcepts = 0, vs.myTotalConceptDesignations = 0 WHERE vs.myId = :pid AND vs.myExpansionStatus = :expected_status")
+	int updateExpansionStatusIfCurrently(
+			@Param("pid") Long thePid,
+			@Param("expected_status") TermValueSetPreExpansionStatusEnum theExpectedStatus,
+			@Param("new_status") TermValueSetPreExpansionStatusEnum theNewStatus);
+
 	@Query(
 			value =
 					"SELECT vs FROM TermValueSet vs INNER JOIN ResourceTable r ON r.myId = vs.myResourcePid WHERE vs.myUrl = :url ORDER BY r.myUpdated DESC")
@@ -19,10 +19,14 @@
  */
 package ca.uhn.fhir.jpa.dao.expunge;
 
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.entity.Batch2JobInstanceEntity;
 import ca.uhn.fhir.jpa.entity.Batch2WorkChunkEntity;
@@ -47,6 +51,7 @@ import ca.uhn.fhir.jpa.entity.TermConceptProperty;
 import ca.uhn.fhir.jpa.entity.TermValueSet;
 import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
 import ca.uhn.fhir.jpa.entity.TermValueSetConceptDesignation;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.entity.NpmPackageEntity;
 import ca.uhn.fhir.jpa.model.entity.NpmPackageVersionEntity;
 import ca.uhn.fhir.jpa.model.entity.NpmPackageVersionResourceEntity;
@@ -72,35 +77,94 @@ import ca.uhn.fhir.jpa.model.entity.TagDefinition;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.rest.server.util.CompositeInterceptorBroadcaster;
 import ca.uhn.fhir.util.StopWatch;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.PersistenceContextType;
 import jakarta.persistence.Query;
+import jakarta.persistence.Table;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.metamodel.EntityType;
 import jakarta.persistence.metamodel.Metamodel;
 import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.dialect.PostgreSQLDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 public class ExpungeEverythingService implements IExpungeEverythingService {
 	private static final Logger ourLog = LoggerFactory.getLogger(ExpungeEverythingService.class);
 
+	/**
+	 * The entity types emptied by {@link #deleteAll(RequestDetails, Propagation, RequestPartitionId, AtomicInteger)}
+	 */
+	private static final List<Class<?>> TRUNCATE_ENTITY_TYPES = List.of(
+			Batch2WorkChunkEntity.class,
+			Batch2JobInstanceEntity.class,
+			NpmPackageVersionResourceEntity.class,
+			NpmPackageVersionEntity.class,
+			NpmPackageEntity.class,
+			SearchParamPresentEntity.class,
+			BulkImportJobFileEntity.class,
+			BulkImportJobEntity.class,
+			ResourceIndexedSearchParamDate.class,
+			ResourceIndexedSearchParamNumber.class,
+			ResourceIndexedSearchParamQuantity.class,
+			ResourceIndexedSearchParamQuantityNormalized.class,
+			ResourceIndexedSearchParamString.class,
+			ResourceIndexedSearchParamToken.class,
+			ResourceIndexedSearchParamUri.class,
+			ResourceIndexedSearchParamCoords.class,
+			ResourceIndexedComboStringUnique.class,
+			ResourceIndexedComboTokenNonUnique.class,
+			ResourceLink.class,
+			SearchResult.class,
+			SearchInclude.class,
+			TermValueSetConceptDesignation.class,
+			TermValueSetConcept.class,
+			TermValueSet.class,
+			TermConceptParentChildLink.class,
+			TermConceptMapGroupElementTarget.class,
+			TermConceptMapGroupElement.class,
+			TermConceptMapGroup.class,
+			TermConceptMap.class,
+			TermConceptProperty.class,
+			TermConceptDesignation.class,
+			TermConcept.class,
+			TermCodeSystemVersion.class,
+			TermCodeSystem.class,
+			SubscriptionTable.class,
+			ResourceHistoryTag.class,
+			ResourceTag.class,
+			TagDefinition.class,
+			ResourceHistoryProvenanceEntity.class,
+			ResourceHistoryTable.class,
+			ResourceSearchUrlEntity.class,
+			ResourceTable.class,
+			PartitionEntity.class,
+			Search.class);
+
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	protected EntityManager myEntityManager;
 
@@ -116,6 +180,18 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionHelperSvc;
 
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@Autowired
+	private PartitionSettings myPartitionSettings;
+
+	@Autowired
+	private HibernatePropertiesProvider myHibernatePropertiesProvider;
+
+	@Autowired(required = false)
+	private IFulltextSearchSvc myFulltextSearchSvc;
+
 	private int deletedResourceEntityCount;
 
 	@Override
@@ -137,7 +213,11 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 				myRequestPartitionHelperSvc.determineReadPartitionForRequestForServerOperation(
 						theRequest, ProviderConstants.OPERATION_EXPUNGE);
 
-		deleteAll(theRequest, propagation, requestPartitionId, counter);
+		if (canTruncateEverything(requestPartitionId)) {
+			truncateAll(theRequest, requestPartitionId, counter);
+		} else {
+			deleteAll(theRequest, propagation, requestPartitionId, counter);
+		}
 
 		purgeAllCaches();
 
@@ -149,6 +229,23 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 			Propagation propagation,
 			RequestPartitionId requestPartitionId,
 			AtomicInteger counter) {
+		// One executor is shared by all the tables expunged in this run
+		ThreadPoolTaskExecutor executor = newParallelRangesExecutorIfEnabled();
+		try {
+			deleteAll(theRequest, propagation, requestPartitionId, counter, executor);
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	private void deleteAll(
+			@Nullable RequestDetails theRequest,
+			Propagation propagation,
+			RequestPartitionId requestPartitionId,
+			AtomicInteger counter,
+			@Nullable ThreadPoolTaskExecutor executor) {
 		myTxService
 				.withRequest(theRequest)
 				.withPropagation(propagation)
@@ -157,64 +254,70 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 					counter.addAndGet(doExpungeEverythingQuery(
 							"UPDATE " + TermCodeSystem.class.getSimpleName() + " d SET d.myCurrentVersion = null"));
 				});
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, Batch2WorkChunkEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, Batch2JobInstanceEntity.class, requestPartitionId));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, NpmPackageVersionResourceEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, NpmPackageVersionEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, NpmPackageEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, SearchParamPresentEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, BulkImportJobFileEntity.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, BulkImportJobEntity.class, requestPartitionId));
+				theRequest, Batch2WorkChunkEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamDate.class, requestPartitionId));
+				theRequest, Batch2JobInstanceEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamNumber.class, requestPartitionId));
+				theRequest, NpmPackageVersionResourceEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamQuantity.class, requestPartitionId));
+				theRequest, NpmPackageVersionEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamQuantityNormalized.class, requestPartitionId));
+				theRequest, NpmPackageEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamString.class, requestPartitionId));
+				theRequest, SearchParamPresentEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamToken.class, requestPartitionId));
+				theRequest, BulkImportJobFileEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamUri.class, requestPartitionId));
+				theRequest, BulkImportJobEntity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedSearchParamCoords.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamDate.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedComboStringUnique.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamNumber.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceIndexedComboTokenNonUnique.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, ResourceLink.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, SearchResult.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, SearchInclude.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamQuantity.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, TermValueSetConceptDesignation.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, TermValueSetConcept.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, TermValueSet.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamQuantityNormalized.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceIndexedSearchParamString.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, TermConceptParentChildLink.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamToken.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, TermConceptMapGroupElementTarget.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamUri.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, TermConceptMapGroupElement.class, requestPartitionId));
+				theRequest, ResourceIndexedSearchParamCoords.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceIndexedComboStringUnique.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceIndexedComboTokenNonUnique.class, requestPartitionId, executor));
+		counter.addAndGet(
+				expungeEverythingByTypeWithoutPurging(theRequest, ResourceLink.class, requestPartitionId, executor));
+		counter.addAndGet(
+				expungeEverythingByTypeWithoutPurging(theRequest, SearchResult.class, requestPartitionId, executor));
+		counter.addAndGet(
+				expungeEverythingByTypeWithoutPurging(theRequest, SearchInclude.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermValueSetConceptDesignation.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermValueSetConcept.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, TermConceptMapGroup.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, TermConceptMap.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, TermValueSet.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptParentChildLink.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptMapGroupElementTarget.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptMapGroupElement.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptMapGroup.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, TermConceptProperty.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, TermConceptMap.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptProperty.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermConceptDesignation.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, TermConceptDesignation.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, TermConcept.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, TermConcept.class, requestPartitionId, executor));
 		myTxService
 				.withRequest(theRequest)
 				.withPropagation(propagation)
@@ -227,25 +330,30 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 						myEntityManager.merge(next);
 					}
 				});
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, TermCodeSystemVersion.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, TermCodeSystemVersion.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, TermCodeSystem.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, SubscriptionTable.class, requestPartitionId));
-		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, ResourceHistoryTag.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, ResourceTag.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, TagDefinition.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, TermCodeSystem.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, SubscriptionTable.class, requestPartitionId, executor));
 		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
-				theRequest, ResourceHistoryProvenanceEntity.class, requestPartitionId));
+				theRequest, ResourceHistoryTag.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, ResourceHistoryTable.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, ResourceTag.class, requestPartitionId, executor));
 		counter.addAndGet(
-				expungeEverythingByTypeWithoutPurging(theRequest, ResourceSearchUrlEntity.class, requestPartitionId));
+				expungeEverythingByTypeWithoutPurging(theRequest, TagDefinition.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceHistoryProvenanceEntity.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceHistoryTable.class, requestPartitionId, executor));
+		counter.addAndGet(expungeEverythingByTypeWithoutPurging(
+				theRequest, ResourceSearchUrlEntity.class, requestPartitionId, executor));
 
 		int counterBefore = counter.get();
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, ResourceTable.class, requestPartitionId));
-		counter.addAndGet(expungeEverythingByTypeWithoutPurging(theRequest, PartitionEntity.class, requestPartitionId));
+		counter.addAndGet(
+				expungeEverythingByTypeWithoutPurging(theRequest, ResourceTable.class, requestPartitionId, executor));
+		counter.addAndGet(
+				expungeEverythingByTypeWithoutPurging(theRequest, PartitionEntity.class, requestPartitionId, executor));
 
 		deletedResourceEntityCount = counter.get() - counterBefore;
 
@@ -258,6 +366,58 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 				});
 	}
 
+	private boolean canTruncateEverything(RequestPartitionId theRequestPartitionId) {
+		if (!myStorageSettings.isExpungeEverythingFastPathEnabled()) {
+			return false;
+		}
+		if (!(myHibernatePropertiesProvider.getDialect() instanceof PostgreSQLDialect)) {
+			return false;
+		}
+		// TRUNCATE can't be limited to the requested partitions
+		if (myPartitionSettings.isPartitioningEnabled() && !theRequestPartitionId.isAllPartitions()) {
+			return false;
+		}
+		// Hibernate Search isn't aware of rows removed by TRUNCATE
+		return isFulltextDisabled();
+	}
+
+	private boolean isFulltextDisabled() {
+		return myFulltextSearchSvc == null || myFulltextSearchSvc.isDisabled();
+	}
+
+	/**
+	 * Empties every table that {@link #deleteAll(RequestDetails, Propagation, RequestPartitionId, AtomicInteger)}
+	 * deletes from using a single <code>TRUNCATE ... CASCADE</code> statement. Truncating all of the tables
+	 * together means that the foreign key order (including the circular reference between the
+	 * code system tables) doesn't matter.
+	 */
+	private void truncateAll(
+			@Nullable RequestDetails theRequest, RequestPartitionId theRequestPartitionId, AtomicInteger theCounter) {
+		StopWatch sw = new StopWatch();
+		String tableNames = TRUNCATE_ENTITY_TYPES.stream()
+				.map(t -> t.getAnnotation(Table.class).name())
+				.collect(Collectors.joining(", "));
+
+		myTxService
+				.withRequest(theRequest)
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> {
+					// TRUNCATE doesn't report a row count, so we only count the resources
+					Long resourceCount = myEntityManager
+							.createQuery("SELECT COUNT(*) FROM " + ResourceTable.class.getSimpleName(), Long.class)
+							.getSingleResult();
+					deletedResourceEntityCount = resourceCount.intValue();
+					theCounter.addAndGet(deletedResourceEntityCount);
+
+					myEntityManager
+							.createNativeQuery("TRUNCATE TABLE " + tableNames + " CASCADE")
+							.executeUpdate();
+				});
+
+		ourLog.info("Truncated {} tables in {}", TRUNCATE_ENTITY_TYPES.size(), sw);
+	}
+
 	@Override
 	public int getExpungeDeletedEntityCount() {
 		return deletedResourceEntityCount;
@@ -269,8 +429,32 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 
 	protected <T> int expungeEverythingByTypeWithoutPurging(
 			RequestDetails theRequest, Class<T> theEntityType, RequestPartitionId theRequestPartitionId) {
+		return expungeEverythingByTypeWithoutPurging(theRequest, theEntityType, theRequestPartitionId, null);
+	}
+
+	/**
+	 * @param theParallelRangesExecutor The executor to delete ranges of the table with when the fast path is
+	 *                                  enabled. If <code>null</code>, a temporary one is created if needed.
+	 */
+	private <T> int expungeEverythingByTypeWithoutPurging(
+			RequestDetails theRequest,
+			Class<T> theEntityType,
+			RequestPartitionId theRequestPartitionId,
+			@Nullable ThreadPoolTaskExecutor theParallelRangesExecutor) {
 		HapiTransactionService.noTransactionAllowed();
 
+		if (isParallelRangesEnabled() && (!ResourceTable.class.equals(theEntityType) || isFulltextDisabled())) {
+			SingularAttribute<? super T, ?> idAttribute = getIdAttribute(theEntityType);
+			if (Long.class.equals(idAttribute.getJavaType())) {
+				return expungeEverythingByTypeInParallelRanges(
+						theRequest,
+						theEntityType,
+						idAttribute.getName(),
+						theRequestPartitionId,
+						theParallelRangesExecutor);
+			}
+		}
+
 		int outcome = 0;
 		while (true) {
 			StopWatch sw = new StopWatch();
@@ -302,16 +486,7 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 							return results.size();
 						}
 
-						Metamodel metamodel = myEntityManager.getMetamodel();
-						EntityType<T> entity = metamodel.entity(theEntityType);
-						Set<SingularAttribute<? super T, ?>> singularAttributes = entity.getSingularAttributes();
-						String idProperty = null;
-						for (SingularAttribute<? super T, ?> singularAttribute : singularAttributes) {
-							if (singularAttribute.isId()) {
-								idProperty = singularAttribute.getName();
-								break;
-							}
-						}
+						String idProperty = getIdAttribute(theEntityType).getName();
 
 						Query nativeQuery = myEntityManager.createQuery(
 								"SELECT " + idProperty + " FROM " + theEntityType.getSimpleName());
@@ -335,6 +510,128 @@ public class ExpungeEverythingService implements IExpungeEverythingService {
 		return outcome;
 	}
 
+	/**
+	 * Splits the primary key space of the table into one range per expunge thread, and deletes
+	 * the rows of each range in parallel. Each worker deletes its range in batches, each in its
+	 * own transaction, so that no single transaction gets too large.
+	 */
+	private <T> int expungeEverythingByTypeInParallelRanges(
+			RequestDetails theRequest,
+			Class<T> theEntityType,
+			String theIdProperty,
+			RequestPartitionId theRequestPartitionId,
+			@Nullable ThreadPoolTaskExecutor theExecutor) {
+		StopWatch sw = new StopWatch();
+		String entityName = theEntityType.getSimpleName();
+
+		Object[] minAndMax = myTxService
+				.withRequest(theRequest)
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.withRequestPartitionId(theRequestPartitionId)
+				.execute(() -> (Object[]) myEntityManager
+						.createQuery("SELECT MIN(" + theIdProperty + "), MAX(" + theIdProperty + ") FROM " + entityName)
+						.getSingleResult());
+		if (minAndMax == null || minAndMax[0] == null) {
+			return 0;
+		}
+
+		long min = ((Number) minAndMax[0]).longValue();
+		long max = ((Number) minAndMax[1]).longValue();
+		int threadCount = myStorageSettings.getExpungeThreadCount();
+		long rangeSize = Math.max(1, ((max - min) / threadCount) + 1);
+
+		List<Callable<Integer>> tasks = new ArrayList<>();
+		for (long rangeStart = min; rangeStart <= max; rangeStart += rangeSize) {
+			long rangeStartFinal = rangeStart;
+			long rangeEnd = rangeStart + rangeSize;
+			tasks.add(() -> {
+				int deleted = 0;
+				while (true) {
+					int count = myTxService
+							.withRequest(theRequest)
+							.withPropagation(Propagation.REQUIRES_NEW)
+							.withRequestPartitionId(theRequestPartitionId)
+							.execute(() -> {
+								List<?> pids = myEntityManager
+										.createQuery("SELECT " + theIdProperty + " FROM " + entityName + " WHERE "
+												+ theIdProperty + " >= :low AND " + theIdProperty + " < :high")
+										.setParameter("low", rangeStartFinal)
+										.setParameter("high", rangeEnd)
+										.setMaxResults(800)
+										.getResultList();
+								if (pids.isEmpty()) {
+									return 0;
+								}
+								myEntityManager
+										.createQuery(
+												"DELETE FROM " + entityName + " WHERE " + theIdProperty + " IN (:pids)")
+										.setParameter("pids", pids)
+										.executeUpdate();
+								return pids.size();
+							});
+					if (count == 0) {
+						return deleted;
+					}
+					deleted += count;
+				}
+			});
+		}
+
+		int outcome = 0;
+		ThreadPoolTaskExecutor executor = theExecutor;
+		if (executor == null) {
+			executor = newParallelRangesExecutor();
+		}
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (Callable<Integer> next : tasks) {
+				futures.add(executor.submit(next));
+			}
+			for (Future<Integer> next : futures) {
+				outcome += next.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(Msg.code(2564) + "Interrupted while expunging " + entityName, e);
+		} catch (ExecutionException e) {
+			throw new InternalErrorException(
+					Msg.code(2565) + "Failed to expunge " + entityName + ": " + e.getCause(), e);
+		} finally {
+			if (theExecutor == null) {
+				executor.shutdown();
+			}
+		}
+
+		ourLog.info("Have deleted {} entities of type {} in {}", outcome, entityName, sw);
+		return outcome;
+	}
+
+	private boolean isParallelRangesEnabled() {
+		return myStorageSettings.isExpungeEverythingFastPathEnabled() && myStorageSettings.getExpungeThreadCount() > 1;
+	}
+
+	@Nullable
+	private ThreadPoolTaskExecutor newParallelRangesExecutorIfEnabled() {
+		return isParallelRangesEnabled() ? newParallelRangesExecutor() : null;
+	}
+
+	private ThreadPoolTaskExecutor newParallelRangesExecutor() {
+		int threadCount = myStorageSettings.getExpungeThreadCount();
+		return ThreadPoolUtil.newThreadPool(threadCount, threadCount, "expunge-everything-");
+	}
+
+	private <T> SingularAttribute<? super T, ?> getIdAttribute(Class<T> theEntityType) {
+		Metamodel metamodel = myEntityManager.getMetamodel();
+		EntityType<T> entity = metamodel.entity(theEntityType);
+		Set<SingularAttribute<? super T, ?>> singularAttributes = entity.getSingularAttributes();
+		for (SingularAttribute<? super T, ?> singularAttribute : singularAttributes) {
+			if (singularAttribute.isId()) {
+				return singularAttribute;
+			}
+		}
+		throw new IllegalStateException(Msg.code(2566) + "No ID attribute found for " + theEntityType.getName());
+	}
+
 	@Override
 	public int expungeEverythingByType(Class<?> theEntityType) {
 		int result = expungeEverythingByTypeWithoutPurging(null, theEntityType, RequestPartitionId.allPartitions());
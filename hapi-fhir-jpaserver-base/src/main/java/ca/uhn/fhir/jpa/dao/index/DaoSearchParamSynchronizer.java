@@ -20,17 +20,21 @@
 package ca.uhn.fhir.jpa.dao.index;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceIndexedComboStringUniqueDao;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedComboStringUnique;
+import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
 import ca.uhn.fhir.rest.server.exceptions.ResourceVersionConflictException;
 import com.google.common.annotations.VisibleForTesting;
 import jakarta.annotation.Nullable;
@@ -47,6 +51,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class DaoSearchParamSynchronizer {
@@ -63,6 +69,9 @@ public class DaoSearchParamSynchronizer {
 	@Autowired
 	private FhirContext myFhirContext;
 
+	@Autowired
+	private PartitionSettings myPartitionSettings;
+
 	public AddRemoveCount synchronizeSearchParamsToDatabase(
 			ResourceIndexedSearchParams theParams,
 			ResourceTable theEntity,
@@ -97,6 +106,180 @@ public class DaoSearchParamSynchronizer {
 		return retVal;
 	}
 
+	/**
+	 * Synchronizes only the index rows belonging to the given search parameters, leaving the
+	 * index rows of every other search parameter (and the combo indexes) untouched. Only the
+	 * index tables used by the given search parameters are read.
+	 * <p>
+	 * Newly extracted rows which don't belong to the given search parameters (e.g. the links of
+	 * other reference parameters, or the rows indexed for contained resources) are ignored, so
+	 * the extraction doesn't need to be restricted to exactly the given parameters.
+	 * </p>
+	 *
+	 * @param theParams The newly extracted index rows
+	 */
+	public AddRemoveCount synchronizeSelectedSearchParamsToDatabase(
+			ResourceIndexedSearchParams theParams,
+			ResourceTable theEntity,
+			Collection<RuntimeSearchParam> theSearchParams) {
+		AddRemoveCount retVal = new AddRemoveCount();
+
+		Set<String> paramNames = new HashSet<>();
+		Set<Long> hashIdentities = new HashSet<>();
+		Set<String> referencePaths = new HashSet<>();
+		Set<RestSearchParameterTypeEnum> paramTypes = new HashSet<>();
+		for (RuntimeSearchParam next : theSearchParams) {
+			paramNames.add(next.getName());
+			// Existing rows may not have SP_NAME populated if index storage optimization is enabled
+			hashIdentities.add(BaseResourceIndexedSearchParam.calculateHashIdentity(
+					myPartitionSettings, theEntity.getPartitionId(), theEntity.getResourceType(), next.getName()));
+			if (next.getParamType() == RestSearchParameterTypeEnum.REFERENCE) {
+				referencePaths.addAll(next.getPathsSplit());
+			}
+			paramTypes.add(next.getParamType());
+		}
+
+		// Token parameters also index String rows, which support the :text modifier
+		if (paramTypes.contains(RestSearchParameterTypeEnum.STRING)
+				|| paramTypes.contains(RestSearchParameterTypeEnum.TOKEN)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myStringParams,
+					theEntity.isParamsStringPopulated(),
+					theEntity::getParamsString,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsStringPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.TOKEN)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myTokenParams,
+					theEntity.isParamsTokenPopulated(),
+					theEntity::getParamsToken,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsTokenPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.NUMBER)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myNumberParams,
+					theEntity.isParamsNumberPopulated(),
+					theEntity::getParamsNumber,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsNumberPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.QUANTITY)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myQuantityParams,
+					theEntity.isParamsQuantityPopulated(),
+					theEntity::getParamsQuantity,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsQuantityPopulated);
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myQuantityNormalizedParams,
+					Boolean.TRUE.equals(theEntity.isParamsQuantityNormalizedPopulated()),
+					theEntity::getParamsQuantityNormalized,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsQuantityNormalizedPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.DATE)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myDateParams,
+					theEntity.isParamsDatePopulated(),
+					theEntity::getParamsDate,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsDatePopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.URI)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myUriParams,
+					theEntity.isParamsUriPopulated(),
+					theEntity::getParamsUri,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsUriPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.SPECIAL)) {
+			synchronizeSelected(
+					theEntity,
+					retVal,
+					theParams.myCoordsParams,
+					theEntity.isParamsCoordsPopulated(),
+					theEntity::getParamsCoords,
+					paramNames,
+					hashIdentities,
+					theEntity::setParamsCoordsPopulated);
+		}
+		if (paramTypes.contains(RestSearchParameterTypeEnum.REFERENCE)) {
+			List<ResourceLink> newLinks = new ArrayList<>();
+			for (ResourceLink next : theParams.myLinks) {
+				if (referencePaths.contains(next.getSourcePath())) {
+					newLinks.add(next);
+				}
+			}
+			List<ResourceLink> existingLinks = new ArrayList<>();
+			if (theEntity.isHasLinks()) {
+				for (ResourceLink next : theEntity.getResourceLinks()) {
+					if (referencePaths.contains(next.getSourcePath())) {
+						existingLinks.add(next);
+					}
+				}
+			}
+			synchronize(theEntity, retVal, newLinks, existingLinks, null);
+			theEntity.setHasLinks(theEntity.isHasLinks() || !newLinks.isEmpty());
+		}
+		// Composite and combo indexes are not supported here
+
+		return retVal;
+	}
+
+	private <T extends BaseResourceIndexedSearchParam> void synchronizeSelected(
+			ResourceTable theEntity,
+			AddRemoveCount theAddRemoveCount,
+			Collection<T> theNewParams,
+			boolean thePopulated,
+			Supplier<Collection<T>> theExistingParams,
+			Set<String> theParamNames,
+			Set<Long> theHashIdentities,
+			Consumer<Boolean> thePopulatedSetter) {
+		List<T> newParams = new ArrayList<>();
+		for (T next : theNewParams) {
+			if (theParamNames.contains(next.getParamName())) {
+				newParams.add(next);
+			}
+		}
+
+		List<T> existingParams = new ArrayList<>();
+		if (thePopulated) {
+			for (T next : theExistingParams.get()) {
+				if (theParamNames.contains(next.getParamName())
+						|| (next.getParamName() == null && theHashIdentities.contains(next.getHashIdentity()))) {
+					existingParams.add(next);
+				}
+			}
+		}
+
+		synchronize(theEntity, theAddRemoveCount, newParams, existingParams, null);
+		thePopulatedSetter.accept(thePopulated || !newParams.isEmpty());
+	}
+
 	@VisibleForTesting
 	public void setEntityManager(EntityManager theEntityManager) {
 		myEntityManager = theEntityManager;
@@ -107,6 +290,11 @@ public class DaoSearchParamSynchronizer {
 		myStorageSettings = theStorageSettings;
 	}
 
+	@VisibleForTesting
+	public void setPartitionSettings(PartitionSettings thePartitionSettings) {
+		myPartitionSettings = thePartitionSettings;
+	}
+
 	private <T extends BaseResourceIndex> void synchronize(
 			ResourceTable theEntity,
 			AddRemoveCount theAddRemoveCount,
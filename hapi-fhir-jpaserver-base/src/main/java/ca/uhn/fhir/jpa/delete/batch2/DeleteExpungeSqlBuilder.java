@@ -22,13 +22,18 @@ package ca.uhn.fhir.jpa.delete.batch2;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
 import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
 import ca.uhn.fhir.jpa.dao.expunge.ResourceForeignKey;
 import ca.uhn.fhir.jpa.dao.expunge.ResourceTableFKProvider;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import com.google.common.collect.Iterables;
 import jakarta.annotation.Nonnull;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.dialect.SQLServerDialect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,20 +45,29 @@ import java.util.stream.Collectors;
 
 public class DeleteExpungeSqlBuilder {
 	private static final Logger ourLog = LoggerFactory.getLogger(DeleteExpungeSqlBuilder.class);
+	static final String TEMP_TABLE_NAME = "HFJ_EXPUNGE_PID";
+	/**
+	 * MS SQL Server doesn't allow more than 1000 rows in a single VALUES clause
+	 */
+	static final int TEMP_TABLE_INSERT_BATCH_SIZE = 1000;
+
 	private final ResourceTableFKProvider myResourceTableFKProvider;
 	private final JpaStorageSettings myStorageSettings;
 	private final IIdHelperService myIdHelper;
 	private final IResourceLinkDao myResourceLinkDao;
+	private final HibernatePropertiesProvider myHibernatePropertiesProvider;
 
 	public DeleteExpungeSqlBuilder(
 			ResourceTableFKProvider theResourceTableFKProvider,
 			JpaStorageSettings theStorageSettings,
 			IIdHelperService theIdHelper,
-			IResourceLinkDao theResourceLinkDao) {
+			IResourceLinkDao theResourceLinkDao,
+			HibernatePropertiesProvider theHibernatePropertiesProvider) {
 		myResourceTableFKProvider = theResourceTableFKProvider;
 		myStorageSettings = theStorageSettings;
 		myIdHelper = theIdHelper;
 		myResourceLinkDao = theResourceLinkDao;
+		myHibernatePropertiesProvider = theHibernatePropertiesProvider;
 	}
 
 	@Nonnull
@@ -63,6 +77,13 @@ public class DeleteExpungeSqlBuilder {
 		Set<Long> pids = JpaPid.toLongSet(theJpaPids);
 		validateOkToDeleteAndExpunge(pids, theCascade, theCascadeMaxRounds);
 
+		if (myStorageSettings.isDeleteExpungeUseTempTable()) {
+			Dialect dialect = myHibernatePropertiesProvider.getDialect();
+			if (dialect instanceof PostgreSQLDialect || dialect instanceof SQLServerDialect) {
+				return convertPidsToTempTableDeleteExpungeSql(pids, dialect instanceof SQLServerDialect);
+			}
+		}
+
 		List<String> rawSql = new ArrayList<>();
 
 		String pidListString = pids.toString().replace("[", "(").replace("]", ")");
@@ -78,6 +99,52 @@ public class DeleteExpungeSqlBuilder {
 		return new DeleteExpungeSqlResult(rawSql, pids.size());
 	}
 
+	/**
+	 * Loads the PIDs into a session temporary table once, and then deletes from each table
+	 * by joining against it. The statements are executed in order within the same transaction
+	 * (and therefore the same connection), so the temporary table is visible to all of them.
+	 */
+	private DeleteExpungeSqlResult convertPidsToTempTableDeleteExpungeSql(Set<Long> thePids, boolean theSqlServer) {
+		List<String> setupSql = new ArrayList<>();
+		List<String> rawSql = new ArrayList<>();
+
+		String tempTable;
+		if (theSqlServer) {
+			tempTable = "#" + TEMP_TABLE_NAME;
+			setupSql.add("CREATE TABLE " + tempTable + " (RES_ID BIGINT NOT NULL PRIMARY KEY)");
+		} else {
+			tempTable = TEMP_TABLE_NAME;
+			setupSql.add(
+					"CREATE TEMPORARY TABLE " + tempTable + " (RES_ID BIGINT NOT NULL PRIMARY KEY) ON COMMIT DROP");
+		}
+
+		for (List<Long> nextChunk : Iterables.partition(thePids, TEMP_TABLE_INSERT_BATCH_SIZE)) {
+			setupSql.add("INSERT INTO " + tempTable + " (RES_ID) VALUES "
+					+ nextChunk.stream().map(t -> "(" + t + ")").collect(Collectors.joining(",")));
+		}
+
+		if (!theSqlServer) {
+			// Temporary tables are never auto-analyzed on Postgres, so give the planner real statistics
+			setupSql.add("ANALYZE " + tempTable);
+		}
+
+		List<ResourceForeignKey> resourceForeignKeys =
+				new ArrayList<>(myResourceTableFKProvider.getResourceForeignKeys());
+		resourceForeignKeys.add(new ResourceForeignKey("HFJ_RESOURCE", "RES_ID"));
+		for (ResourceForeignKey next : resourceForeignKeys) {
+			if (theSqlServer) {
+				rawSql.add("DELETE t FROM " + next.table + " t INNER JOIN " + tempTable + " p ON t." + next.key
+						+ " = p.RES_ID");
+			} else {
+				rawSql.add("DELETE FROM " + next.table + " t USING " + tempTable + " p WHERE t." + next.key
+						+ " = p.RES_ID");
+			}
+		}
+
+		List<String> cleanupSql = List.of("DROP TABLE " + tempTable);
+		return new DeleteExpungeSqlResult(setupSql, rawSql, cleanupSql, thePids.size());
+	}
+
 	public void validateOkToDeleteAndExpunge(Set<Long> thePids, boolean theCascade, Integer theCascadeMaxRounds) {
 		if (!myStorageSettings.isEnforceReferentialIntegrityOnDelete()) {
 			ourLog.info("Referential integrity on delete disabled.  Skipping referential integrity check.");
@@ -180,16 +247,54 @@ public class DeleteExpungeSqlBuilder {
 
 	public static class DeleteExpungeSqlResult {
 
-		private final List<String> mySqlStatements;
+		private final List<String> mySetupSqlStatements;
+		private final List<String> myDeleteSqlStatements;
+		private final List<String> myCleanupSqlStatements;
 		private final int myRecordCount;
 
 		public DeleteExpungeSqlResult(List<String> theSqlStatments, int theRecordCount) {
-			mySqlStatements = theSqlStatments;
+			this(List.of(), theSqlStatments, List.of(), theRecordCount);
+		}
+
+		/**
+		 * @param theSetupSqlStatements   Statements to run before the deletes, e.g. to fill a temporary table
+		 * @param theDeleteSqlStatements  The statements which delete the resources and their dependent rows
+		 * @param theCleanupSqlStatements Statements to run after the deletes
+		 * @since 7.6.0
+		 */
+		public DeleteExpungeSqlResult(
+				List<String> theSetupSqlStatements,
+				List<String> theDeleteSqlStatements,
+				List<String> theCleanupSqlStatements,
+				int theRecordCount) {
+			mySetupSqlStatements = theSetupSqlStatements;
+			myDeleteSqlStatements = theDeleteSqlStatements;
+			myCleanupSqlStatements = theCleanupSqlStatements;
 			myRecordCount = theRecordCount;
 		}
 
+		/**
+		 * All statements, in the order in which they must be executed
+		 */
 		public List<String> getSqlStatements() {
-			return mySqlStatements;
+			List<String> retVal = new ArrayList<>(
+					mySetupSqlStatements.size() + myDeleteSqlStatements.size() + myCleanupSqlStatements.size());
+			retVal.addAll(mySetupSqlStatements);
+			retVal.addAll(myDeleteSqlStatements);
+			retVal.addAll(myCleanupSqlStatements);
+			return retVal;
+		}
+
+		public List<String> getSetupSqlStatements() {
+			return mySetupSqlStatements;
+		}
+
+		public List<String> getDeleteSqlStatements() {
+			return myDeleteSqlStatements;
+		}
+
+		public List<String> getCleanupSqlStatements() {
+			return myCleanupSqlStatements;
 		}
 
 		public int getRecordCount() {
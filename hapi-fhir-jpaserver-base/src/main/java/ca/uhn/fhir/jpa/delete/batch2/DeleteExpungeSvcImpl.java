@@ -51,7 +51,9 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 	public int deleteExpunge(List<JpaPid> theJpaPids, boolean theCascade, Integer theCascadeMaxRounds) {
 		DeleteExpungeSqlBuilder.DeleteExpungeSqlResult sqlResult =
 				myDeleteExpungeSqlBuilder.convertPidsToDeleteExpungeSql(theJpaPids, theCascade, theCascadeMaxRounds);
-		List<String> sqlList = sqlResult.getSqlStatements();
+		List<String> sqlList = sqlResult.getDeleteSqlStatements();
+
+		executeSql(sqlResult.getSetupSqlStatements());
 
 		ourLog.debug("Executing {} delete expunge sql commands", sqlList.size());
 		long totalDeleted = 0;
@@ -60,6 +62,8 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 			totalDeleted += myEntityManager.createNativeQuery(sql).executeUpdate();
 		}
 
+		executeSql(sqlResult.getCleanupSqlStatements());
+
 		ourLog.info("{} records deleted", totalDeleted);
 		clearHibernateSearchIndex(theJpaPids);
 
@@ -67,6 +71,17 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 		return sqlResult.getRecordCount();
 	}
 
+	/**
+	 * Executes statements which do not delete any resource data, so their update counts are not
+	 * included in the number of deleted records.
+	 */
+	private void executeSql(List<String> theSqlStatements) {
+		for (String sql : theSqlStatements) {
+			ourLog.trace("Executing sql " + sql);
+			myEntityManager.createNativeQuery(sql).executeUpdate();
+		}
+	}
+
 	@Override
 	public boolean isCascadeSupported() {
 		return true;
@@ -163,6 +163,11 @@ public class TermConceptParentChildLink implements Serializable {
 		return this;
 	}
 
+	public TermConceptParentChildLink setId(Long thePid) {
+		myPid = thePid;
+		return this;
+	}
+
 	public TermConceptParentChildLink setParent(TermConcept theParent) {
 		myParent = theParent;
 		return this;
@@ -44,10 +44,13 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.model.entity.PersistedResourceModifiedMessageEntityPK.with;
 
@@ -89,6 +92,13 @@ public class ResourceModifiedMessagePersistenceSvcImpl implements IResourceModif
 		});
 	}
 
+	@Override
+	public List<IPersistedResourceModifiedMessage> findAndLockOldestUnclaimed(int theMaxCount) {
+		return myHapiTransactionService.withSystemRequest().execute(() -> {
+			return myResourceModifiedDao.findAndLockOldestUnclaimed(PageRequest.of(0, theMaxCount));
+		});
+	}
+
 	@Override
 	public IPersistedResourceModifiedMessage persist(ResourceModifiedMessage theMsg) {
 		ResourceModifiedEntity resourceModifiedEntity = createEntityFrom(theMsg);
@@ -149,6 +159,17 @@ public class ResourceModifiedMessagePersistenceSvcImpl implements IResourceModif
 		return removedCount == 1;
 	}
 
+	@Override
+	public void deleteByPKs(List<IPersistedResourceModifiedMessagePK> theResourceModifiedPKs) {
+		if (theResourceModifiedPKs.isEmpty()) {
+			return;
+		}
+		List<PersistedResourceModifiedMessageEntityPK> pks = theResourceModifiedPKs.stream()
+				.map(PersistedResourceModifiedMessageEntityPK.class::cast)
+				.collect(Collectors.toList());
+		myResourceModifiedDao.deleteAllByIdInBatch(pks);
+	}
+
 	protected ResourceModifiedMessage inflateResourceModifiedMessageFromEntity(
 			ResourceModifiedEntity theResourceModifiedEntity) {
 		String resourceType = theResourceModifiedEntity.getResourceType();
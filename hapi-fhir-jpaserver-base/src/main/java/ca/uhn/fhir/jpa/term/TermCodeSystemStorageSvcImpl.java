@@ -185,6 +185,8 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 			addConceptInHierarchy(csv, parentCodes, nextRootConcept, retVal, codeToConcept, 0);
 		}
 
+		myTerminologySvc.invalidateHierarchyIndex(csv.getPid());
+
 		return retVal;
 	}
 
@@ -226,6 +228,9 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 		for (TermConcept code : allFoundTermConcepts) {
 			deleteEverythingRelatedToConcept(code, removeCounter);
 		}
+		if (cs.getCurrentVersion() != null) {
+			myTerminologySvc.invalidateHierarchyIndex(cs.getCurrentVersion().getPid());
+		}
 
 		return new UploadStatistics(removeCounter.get(), target);
 	}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * An immutable, compact index of the parent/child links of a single code system version.
+ * <p>
+ * Concepts are mapped to dense ordinals (by binary search over a sorted array of concept PIDs),
+ * and the links are stored twice in compressed sparse row form (once keyed by parent, and once
+ * keyed by child) using only primitive arrays. This keeps the index small enough to hold even
+ * very large hierarchies such as SNOMED CT in memory, and lets descendant and ancestor
+ * enumeration run in time proportional to the size of the result instead of issuing a
+ * database query per level of the hierarchy.
+ * </p>
+ */
+public class TermConceptHierarchyIndex {
+
+	private final long[] myConceptPids;
+	private final int[] myChildOffsets;
+	private final int[] myChildren;
+	private final int[] myParentOffsets;
+	private final int[] myParents;
+
+	private TermConceptHierarchyIndex(
+			long[] theConceptPids, int[] theChildOffsets, int[] theChildren, int[] theParentOffsets, int[] theParents) {
+		myConceptPids = theConceptPids;
+		myChildOffsets = theChildOffsets;
+		myChildren = theChildren;
+		myParentOffsets = theParentOffsets;
+		myParents = theParents;
+	}
+
+	/**
+	 * Returns the number of concepts that have at least one parent or child
+	 */
+	public int size() {
+		return myConceptPids.length;
+	}
+
+	/**
+	 * Returns the PIDs of all concepts below the given concept (not including the concept itself)
+	 */
+	public long[] getDescendantPids(long theConceptPid) {
+		return walk(theConceptPid, myChildOffsets, myChildren);
+	}
+
+	/**
+	 * Returns the PIDs of all concepts above the given concept (not including the concept itself)
+	 */
+	public long[] getAncestorPids(long theConceptPid) {
+		return walk(theConceptPid, myParentOffsets, myParents);
+	}
+
+	/**
+	 * Returns <code>true</code> if the ancestor concept is a (direct or indirect) parent of the
+	 * descendant concept. A concept is not considered to be its own descendant.
+	 */
+	public boolean isDescendantOf(long theDescendantPid, long theAncestorPid) {
+		int start = ordinal(theDescendantPid);
+		int target = ordinal(theAncestorPid);
+		if (start < 0 || target < 0 || start == target) {
+			return false;
+		}
+
+		// Most hierarchies are much wider than they are deep, so walking upwards visits few concepts
+		BitSet visited = new BitSet(myConceptPids.length);
+		int[] stack = new int[16];
+		int stackSize = 0;
+		stack[stackSize++] = start;
+		while (stackSize > 0) {
+			int next = stack[--stackSize];
+			for (int i = myParentOffsets[next]; i < myParentOffsets[next + 1]; i++) {
+				int parent = myParents[i];
+				if (parent == target) {
+					return true;
+				}
+				if (!visited.get(parent)) {
+					visited.set(parent);
+					if (stackSize == stack.length) {
+						stack = Arrays.copyOf(stack, stackSize * 2);
+					}
+					stack[stackSize++] = parent;
+				}
+			}
+		}
+		return false;
+	}
+
+	private long[] walk(long theConceptPid, int[] theOffsets, int[] theTargets) {
+		int start = ordinal(theConceptPid);
+		if (start < 0) {
+			return new long[0];
+		}
+
+		// The result array doubles as the work queue
+		BitSet visited = new BitSet(myConceptPids.length);
+		visited.set(start);
+		int[] found = new int[16];
+		int foundCount = 0;
+		int next = start;
+		int queueIndex = 0;
+		while (true) {
+			for (int i = theOffsets[next]; i < theOffsets[next + 1]; i++) {
+				int target = theTargets[i];
+				if (!visited.get(target)) {
+					visited.set(target);
+					if (foundCount == found.length) {
+						found = Arrays.copyOf(found, foundCount * 2);
+					}
+					found[foundCount++] = target;
+				}
+			}
+			if (queueIndex == foundCount) {
+				break;
+			}
+			next = found[queueIndex++];
+		}
+
+		long[] retVal = new long[foundCount];
+		for (int i = 0; i < foundCount; i++) {
+			retVal[i] = myConceptPids[found[i]];
+		}
+		return retVal;
+	}
+
+	private int ordinal(long theConceptPid) {
+		return Arrays.binarySearch(myConceptPids, theConceptPid);
+	}
+
+	/**
+	 * Builds a new index
+	 *
+	 * @param theParentPids The parent concept PID of each link
+	 * @param theChildPids  The child concept PID of each link
+	 * @param theLinkCount  The number of links in the arrays (the arrays may be larger than this)
+	 */
+	public static TermConceptHierarchyIndex build(long[] theParentPids, long[] theChildPids, int theLinkCount) {
+		Validate.isTrue(theParentPids.length >= theLinkCount && theChildPids.length >= theLinkCount);
+
+		long[] conceptPids = new long[theLinkCount * 2];
+		System.arraycopy(theParentPids, 0, conceptPids, 0, theLinkCount);
+		System.arraycopy(theChildPids, 0, conceptPids, theLinkCount, theLinkCount);
+		Arrays.sort(conceptPids);
+		int conceptCount = 0;
+		for (int i = 0; i < conceptPids.length; i++) {
+			if (conceptCount == 0 || conceptPids[conceptCount - 1] != conceptPids[i]) {
+				conceptPids[conceptCount++] = conceptPids[i];
+			}
+		}
+		conceptPids = Arrays.copyOf(conceptPids, conceptCount);
+
+		int[] parentOrdinals = new int[theLinkCount];
+		int[] childOrdinals = new int[theLinkCount];
+		for (int i = 0; i < theLinkCount; i++) {
+			parentOrdinals[i] = Arrays.binarySearch(conceptPids, theParentPids[i]);
+			childOrdinals[i] = Arrays.binarySearch(conceptPids, theChildPids[i]);
+		}
+
+		int[] childOffsets = new int[conceptCount + 1];
+		int[] children = new int[theLinkCount];
+		toCompressedRows(parentOrdinals, childOrdinals, theLinkCount, childOffsets, children);
+
+		int[] parentOffsets = new int[conceptCount + 1];
+		int[] parents = new int[theLinkCount];
+		toCompressedRows(childOrdinals, parentOrdinals, theLinkCount, parentOffsets, parents);
+
+		return new TermConceptHierarchyIndex(conceptPids, childOffsets, children, parentOffsets, parents);
+	}
+
+	private static void toCompressedRows(
+			int[] theKeys, int[] theValues, int theCount, int[] theOffsetsToPopulate, int[] theValuesToPopulate) {
+		for (int i = 0; i < theCount; i++) {
+			theOffsetsToPopulate[theKeys[i] + 1]++;
+		}
+		for (int i = 1; i < theOffsetsToPopulate.length; i++) {
+			theOffsetsToPopulate[i] += theOffsetsToPopulate[i - 1];
+		}
+		int[] insertPositions = Arrays.copyOf(theOffsetsToPopulate, theOffsetsToPopulate.length - 1);
+		for (int i = 0; i < theCount; i++) {
+			theValuesToPopulate[insertPositions[theKeys[i]]++] = theValues[i];
+		}
+	}
+}
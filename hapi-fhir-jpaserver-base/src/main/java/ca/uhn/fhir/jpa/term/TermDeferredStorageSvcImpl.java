@@ -22,6 +22,8 @@ package ca.uhn.fhir.jpa.term;
 import ca.uhn.fhir.batch2.api.IJobCoordinator;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
@@ -37,21 +39,32 @@ import ca.uhn.fhir.jpa.model.sched.IHasScheduledJobs;
 import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
+import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermVersionAdapterSvc;
 import ca.uhn.fhir.jpa.term.models.TermCodeSystemDeleteJobParameters;
 import ca.uhn.fhir.jpa.term.models.TermCodeSystemDeleteVersionJobParameters;
+import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.util.StopWatch;
+import ca.uhn.fhir.util.ThreadPoolUtil;
 import ca.uhn.fhir.util.TimeoutManager;
 import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceContextType;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.hibernate.Session;
 import org.hl7.fhir.r4.model.ConceptMap;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.quartz.JobExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -62,10 +75,15 @@ import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -77,16 +95,22 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 	private static final Logger ourLog = LoggerFactory.getLogger(TermDeferredStorageSvcImpl.class);
 	private static final long SAVE_ALL_DEFERRED_WARN_MINUTES = 1;
 	private static final long SAVE_ALL_DEFERRED_ERROR_MINUTES = 5;
+	private static final int DEFERRED_CONCEPT_BATCH_SIZE = 1000;
+	/**
+	 * Links are much smaller than concepts and have no child tables, so they are stored
+	 * in larger batches
+	 */
+	private static final int DEFERRED_CONCEPT_LINK_BATCH_SIZE = 5000;
+
 	private boolean myAllowDeferredTasksTimeout = true;
 	private static final List<String> BATCH_JOBS_TO_CARE_ABOUT =
 			List.of(TERM_CODE_SYSTEM_DELETE_JOB_NAME, TERM_CODE_SYSTEM_VERSION_DELETE_JOB_NAME);
 	private final List<TermCodeSystem> myDeferredCodeSystemsDeletions = Collections.synchronizedList(new ArrayList<>());
 	private final Queue<TermCodeSystemVersion> myDeferredCodeSystemVersionsDeletions = new ConcurrentLinkedQueue<>();
-	private final List<TermConcept> myDeferredConcepts = Collections.synchronizedList(new ArrayList<>());
+	private final Queue<TermConcept> myDeferredConcepts = new LinkedBlockingQueue<>();
 	private final List<ValueSet> myDeferredValueSets = Collections.synchronizedList(new ArrayList<>());
 	private final List<ConceptMap> myDeferredConceptMaps = Collections.synchronizedList(new ArrayList<>());
-	private final List<TermConceptParentChildLink> myConceptLinksToSaveLater =
-			Collections.synchronizedList(new ArrayList<>());
+	private final Queue<TermConceptParentChildLink> myConceptLinksToSaveLater = new LinkedBlockingQueue<>();
 
 	// TODO - why is this needed? it's cumbersome to maintain; consider removing it
 	/**
@@ -118,9 +142,44 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 	@Autowired
 	private TermConceptDaoSvc myTermConceptDaoSvc;
 
+	// Lazy because the term read service depends on this service
+	@Autowired
+	@Lazy
+	private ITermReadSvc myTermReadSvc;
+
 	@Autowired
 	private IJobCoordinator myJobCoordinator;
 
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
+	private EntityManager myEntityManager;
+
+	private ThreadPoolTaskExecutor myConceptLinkExecutor;
+
+	@PreDestroy
+	public void stop() {
+		if (myConceptLinkExecutor != null) {
+			myConceptLinkExecutor.shutdown();
+			myConceptLinkExecutor = null;
+		}
+	}
+
+	/**
+	 * The thread count setting can be changed at runtime, so the pool is (re)created
+	 * when the setting no longer matches it
+	 */
+	private ThreadPoolTaskExecutor getConceptLinkExecutor(int theThreadCount) {
+		if (myConceptLinkExecutor != null && myConceptLinkExecutor.getCorePoolSize() != theThreadCount) {
+			stop();
+		}
+		if (myConceptLinkExecutor == null) {
+			myConceptLinkExecutor = ThreadPoolUtil.newThreadPool(theThreadCount, theThreadCount, "term-link-storage-");
+		}
+		return myConceptLinkExecutor;
+	}
+
 	@Override
 	public void addConceptToStorageQueue(TermConcept theConcept) {
 		Validate.notNull(theConcept);
@@ -188,10 +247,10 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		int codeCount = 0, relCount = 0;
 		StopWatch stopwatch = new StopWatch();
 
-		int count = Math.min(1000, myDeferredConcepts.size());
+		int count = Math.min(DEFERRED_CONCEPT_BATCH_SIZE, myDeferredConcepts.size());
 		ourLog.debug("Saving {} deferred concepts...", count);
-		while (codeCount < count && myDeferredConcepts.size() > 0) {
-			TermConcept next = myDeferredConcepts.remove(0);
+		while (codeCount < count && !myDeferredConcepts.isEmpty()) {
+			TermConcept next = myDeferredConcepts.poll();
 			if (myCodeSystemVersionDao
 					.findById(next.getCodeSystemVersion().getPid())
 					.isPresent()) {
@@ -224,31 +283,9 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		}
 
 		if (codeCount == 0) {
-			count = Math.min(1000, myConceptLinksToSaveLater.size());
-			ourLog.info("Saving {} deferred concept relationships...", count);
-			while (relCount < count && myConceptLinksToSaveLater.size() > 0) {
-				TermConceptParentChildLink next = myConceptLinksToSaveLater.remove(0);
-				assert next.getChild() != null;
-				assert next.getParent() != null;
-
-				if ((next.getChild().getId() == null
-								|| !myConceptDao
-										.findById(next.getChild().getId())
-										.isPresent())
-						|| (next.getParent().getId() == null
-								|| !myConceptDao
-										.findById(next.getParent().getId())
-										.isPresent())) {
-					ourLog.warn(
-							"Not inserting link from child {} to parent {} because it appears to have been deleted",
-							next.getParent().getCode(),
-							next.getChild().getCode());
-					continue;
-				}
-
-				saveConceptLink(next);
-				relCount++;
-			}
+			List<TermConceptParentChildLink> links = drainConceptLinks();
+			ourLog.info("Saving {} deferred concept relationships...", links.size());
+			relCount = saveConceptLinks(links);
 		}
 
 		if (relCount > 0) {
@@ -265,6 +302,117 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		}
 	}
 
+	/**
+	 * Stores several batches of concept links at once, each in its own transaction on
+	 * its own thread. This is only safe once all of the concepts have been stored.
+	 * A batch that fails is put back on the queue so that it is retried on the next
+	 * pass, and the failure is rethrown once all of the other batches have finished.
+	 */
+	private void processDeferredConceptLinksInParallel(int theThreadCount) {
+		StopWatch stopwatch = new StopWatch();
+		ThreadPoolTaskExecutor executor = getConceptLinkExecutor(theThreadCount);
+
+		List<List<TermConceptParentChildLink>> batches = new ArrayList<>();
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < theThreadCount && isConceptLinksToSaveLater(); i++) {
+			List<TermConceptParentChildLink> links = drainConceptLinks();
+			batches.add(links);
+			futures.add(executor.submit(() -> runInTransaction(() -> {
+				myEntityManager.unwrap(Session.class).setJdbcBatchSize(links.size());
+				return saveConceptLinks(links);
+			})));
+		}
+
+		int relCount = 0;
+		Throwable failure = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				relCount += futures.get(i).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(Msg.code(2567) + "Interrupted while saving concept links", e);
+			} catch (ExecutionException e) {
+				ourLog.error("Exception thrown when attempting to save deferred concept links", e.getCause());
+				requeueConceptLinks(batches.get(i));
+				failure = e.getCause();
+			}
+		}
+		if (failure != null) {
+			throw new InternalErrorException(
+					Msg.code(2573) + "Failed to save deferred concept links, they will be retried: " + failure,
+					failure);
+		}
+
+		ourLog.info(
+				"Saved {} deferred relationships in {} batches ({} remain) in {}ms ({} entries/sec)",
+				relCount,
+				futures.size(),
+				myConceptLinksToSaveLater.size(),
+				stopwatch.getMillis(),
+				stopwatch.formatThroughput(relCount, TimeUnit.SECONDS));
+	}
+
+	private List<TermConceptParentChildLink> drainConceptLinks() {
+		List<TermConceptParentChildLink> retVal = new ArrayList<>();
+		TermConceptParentChildLink next;
+		while (retVal.size() < DEFERRED_CONCEPT_LINK_BATCH_SIZE && (next = myConceptLinksToSaveLater.poll()) != null) {
+			retVal.add(next);
+		}
+		return retVal;
+	}
+
+	private void requeueConceptLinks(List<TermConceptParentChildLink> theLinks) {
+		for (TermConceptParentChildLink next : theLinks) {
+			// The PID assigned when the link was persisted was rolled back along with it
+			next.setId(null);
+			myConceptLinksToSaveLater.add(next);
+		}
+	}
+
+	/**
+	 * Saves the given links, skipping any whose parent or child concept no longer exists
+	 *
+	 * @return The number of links saved
+	 */
+	private int saveConceptLinks(List<TermConceptParentChildLink> theLinks) {
+		Set<Long> conceptPids = new HashSet<>();
+		for (TermConceptParentChildLink next : theLinks) {
+			assert next.getChild() != null;
+			assert next.getParent() != null;
+			if (next.getChild().getId() != null && next.getParent().getId() != null) {
+				conceptPids.add(next.getChild().getId());
+				conceptPids.add(next.getParent().getId());
+			}
+		}
+
+		Set<Long> existingConceptPids = new HashSet<>();
+		new QueryChunker<Long>().chunk(conceptPids, t -> existingConceptPids.addAll(myConceptDao.findExistingPids(t)));
+
+		int retVal = 0;
+		Set<Long> codeSystemVersionPids = new HashSet<>();
+		for (TermConceptParentChildLink next : theLinks) {
+			if (!existingConceptPids.contains(next.getChild().getId())
+					|| !existingConceptPids.contains(next.getParent().getId())) {
+				ourLog.warn(
+						"Not inserting link from child {} to parent {} because it appears to have been deleted",
+						next.getParent().getCode(),
+						next.getChild().getCode());
+				continue;
+			}
+
+			saveConceptLink(next);
+			if (next.getCodeSystem() != null) {
+				codeSystemVersionPids.add(next.getCodeSystem().getPid());
+			}
+			retVal++;
+		}
+
+		for (Long next : codeSystemVersionPids) {
+			myTermReadSvc.invalidateHierarchyIndex(next);
+		}
+		return retVal;
+	}
+
 	private void processDeferredValueSets() {
 		int count = Math.min(myDeferredValueSets.size(), 200);
 		for (ValueSet nextValueSet : new ArrayList<>(myDeferredValueSets.subList(0, count))) {
@@ -347,10 +495,15 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 			}
 
 			if (isDeferredConceptsOrConceptLinksToSaveLater()) {
-				runInTransaction(() -> {
-					processDeferredConcepts();
-					return null;
-				});
+				if (!isDeferredConcepts() && myStorageSettings.getDeferredTerminologyLinkStorageThreadCount() > 1) {
+					processDeferredConceptLinksInParallel(
+							myStorageSettings.getDeferredTerminologyLinkStorageThreadCount());
+				} else {
+					runInTransaction(() -> {
+						processDeferredConcepts();
+						return null;
+					});
+				}
 
 				continue;
 			}
@@ -515,6 +668,11 @@ public class TermDeferredStorageSvcImpl implements ITermDeferredStorageSvc, IHas
 		myConceptDao = theConceptDao;
 	}
 
+	@VisibleForTesting
+	void setStorageSettingsForUnitTest(JpaStorageSettings theStorageSettings) {
+		myStorageSettings = theStorageSettings;
+	}
+
 	@VisibleForTesting
 	void setCodeSystemVersionDaoForUnitTest(ITermCodeSystemVersionDao theCodeSystemVersionDao) {
 		myCodeSystemVersionDao = theCodeSystemVersionDao;
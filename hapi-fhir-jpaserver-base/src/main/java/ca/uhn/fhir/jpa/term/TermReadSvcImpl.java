@@ -19,8 +19,12 @@
  */
 package ca.uhn.fhir.jpa.term;
 
+import ca.uhn.fhir.batch2.api.IJobCoordinator;
+import ca.uhn.fhir.batch2.model.JobInstance;
+import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
@@ -34,6 +38,7 @@ import ca.uhn.fhir.jpa.api.dao.IDao;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDaoCodeSystem;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
 import ca.uhn.fhir.jpa.config.util.ConnectionPoolInfoProvider;
 import ca.uhn.fhir.jpa.config.util.IConnectionPoolInfoProvider;
@@ -43,6 +48,7 @@ import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDesignationDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptParentChildLinkDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptPropertyDao;
 import ca.uhn.fhir.jpa.dao.data.ITermValueSetConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermValueSetConceptDesignationDao;
@@ -73,8 +79,11 @@ import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ReindexTerminologyResult;
 import ca.uhn.fhir.jpa.term.ex.ExpansionTooCostlyException;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPreExpansionJobParameters;
+import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -155,6 +164,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.NoRollbackRuleAttribute;
 import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.comparator.Comparators;
@@ -166,6 +176,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -175,10 +186,13 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static ca.uhn.fhir.batch2.jobs.termvalueset.TermValueSetPreExpansionJobConfig.TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME;
 import static ca.uhn.fhir.jpa.entity.TermConceptPropertyBinder.CONCEPT_PROPERTY_PREFIX_NAME;
 import static ca.uhn.fhir.jpa.term.api.ITermLoaderSvc.LOINC_URI;
 import static java.lang.String.join;
@@ -209,6 +223,10 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	private static boolean ourForceDisableHibernateSearchForUnitTest;
 	private final Cache<String, TermCodeSystemVersionDetails> myCodeSystemCurrentVersionCache =
 			CacheFactory.build(TimeUnit.MINUTES.toMillis(1));
+	private final Cache<Long, TermConceptHierarchyIndex> myHierarchyIndexCache =
+			CacheFactory.build(TimeUnit.HOURS.toMillis(1), 10);
+	private final Cache<Long, TermValueSetMembershipIndex> myValueSetMembershipIndexCache =
+			CacheFactory.build(TimeUnit.HOURS.toMillis(1), 100);
 
 	@Autowired
 	protected DaoRegistry myDaoRegistry;
@@ -240,7 +258,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	@PersistenceContext(type = PersistenceContextType.TRANSACTION)
 	protected EntityManager myEntityManager;
 
-	private boolean myPreExpandingValueSets = false;
+	private final AtomicInteger myPreExpandingValueSetCount = new AtomicInteger();
 
 	@Autowired
 	private ITermCodeSystemVersionDao myCodeSystemVersionDao;
@@ -262,6 +280,12 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	@Autowired
 	private ITermConceptDao myTermConceptDao;
 
+	@Autowired
+	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
+
+	@Autowired
+	private IJobCoordinator myJobCoordinator;
+
 	@Autowired
 	private ITermValueSetConceptViewDao myTermValueSetConceptViewDao;
 
@@ -468,6 +492,8 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	@VisibleForTesting
 	public void clearCaches() {
 		myCodeSystemCurrentVersionCache.invalidateAll();
+		myHierarchyIndexCache.invalidateAll();
+		myValueSetMembershipIndexCache.invalidateAll();
 	}
 
 	public void deleteValueSetForResource(ResourceTable theResourceTable) {
@@ -486,6 +512,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	}
 
 	private void deletePreCalculatedValueSetContents(TermValueSet theValueSet) {
+		myValueSetMembershipIndexCache.invalidate(theValueSet.getId());
 		myValueSetConceptDesignationDao.deleteByTermValueSetId(theValueSet.getId());
 		myValueSetConceptDao.deleteByTermValueSetId(theValueSet.getId());
 	}
@@ -2099,25 +2126,34 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 		ValidateUtil.isNotNullOrThrowUnprocessableEntity(theValueSet.hasId(), "ValueSet.id is required");
 		JpaPid valueSetResourcePid = getValueSetResourcePersistentId(theValueSet);
+		Optional<TermValueSet> optionalValueSetEntity =
+				myTermValueSetDao.findByResourcePid(valueSetResourcePid.getId());
+		TermValueSetMembershipIndex membershipIndex =
+				optionalValueSetEntity.map(this::getValueSetMembershipIndex).orElse(null);
 
 		List<TermValueSetConcept> concepts = new ArrayList<>();
 		if (isNotBlank(theCode)) {
 			if (theValidationOptions.isInferSystem()) {
-				concepts.addAll(
-						myValueSetConceptDao.findByValueSetResourcePidAndCode(valueSetResourcePid.getId(), theCode));
+				if (membershipIndex != null) {
+					concepts.addAll(membershipIndex.findByCode(theCode));
+				} else {
+					concepts.addAll(myValueSetConceptDao.findByValueSetResourcePidAndCode(
+							valueSetResourcePid.getId(), theCode));
+				}
 			} else if (isNotBlank(theSystem)) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theSystem, theCode));
+				concepts.addAll(findByValueSetResourcePidSystemAndCode(
+						valueSetResourcePid, membershipIndex, theSystem, theCode));
 			}
 		} else if (theCoding != null) {
 			if (theCoding.hasSystem() && theCoding.hasCode()) {
 				concepts.addAll(findByValueSetResourcePidSystemAndCode(
-						valueSetResourcePid, theCoding.getSystem(), theCoding.getCode()));
+						valueSetResourcePid, membershipIndex, theCoding.getSystem(), theCoding.getCode()));
 			}
 		} else if (theCodeableConcept != null) {
 			for (Coding coding : theCodeableConcept.getCoding()) {
 				if (coding.hasSystem() && coding.hasCode()) {
 					concepts.addAll(findByValueSetResourcePidSystemAndCode(
-							valueSetResourcePid, coding.getSystem(), coding.getCode()));
+							valueSetResourcePid, membershipIndex, coding.getSystem(), coding.getCode()));
 					if (!concepts.isEmpty()) {
 						break;
 					}
@@ -2127,9 +2163,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 			return null;
 		}
 
-		TermValueSet valueSetEntity = myTermValueSetDao
-				.findByResourcePid(valueSetResourcePid.getId())
-				.orElseThrow(IllegalStateException::new);
+		TermValueSet valueSetEntity = optionalValueSetEntity.orElseThrow(IllegalStateException::new);
 		String timingDescription = toHumanReadableExpansionTimestamp(valueSetEntity);
 		String preExpansionMessage = myContext
 				.getLocalizer()
@@ -2168,10 +2202,16 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 
 		// Ok, we failed
-		List<TermValueSetConcept> outcome = myValueSetConceptDao.findByTermValueSetIdSystemOnly(
-				Pageable.ofSize(1), valueSetEntity.getId(), theSystem);
+		boolean hasCodesInSystem;
+		if (membershipIndex != null) {
+			hasCodesInSystem = membershipIndex.hasSystem(theSystem);
+		} else {
+			hasCodesInSystem = !myValueSetConceptDao
+					.findByTermValueSetIdSystemOnly(Pageable.ofSize(1), valueSetEntity.getId(), theSystem)
+					.isEmpty();
+		}
 		String append;
-		if (outcome.size() == 0) {
+		if (!hasCodesInSystem) {
 			append = " - No codes in ValueSet belong to CodeSystem with URL " + theSystem;
 		} else {
 			String unknownCodeMessage = myContext
@@ -2197,10 +2237,51 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 						CodeValidationIssueCoding.INVALID_CODE));
 	}
 
+	/**
+	 * Returns the in-memory membership index for the given pre-expanded ValueSet, loading it if it
+	 * doesn't exist yet or if the ValueSet has been pre-expanded again since it was loaded. Returns
+	 * <code>null</code> if the index is disabled or the pre-expansion is too large to index.
+	 */
+	@Nullable
+	private TermValueSetMembershipIndex getValueSetMembershipIndex(TermValueSet theValueSet) {
+		int maxConcepts = myStorageSettings.getPreExpandedValueSetValidationIndexMaxConcepts();
+		if (maxConcepts <= 0
+				|| theValueSet.getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED
+				|| theValueSet.getTotalConcepts() == null
+				|| theValueSet.getTotalConcepts() > maxConcepts) {
+			return null;
+		}
+
+		TermValueSetMembershipIndex retVal = myValueSetMembershipIndexCache.getIfPresent(theValueSet.getId());
+		if (retVal == null || !retVal.isCurrent(theValueSet.getExpansionTimestamp())) {
+			StopWatch sw = new StopWatch();
+			TermValueSetMembershipIndex.Builder builder =
+					TermValueSetMembershipIndex.newBuilder(theValueSet.getExpansionTimestamp());
+			try (Stream<Object[]> members = myValueSetConceptDao.streamMembersByTermValueSetId(theValueSet.getId())) {
+				members.forEach(t -> builder.add((String) t[0], (String) t[1], (String) t[2], (String) t[3]));
+			}
+			retVal = builder.build();
+			myValueSetMembershipIndexCache.put(theValueSet.getId(), retVal);
+			ourLog.info(
+					"Loaded {} pre-expanded concepts for ValueSet {} into memory in {}",
+					theValueSet.getTotalConcepts(),
+					theValueSet.getUrl(),
+					sw);
+		}
+		return retVal;
+	}
+
 	private List<TermValueSetConcept> findByValueSetResourcePidSystemAndCode(
-			JpaPid theResourcePid, String theSystem, String theCode) {
+			JpaPid theResourcePid,
+			@Nullable TermValueSetMembershipIndex theMembershipIndex,
+			String theSystem,
+			String theCode) {
 		assert TransactionSynchronizationManager.isSynchronizationActive();
 
+		if (theMembershipIndex != null) {
+			return theMembershipIndex.findBySystemAndCode(theSystem, theCode);
+		}
+
 		List<TermValueSetConcept> retVal = new ArrayList<>();
 		Optional<TermValueSetConcept> optionalTermValueSetConcept;
 		int versionIndex = theSystem.indexOf(OUR_PIPE_CHARACTER);
@@ -2226,6 +2307,71 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 	}
 
+	private void fetchConceptsByPid(long[] theConceptPids, Set<TermConcept> theSetToPopulate) {
+		List<Long> conceptPids = Arrays.stream(theConceptPids).boxed().collect(Collectors.toList());
+		new QueryChunker<Long>().chunk(conceptPids, t -> theSetToPopulate.addAll(myConceptDao.findAllById(t)));
+	}
+
+	/**
+	 * Returns the hierarchy index for the given code system version, building it if it doesn't
+	 * exist yet. Concurrent callers for the same version wait for a single build. Returns
+	 * <code>null</code> if the index is disabled or if concepts are still being stored.
+	 */
+	@Nullable
+	private TermConceptHierarchyIndex getHierarchyIndex(Long theCodeSystemVersionPid) {
+		if (!myStorageSettings.isTerminologyHierarchyIndexEnabled()
+				|| theCodeSystemVersionPid == null
+				|| isNotSafeToPreExpandValueSets()) {
+			return null;
+		}
+
+		return myHierarchyIndexCache.get(theCodeSystemVersionPid, this::buildHierarchyIndex);
+	}
+
+	private TermConceptHierarchyIndex buildHierarchyIndex(Long theCodeSystemVersionPid) {
+		StopWatch sw = new StopWatch();
+		long[] parentPids = new long[1024];
+		long[] childPids = new long[parentPids.length];
+		int linkCount = 0;
+		try (Stream<Object[]> links =
+				myConceptParentChildLinkDao.streamParentAndChildPidsForCodeSystemVersion(theCodeSystemVersionPid)) {
+			for (Iterator<Object[]> iter = links.iterator(); iter.hasNext(); ) {
+				Object[] next = iter.next();
+				if (linkCount == parentPids.length) {
+					parentPids = Arrays.copyOf(parentPids, linkCount * 2);
+					childPids = Arrays.copyOf(childPids, linkCount * 2);
+				}
+				parentPids[linkCount] = ((Number) next[0]).longValue();
+				childPids[linkCount] = ((Number) next[1]).longValue();
+				linkCount++;
+			}
+		}
+
+		TermConceptHierarchyIndex retVal = TermConceptHierarchyIndex.build(parentPids, childPids, linkCount);
+		ourLog.info(
+				"Built hierarchy index for CodeSystem version {} with {} concepts and {} links in {}",
+				theCodeSystemVersionPid,
+				retVal.size(),
+				linkCount,
+				sw);
+		return retVal;
+	}
+
+	@Override
+	public void invalidateHierarchyIndex(Long theCodeSystemVersionPid) {
+		myHierarchyIndexCache.invalidate(theCodeSystemVersionPid);
+
+		// An index built by another thread before this transaction commits would not see its changes
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					myHierarchyIndexCache.invalidate(theCodeSystemVersionPid);
+				}
+			});
+		}
+	}
+
 	private Optional<TermConcept> fetchLoadedCode(Long theCodeSystemResourcePid, String theCode) {
 		TermCodeSystemVersion codeSystem =
 				myCodeSystemVersionDao.findCurrentVersionForCodeSystemResourcePid(theCodeSystemResourcePid);
@@ -2269,7 +2415,10 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 			return Collections.emptyList();
 		}
 
-		return myConceptDao.findByCodeSystemAndCodeList(csv.myPid, theCodeList);
+		List<TermConcept> retVal = new ArrayList<>();
+		new QueryChunker<String>()
+				.chunk(theCodeList, codes -> retVal.addAll(myConceptDao.findByCodeSystemAndCodeList(csv.myPid, codes)));
+		return retVal;
 	}
 
 	@Nullable
@@ -2336,7 +2485,13 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		Set<TermConcept> retVal = new HashSet<>();
 		retVal.add(concept.get());
 
-		fetchParents(concept.get(), retVal);
+		TermConceptHierarchyIndex hierarchyIndex =
+				getHierarchyIndex(concept.get().getCodeSystemVersion().getPid());
+		if (hierarchyIndex != null) {
+			fetchConceptsByPid(hierarchyIndex.getAncestorPids(concept.get().getId()), retVal);
+		} else {
+			fetchParents(concept.get(), retVal);
+		}
 
 		ourLog.debug("Fetched {} codes above code {} in {}ms", retVal.size(), theCode, stopwatch.getMillis());
 		return retVal;
@@ -2369,7 +2524,13 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		Set<TermConcept> retVal = new HashSet<>();
 		retVal.add(concept.get());
 
-		fetchChildren(concept.get(), retVal);
+		TermConceptHierarchyIndex hierarchyIndex =
+				getHierarchyIndex(concept.get().getCodeSystemVersion().getPid());
+		if (hierarchyIndex != null) {
+			fetchConceptsByPid(hierarchyIndex.getDescendantPids(concept.get().getId()), retVal);
+		} else {
+			fetchChildren(concept.get(), retVal);
+		}
 
 		ourLog.debug(
 				"Fetched {} codes below code {} in {}ms",
@@ -2424,68 +2585,127 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 		TransactionTemplate txTemplate = new TransactionTemplate(myTxManager);
 
-		while (true) {
-			StopWatch sw = new StopWatch();
-			TermValueSet valueSetToExpand = txTemplate.execute(t -> {
-				Optional<TermValueSet> optionalTermValueSet = getNextTermValueSetNotExpanded();
-				if (optionalTermValueSet.isEmpty()) {
-					return null;
-				}
+		if (myStorageSettings.isPreExpandValueSetsUsingBatchJob()) {
+			startPreExpansionJobIfNeeded(txTemplate);
+			return;
+		}
 
-				TermValueSet termValueSet = optionalTermValueSet.get();
-				termValueSet.setTotalConcepts(0L);
-				termValueSet.setTotalConceptDesignations(0L);
-				termValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANSION_IN_PROGRESS);
-				return myTermValueSetDao.saveAndFlush(termValueSet);
-			});
+		while (true) {
+			TermValueSet valueSetToExpand = txTemplate.execute(t -> getNextTermValueSetNotExpanded()
+					.map(this::markValueSetExpansionInProgress)
+					.orElse(null));
 			if (valueSetToExpand == null) {
 				return;
 			}
 
-			// We have a ValueSet to pre-expand.
-			setPreExpandingValueSets(true);
-			try {
-				ValueSet valueSet = txTemplate.execute(t -> {
-					TermValueSet refreshedValueSetToExpand = myTermValueSetDao
-							.findById(valueSetToExpand.getId())
-							.orElseThrow(() -> new IllegalStateException("Unknown VS ID: " + valueSetToExpand.getId()));
-					return getValueSetFromResourceTable(refreshedValueSetToExpand.getResource());
-				});
-				assert valueSet != null;
-
-				ValueSetConceptAccumulator valueSetConceptAccumulator =
-						myValueSetConceptAccumulatorFactory.create(valueSetToExpand);
-				ValueSetExpansionOptions options = new ValueSetExpansionOptions();
-				options.setIncludeHierarchy(true);
-				expandValueSet(options, valueSet, valueSetConceptAccumulator);
-
-				// We are done with this ValueSet.
-				txTemplate.executeWithoutResult(t -> {
-					valueSetToExpand.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANDED);
-					valueSetToExpand.setExpansionTimestamp(new Date());
-					myTermValueSetDao.saveAndFlush(valueSetToExpand);
-				});
+			preExpandValueSet(txTemplate, valueSetToExpand);
+		}
+	}
 
-				afterValueSetExpansionStatusChange();
-
-				ourLog.info(
-						"Pre-expanded ValueSet[{}] with URL[{}] - Saved {} concepts in {}",
-						valueSet.getId(),
-						valueSet.getUrl(),
-						valueSetConceptAccumulator.getConceptsSaved(),
-						sw);
-
-			} catch (Exception e) {
-				ourLog.error(
-						"Failed to pre-expand ValueSet with URL[{}]: {}", valueSetToExpand.getUrl(), e.getMessage(), e);
-				txTemplate.executeWithoutResult(t -> {
-					valueSetToExpand.setExpansionStatus(TermValueSetPreExpansionStatusEnum.FAILED_TO_EXPAND);
-					myTermValueSetDao.saveAndFlush(valueSetToExpand);
-				});
+	@Override
+	public void preExpandValueSet(Long theTermValueSetPid) {
+		if (isNotSafeToPreExpandValueSets()) {
+			// Leave the ValueSet as NOT_EXPANDED so that the next scheduled pass picks it up again
+			ourLog.info(
+					"Skipping pre-expansion of TermValueSet[{}] while deferred entities are being loaded",
+					theTermValueSetPid);
+			return;
+		}
 
-			} finally {
-				setPreExpandingValueSets(false);
+		TransactionTemplate txTemplate = new TransactionTemplate(myTxManager);
+		TermValueSet valueSetToExpand = txTemplate.execute(t -> {
+			// Claim the ValueSet with a conditional update so that two workers never expand it concurrently
+			int updated = myTermValueSetDao.updateExpansionStatusIfCurrently(
+					theTermValueSetPid,
+					TermValueSetPreExpansionStatusEnum.NOT_EXPANDED,
+					TermValueSetPreExpansionStatusEnum.EXPANSION_IN_PROGRESS);
+			if (updated == 0) {
+				return null;
 			}
+			return myTermValueSetDao.findById(theTermValueSetPid).orElse(null);
+		});
+		if (valueSetToExpand == null) {
+			ourLog.info("TermValueSet[{}] is no longer waiting to be pre-expanded", theTermValueSetPid);
+			return;
+		}
+
+		preExpandValueSet(txTemplate, valueSetToExpand);
+	}
+
+	private void startPreExpansionJobIfNeeded(TransactionTemplate theTxTemplate) {
+		Boolean haveValueSetsToExpand =
+				theTxTemplate.execute(t -> getNextTermValueSetNotExpanded().isPresent());
+		if (!Boolean.TRUE.equals(haveValueSetsToExpand)) {
+			return;
+		}
+
+		List<JobInstance> runningJobs = myJobCoordinator.getInstancesbyJobDefinitionIdAndEndedStatus(
+				TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME, false, 1, 0);
+		if (!runningJobs.isEmpty()) {
+			ourLog.debug(
+					"Not starting ValueSet pre-expansion job, job {} is still running",
+					runningJobs.get(0).getInstanceId());
+			return;
+		}
+
+		JobInstanceStartRequest request = new JobInstanceStartRequest();
+		request.setJobDefinitionId(TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME);
+		request.setParameters(new TermValueSetPreExpansionJobParameters());
+		Batch2JobStartResponse response = myJobCoordinator.startInstance(new SystemRequestDetails(), request);
+		ourLog.info("Started ValueSet pre-expansion job {}", response.getInstanceId());
+	}
+
+	private TermValueSet markValueSetExpansionInProgress(TermValueSet theTermValueSet) {
+		theTermValueSet.setTotalConcepts(0L);
+		theTermValueSet.setTotalConceptDesignations(0L);
+		theTermValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANSION_IN_PROGRESS);
+		return myTermValueSetDao.saveAndFlush(theTermValueSet);
+	}
+
+	private void preExpandValueSet(TransactionTemplate theTxTemplate, TermValueSet theValueSetToExpand) {
+		StopWatch sw = new StopWatch();
+		myPreExpandingValueSetCount.incrementAndGet();
+		try {
+			ValueSet valueSet = theTxTemplate.execute(t -> {
+				TermValueSet refreshedValueSetToExpand = myTermValueSetDao
+						.findById(theValueSetToExpand.getId())
+						.orElseThrow(() -> new IllegalStateException("Unknown VS ID: " + theValueSetToExpand.getId()));
+				return getValueSetFromResourceTable(refreshedValueSetToExpand.getResource());
+			});
+			assert valueSet != null;
+
+			ValueSetConceptAccumulator valueSetConceptAccumulator =
+					myValueSetConceptAccumulatorFactory.create(theValueSetToExpand);
+			ValueSetExpansionOptions options = new ValueSetExpansionOptions();
+			options.setIncludeHierarchy(true);
+			expandValueSet(options, valueSet, valueSetConceptAccumulator);
+
+			// We are done with this ValueSet.
+			theTxTemplate.executeWithoutResult(t -> {
+				theValueSetToExpand.setExpansionStatus(TermValueSetPreExpansionStatusEnum.EXPANDED);
+				theValueSetToExpand.setExpansionTimestamp(new Date());
+				myTermValueSetDao.saveAndFlush(theValueSetToExpand);
+			});
+
+			afterValueSetExpansionStatusChange();
+
+			ourLog.info(
+					"Pre-expanded ValueSet[{}] with URL[{}] - Saved {} concepts in {}",
+					valueSet.getId(),
+					valueSet.getUrl(),
+					valueSetConceptAccumulator.getConceptsSaved(),
+					sw);
+
+		} catch (Exception e) {
+			ourLog.error(
+					"Failed to pre-expand ValueSet with URL[{}]: {}", theValueSetToExpand.getUrl(), e.getMessage(), e);
+			theTxTemplate.executeWithoutResult(t -> {
+				theValueSetToExpand.setExpansionStatus(TermValueSetPreExpansionStatusEnum.FAILED_TO_EXPAND);
+				myTermValueSetDao.saveAndFlush(theValueSetToExpand);
+			});
+
+		} finally {
+			myPreExpandingValueSetCount.decrementAndGet();
 		}
 	}
 
@@ -2500,12 +2720,8 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		myCachingValidationSupport.invalidateCaches();
 	}
 
-	private synchronized boolean isPreExpandingValueSets() {
-		return myPreExpandingValueSets;
-	}
-
-	private synchronized void setPreExpandingValueSets(boolean thePreExpandingValueSets) {
-		myPreExpandingValueSets = thePreExpandingValueSets;
+	private boolean isPreExpandingValueSets() {
+		return myPreExpandingValueSetCount.get() > 0;
 	}
 
 	private boolean isNotSafeToPreExpandValueSets() {
@@ -2641,15 +2857,29 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		TermConcept codeB = findCode(codeBSystemIdentifier, conceptB.getCode())
 				.orElseThrow(() -> new InvalidRequestException("Unknown code: " + conceptB));
 
-		SearchSession searchSession = Search.session(myEntityManager);
-
 		ConceptSubsumptionOutcome subsumes;
-		subsumes = testForSubsumption(searchSession, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
-		if (subsumes == null) {
-			subsumes = testForSubsumption(searchSession, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
-		}
-		if (subsumes == null) {
-			subsumes = ConceptSubsumptionOutcome.NOTSUBSUMED;
+		TermConceptHierarchyIndex hierarchyIndex = null;
+		Long codeSystemVersionPid = codeA.getCodeSystemVersion().getPid();
+		if (codeSystemVersionPid.equals(codeB.getCodeSystemVersion().getPid())) {
+			hierarchyIndex = getHierarchyIndex(codeSystemVersionPid);
+		}
+		if (hierarchyIndex != null) {
+			if (hierarchyIndex.isDescendantOf(codeB.getId(), codeA.getId())) {
+				subsumes = ConceptSubsumptionOutcome.SUBSUMES;
+			} else if (hierarchyIndex.isDescendantOf(codeA.getId(), codeB.getId())) {
+				subsumes = ConceptSubsumptionOutcome.SUBSUMEDBY;
+			} else {
+				subsumes = ConceptSubsumptionOutcome.NOTSUBSUMED;
+			}
+		} else {
+			SearchSession searchSession = Search.session(myEntityManager);
+			subsumes = testForSubsumption(searchSession, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
+			if (subsumes == null) {
+				subsumes = testForSubsumption(searchSession, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+			}
+			if (subsumes == null) {
+				subsumes = ConceptSubsumptionOutcome.NOTSUBSUMED;
+			}
 		}
 
 		return new IFhirResourceDaoCodeSystem.SubsumesResult(subsumes);
@@ -2797,21 +3027,108 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 							theCodeSystemUrl, c.getCode(), c.getDisplay(), codeSystemVersionId);
 				}));
 
-		if (codeOpt != null && codeOpt.isPresent()) {
-			FhirVersionIndependentConcept code = codeOpt.get();
-			if (!theOptions.isValidateDisplay()
-					|| isBlank(code.getDisplay())
+		FhirVersionIndependentConcept code = codeOpt != null ? codeOpt.orElse(null) : null;
+		return createCodeSystemValidationResult(theCodeSystemUrl, theCode, theDisplay, code);
+	}
+
+	/**
+	 * Codes which are validated against a code system (i.e. requests without a ValueSet URL) are
+	 * looked up using a single query for each code system (per chunk of codes) instead of one query
+	 * per code. Requests with a ValueSet URL are validated individually.
+	 */
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			@Nonnull ValidationSupportContext theValidationSupportContext,
+			@Nonnull ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		invokeRunnableForUnitTest();
+
+		CodeValidationResult[] retVal = new CodeValidationResult[theRequests.size()];
+		Map<String, Set<String>> codeSystemToCodes = new HashMap<>();
+		for (int i = 0; i < theRequests.size(); i++) {
+			CodeValidationRequest next = theRequests.get(i);
+			if (isNotBlank(next.getValueSetUrl())) {
+				retVal[i] = validateCode(
+						theValidationSupportContext,
+						theOptions,
+						next.getSystem(),
+						next.getCode(),
+						next.getDisplay(),
+						next.getValueSetUrl());
+			} else {
+				codeSystemToCodes
+						.computeIfAbsent(next.getSystem(), t -> new HashSet<>())
+						.add(next.getCode());
+			}
+		}
+
+		if (!codeSystemToCodes.isEmpty()) {
+			TransactionTemplate txTemplate = new TransactionTemplate(myTransactionManager);
+			txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+			txTemplate.setReadOnly(true);
+			Map<String, Map<String, FhirVersionIndependentConcept>> codeSystemToConcepts =
+					txTemplate.execute(tx -> findConceptsForValidation(codeSystemToCodes));
+
+			for (int i = 0; i < theRequests.size(); i++) {
+				CodeValidationRequest next = theRequests.get(i);
+				if (isBlank(next.getValueSetUrl())) {
+					FhirVersionIndependentConcept code = codeSystemToConcepts
+							.getOrDefault(next.getSystem(), Collections.emptyMap())
+							.get(next.getCode());
+					retVal[i] =
+							createCodeSystemValidationResult(next.getSystem(), next.getCode(), next.getDisplay(), code);
+				}
+			}
+		}
+
+		return Arrays.asList(retVal);
+	}
+
+	@Nonnull
+	private Map<String, Map<String, FhirVersionIndependentConcept>> findConceptsForValidation(
+			Map<String, Set<String>> theCodeSystemToCodes) {
+		Map<String, Map<String, FhirVersionIndependentConcept>> retVal = new HashMap<>();
+		for (Map.Entry<String, Set<String>> nextEntry : theCodeSystemToCodes.entrySet()) {
+			String codeSystemUrl = nextEntry.getKey();
+			List<TermConcept> termConcepts = findCodes(codeSystemUrl, new ArrayList<>(nextEntry.getValue()));
+			if (termConcepts.isEmpty()) {
+				continue;
+			}
+
+			String codeSystemVersionId = getCurrentCodeSystemVersion(codeSystemUrl).myCodeSystemVersionId;
+			Map<String, FhirVersionIndependentConcept> concepts = new HashMap<>();
+			for (TermConcept next : termConcepts) {
+				concepts.put(
+						next.getCode(),
+						new FhirVersionIndependentConcept(
+								codeSystemUrl, next.getCode(), next.getDisplay(), codeSystemVersionId));
+			}
+			retVal.put(codeSystemUrl, concepts);
+		}
+		return retVal;
+	}
+
+	@Nonnull
+	private CodeValidationResult createCodeSystemValidationResult(
+			String theCodeSystemUrl,
+			String theCode,
+			String theDisplay,
+			@Nullable FhirVersionIndependentConcept theConcept) {
+		if (theConcept != null) {
+			// The display is only validated if one was supplied
+			if (isBlank(theConcept.getDisplay())
 					|| isBlank(theDisplay)
-					|| code.getDisplay().equals(theDisplay)) {
-				return new CodeValidationResult().setCode(code.getCode()).setDisplay(code.getDisplay());
+					|| theConcept.getDisplay().equals(theDisplay)) {
+				return new CodeValidationResult().setCode(theConcept.getCode()).setDisplay(theConcept.getDisplay());
 			} else {
 				return InMemoryTerminologyServerValidationSupport.createResultForDisplayMismatch(
 						myContext,
 						theCode,
 						theDisplay,
-						code.getDisplay(),
-						code.getSystem(),
-						code.getSystemVersion(),
+						theConcept.getDisplay(),
+						theConcept.getSystem(),
+						theConcept.getSystemVersion(),
 						myStorageSettings.getIssueSeverityForCodeDisplayMismatch());
 			}
 		}
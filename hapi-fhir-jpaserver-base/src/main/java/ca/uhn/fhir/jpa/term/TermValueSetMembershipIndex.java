@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable, in-memory copy of the pre-expanded contents of a single {@link ca.uhn.fhir.jpa.entity.TermValueSet},
+ * hashed by code so that code validation against the pre-expansion does not need to query
+ * the <code>TRM_VALUESET_CONCEPT</code> table.
+ * <p>
+ * Concepts returned by this index are transient copies that are never attached to a
+ * persistence context.
+ * </p>
+ */
+public class TermValueSetMembershipIndex {
+
+	private final Date myExpansionTimestamp;
+	private final Map<String, List<Member>> myCodeToMembers;
+	private final Set<String> mySystems;
+
+	private TermValueSetMembershipIndex(
+			Date theExpansionTimestamp, Map<String, List<Member>> theCodeToMembers, Set<String> theSystems) {
+		myExpansionTimestamp = theExpansionTimestamp;
+		myCodeToMembers = theCodeToMembers;
+		mySystems = theSystems;
+	}
+
+	/**
+	 * Returns <code>true</code> if this index was built from the pre-expansion with the given timestamp.
+	 * The timestamp changes every time the ValueSet is pre-expanded again.
+	 */
+	public boolean isCurrent(Date theExpansionTimestamp) {
+		return Objects.equals(myExpansionTimestamp, theExpansionTimestamp);
+	}
+
+	/**
+	 * Returns all concepts with the given code, regardless of their system
+	 */
+	public List<TermValueSetConcept> findByCode(String theCode) {
+		List<TermValueSetConcept> retVal = new ArrayList<>();
+		for (Member next : myCodeToMembers.getOrDefault(theCode, Collections.emptyList())) {
+			retVal.add(next.toConcept(theCode));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the concepts with the given system and code. If the system is in the form
+	 * <code>[url]|[version]</code>, only concepts from that version of the system are returned.
+	 */
+	public List<TermValueSetConcept> findBySystemAndCode(String theSystem, String theCode) {
+		String system = theSystem;
+		String systemVersion = null;
+		int versionIndex = theSystem.indexOf('|');
+		if (versionIndex >= 0) {
+			system = theSystem.substring(0, versionIndex);
+			systemVersion = theSystem.substring(versionIndex + 1);
+		}
+
+		List<TermValueSetConcept> retVal = new ArrayList<>(1);
+		for (Member next : myCodeToMembers.getOrDefault(theCode, Collections.emptyList())) {
+			if (next.mySystem.equals(system) && (systemVersion == null || systemVersion.equals(next.mySystemVersion))) {
+				retVal.add(next.toConcept(theCode));
+				break;
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns <code>true</code> if at least one concept in the expansion belongs to the given system
+	 */
+	public boolean hasSystem(String theSystem) {
+		return mySystems.contains(theSystem);
+	}
+
+	public static Builder newBuilder(Date theExpansionTimestamp) {
+		return new Builder(theExpansionTimestamp);
+	}
+
+	public static class Builder {
+
+		private final Date myExpansionTimestamp;
+		private final Map<String, List<Member>> myCodeToMembers = new HashMap<>();
+		private final Set<String> mySystems = new HashSet<>();
+
+		private Builder(Date theExpansionTimestamp) {
+			myExpansionTimestamp = theExpansionTimestamp;
+		}
+
+		public Builder add(String theSystem, String theSystemVersion, String theCode, String theDisplay) {
+			// Interning keeps a single copy of each system URL and version, which repeat on every row
+			String system = theSystem.intern();
+			String systemVersion = theSystemVersion != null ? theSystemVersion.intern() : null;
+			mySystems.add(system);
+			myCodeToMembers
+					.computeIfAbsent(theCode, t -> new ArrayList<>(1))
+					.add(new Member(system, systemVersion, theDisplay));
+			return this;
+		}
+
+		public TermValueSetMembershipIndex build() {
+			return new TermValueSetMembershipIndex(myExpansionTimestamp, myCodeToMembers, mySystems);
+		}
+	}
+
+	private static class Member {
+
+		private final String mySystem;
+		private final String mySystemVersion;
+		private final String myDisplay;
+
+		private Member(String theSystem, String theSystemVersion, String theDisplay) {
+			mySystem = theSystem;
+			mySystemVersion = theSystemVersion;
+			myDisplay = theDisplay;
+		}
+
+		private TermValueSetConcept toConcept(String theCode) {
+			return new TermValueSetConcept()
+					.setSystem(mySystem)
+					.setSystemVersion(mySystemVersion)
+					.setCode(theCode)
+					.setDisplay(myDisplay);
+		}
+	}
+}
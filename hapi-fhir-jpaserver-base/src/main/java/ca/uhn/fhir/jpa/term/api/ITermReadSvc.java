@@ -114,6 +114,24 @@ public interface ITermReadSvc extends IValidationSupport {
 
 	void preExpandDeferredValueSetsToTerminologyTables();
 
+	/**
+	 * Pre-expands a single TermValueSet into the terminology tables, if it is still
+	 * waiting to be pre-expanded
+	 *
+	 * @since 7.6.0
+	 */
+	void preExpandValueSet(Long theTermValueSetPid);
+
+	/**
+	 * Discards the in-memory concept hierarchy index of the given code system version, so that it
+	 * is rebuilt the next time it is needed. This must be called whenever the parent/child links
+	 * of the version are added or removed. If called within a transaction, the index is discarded
+	 * again once the transaction commits.
+	 *
+	 * @since 7.6.0
+	 */
+	void invalidateHierarchyIndex(Long theCodeSystemVersionPid);
+
 	/**
 	 * Version independent
 	 */
@@ -32,6 +32,7 @@ import com.fasterxml.jackson.databind.util.ArrayIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.DecimalFormat;
@@ -69,6 +70,11 @@ public class TermCodeSystemDeleteJobSvc implements ITermCodeSystemDeleteJobSvc {
 	@Autowired
 	private ITermDeferredStorageSvc myDeferredStorageSvc;
 
+	// Lazy because the term read service reaches this service through the batch2 job definitions
+	@Autowired
+	@Lazy
+	private ITermReadSvc myTermReadSvc;
+
 	@Override
 	public Iterator<Long> getAllCodeSystemVersionForCodeSystemPid(long thePid) {
 		// TODO - make this a pageable iterator
@@ -90,6 +96,7 @@ public class TermCodeSystemDeleteJobSvc implements ITermCodeSystemDeleteJobSvc {
 		int deletedLinks = myConceptParentChildLinkDao.deleteByCodeSystemVersion(theCodeSystemVersionPid);
 		ourLog.info("Deleted {} term code links", ourDecimalFormat.format(deletedLinks));
 		result.setDeletedLinks(deletedLinks);
+		myTermReadSvc.invalidateHierarchyIndex(theCodeSystemVersionPid);
 
 		// code system concept properties
 		ourLog.info("Deleting term code properties");
@@ -0,0 +1,50 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term.api;
+
+import ca.uhn.fhir.jpa.dao.data.ITermValueSetDao;
+import ca.uhn.fhir.jpa.entity.TermValueSetPreExpansionStatusEnum;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class TermValueSetPreExpansionJobSvc implements ITermValueSetPreExpansionJobSvc {
+
+	@Autowired
+	private ITermValueSetDao myTermValueSetDao;
+
+	@Autowired
+	private ITermReadSvc myTermReadSvc;
+
+	@Override
+	@Transactional
+	public List<Long> findTermValueSetPidsToPreExpand() {
+		return myTermValueSetDao.findPidsByExpansionStatus(TermValueSetPreExpansionStatusEnum.NOT_EXPANDED);
+	}
+
+	/**
+	 * Not transactional, since the expansion is saved in several transactions
+	 */
+	@Override
+	public void preExpandValueSet(long theTermValueSetPid) {
+		myTermReadSvc.preExpandValueSet(theTermValueSetPid);
+	}
+}
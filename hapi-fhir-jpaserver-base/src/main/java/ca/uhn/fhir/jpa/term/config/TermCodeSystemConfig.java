@@ -24,7 +24,9 @@ import ca.uhn.fhir.jpa.term.TermConceptDaoSvc;
 import ca.uhn.fhir.jpa.term.TermDeferredStorageSvcImpl;
 import ca.uhn.fhir.jpa.term.api.ITermCodeSystemDeleteJobSvc;
 import ca.uhn.fhir.jpa.term.api.ITermDeferredStorageSvc;
+import ca.uhn.fhir.jpa.term.api.ITermValueSetPreExpansionJobSvc;
 import ca.uhn.fhir.jpa.term.api.TermCodeSystemDeleteJobSvc;
+import ca.uhn.fhir.jpa.term.api.TermValueSetPreExpansionJobSvc;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -36,6 +38,11 @@ public class TermCodeSystemConfig {
 		return new TermCodeSystemDeleteJobSvc();
 	}
 
+	@Bean
+	public ITermValueSetPreExpansionJobSvc termValueSetPreExpansionJobSvc() {
+		return new TermValueSetPreExpansionJobSvc();
+	}
+
 	@Bean
 	public ITermDeferredStorageSvc termDeferredStorageSvc() {
 		return new TermDeferredStorageSvcImpl();
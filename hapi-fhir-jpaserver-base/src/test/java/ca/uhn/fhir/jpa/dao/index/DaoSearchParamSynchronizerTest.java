@@ -1,12 +1,17 @@
 package ca.uhn.fhir.jpa.dao.index;
 
+import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.entity.BaseResourceIndex;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamNumber;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamToken;
+import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
 import ca.uhn.fhir.jpa.util.AddRemoveCount;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -75,4 +80,89 @@ public class DaoSearchParamSynchronizerTest {
 		verify(entityManager, never()).remove(any(BaseResourceIndex.class));
 		verify(entityManager, times(1)).merge(THE_SEARCH_PARAM_NUMBER);
 	}
+
+	@Test
+	void synchronizeSelectedSearchParamsLeavesOtherParamsUntouched() {
+		ResourceTable entity = new ResourceTable();
+		entity.setId(2L);
+		entity.setResourceType("Patient");
+		ResourceIndexedSearchParamNumber existingGrittscore = new ResourceIndexedSearchParamNumber(new PartitionSettings(), "Patient", GRITTSCORE, BigDecimal.valueOf(10));
+		existingGrittscore.setResource(entity);
+		ResourceIndexedSearchParamNumber existingOther = new ResourceIndexedSearchParamNumber(new PartitionSettings(), "Patient", "other", BigDecimal.valueOf(5));
+		existingOther.setResource(entity);
+		entity.setParamsNumberPopulated(true);
+		entity.getParamsNumber().add(existingGrittscore);
+		entity.getParamsNumber().add(existingOther);
+
+		ResourceIndexedSearchParamNumber newGrittscore = new ResourceIndexedSearchParamNumber(new PartitionSettings(), "Patient", GRITTSCORE, BigDecimal.valueOf(12));
+		newGrittscore.setResource(entity);
+		ResourceIndexedSearchParams newParams = ResourceIndexedSearchParams.withSets();
+		newParams.myNumberParams.add(newGrittscore);
+
+		RuntimeSearchParam searchParam = new RuntimeSearchParam(null, null, GRITTSCORE, null, "Patient.extension", RestSearchParameterTypeEnum.NUMBER, null, null, RuntimeSearchParam.RuntimeSearchParamStatusEnum.ACTIVE, List.of("Patient"));
+		subject.setPartitionSettings(new PartitionSettings());
+
+		final AddRemoveCount addRemoveCount = subject.synchronizeSelectedSearchParamsToDatabase(newParams, entity, List.of(searchParam));
+
+		assertEquals(0, addRemoveCount.getRemoveCount());
+		assertEquals(1, addRemoveCount.getAddCount());
+		assertEquals(BigDecimal.valueOf(12), existingGrittscore.getValue());
+		assertEquals(BigDecimal.valueOf(5), existingOther.getValue());
+
+		verify(entityManager, never()).remove(any(BaseResourceIndex.class));
+		verify(entityManager, times(1)).merge(existingGrittscore);
+		verify(entityManager, never()).merge(existingOther);
+	}
+
+	@Test
+	void synchronizeSelectedReferenceSearchParamIgnoresLinksOfOtherPaths() {
+		ResourceTable entity = new ResourceTable();
+		entity.setId(3L);
+		entity.setResourceType("Observation");
+		entity.setHasLinks(true);
+		entity.getResourceLinks().add(ResourceLink.forLogicalReference("Observation.subject", entity, "http://foo/Patient/1", null));
+		entity.getResourceLinks().add(ResourceLink.forLogicalReference("Observation.performer", entity, "http://foo/Practitioner/1", null));
+
+		ResourceIndexedSearchParams newParams = ResourceIndexedSearchParams.withSets();
+		newParams.myLinks.add(ResourceLink.forLogicalReference("Observation.subject", entity, "http://foo/Patient/1", null));
+		newParams.myLinks.add(ResourceLink.forLogicalReference("Observation.performer", entity, "http://foo/Practitioner/1", null));
+
+		RuntimeSearchParam searchParam = new RuntimeSearchParam(null, null, "subject", null, "Observation.subject", RestSearchParameterTypeEnum.REFERENCE, null, null, RuntimeSearchParam.RuntimeSearchParamStatusEnum.ACTIVE, List.of("Observation"));
+		subject.setPartitionSettings(new PartitionSettings());
+
+		final AddRemoveCount addRemoveCount = subject.synchronizeSelectedSearchParamsToDatabase(newParams, entity, List.of(searchParam));
+
+		assertEquals(0, addRemoveCount.getRemoveCount());
+		assertEquals(0, addRemoveCount.getAddCount());
+		verify(entityManager, never()).merge(any(BaseResourceIndex.class));
+	}
+
+	@Test
+	void synchronizeSelectedTokenSearchParamAlsoSynchronizesTextRows() {
+		ResourceTable entity = new ResourceTable();
+		entity.setId(4L);
+		entity.setResourceType("Observation");
+
+		ResourceIndexedSearchParamToken newToken = new ResourceIndexedSearchParamToken(new PartitionSettings(), "Observation", "code", "http://loinc.org", "1234-5");
+		ResourceIndexedSearchParamString newTokenText = new ResourceIndexedSearchParamString(new PartitionSettings(), new JpaStorageSettings(), "Observation", "code", "HEART RATE", "Heart Rate");
+		ResourceIndexedSearchParamString newOther = new ResourceIndexedSearchParamString(new PartitionSettings(), new JpaStorageSettings(), "Observation", "other", "FOO", "foo");
+		ResourceIndexedSearchParamString newContained = new ResourceIndexedSearchParamString(new PartitionSettings(), new JpaStorageSettings(), "Observation", "subject.name", "SMITH", "Smith");
+		ResourceIndexedSearchParams newParams = ResourceIndexedSearchParams.withSets();
+		newParams.myTokenParams.add(newToken);
+		newParams.myStringParams.add(newTokenText);
+		newParams.myStringParams.add(newOther);
+		newParams.myStringParams.add(newContained);
+
+		RuntimeSearchParam searchParam = new RuntimeSearchParam(null, null, "code", null, "Observation.code", RestSearchParameterTypeEnum.TOKEN, null, null, RuntimeSearchParam.RuntimeSearchParamStatusEnum.ACTIVE, List.of("Observation"));
+		subject.setPartitionSettings(new PartitionSettings());
+
+		final AddRemoveCount addRemoveCount = subject.synchronizeSelectedSearchParamsToDatabase(newParams, entity, List.of(searchParam));
+
+		assertEquals(0, addRemoveCount.getRemoveCount());
+		assertEquals(2, addRemoveCount.getAddCount());
+		verify(entityManager, times(1)).merge(newToken);
+		verify(entityManager, times(1)).merge(newTokenText);
+		verify(entityManager, never()).merge(newOther);
+		verify(entityManager, never()).merge(newContained);
+	}
 }
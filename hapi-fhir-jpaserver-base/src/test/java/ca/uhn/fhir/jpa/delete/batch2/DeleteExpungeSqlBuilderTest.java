@@ -0,0 +1,99 @@
+package ca.uhn.fhir.jpa.delete.batch2;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.dao.data.IResourceLinkDao;
+import ca.uhn.fhir.jpa.dao.expunge.ResourceTableFKProvider;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.jpa.model.dialect.HapiFhirPostgresDialect;
+import ca.uhn.fhir.jpa.model.dialect.HapiFhirSQLServerDialect;
+import org.hibernate.dialect.H2Dialect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(MockitoExtension.class)
+public class DeleteExpungeSqlBuilderTest {
+
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	private final HibernatePropertiesProvider myHibernatePropertiesProvider = new HibernatePropertiesProvider();
+	@Mock
+	private IIdHelperService<JpaPid> myIdHelperService;
+	@Mock
+	private IResourceLinkDao myResourceLinkDao;
+	private DeleteExpungeSqlBuilder mySvc;
+
+	@BeforeEach
+	public void before() {
+		myStorageSettings.setEnforceReferentialIntegrityOnDelete(false);
+		mySvc = new DeleteExpungeSqlBuilder(new ResourceTableFKProvider(), myStorageSettings, myIdHelperService, myResourceLinkDao, myHibernatePropertiesProvider);
+	}
+
+	@Test
+	public void testInList() {
+		myHibernatePropertiesProvider.setDialectForUnitTest(new HapiFhirPostgresDialect());
+
+		List<String> sql = mySvc.convertPidsToDeleteExpungeSql(JpaPid.fromLongList(List.of(1L, 2L)), false, null).getSqlStatements();
+
+		assertThat(sql).contains("DELETE FROM HFJ_SPIDX_TOKEN WHERE RES_ID IN (1, 2)");
+		assertEquals("DELETE FROM HFJ_RESOURCE WHERE RES_ID IN (1, 2)", sql.get(sql.size() - 1));
+	}
+
+	@Test
+	public void testTempTable_Postgres() {
+		myStorageSettings.setDeleteExpungeUseTempTable(true);
+		myHibernatePropertiesProvider.setDialectForUnitTest(new HapiFhirPostgresDialect());
+		List<Long> pids = LongStream.rangeClosed(1, 1500).boxed().collect(Collectors.toList());
+
+		DeleteExpungeSqlBuilder.DeleteExpungeSqlResult result = mySvc.convertPidsToDeleteExpungeSql(JpaPid.fromLongList(pids), false, null);
+		List<String> sql = result.getSqlStatements();
+
+		assertEquals(1500, result.getRecordCount());
+		assertEquals("CREATE TEMPORARY TABLE HFJ_EXPUNGE_PID (RES_ID BIGINT NOT NULL PRIMARY KEY) ON COMMIT DROP", sql.get(0));
+		assertThat(sql.get(1)).startsWith("INSERT INTO HFJ_EXPUNGE_PID (RES_ID) VALUES (1),(2),");
+		assertThat(sql.get(1)).endsWith(",(1000)");
+		assertThat(sql.get(2)).startsWith("INSERT INTO HFJ_EXPUNGE_PID (RES_ID) VALUES (1001),");
+		assertEquals("ANALYZE HFJ_EXPUNGE_PID", sql.get(3));
+		assertThat(sql).contains("DELETE FROM HFJ_SPIDX_TOKEN t USING HFJ_EXPUNGE_PID p WHERE t.RES_ID = p.RES_ID");
+		assertEquals("DELETE FROM HFJ_RESOURCE t USING HFJ_EXPUNGE_PID p WHERE t.RES_ID = p.RES_ID", sql.get(sql.size() - 2));
+		assertEquals("DROP TABLE HFJ_EXPUNGE_PID", sql.get(sql.size() - 1));
+
+		// Only the deletes count towards the number of deleted records
+		assertThat(result.getSetupSqlStatements()).hasSize(4);
+		assertThat(result.getDeleteSqlStatements()).allMatch(t -> t.startsWith("DELETE FROM "));
+		assertThat(result.getCleanupSqlStatements()).containsExactly("DROP TABLE HFJ_EXPUNGE_PID");
+	}
+
+	@Test
+	public void testTempTable_SqlServer() {
+		myStorageSettings.setDeleteExpungeUseTempTable(true);
+		myHibernatePropertiesProvider.setDialectForUnitTest(new HapiFhirSQLServerDialect());
+
+		List<String> sql = mySvc.convertPidsToDeleteExpungeSql(JpaPid.fromLongList(List.of(1L, 2L)), false, null).getSqlStatements();
+
+		assertEquals("CREATE TABLE #HFJ_EXPUNGE_PID (RES_ID BIGINT NOT NULL PRIMARY KEY)", sql.get(0));
+		assertEquals("INSERT INTO #HFJ_EXPUNGE_PID (RES_ID) VALUES (1),(2)", sql.get(1));
+		assertThat(sql).contains("DELETE t FROM HFJ_RES_LINK t INNER JOIN #HFJ_EXPUNGE_PID p ON t.TARGET_RESOURCE_ID = p.RES_ID");
+		assertEquals("DROP TABLE #HFJ_EXPUNGE_PID", sql.get(sql.size() - 1));
+	}
+
+	@Test
+	public void testTempTable_UnsupportedDialectFallsBackToInList() {
+		myStorageSettings.setDeleteExpungeUseTempTable(true);
+		myHibernatePropertiesProvider.setDialectForUnitTest(new H2Dialect());
+
+		List<String> sql = mySvc.convertPidsToDeleteExpungeSql(JpaPid.fromLongList(List.of(1L, 2L)), false, null).getSqlStatements();
+
+		assertEquals("DELETE FROM HFJ_RESOURCE WHERE RES_ID IN (1, 2)", sql.get(sql.size() - 1));
+	}
+}
@@ -0,0 +1,60 @@
+package ca.uhn.fhir.jpa.term;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TermConceptHierarchyIndexTest {
+
+	/**
+	 * <pre>
+	 *      10
+	 *     /  \
+	 *   20    30
+	 *     \  /  \
+	 *      40    50
+	 *      |
+	 *      60
+	 * </pre>
+	 */
+	private static TermConceptHierarchyIndex buildIndex() {
+		long[] parents = new long[]{10, 10, 20, 30, 30, 40, 0, 0};
+		long[] children = new long[]{20, 30, 40, 40, 50, 60, 0, 0};
+		return TermConceptHierarchyIndex.build(parents, children, 6);
+	}
+
+	@Test
+	public void testDescendants() {
+		TermConceptHierarchyIndex index = buildIndex();
+
+		assertEquals(6, index.size());
+		assertThat(index.getDescendantPids(10)).containsExactlyInAnyOrder(20, 30, 40, 50, 60);
+		assertThat(index.getDescendantPids(30)).containsExactlyInAnyOrder(40, 50, 60);
+		assertThat(index.getDescendantPids(60)).isEmpty();
+		assertThat(index.getDescendantPids(999)).isEmpty();
+	}
+
+	@Test
+	public void testAncestors() {
+		TermConceptHierarchyIndex index = buildIndex();
+
+		assertThat(index.getAncestorPids(60)).containsExactlyInAnyOrder(40, 20, 30, 10);
+		assertThat(index.getAncestorPids(50)).containsExactlyInAnyOrder(30, 10);
+		assertThat(index.getAncestorPids(10)).isEmpty();
+	}
+
+	@Test
+	public void testIsDescendantOf() {
+		TermConceptHierarchyIndex index = buildIndex();
+
+		assertTrue(index.isDescendantOf(60, 10));
+		assertTrue(index.isDescendantOf(40, 30));
+		assertFalse(index.isDescendantOf(10, 60));
+		assertFalse(index.isDescendantOf(50, 20));
+		assertFalse(index.isDescendantOf(40, 40));
+		assertFalse(index.isDescendantOf(999, 10));
+	}
+}
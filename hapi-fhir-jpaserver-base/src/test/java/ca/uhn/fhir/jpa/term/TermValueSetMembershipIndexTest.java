@@ -0,0 +1,71 @@
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TermValueSetMembershipIndexTest {
+
+	private static final Date EXPANSION_TIMESTAMP = new Date(1000L);
+
+	private static TermValueSetMembershipIndex buildIndex() {
+		return TermValueSetMembershipIndex.newBuilder(EXPANSION_TIMESTAMP)
+			.add("http://foo", "1", "A", "Foo A v1")
+			.add("http://foo", "2", "A", "Foo A v2")
+			.add("http://bar", null, "A", "Bar A")
+			.add("http://bar", null, "B", "Bar B")
+			.build();
+	}
+
+	@Test
+	public void testFindByCode() {
+		TermValueSetMembershipIndex index = buildIndex();
+
+		assertThat(index.findByCode("A")).extracting(TermValueSetConcept::getDisplay).containsExactlyInAnyOrder("Foo A v1", "Foo A v2", "Bar A");
+		assertThat(index.findByCode("C")).isEmpty();
+	}
+
+	@Test
+	public void testFindBySystemAndCode() {
+		TermValueSetMembershipIndex index = buildIndex();
+
+		List<TermValueSetConcept> concepts = index.findBySystemAndCode("http://bar", "B");
+		assertEquals(1, concepts.size());
+		assertEquals("http://bar", concepts.get(0).getSystem());
+		assertEquals("B", concepts.get(0).getCode());
+		assertEquals("Bar B", concepts.get(0).getDisplay());
+
+		assertThat(index.findBySystemAndCode("http://foo", "A")).hasSize(1);
+		assertThat(index.findBySystemAndCode("http://foo", "B")).isEmpty();
+	}
+
+	@Test
+	public void testFindBySystemAndCode_WithVersion() {
+		TermValueSetMembershipIndex index = buildIndex();
+
+		List<TermValueSetConcept> concepts = index.findBySystemAndCode("http://foo|2", "A");
+		assertEquals(1, concepts.size());
+		assertEquals("2", concepts.get(0).getSystemVersion());
+		assertEquals("Foo A v2", concepts.get(0).getDisplay());
+
+		assertThat(index.findBySystemAndCode("http://foo|3", "A")).isEmpty();
+	}
+
+	@Test
+	public void testHasSystemAndIsCurrent() {
+		TermValueSetMembershipIndex index = buildIndex();
+
+		assertTrue(index.hasSystem("http://foo"));
+		assertFalse(index.hasSystem("http://baz"));
+		assertTrue(index.isCurrent(new Date(1000L)));
+		assertFalse(index.isCurrent(new Date(2000L)));
+		assertFalse(index.isCurrent(null));
+	}
+}
@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.model.config;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.dstu2.model.Subscription;
 
 import java.util.Collections;
@@ -34,6 +35,8 @@ public abstract class BaseSubscriptionSettings {
 	public static final String DEFAULT_WEBSOCKET_CONTEXT_PATH = "/websocket";
 	public static final String DEFAULT_RESTHOOK_ENDPOINTURL_VALIDATION_REGEX =
 			"((((http?|https?)://))([-%()_.!~*';/?:@&=+$,A-Za-z0-9])+)";
+	public static final int DEFAULT_ASYNC_SUBMISSION_BATCH_SIZE = 1000;
+	public static final int DEFAULT_ASYNC_SUBMISSION_THREAD_COUNT = 1;
 
 	private final Set<Subscription.SubscriptionChannelType> mySupportedSubscriptionTypes = new HashSet<>();
 	private String myEmailFromAddress = DEFAULT_EMAIL_FROM_ADDRESS;
@@ -56,6 +59,27 @@ public abstract class BaseSubscriptionSettings {
 	 */
 	private String myRestHookEndpointUrlValidationRegex = DEFAULT_RESTHOOK_ENDPOINTURL_VALIDATION_REGEX;
 
+	/**
+	 * @since 7.6.0
+	 *
+	 * Maximum number of persisted resource modified messages claimed and submitted per transaction.
+	 */
+	private int myAsyncSubmissionBatchSize = DEFAULT_ASYNC_SUBMISSION_BATCH_SIZE;
+
+	/**
+	 * @since 7.6.0
+	 *
+	 * Number of threads used to submit a claimed batch of persisted resource modified messages.
+	 */
+	private int myAsyncSubmissionThreadCount = DEFAULT_ASYNC_SUBMISSION_THREAD_COUNT;
+
+	/**
+	 * @since 7.6.0
+	 *
+	 * Whether delivery channels route messages to their consumers by message key.
+	 */
+	private boolean myDeliveryOrderedByMessageKey = false;
+
 	/**
 	 * This setting indicates which subscription channel types are supported by the server.  Any subscriptions submitted
 	 * to the server matching these types will be activated.
@@ -274,4 +298,82 @@ public abstract class BaseSubscriptionSettings {
 	public boolean hasRestHookEndpointUrlValidationRegex() {
 		return isNotBlank(myRestHookEndpointUrlValidationRegex);
 	}
+
+	/**
+	 * The maximum number of persisted resource modified messages that will be claimed, submitted to the
+	 * subscription matching channel and deleted in a single transaction by the asynchronous submission job.
+	 * Messages claimed by another server in the cluster are skipped (<code>SKIP LOCKED</code>) on databases
+	 * that support it.
+	 * Default value is {@link #DEFAULT_ASYNC_SUBMISSION_BATCH_SIZE}.
+	 *
+	 * @since 7.6.0
+	 */
+	public int getAsyncSubmissionBatchSize() {
+		return myAsyncSubmissionBatchSize;
+	}
+
+	/**
+	 * The maximum number of persisted resource modified messages that will be claimed, submitted to the
+	 * subscription matching channel and deleted in a single transaction by the asynchronous submission job.
+	 * Messages claimed by another server in the cluster are skipped (<code>SKIP LOCKED</code>) on databases
+	 * that support it.
+	 * Default value is {@link #DEFAULT_ASYNC_SUBMISSION_BATCH_SIZE}.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setAsyncSubmissionBatchSize(int theAsyncSubmissionBatchSize) {
+		Validate.isTrue(theAsyncSubmissionBatchSize > 0, "theAsyncSubmissionBatchSize must be greater than 0");
+		myAsyncSubmissionBatchSize = theAsyncSubmissionBatchSize;
+	}
+
+	/**
+	 * The number of threads used to submit a claimed batch of persisted resource modified messages to the
+	 * subscription matching channel. With the default value of {@link #DEFAULT_ASYNC_SUBMISSION_THREAD_COUNT},
+	 * messages are submitted in creation order on the scheduler thread. Higher values speed up the recovery
+	 * of a large backlog (e.g. after a broker outage) at the cost of submission order.
+	 *
+	 * @since 7.6.0
+	 */
+	public int getAsyncSubmissionThreadCount() {
+		return myAsyncSubmissionThreadCount;
+	}
+
+	/**
+	 * The number of threads used to submit a claimed batch of persisted resource modified messages to the
+	 * subscription matching channel. With the default value of {@link #DEFAULT_ASYNC_SUBMISSION_THREAD_COUNT},
+	 * messages are submitted in creation order on the scheduler thread. Higher values speed up the recovery
+	 * of a large backlog (e.g. after a broker outage) at the cost of submission order.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setAsyncSubmissionThreadCount(int theAsyncSubmissionThreadCount) {
+		Validate.isTrue(theAsyncSubmissionThreadCount > 0, "theAsyncSubmissionThreadCount must be greater than 0");
+		myAsyncSubmissionThreadCount = theAsyncSubmissionThreadCount;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), subscription delivery channels will route
+	 * messages to their consumers using the message key (see <code>ISubscriptionMessageKeySvc</code>),
+	 * which defaults to the versionless resource ID. All deliveries for a given key are then performed in order by the same
+	 * consumer, while deliveries for different keys proceed in parallel across all consumers.
+	 * This applies to in-memory channels; message brokers partition deliveries by key on their own.
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isDeliveryOrderedByMessageKey() {
+		return myDeliveryOrderedByMessageKey;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), subscription delivery channels will route
+	 * messages to their consumers using the message key (see <code>ISubscriptionMessageKeySvc</code>),
+	 * which defaults to the versionless resource ID. All deliveries for a given key are then performed in order by the same
+	 * consumer, while deliveries for different keys proceed in parallel across all consumers.
+	 * This applies to in-memory channels; message brokers partition deliveries by key on their own.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setDeliveryOrderedByMessageKey(boolean theDeliveryOrderedByMessageKey) {
+		myDeliveryOrderedByMessageKey = theDeliveryOrderedByMessageKey;
+	}
 }
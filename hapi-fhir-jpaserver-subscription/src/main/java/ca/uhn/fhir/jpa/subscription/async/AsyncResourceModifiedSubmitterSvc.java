@@ -20,64 +20,46 @@ package ca.uhn.fhir.jpa.subscription.async;
  * #L%
  */
 
-import ca.uhn.fhir.jpa.model.entity.IPersistedResourceModifiedMessage;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.subscription.api.IResourceModifiedConsumerWithRetries;
 import ca.uhn.fhir.subscription.api.IResourceModifiedMessagePersistenceSvc;
-import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 
 /**
  * The purpose of this service is to submit messages to the processing pipeline for which previous attempts at
  * submission has failed.  See also {@link AsyncResourceModifiedProcessingSchedulerSvc} and {@link IResourceModifiedMessagePersistenceSvc}.
- *
+ * <p>
+ * Messages are claimed, submitted and deleted in batches of {@link SubscriptionSettings#getAsyncSubmissionBatchSize()}
+ * so that a large backlog accumulated during a broker outage can be drained quickly, and by several servers at once.
+ * </p>
  */
 public class AsyncResourceModifiedSubmitterSvc {
 	private static final Logger ourLog = LoggerFactory.getLogger(AsyncResourceModifiedSubmitterSvc.class);
 
-	public static final int MAX_LIMIT = 1000;
-
-	private final IResourceModifiedMessagePersistenceSvc myResourceModifiedMessagePersistenceSvc;
 	private final IResourceModifiedConsumerWithRetries myResourceModifiedConsumer;
+	private final SubscriptionSettings mySubscriptionSettings;
 
 	public AsyncResourceModifiedSubmitterSvc(
-			IResourceModifiedMessagePersistenceSvc theResourceModifiedMessagePersistenceSvc,
-			IResourceModifiedConsumerWithRetries theResourceModifiedConsumer) {
-		myResourceModifiedMessagePersistenceSvc = theResourceModifiedMessagePersistenceSvc;
+			IResourceModifiedConsumerWithRetries theResourceModifiedConsumer,
+			SubscriptionSettings theSubscriptionSettings) {
 		myResourceModifiedConsumer = theResourceModifiedConsumer;
+		mySubscriptionSettings = theSubscriptionSettings;
 	}
 
 	public void runDeliveryPass() {
-		boolean hasMoreToFetch = false;
-		int limit = getLimit();
+		int batchSize = mySubscriptionSettings.getAsyncSubmissionBatchSize();
+		int totalSubmitted = 0;
+		int submitted;
 		do {
-			// we always take the 0th page, because we're deleting the elements as we process them
-			Page<IPersistedResourceModifiedMessage> persistedResourceModifiedMsgsPage =
-					myResourceModifiedMessagePersistenceSvc.findAllOrderedByCreatedTime(PageRequest.of(0, limit));
-			ourLog.debug(
-					"Attempting to submit {} resources to consumer channel.",
-					persistedResourceModifiedMsgsPage.getTotalElements());
-
-			hasMoreToFetch = persistedResourceModifiedMsgsPage.hasNext();
-
-			for (IPersistedResourceModifiedMessage persistedResourceModifiedMessage :
-					persistedResourceModifiedMsgsPage) {
-				boolean wasProcessed = myResourceModifiedConsumer.submitPersisedResourceModifiedMessage(
-						persistedResourceModifiedMessage);
-
-				if (!wasProcessed) {
-					// we're not fetching anymore no matter what
-					hasMoreToFetch = false;
-					break;
-				}
-			}
-		} while (hasMoreToFetch);
-	}
+			// a full batch means there may be more messages waiting, anything less means we are done or
+			// that the broker rejected a message, in which case we'll try again on the next pass
+			submitted = myResourceModifiedConsumer.submitPersistedResourceModifiedMessageBatch(batchSize);
+			totalSubmitted += submitted;
+		} while (submitted == batchSize);
 
-	@VisibleForTesting
-	public static int getLimit() {
-		return MAX_LIMIT;
+		if (totalSubmitted > 0) {
+			ourLog.debug("Submitted {} persisted resources to consumer channel.", totalSubmitted);
+		}
 	}
 }
@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.jpa.subscription.channel.subscription;
 
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.ChannelConsumerSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
@@ -58,6 +59,9 @@ public class SubscriptionChannelRegistry {
 	@Autowired
 	private SubscriptionChannelFactory mySubscriptionDeliveryChannelFactory;
 
+	@Autowired
+	private SubscriptionSettings mySubscriptionSettings;
+
 	public synchronized void add(ActiveSubscription theActiveSubscription) {
 		String channelName = theActiveSubscription.getChannelName();
 		ourLog.info("Adding subscription {} to channel {}", theActiveSubscription.getId(), channelName);
@@ -110,6 +114,7 @@ public class SubscriptionChannelRegistry {
 	protected IChannelReceiver newReceivingChannel(ReceivingChannelParameters theParameters) {
 		ChannelConsumerSettings settings = new ChannelConsumerSettings();
 		settings.setRetryConfiguration(theParameters.getRetryConfiguration());
+		settings.setOrderedByMessageKey(mySubscriptionSettings.isDeliveryOrderedByMessageKey());
 		return mySubscriptionDeliveryChannelFactory.newDeliveryReceivingChannel(
 				theParameters.getChannelName(), settings);
 	}
@@ -117,6 +122,7 @@ public class SubscriptionChannelRegistry {
 	protected IChannelProducer newSendingChannel(ProducingChannelParameters theParameters) {
 		ChannelProducerSettings settings = new ChannelProducerSettings();
 		settings.setRetryConfiguration(theParameters.getRetryConfiguration());
+		settings.setOrderedByMessageKey(mySubscriptionSettings.isDeliveryOrderedByMessageKey());
 		return mySubscriptionDeliveryChannelFactory.newDeliverySendingChannel(theParameters.getChannelName(), settings);
 	}
 
@@ -21,7 +21,9 @@ package ca.uhn.fhir.jpa.subscription.match.config;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
+import ca.uhn.fhir.jpa.subscription.api.ISubscriptionMessageKeySvc;
 import ca.uhn.fhir.jpa.subscription.channel.api.IChannelFactory;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionDeliveryChannelNamer;
@@ -45,6 +47,7 @@ import ca.uhn.fhir.jpa.subscription.model.config.SubscriptionModelConfig;
 import ca.uhn.fhir.jpa.topic.SubscriptionTopicDispatcher;
 import ca.uhn.fhir.jpa.topic.SubscriptionTopicPayloadBuilder;
 import ca.uhn.fhir.jpa.topic.filter.InMemoryTopicFilterMatcher;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -109,9 +112,15 @@ public class SubscriptionProcessorConfig {
 	public SubscriptionMatchDeliverer subscriptionMatchDeliverer(
 			FhirContext theFhirContext,
 			IInterceptorBroadcaster theInterceptorBroadcaster,
-			SubscriptionChannelRegistry theSubscriptionChannelRegistry) {
+			SubscriptionChannelRegistry theSubscriptionChannelRegistry,
+			SubscriptionSettings theSubscriptionSettings,
+			ObjectProvider<ISubscriptionMessageKeySvc> theSubscriptionMessageKeySvc) {
 		return new SubscriptionMatchDeliverer(
-				theFhirContext, theInterceptorBroadcaster, theSubscriptionChannelRegistry);
+				theFhirContext,
+				theInterceptorBroadcaster,
+				theSubscriptionChannelRegistry,
+				theSubscriptionSettings,
+				theSubscriptionMessageKeySvc.getIfAvailable());
 	}
 
 	@Bean
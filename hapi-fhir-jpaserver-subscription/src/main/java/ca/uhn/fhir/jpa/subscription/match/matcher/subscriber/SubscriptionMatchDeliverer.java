@@ -24,7 +24,9 @@ import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
+import ca.uhn.fhir.jpa.subscription.api.ISubscriptionMessageKeySvc;
 import ca.uhn.fhir.jpa.subscription.channel.api.PayloadTooLargeException;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
 import ca.uhn.fhir.jpa.subscription.match.registry.ActiveSubscription;
@@ -41,20 +43,46 @@ import org.slf4j.LoggerFactory;
 import org.springframework.messaging.MessageChannel;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class SubscriptionMatchDeliverer {
 	private static final Logger ourLog = LoggerFactory.getLogger(SubscriptionMatchDeliverer.class);
 	private final FhirContext myFhirContext;
 	private final IInterceptorBroadcaster myInterceptorBroadcaster;
 	private final SubscriptionChannelRegistry mySubscriptionChannelRegistry;
+	private final SubscriptionSettings mySubscriptionSettings;
+
+	@Nullable
+	private final ISubscriptionMessageKeySvc mySubscriptionMessageKeySvc;
 
 	public SubscriptionMatchDeliverer(
 			FhirContext theFhirContext,
 			IInterceptorBroadcaster theInterceptorBroadcaster,
 			SubscriptionChannelRegistry theSubscriptionChannelRegistry) {
+		this(
+				theFhirContext,
+				theInterceptorBroadcaster,
+				theSubscriptionChannelRegistry,
+				new SubscriptionSettings(),
+				null);
+	}
+
+	/**
+	 * @param theSubscriptionMessageKeySvc Used to key deliveries when {@link SubscriptionSettings#isDeliveryOrderedByMessageKey()}
+	 *                                     is enabled. May be <code>null</code>, in which case the versionless resource ID is used.
+	 * @since 7.6.0
+	 */
+	public SubscriptionMatchDeliverer(
+			FhirContext theFhirContext,
+			IInterceptorBroadcaster theInterceptorBroadcaster,
+			SubscriptionChannelRegistry theSubscriptionChannelRegistry,
+			SubscriptionSettings theSubscriptionSettings,
+			@Nullable ISubscriptionMessageKeySvc theSubscriptionMessageKeySvc) {
 		myFhirContext = theFhirContext;
 		myInterceptorBroadcaster = theInterceptorBroadcaster;
 		mySubscriptionChannelRegistry = theSubscriptionChannelRegistry;
+		mySubscriptionSettings = theSubscriptionSettings;
+		mySubscriptionMessageKeySvc = theSubscriptionMessageKeySvc;
 	}
 
 	public boolean deliverPayload(
@@ -69,7 +97,8 @@ public class SubscriptionMatchDeliverer {
 			subscriptionDeliveryRequest =
 					new SubscriptionDeliveryRequest(theMsg.getPayloadId(myFhirContext), theMsg, theActiveSubscription);
 		}
-		ResourceDeliveryMessage deliveryMsg = buildResourceDeliveryMessage(subscriptionDeliveryRequest);
+		ResourceDeliveryMessage deliveryMsg =
+				buildResourceDeliveryMessage(subscriptionDeliveryRequest, theMsg.getMessageKey());
 		deliveryMsg.copyAdditionalPropertiesFrom(theMsg);
 
 		return sendToDeliveryChannel(theActiveSubscription, theInMemoryMatchResult, deliveryMsg);
@@ -78,7 +107,7 @@ public class SubscriptionMatchDeliverer {
 	public boolean deliverPayload(
 			@Nonnull SubscriptionDeliveryRequest subscriptionDeliveryRequest,
 			@Nullable InMemoryMatchResult theInMemoryMatchResult) {
-		ResourceDeliveryMessage deliveryMsg = buildResourceDeliveryMessage(subscriptionDeliveryRequest);
+		ResourceDeliveryMessage deliveryMsg = buildResourceDeliveryMessage(subscriptionDeliveryRequest, null);
 
 		return sendToDeliveryChannel(
 				subscriptionDeliveryRequest.getActiveSubscription(), theInMemoryMatchResult, deliveryMsg);
@@ -105,7 +134,8 @@ public class SubscriptionMatchDeliverer {
 		return retVal;
 	}
 
-	private ResourceDeliveryMessage buildResourceDeliveryMessage(@Nonnull SubscriptionDeliveryRequest theRequest) {
+	private ResourceDeliveryMessage buildResourceDeliveryMessage(
+			@Nonnull SubscriptionDeliveryRequest theRequest, @Nullable String theMessageKey) {
 		EncodingEnum encoding = null;
 
 		CanonicalSubscription subscription = theRequest.getSubscription();
@@ -128,9 +158,42 @@ public class SubscriptionMatchDeliverer {
 		deliveryMsg.setSubscription(subscription);
 		deliveryMsg.setOperationType(theRequest.getOperationType());
 		deliveryMsg.setTransactionId(theRequest.getTransactionId());
+		if (mySubscriptionSettings.isDeliveryOrderedByMessageKey()) {
+			deliveryMsg.setMessageKey(determineMessageKey(theRequest, theMessageKey));
+		}
 		return deliveryMsg;
 	}
 
+	/**
+	 * When deliveries are ordered by message key, the key is used to route deliveries so that all deliveries
+	 * for the same resource are handled in order. It is the key of the modified message if one was set, then the key provided by the
+	 * {@link ISubscriptionMessageKeySvc} if there is one, and finally the versionless ID of the resource.
+	 */
+	@Nullable
+	private String determineMessageKey(
+			@Nonnull SubscriptionDeliveryRequest theRequest, @Nullable String theMessageKey) {
+		if (isNotBlank(theMessageKey)) {
+			return theMessageKey;
+		}
+		if (mySubscriptionMessageKeySvc != null && theRequest.hasPayload()) {
+			String messageKey = mySubscriptionMessageKeySvc.getMessageKeyOrNull(theRequest.getPayload());
+			if (isNotBlank(messageKey)) {
+				return messageKey;
+			}
+		}
+		if (theRequest.getPayloadId() != null) {
+			return theRequest.getPayloadId().toUnqualifiedVersionless().getValue();
+		}
+		if (theRequest.hasPayload()) {
+			return theRequest
+					.getPayload()
+					.getIdElement()
+					.toUnqualifiedVersionless()
+					.getValue();
+		}
+		return null;
+	}
+
 	private boolean callHooks(
 			ActiveSubscription theActiveSubscription,
 			InMemoryMatchResult theInMemoryMatchResult,
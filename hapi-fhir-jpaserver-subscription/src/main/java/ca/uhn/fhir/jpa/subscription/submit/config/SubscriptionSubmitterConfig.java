@@ -106,10 +106,9 @@ public class SubscriptionSubmitterConfig {
 
 	@Bean
 	public AsyncResourceModifiedSubmitterSvc asyncResourceModifiedSubmitterSvc(
-			IResourceModifiedMessagePersistenceSvc theIResourceModifiedMessagePersistenceSvc,
-			IResourceModifiedConsumerWithRetries theResourceModifiedConsumer) {
-		return new AsyncResourceModifiedSubmitterSvc(
-				theIResourceModifiedMessagePersistenceSvc, theResourceModifiedConsumer);
+			IResourceModifiedConsumerWithRetries theResourceModifiedConsumer,
+			SubscriptionSettings theSubscriptionSettings) {
+		return new AsyncResourceModifiedSubmitterSvc(theResourceModifiedConsumer, theSubscriptionSettings);
 	}
 
 	@Bean
@@ -34,6 +34,8 @@ import ca.uhn.fhir.jpa.subscription.submit.interceptor.SubscriptionMatcherInterc
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.subscription.api.IResourceModifiedConsumerWithRetries;
 import ca.uhn.fhir.subscription.api.IResourceModifiedMessagePersistenceSvc;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,9 +43,15 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.support.TransactionCallback;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import static ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionMatchingSubscriber.SUBSCRIPTION_MATCHING_CHANNEL_NAME;
 
 /**
@@ -66,6 +74,7 @@ public class ResourceModifiedSubmitterSvc implements IResourceModifiedConsumer,
 	private final SubscriptionChannelFactory mySubscriptionChannelFactory;
 	private final IResourceModifiedMessagePersistenceSvc myResourceModifiedMessagePersistenceSvc;
 	private final IHapiTransactionService myHapiTransactionService;
+	private ThreadPoolTaskExecutor myBatchSubmissionExecutor;
 
 	@EventListener(classes = {ContextRefreshedEvent.class})
 	public void startIfNeeded() {
@@ -140,46 +149,159 @@ public class ResourceModifiedSubmitterSvc implements IResourceModifiedConsumer,
 	protected TransactionCallback<Boolean> doProcessResourceModifiedInTransaction(
 			IPersistedResourceModifiedMessage thePersistedResourceModifiedMessage) {
 		return theStatus -> {
-			boolean processed = true;
-			ResourceModifiedMessage resourceModifiedMessage = null;
+			boolean processed = submitPersistedMessage(thePersistedResourceModifiedMessage, true);
+			if (!processed) {
+				// we encountered an issue when trying to send the message so mark the transaction for rollback
+				theStatus.setRollbackOnly();
+			}
+			return processed;
+		};
+	}
+
+	/**
+	 * This method claims a batch of IPersistedResourceModifiedMessage, skipping the ones already claimed by another
+	 * server, and submits them to the subscription processing pipeline.  Submission is performed on a thread pool
+	 * when {@link SubscriptionSettings#getAsyncSubmissionThreadCount()} is greater than 1.  Messages that were
+	 * successfully submitted are then deleted with a single statement and the transaction is committed, releasing
+	 * the claim on the messages that could not be submitted for a later attempt.
+	 *
+	 * @param theMaxCount The maximum number of messages to claim.
+	 * @return The number of messages that were successfully submitted.
+	 */
+	@Override
+	public int submitPersistedResourceModifiedMessageBatch(int theMaxCount) {
+		return myHapiTransactionService
+				.withSystemRequest()
+				.withPropagation(Propagation.REQUIRES_NEW)
+				.execute(theStatus -> {
+					List<IPersistedResourceModifiedMessage> claimedMessages =
+							myResourceModifiedMessagePersistenceSvc.findAndLockOldestUnclaimed(theMaxCount);
+					if (claimedMessages.isEmpty()) {
+						return 0;
+					}
 
+					List<IPersistedResourceModifiedMessagePK> processedPks = submitClaimedMessages(claimedMessages);
+
+					myResourceModifiedMessagePersistenceSvc.deleteByPKs(processedPks);
+
+					ourLog.debug(
+							"Submitted {} of {} claimed resource modified messages.",
+							processedPks.size(),
+							claimedMessages.size());
+					return processedPks.size();
+				});
+	}
+
+	private List<IPersistedResourceModifiedMessagePK> submitClaimedMessages(
+			List<IPersistedResourceModifiedMessage> theClaimedMessages) {
+		List<IPersistedResourceModifiedMessagePK> retVal = new ArrayList<>(theClaimedMessages.size());
+
+		int threadCount = mySubscriptionSettings.getAsyncSubmissionThreadCount();
+		if (threadCount <= 1 || theClaimedMessages.size() == 1) {
+			for (IPersistedResourceModifiedMessage next : theClaimedMessages) {
+				if (!submitClaimedMessage(next)) {
+					// the broker is likely unavailable, the remaining messages will be attempted at a later time
+					break;
+				}
+				retVal.add(next.getPersistedResourceModifiedMessagePk());
+			}
+			return retVal;
+		}
+
+		ThreadPoolTaskExecutor executor = getOrCreateBatchSubmissionExecutor(threadCount);
+		List<Future<Boolean>> futures = new ArrayList<>(theClaimedMessages.size());
+		for (IPersistedResourceModifiedMessage next : theClaimedMessages) {
+			futures.add(executor.submit(() -> submitClaimedMessage(next)));
+		}
+
+		for (int i = 0; i < futures.size(); i++) {
 			try {
+				if (futures.get(i).get()) {
+					retVal.add(theClaimedMessages.get(i).getPersistedResourceModifiedMessagePk());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				ourLog.warn("Interrupted while waiting for resource modified message submission.");
+				break;
+			} catch (ExecutionException e) {
+				// submitClaimedMessage does not throw, so this should never happen
+				ourLog.error("Unexpected error while waiting for resource modified message submission.", e);
+			}
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Submit a claimed message to the broker.
+	 *
+	 * @return false if the message could not be delivered and needs to be kept for a later attempt, true otherwise.
+	 */
+	private boolean submitClaimedMessage(IPersistedResourceModifiedMessage thePersistedResourceModifiedMessage) {
+		return submitPersistedMessage(thePersistedResourceModifiedMessage, false);
+	}
+
+	/**
+	 * Submit a persisted message to the broker, optionally deleting it first to lock the row.
+	 *
+	 * @param theDeleteBeforeSubmission whether the persisted message should be deleted before submission, in which case
+	 *                                  the message is only submitted if this server was the one to delete it.
+	 * @return false if the message could not be delivered and needs to be kept for a later attempt, true otherwise.
+	 */
+	private boolean submitPersistedMessage(
+			IPersistedResourceModifiedMessage thePersistedResourceModifiedMessage, boolean theDeleteBeforeSubmission) {
+		ResourceModifiedMessage resourceModifiedMessage = null;
+		try {
+			boolean shouldSubmit = true;
+			if (theDeleteBeforeSubmission) {
 				// delete the entry to lock the row to ensure unique processing
-				boolean wasDeleted = deletePersistedResourceModifiedMessage(
+				shouldSubmit = deletePersistedResourceModifiedMessage(
 						thePersistedResourceModifiedMessage.getPersistedResourceModifiedMessagePk());
+			}
 
-				// submit the resource modified message with empty payload, actual inflation is done by the matcher.
-				resourceModifiedMessage =
-						createResourceModifiedMessageWithoutInflation(thePersistedResourceModifiedMessage);
+			// submit the resource modified message with empty payload, actual inflation is done by the matcher.
+			resourceModifiedMessage =
+					createResourceModifiedMessageWithoutInflation(thePersistedResourceModifiedMessage);
 
-				if (wasDeleted) {
-					submitResourceModified(resourceModifiedMessage);
-				}
-			} catch (MessageDeliveryException exception) {
-				// we encountered an issue when trying to send the message so mark the transaction for rollback
-				String payloadId = "[unknown]";
-				String subscriptionId = "[unknown]";
-				if (resourceModifiedMessage != null) {
-					payloadId = resourceModifiedMessage.getPayloadId();
-					subscriptionId = resourceModifiedMessage.getSubscriptionId();
-				}
-				ourLog.error(
-						"Channel submission failed for resource with id {} matching subscription with id {}.  Further attempts will be performed at later time.",
-						payloadId,
-						subscriptionId,
-						exception);
-				processed = false;
-				theStatus.setRollbackOnly();
-			} catch (Exception ex) {
-				// catch other errors
-				ourLog.error(
-						"Unexpected error encountered while processing resource modified message. Marking as processed to prevent further errors.",
-						ex);
-				processed = true;
+			if (shouldSubmit) {
+				submitResourceModified(resourceModifiedMessage);
+			}
+		} catch (MessageDeliveryException exception) {
+			String payloadId = "[unknown]";
+			String subscriptionId = "[unknown]";
+			if (resourceModifiedMessage != null) {
+				payloadId = resourceModifiedMessage.getPayloadId();
+				subscriptionId = resourceModifiedMessage.getSubscriptionId();
 			}
+			ourLog.error(
+					"Channel submission failed for resource with id {} matching subscription with id {}.  Further attempts will be performed at later time.",
+					payloadId,
+					subscriptionId,
+					exception);
+			return false;
+		} catch (Exception ex) {
+			// catch other errors
+			ourLog.error(
+					"Unexpected error encountered while processing resource modified message. Marking as processed to prevent further errors.",
+					ex);
+		}
+		return true;
+	}
 
-			return processed;
-		};
+	private synchronized ThreadPoolTaskExecutor getOrCreateBatchSubmissionExecutor(int theThreadCount) {
+		if (myBatchSubmissionExecutor == null) {
+			myBatchSubmissionExecutor =
+					ThreadPoolUtil.newThreadPool(theThreadCount, theThreadCount, "resource-modified-submission-", 0);
+		}
+		return myBatchSubmissionExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (myBatchSubmissionExecutor != null) {
+			myBatchSubmissionExecutor.shutdown();
+			myBatchSubmissionExecutor = null;
+		}
 	}
 
 	private ResourceModifiedMessage createResourceModifiedMessageWithoutInflation(
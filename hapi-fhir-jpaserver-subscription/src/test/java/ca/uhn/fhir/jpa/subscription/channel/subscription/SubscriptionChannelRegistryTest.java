@@ -1,5 +1,6 @@
 package ca.uhn.fhir.jpa.subscription.channel.subscription;
 
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.BaseChannelSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.ChannelConsumerSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
@@ -37,6 +38,9 @@ public class SubscriptionChannelRegistryTest {
 	@Mock
 	private SubscriptionChannelFactory mySubscriptionChannelFactory;
 
+	@Mock
+	private SubscriptionSettings mySubscriptionSettings;
+
 	@InjectMocks
 	private SubscriptionChannelRegistry mySubscriptionChannelRegistry;
 
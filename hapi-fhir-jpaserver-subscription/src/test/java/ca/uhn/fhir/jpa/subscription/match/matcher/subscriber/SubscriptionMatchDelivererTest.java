@@ -0,0 +1,118 @@
+package ca.uhn.fhir.jpa.subscription.match.matcher.subscriber;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
+import ca.uhn.fhir.jpa.subscription.api.ISubscriptionMessageKeySvc;
+import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
+import ca.uhn.fhir.jpa.subscription.match.registry.ActiveSubscription;
+import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
+import ca.uhn.fhir.jpa.subscription.model.ResourceDeliveryJsonMessage;
+import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
+import ca.uhn.fhir.rest.server.messaging.BaseResourceModifiedMessage;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.MessageChannel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SubscriptionMatchDelivererTest {
+
+	private final FhirContext myFhirContext = FhirContext.forR4Cached();
+	@Mock
+	private IInterceptorBroadcaster myInterceptorBroadcaster;
+	@Mock
+	private SubscriptionChannelRegistry mySubscriptionChannelRegistry;
+	@Mock
+	private MessageChannel myDeliveryChannel;
+	@Mock
+	private ISubscriptionMessageKeySvc mySubscriptionMessageKeySvc;
+
+	private final SubscriptionSettings mySubscriptionSettings = new SubscriptionSettings();
+	private SubscriptionMatchDeliverer mySvc;
+	private ActiveSubscription myActiveSubscription;
+
+	@BeforeEach
+	public void before() {
+		mySubscriptionSettings.setDeliveryOrderedByMessageKey(true);
+		mySvc = new SubscriptionMatchDeliverer(myFhirContext, myInterceptorBroadcaster, mySubscriptionChannelRegistry, mySubscriptionSettings, null);
+		CanonicalSubscription subscription = new CanonicalSubscription();
+		subscription.setIdElement(new IdType("Subscription/123"));
+		myActiveSubscription = new ActiveSubscription(subscription, "channel");
+
+		when(myInterceptorBroadcaster.callHooks(any(), any())).thenReturn(true);
+		when(mySubscriptionChannelRegistry.getDeliverySenderChannel("channel")).thenReturn(myDeliveryChannel);
+		when(myDeliveryChannel.send(any())).thenReturn(true);
+	}
+
+	@Test
+	public void testDeliverPayload_withoutPayload_messageKeyIsVersionlessResourceId() {
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(
+				new IdType("Patient/P1/_history/3"), BaseResourceModifiedMessage.OperationTypeEnum.UPDATE);
+
+		assertTrue(mySvc.deliverPayload(null, msg, myActiveSubscription, null));
+
+		assertEquals("Patient/P1", captureSentMessage().getMessageKeyOrDefault());
+	}
+
+	@Test
+	public void testDeliverPayload_withMessageKeySvc_messageKeyComesFromSvc() {
+		Patient patient = new Patient();
+		patient.setId("Patient/P1/_history/3");
+		when(mySubscriptionMessageKeySvc.getMessageKeyOrNull(patient)).thenReturn("EID-1");
+		mySvc = new SubscriptionMatchDeliverer(myFhirContext, myInterceptorBroadcaster, mySubscriptionChannelRegistry, mySubscriptionSettings, mySubscriptionMessageKeySvc);
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(
+				myFhirContext, patient, BaseResourceModifiedMessage.OperationTypeEnum.UPDATE);
+
+		assertTrue(mySvc.deliverPayload(patient, msg, myActiveSubscription, null));
+
+		assertEquals("EID-1", captureSentMessage().getMessageKeyOrDefault());
+	}
+
+	@Test
+	public void testDeliverPayload_modifiedMessageHasKey_messageKeyIsPropagated() {
+		Patient patient = new Patient();
+		patient.setId("Patient/P1/_history/3");
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(
+				myFhirContext, patient, BaseResourceModifiedMessage.OperationTypeEnum.UPDATE);
+		msg.setMessageKey("explicit-key");
+
+		assertTrue(mySvc.deliverPayload(patient, msg, myActiveSubscription, null));
+
+		assertEquals("explicit-key", captureSentMessage().getMessageKeyOrDefault());
+	}
+
+	@Test
+	public void testDeliverPayload_deliveryNotOrderedByMessageKey_messageKeyIsPayloadId() {
+		mySubscriptionSettings.setDeliveryOrderedByMessageKey(false);
+		mySvc = new SubscriptionMatchDeliverer(myFhirContext, myInterceptorBroadcaster, mySubscriptionChannelRegistry, mySubscriptionSettings, mySubscriptionMessageKeySvc);
+		ResourceModifiedMessage msg = new ResourceModifiedMessage(
+				new IdType("Patient/P1/_history/3"), BaseResourceModifiedMessage.OperationTypeEnum.UPDATE);
+
+		assertTrue(mySvc.deliverPayload(null, msg, myActiveSubscription, null));
+
+		ResourceDeliveryJsonMessage sent = captureSentMessage();
+		assertNull(sent.getPayload().getMessageKeyOrNull());
+		assertEquals("Patient/P1/_history/3", sent.getMessageKeyOrDefault());
+		verifyNoInteractions(mySubscriptionMessageKeySvc);
+	}
+
+	private ResourceDeliveryJsonMessage captureSentMessage() {
+		ArgumentCaptor<ResourceDeliveryJsonMessage> captor = ArgumentCaptor.forClass(ResourceDeliveryJsonMessage.class);
+		verify(myDeliveryChannel).send(captor.capture());
+		return captor.getValue();
+	}
+}
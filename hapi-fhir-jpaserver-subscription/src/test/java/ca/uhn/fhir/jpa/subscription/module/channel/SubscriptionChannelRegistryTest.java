@@ -1,5 +1,6 @@
 package ca.uhn.fhir.jpa.subscription.module.channel;
 
+import ca.uhn.fhir.jpa.model.config.SubscriptionSettings;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
 import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelFactory;
@@ -34,6 +35,8 @@ public class SubscriptionChannelRegistryTest {
 	SubscriptionChannelFactory mySubscriptionDeliveryChannelFactory;
 	@MockBean
     StorageSettings myStorageSettings;
+	@MockBean
+	SubscriptionSettings mySubscriptionSettings;
 
 	@Test
 	public void testAddAddRemoveRemove() {
@@ -11,6 +11,7 @@ import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.time.LocalDate;
 import java.time.Month;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.IntStream;
@@ -145,6 +147,39 @@ class Batch2DaoSvcImplTest extends BaseJpaR4Test {
 		assertIdsEqual(patientIds, actualPatientIds);
 	}
 
+	@Test
+	void fetchResourceIds_ByPidRange() {
+		// Setup
+		List<Long> patientIds = IntStream.range(0, 25)
+			.mapToObj(num -> createPatient(withActiveFalse()).getIdPartAsLong())
+			.toList();
+		createObservation(withObservationCode("http://foo", "bar"));
+		// Deleted resources are not counted
+		myPatientDao.delete(createPatient(withActiveFalse()), mySrd);
+
+		// Execute
+		List<Pair<Long, Long>> ranges = mySvc.fetchResourcePidRanges(PREVIOUS_MILLENNIUM, TOMORROW, null, "Patient", 10);
+
+		// Verify
+		assertThat(ranges).hasSize(3);
+		assertEquals(patientIds.get(0), ranges.get(0).getLeft());
+		assertEquals(patientIds.get(24) + 1, ranges.get(2).getRight());
+
+		List<Long> actualIds = new ArrayList<>();
+		for (Pair<Long, Long> range : ranges) {
+			IResourcePidStream stream = mySvc.fetchResourceIdStreamForPidRange(PREVIOUS_MILLENNIUM, TOMORROW, null, "Patient", range.getLeft(), range.getRight());
+			stream.visitStreamNoResult(s -> s.forEach(t -> {
+				assertEquals("Patient", t.resourceType);
+				actualIds.add((Long) t.id.getId());
+			}));
+		}
+		assertThat(actualIds).containsExactlyElementsOf(patientIds);
+
+		assertThat(mySvc.fetchResourcePidRanges(PREVIOUS_MILLENNIUM, TOMORROW, RequestPartitionId.defaultPartition(), "Patient", 10)).isEqualTo(ranges);
+		assertThat(mySvc.fetchResourcePidRanges(TOMORROW, TOMORROW, null, "Patient", 10)).isEmpty();
+		assertThat(mySvc.fetchResourcePidRanges(PREVIOUS_MILLENNIUM, TOMORROW, null, "Encounter", 10)).isEmpty();
+	}
+
 	private static void assertIdsEqual(List<IIdType> expectedResourceIds, List<? extends IIdType> actualResourceIds) {
 		assertThat(actualResourceIds).hasSize(expectedResourceIds.size());
 
@@ -4,9 +4,13 @@ import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
 import ca.uhn.fhir.batch2.jobs.imprt.ConsumeFilesStep;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.dao.r4.BasePartitioningR4Test;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
@@ -208,6 +212,48 @@ public class ConsumeFilesStepR4Test extends BasePartitioningR4Test {
 
 	}
 
+	@Test
+	public void testTrustedLoad_ReferenceTargetsResolvedOnce() {
+		// Setup
+		for (String id : List.of("P1", "P2", "P3")) {
+			Practitioner practitioner = new Practitioner();
+			practitioner.setId(id);
+			myPractitionerDao.update(practitioner, mySrd);
+		}
+
+		// Execute
+		myMemoryCacheService.invalidateAllCaches();
+		myCaptureQueriesListener.clear();
+		mySvc.storeResources(createObservationsWithPerformers("A"), null, false);
+		int untrustedSelectCount = myCaptureQueriesListener.countSelectQueriesForCurrentThread();
+
+		myMemoryCacheService.invalidateAllCaches();
+		myCaptureQueriesListener.clear();
+		mySvc.storeResources(createObservationsWithPerformers("B"), null, true);
+		int trustedSelectCount = myCaptureQueriesListener.countSelectQueriesForCurrentThread();
+
+		// Validate
+		assertThat(trustedSelectCount).isLessThan(untrustedSelectCount);
+		assertEquals(1, myCaptureQueriesListener.countCommits());
+		assertEquals(0, myCaptureQueriesListener.countRollbacks());
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous(Observation.SP_PERFORMER, new ReferenceParam("Practitioner/P2"));
+		assertThat(toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)))
+			.containsExactlyInAnyOrder("Observation/A2", "Observation/B2");
+	}
+
+	private List<IBaseResource> createObservationsWithPerformers(String theIdPrefix) {
+		List<IBaseResource> resources = new ArrayList<>();
+		for (String practitionerId : List.of("P1", "P2", "P3")) {
+			Observation observation = new Observation();
+			observation.setId(theIdPrefix + practitionerId.substring(1));
+			observation.setStatus(Observation.ObservationStatus.FINAL);
+			observation.addPerformer().setReference("Practitioner/" + practitionerId);
+			resources.add(observation);
+		}
+		return resources;
+	}
+
 	@Test
 	public void testNotAlreadyExisting_InvalidIdForStorage() {
 		// Setup
@@ -1,15 +1,20 @@
 package ca.uhn.fhir.jpa.dao.expunge;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.entity.PartitionEntity;
 import ca.uhn.fhir.jpa.partition.IPartitionLookupSvc;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -19,6 +24,38 @@ class ExpungeEverythingServiceTest extends BaseJpaR4Test {
 	@Autowired
 	private IPartitionLookupSvc myPartitionLookupSvc;
 
+	@AfterEach
+	public void after() {
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setExpungeEverythingFastPathEnabled(defaults.isExpungeEverythingFastPathEnabled());
+		myStorageSettings.setExpungeThreadCount(defaults.getExpungeThreadCount());
+	}
+
+	@Test
+	public void testExpungeEverythingWithFastPath() {
+		// Setup
+		myStorageSettings.setExpungeEverythingFastPathEnabled(true);
+		myStorageSettings.setExpungeThreadCount(3);
+		List<IIdType> ids = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			IIdType patientId = createPatient(withActiveTrue(), withFamily("FAMILY" + i));
+			ids.add(patientId);
+			ids.add(createObservation(withSubject(patientId), withStatus("final")));
+		}
+		assertEquals(20, myResourceTableDao.count());
+
+		// execute
+		myExpungeEverythingService.expungeEverything(mySrd);
+
+		// Validate
+		assertEquals(20, myExpungeEverythingService.getExpungeDeletedEntityCount());
+		assertEquals(0, myResourceTableDao.count());
+		assertEquals(0, myResourceLinkDao.count());
+		assertEquals(0, myResourceIndexedSearchParamTokenDao.count());
+		assertEquals(0, myResourceIndexedSearchParamStringDao.count());
+		ids.forEach(this::assertDoesntExist);
+	}
+
 	@Test
 	public void testExpungeEverythingInvalidatesPartitionCache() {
 		// Setup
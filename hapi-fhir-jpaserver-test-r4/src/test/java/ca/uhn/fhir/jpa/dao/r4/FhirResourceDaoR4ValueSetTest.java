@@ -4,16 +4,22 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import ca.uhn.fhir.batch2.jobs.termvalueset.TermValueSetPreExpansionJobConfig;
+import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import ca.uhn.fhir.jpa.entity.TermValueSet;
+import ca.uhn.fhir.jpa.entity.TermValueSetPreExpansionStatusEnum;
 import ca.uhn.fhir.jpa.term.TermReadSvcImpl;
 import ca.uhn.fhir.jpa.term.custom.CustomTerminologySet;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPreExpansionJobParameters;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -50,6 +56,7 @@ public class FhirResourceDaoR4ValueSetTest extends BaseJpaR4Test {
 		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(false);
 		myStorageSettings.setPreExpandValueSets(new JpaStorageSettings().isPreExpandValueSets());
 		myStorageSettings.setMaximumExpansionSize(new JpaStorageSettings().getMaximumExpansionSize());
+		myStorageSettings.setPreExpandValueSetsUsingBatchJob(new JpaStorageSettings().isPreExpandValueSetsUsingBatchJob());
 	}
 
 
@@ -613,5 +620,35 @@ public class FhirResourceDaoR4ValueSetTest extends BaseJpaR4Test {
 		assertThat(valueSet.getExpansion().getContains().get(0).getContains()).hasSize(2);
 	}
 
+	@Test
+	public void testPreExpandValueSetsUsingBatchJob() {
+		myStorageSettings.setPreExpandValueSetsUsingBatchJob(true);
+
+		CodeSystem cs = new CodeSystem();
+		cs.setUrl("http://example.com/cs");
+		cs.setContent(CodeSystem.CodeSystemContentMode.COMPLETE);
+		cs.addConcept().setCode("A").setDisplay("Code A");
+		cs.addConcept().setCode("B").setDisplay("Code B");
+		myCodeSystemDao.create(cs, mySrd);
+
+		ValueSet vs = new ValueSet();
+		vs.setUrl("http://example.com/vs");
+		vs.getCompose().addInclude().setSystem("http://example.com/cs");
+		myValueSetDao.create(vs, mySrd);
+		myTerminologyDeferredStorageSvc.saveAllDeferred();
+
+		JobInstanceStartRequest request = new JobInstanceStartRequest();
+		request.setJobDefinitionId(TermValueSetPreExpansionJobConfig.TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME);
+		request.setParameters(new TermValueSetPreExpansionJobParameters());
+		Batch2JobStartResponse response = myJobCoordinator.startInstance(mySrd, request);
+		myBatch2JobHelper.awaitJobCompletion(response.getInstanceId());
+
+		runInTransaction(() -> {
+			TermValueSet termValueSet = myTermValueSetDao.findTermValueSetByUrlAndNullVersion("http://example.com/vs").orElseThrow();
+			assertEquals(TermValueSetPreExpansionStatusEnum.EXPANDED, termValueSet.getExpansionStatus());
+			assertEquals(2, termValueSet.getTotalConcepts());
+			assertEquals(2, myTermValueSetConceptDao.countByTermValueSetId(termValueSet.getId()));
+		});
+	}
 
 }
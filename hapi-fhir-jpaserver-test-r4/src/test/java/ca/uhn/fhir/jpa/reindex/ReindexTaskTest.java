@@ -15,6 +15,7 @@ import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedComboStringUnique;
 import ca.uhn.fhir.jpa.model.entity.ResourceIndexedComboTokenNonUnique;
+import ca.uhn.fhir.jpa.model.entity.ResourceLink;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
@@ -24,8 +25,11 @@ import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
 import jakarta.annotation.PostConstruct;
 import jakarta.persistence.Query;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Practitioner;
+import org.hl7.fhir.r4.model.Reference;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -310,6 +314,45 @@ public class ReindexTaskTest extends BaseJpaR4Test {
 		myStorageSettings.setMarkResourcesForReindexingUponSearchParameterChange(reindexPropertyCache);
 	}
 
+	@Test
+	public void testReindex_selectedReferenceSearchParameter_doesNotDuplicateOtherLinks() {
+		// setup
+		IIdType patientId = createPatient(withActiveTrue());
+		IIdType practitionerId = myPractitionerDao.create(new Practitioner(), mySrd).getId().toUnqualifiedVersionless();
+		IIdType encounterId = myEncounterDao.create(new Encounter(), mySrd).getId().toUnqualifiedVersionless();
+
+		Observation obs = new Observation();
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.setSubject(new Reference(patientId));
+		obs.addPerformer(new Reference(practitionerId));
+		obs.setEncounter(new Reference(encounterId));
+		Long obsPid = myObservationDao.create(obs, mySrd).getId().getIdPartAsLong();
+
+		List<String> linksBefore = getResourceLinkSourcePaths(obsPid);
+		assertThat(linksBefore).containsExactlyInAnyOrder("Observation.subject", "Observation.performer", "Observation.encounter");
+
+		ReindexJobParameters parameters = new ReindexJobParameters();
+		parameters.addUrl("Observation?");
+		parameters.addSearchParameter("subject");
+
+		// execute
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(JOB_REINDEX);
+		startRequest.setParameters(parameters);
+		Batch2JobStartResponse res = myJobCoordinator.startInstance(mySrd, startRequest);
+		myBatch2JobHelper.awaitJobCompletion(res);
+
+		// validate
+		assertThat(getResourceLinkSourcePaths(obsPid)).containsExactlyInAnyOrderElementsOf(linksBefore);
+	}
+
+	private List<String> getResourceLinkSourcePaths(Long theSourcePid) {
+		return runInTransaction(() -> myResourceLinkDao.findAll().stream()
+			.filter(t -> t.getSourceResourcePid().equals(theSourcePid))
+			.map(ResourceLink::getSourcePath)
+			.toList());
+	}
+
 	@Test
 	public void testReindex_byMultipleUrls_indexesMatchingResources() {
 		// setup
@@ -97,7 +97,7 @@ public class AsyncSubscriptionMessageSubmissionIT extends BaseSubscriptionsR4Tes
 
 		String resourceType = "Patient";
 		int factor = 5;
-		int numberOfResourcesToCreate = factor * AsyncResourceModifiedSubmitterSvc.MAX_LIMIT;
+		int numberOfResourcesToCreate = factor * mySubscriptionSettings.getAsyncSubmissionBatchSize();
 
 		ResourceModifiedEntity entity = new ResourceModifiedEntity();
 		entity.setResourceType(resourceType);
@@ -125,7 +125,7 @@ public class AsyncSubscriptionMessageSubmissionIT extends BaseSubscriptionsR4Tes
 		assertCountOfResourcesNeedingSubmission(0);
 
 		List<ILoggingEvent> events = myLogbackTestExtension.getLogEvents(e -> {
-			return e.getLevel() == Level.DEBUG && e.getFormattedMessage().contains("Attempting to submit");
+			return e.getLevel() == Level.DEBUG && e.getFormattedMessage().contains("claimed resource modified messages");
 		});
 		assertEquals(factor, events.size());
 	}
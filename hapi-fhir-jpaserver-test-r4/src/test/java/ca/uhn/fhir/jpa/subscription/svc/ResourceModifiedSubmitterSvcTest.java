@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.model.entity.IPersistedResourceModifiedMessage;
+import ca.uhn.fhir.jpa.model.entity.IPersistedResourceModifiedMessagePK;
 import ca.uhn.fhir.jpa.model.entity.PersistedResourceModifiedMessageEntityPK;
 import ca.uhn.fhir.jpa.model.entity.ResourceModifiedEntity;
 import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
@@ -39,6 +41,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -56,6 +59,8 @@ public class ResourceModifiedSubmitterSvcTest {
 	IResourceModifiedMessagePersistenceSvc myResourceModifiedMessagePersistenceSvc;
 	@Captor
 	ArgumentCaptor<ChannelProducerSettings> myArgumentCaptor;
+	@Captor
+	ArgumentCaptor<List<IPersistedResourceModifiedMessagePK>> myPkListCaptor;
 	@Mock
 	IChannelProducer myChannelProducer;
 
@@ -233,6 +238,74 @@ public class ResourceModifiedSubmitterSvcTest {
 
 	}
 
+	@ParameterizedTest
+	@ValueSource(ints = {1, 3})
+	public void testSubmitPersistedResourceModifiedMessageBatch_withClaimedMessages_deletesAllSubmitted(int theThreadCount){
+		// given
+		List<IPersistedResourceModifiedMessage> claimed = List.of(newEntity("1"), newEntity("2"), newEntity("3"));
+		when(mySubscriptionSettings.getAsyncSubmissionThreadCount()).thenReturn(theThreadCount);
+		when(myResourceModifiedMessagePersistenceSvc.findAndLockOldestUnclaimed(10)).thenReturn(claimed);
+		when(myResourceModifiedMessagePersistenceSvc.createResourceModifiedMessageFromEntityWithoutInflation(any())).thenReturn(new ResourceModifiedMessage());
+
+		// when
+		int submitted = myResourceModifiedSubmitterSvc.submitPersistedResourceModifiedMessageBatch(10);
+
+		// then
+		assertEquals(3, submitted);
+		verify(myChannelProducer, times(3)).send(any());
+		verify(myResourceModifiedMessagePersistenceSvc).deleteByPKs(myPkListCaptor.capture());
+		assertThat(myPkListCaptor.getValue()).containsExactlyInAnyOrder(
+			claimed.get(0).getPersistedResourceModifiedMessagePk(),
+			claimed.get(1).getPersistedResourceModifiedMessagePk(),
+			claimed.get(2).getPersistedResourceModifiedMessagePk());
+		assertEquals(Boolean.FALSE, myCapturingTransactionStatus.isRollbackOnly());
+		myResourceModifiedSubmitterSvc.stop();
+	}
+
+	@Test
+	public void testSubmitPersistedResourceModifiedMessageBatch_withErrorOnSending_keepsUnsubmittedMessages(){
+		// given
+		List<IPersistedResourceModifiedMessage> claimed = List.of(newEntity("1"), newEntity("2"), newEntity("3"));
+		when(mySubscriptionSettings.getAsyncSubmissionThreadCount()).thenReturn(1);
+		when(myResourceModifiedMessagePersistenceSvc.findAndLockOldestUnclaimed(10)).thenReturn(claimed);
+		when(myResourceModifiedMessagePersistenceSvc.createResourceModifiedMessageFromEntityWithoutInflation(any())).thenReturn(new ResourceModifiedMessage());
+
+		// simulate failure writing the second message to the channel
+		when(myChannelProducer.send(any()))
+			.thenReturn(true)
+			.thenThrow(new MessageDeliveryException("sendingError"));
+
+		// when
+		int submitted = myResourceModifiedSubmitterSvc.submitPersistedResourceModifiedMessageBatch(10);
+
+		// then
+		assertEquals(1, submitted);
+		verify(myChannelProducer, times(2)).send(any());
+		verify(myResourceModifiedMessagePersistenceSvc).deleteByPKs(myPkListCaptor.capture());
+		assertThat(myPkListCaptor.getValue()).containsExactly(claimed.get(0).getPersistedResourceModifiedMessagePk());
+	}
+
+	@Test
+	public void testSubmitPersistedResourceModifiedMessageBatch_withNoUnclaimedMessages_submitsNothing(){
+		// given
+		when(myResourceModifiedMessagePersistenceSvc.findAndLockOldestUnclaimed(10)).thenReturn(List.of());
+
+		// when
+		int submitted = myResourceModifiedSubmitterSvc.submitPersistedResourceModifiedMessageBatch(10);
+
+		// then
+		assertEquals(0, submitted);
+		verify(myChannelProducer, never()).send(any());
+		verify(myResourceModifiedMessagePersistenceSvc, never()).deleteByPKs(any());
+	}
+
+	private static ResourceModifiedEntity newEntity(String theResourcePid) {
+		PersistedResourceModifiedMessageEntityPK pk = new PersistedResourceModifiedMessageEntityPK();
+		pk.setResourcePid(theResourcePid);
+		pk.setResourceVersion("1");
+		return new ResourceModifiedEntity().setResourceModifiedEntityPK(pk);
+	}
+
 	private ChannelProducerSettings getCapturedChannelProducerSettings(){
 		verify(mySubscriptionChannelFactory).newMatchingSendingChannel(anyString(), myArgumentCaptor.capture());
 		return myArgumentCaptor.getValue();
@@ -15,6 +15,7 @@ import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.UriParam;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.util.FhirVersionIndependentConcept;
 import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.Coding;
@@ -46,6 +47,7 @@ public class TerminologySvcDeltaR4Test extends BaseJpaR4Test {
 	@AfterEach
 	public void after() {
 		myStorageSettings.setDeferIndexingForCodesystemsOfSize(new JpaStorageSettings().getDeferIndexingForCodesystemsOfSize());
+		myStorageSettings.setTerminologyHierarchyIndexEnabled(new JpaStorageSettings().isTerminologyHierarchyIndexEnabled());
 		TermDeferredStorageSvcImpl termDeferredStorageSvc = AopTestUtils.getTargetObject(myTermDeferredStorageSvc);
 		termDeferredStorageSvc.clearDeferred();
 	}
@@ -586,6 +588,43 @@ public class TerminologySvcDeltaR4Test extends BaseJpaR4Test {
 	}
 
 
+	@Test
+	public void testHierarchyIndex_RebuiltAfterAdd() {
+		myStorageSettings.setTerminologyHierarchyIndexEnabled(true);
+		createNotPresentCodeSystem();
+
+		CustomTerminologySet delta = new CustomTerminologySet();
+		delta.addRootConcept("codeA", "displayA")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA)
+			.setCode("codeAA")
+			.setDisplay("displayAA");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		assertThat(findCodesBelow("codeA")).containsExactlyInAnyOrder("codeA", "codeAA");
+		assertThat(findCodesAbove("codeAA")).containsExactlyInAnyOrder("codeAA", "codeA");
+
+		// Add a grandchild to the hierarchy that is already indexed
+		delta = new CustomTerminologySet();
+		delta.addRootConcept("codeAA", "displayAA")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA)
+			.setCode("codeAAA")
+			.setDisplay("displayAAA");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		assertThat(findCodesBelow("codeA")).containsExactlyInAnyOrder("codeA", "codeAA", "codeAAA");
+		assertThat(findCodesAbove("codeAAA")).containsExactlyInAnyOrder("codeAAA", "codeAA", "codeA");
+	}
+
+	private List<String> findCodesBelow(String theCode) {
+		return runInTransaction(() -> myTermSvc.findCodesBelow("http://foo/cs", theCode).stream()
+			.map(FhirVersionIndependentConcept::getCode)
+			.toList());
+	}
+
+	private List<String> findCodesAbove(String theCode) {
+		return runInTransaction(() -> myTermSvc.findCodesAbove("http://foo/cs", theCode).stream()
+			.map(FhirVersionIndependentConcept::getCode)
+			.toList());
+	}
+
 	@Test
 	public void testRemove_UnknownSystem() {
 
@@ -3,11 +3,16 @@ package ca.uhn.fhir.jpa.term;
 import ca.uhn.fhir.batch2.api.IJobCoordinator;
 import ca.uhn.fhir.batch2.model.JobInstance;
 import ca.uhn.fhir.batch2.model.StatusEnum;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptParentChildLinkDao;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -21,8 +26,12 @@ import java.util.List;
 import java.util.Optional;
 
 import static ca.uhn.fhir.batch2.jobs.termcodesystem.TermCodeSystemJobConfig.TERM_CODE_SYSTEM_DELETE_JOB_NAME;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -44,9 +53,15 @@ public class TermDeferredStorageSvcImplTest {
 	private ITermConceptDao myConceptDao;
 	@Mock
 	private ITermCodeSystemVersionDao myTermCodeSystemVersionDao;
+	@Mock
+	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
 
 	@Mock
 	private IJobCoordinator myJobCoordinator;
+	@Mock
+	private EntityManager myEntityManager;
+	@Mock
+	private Session mySession;
 
 	@InjectMocks
 	private TermDeferredStorageSvcImpl mySvc;
@@ -170,6 +185,7 @@ public class TermDeferredStorageSvcImplTest {
 		svc.setTransactionManagerForUnitTest(myTxManager);
 		svc.setTermConceptDaoSvc(myTermConceptDaoSvc);
 		svc.setConceptDaoForUnitTest(myConceptDao);
+		svc.setStorageSettingsForUnitTest(new JpaStorageSettings());
 		svc.setProcessDeferred(true);
 		svc.addConceptLinkToStorageQueue(conceptLink);
 		svc.saveDeferred();
@@ -177,4 +193,106 @@ public class TermDeferredStorageSvcImplTest {
 		verifyNoMoreInteractions(myTermConceptDaoSvc);
 	}
 
+	@Test
+	public void testSaveDeferred_ConceptParentChildLink_OnlyLinksWithExistingConceptsSaved() {
+		TermConceptParentChildLink conceptLink = new TermConceptParentChildLink();
+		conceptLink.setChild(new TermConcept().setId(111L));
+		conceptLink.setParent(new TermConcept().setId(222L));
+		TermConceptParentChildLink deletedConceptLink = new TermConceptParentChildLink();
+		deletedConceptLink.setChild(new TermConcept().setId(333L));
+		deletedConceptLink.setParent(new TermConcept().setId(222L));
+
+		TermDeferredStorageSvcImpl svc = new TermDeferredStorageSvcImpl();
+		svc.setTransactionManagerForUnitTest(myTxManager);
+		svc.setTermConceptDaoSvc(myTermConceptDaoSvc);
+		svc.setConceptDaoForUnitTest(myConceptDao);
+		svc.setStorageSettingsForUnitTest(new JpaStorageSettings());
+		ReflectionTestUtils.setField(svc, "myConceptParentChildLinkDao", myConceptParentChildLinkDao);
+		when(myConceptDao.findExistingPids(any())).thenReturn(List.of(111L, 222L));
+		svc.setProcessDeferred(true);
+		svc.addConceptLinkToStorageQueue(conceptLink);
+		svc.addConceptLinkToStorageQueue(deletedConceptLink);
+		svc.saveDeferred();
+
+		verify(myConceptDao, times(1)).findExistingPids(any());
+		verify(myConceptParentChildLinkDao, times(1)).save(same(conceptLink));
+		verifyNoMoreInteractions(myConceptParentChildLinkDao);
+		assertTrue(svc.isStorageQueueEmpty(false));
+	}
+
+	@Test
+	public void testSaveDeferred_ConceptParentChildLink_Parallel() {
+		TermDeferredStorageSvcImpl svc = newSvcForParallelLinkStorage();
+		when(myConceptDao.findExistingPids(any())).thenReturn(List.of(111L, 222L, 333L));
+		List<TermConceptParentChildLink> links = List.of(
+			newConceptLink(111L, 222L),
+			newConceptLink(333L, 222L),
+			newConceptLink(333L, 111L));
+		links.forEach(svc::addConceptLinkToStorageQueue);
+
+		try {
+			svc.saveDeferred();
+		} finally {
+			svc.stop();
+		}
+
+		links.forEach(t -> verify(myConceptParentChildLinkDao, times(1)).save(same(t)));
+		assertTrue(svc.isStorageQueueEmpty(false));
+	}
+
+	@Test
+	public void testSaveDeferred_ConceptParentChildLink_ParallelFailureIsRetried() {
+		TermDeferredStorageSvcImpl svc = newSvcForParallelLinkStorage();
+		when(myConceptDao.findExistingPids(any())).thenReturn(List.of(111L, 222L, 333L));
+		when(myConceptParentChildLinkDao.save(any()))
+			.thenAnswer(t -> t.<TermConceptParentChildLink>getArgument(0).setId(1L))
+			.thenThrow(new IllegalStateException("FAILED"))
+			.thenAnswer(t -> t.<TermConceptParentChildLink>getArgument(0).setId(2L));
+		TermConceptParentChildLink link0 = newConceptLink(111L, 222L);
+		TermConceptParentChildLink link1 = newConceptLink(333L, 222L);
+		svc.addConceptLinkToStorageQueue(link0);
+		svc.addConceptLinkToStorageQueue(link1);
+
+		try {
+			// The batch fails on the second link, so both links are put back on the queue
+			assertThatThrownBy(svc::saveDeferred)
+				.isInstanceOf(InternalErrorException.class)
+				.hasMessageContaining("FAILED");
+			assertFalse(svc.isStorageQueueEmpty(false));
+			assertNull(link0.getId());
+			assertNull(link1.getId());
+
+			// The second attempt stores them
+			svc.saveDeferred();
+		} finally {
+			svc.stop();
+		}
+
+		assertEquals(2L, link0.getId());
+		assertEquals(2L, link1.getId());
+		assertTrue(svc.isStorageQueueEmpty(false));
+	}
+
+	private TermDeferredStorageSvcImpl newSvcForParallelLinkStorage() {
+		JpaStorageSettings storageSettings = new JpaStorageSettings();
+		storageSettings.setDeferredTerminologyLinkStorageThreadCount(2);
+		when(myEntityManager.unwrap(Session.class)).thenReturn(mySession);
+
+		TermDeferredStorageSvcImpl svc = new TermDeferredStorageSvcImpl();
+		svc.setTransactionManagerForUnitTest(myTxManager);
+		svc.setConceptDaoForUnitTest(myConceptDao);
+		svc.setStorageSettingsForUnitTest(storageSettings);
+		ReflectionTestUtils.setField(svc, "myConceptParentChildLinkDao", myConceptParentChildLinkDao);
+		ReflectionTestUtils.setField(svc, "myEntityManager", myEntityManager);
+		svc.setProcessDeferred(true);
+		return svc;
+	}
+
+	private static TermConceptParentChildLink newConceptLink(Long theChildPid, Long theParentPid) {
+		TermConceptParentChildLink retVal = new TermConceptParentChildLink();
+		retVal.setChild(new TermConcept().setId(theChildPid));
+		retVal.setParent(new TermConcept().setId(theParentPid));
+		return retVal;
+	}
+
 }
@@ -28,12 +28,15 @@ import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
 import ca.uhn.fhir.util.OperationOutcomeUtil;
 import ca.uhn.fhir.validation.FhirValidator;
 import ca.uhn.fhir.validation.IValidatorModule;
 import ca.uhn.fhir.validation.ResultSeverityEnum;
 import ca.uhn.fhir.validation.SingleValidationMessage;
 import ca.uhn.fhir.validation.ValidationResult;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.text.StrLookup;
 import org.apache.commons.lang3.text.StrSubstitutor;
@@ -41,6 +44,7 @@ import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -76,6 +80,9 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 
 	private List<IValidatorModule> myValidatorModules;
 	private FhirValidator myValidator;
+	private long myValidationResultCacheTimeoutMillis = 0;
+	private long myValidationResultCacheMaximumSize = 10000;
+	private volatile Cache<String, ValidationResult> myValidationResultCache;
 
 	private void addResponseIssueHeader(RequestDetails theRequestDetails, SingleValidationMessage theNext) {
 		// Perform any string substitutions from the message format
@@ -103,6 +110,7 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 			setValidatorModules(new ArrayList<>());
 		}
 		getValidatorModules().add(theModule);
+		clearValidationResultCache();
 		return this;
 	}
 
@@ -119,10 +127,23 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 						|| getValidatorModules().isEmpty(),
 				"Can not specify both a validator and validator modules. Only one needs to be supplied.");
 		myValidator = theValidator;
+		clearValidationResultCache();
 	}
 
 	abstract ValidationResult doValidate(FhirValidator theValidator, T theRequest);
 
+	/**
+	 * Returns a string which uniquely identifies everything about the given request that the
+	 * validation outcome depends on, or <code>null</code> if the outcome for this request should
+	 * never be cached. The returned string is hashed before being used as a cache key, so it
+	 * may be arbitrarily long.
+	 *
+	 * @see #setValidationResultCacheTimeoutMillis(long)
+	 */
+	String provideValidationResultCacheKeyContent(T theRequest, RequestDetails theRequestDetails) {
+		return null;
+	}
+
 	/**
 	 * Fail the request by throwing an {@link UnprocessableEntityException} as a result of a validation failure.
 	 * Subclasses may change this behaviour by providing alternate behaviour.
@@ -195,6 +216,7 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 				myValidator == null || theValidatorModules == null || theValidatorModules.isEmpty(),
 				"Can not specify both a validator and validator modules. Only one needs to be supplied.");
 		myValidatorModules = theValidatorModules;
+		clearValidationResultCache();
 	}
 
 	/**
@@ -221,6 +243,81 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 		myIgnoreValidatorExceptions = theIgnoreValidatorExceptions;
 	}
 
+	/**
+	 * If set to a value greater than zero (default is <code>0</code>, meaning the cache is disabled), the
+	 * result of validating a given payload is cached for the given number of milliseconds, and any identical
+	 * payload received during that time reuses the cached result instead of being validated again. This
+	 * is useful when clients frequently resend byte-identical resources (e.g. retries, or updates with no
+	 * changes).
+	 * <p>
+	 * Results are cached against a hash of the exact payload content and of the request tenant, so any
+	 * profiles declared in the payload are a part of the key. The cache is cleared whenever the validator or validator modules
+	 * are changed, and {@link #clearValidationResultCache()} should be called if the conformance resources
+	 * used by the validator change in a way that could affect previously cached results.
+	 * </p>
+	 * <p>
+	 * Note that this cache is only supported by {@link RequestValidatingInterceptor}.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public void setValidationResultCacheTimeoutMillis(long theValidationResultCacheTimeoutMillis) {
+		Validate.isTrue(
+				theValidationResultCacheTimeoutMillis >= 0, "theValidationResultCacheTimeoutMillis must be >= 0");
+		myValidationResultCacheTimeoutMillis = theValidationResultCacheTimeoutMillis;
+		rebuildValidationResultCache();
+	}
+
+	/**
+	 * @see #setValidationResultCacheTimeoutMillis(long)
+	 * @since 7.6.0
+	 */
+	public long getValidationResultCacheTimeoutMillis() {
+		return myValidationResultCacheTimeoutMillis;
+	}
+
+	/**
+	 * The maximum number of validation results to keep in the cache enabled by
+	 * {@link #setValidationResultCacheTimeoutMillis(long)}. Default is <code>10000</code>.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setValidationResultCacheMaximumSize(long theValidationResultCacheMaximumSize) {
+		Validate.isTrue(theValidationResultCacheMaximumSize > 0, "theValidationResultCacheMaximumSize must be > 0");
+		myValidationResultCacheMaximumSize = theValidationResultCacheMaximumSize;
+		rebuildValidationResultCache();
+	}
+
+	/**
+	 * @see #setValidationResultCacheMaximumSize(long)
+	 * @since 7.6.0
+	 */
+	public long getValidationResultCacheMaximumSize() {
+		return myValidationResultCacheMaximumSize;
+	}
+
+	/**
+	 * Discards any validation results cached as a result of {@link #setValidationResultCacheTimeoutMillis(long)}
+	 *
+	 * @since 7.6.0
+	 */
+	public void clearValidationResultCache() {
+		Cache<String, ValidationResult> cache = myValidationResultCache;
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	private void rebuildValidationResultCache() {
+		// The cache is only created when enabled, so that a cache provider is not needed otherwise
+		if (myValidationResultCacheTimeoutMillis > 0) {
+			myValidationResultCache =
+					CacheFactory.build(myValidationResultCacheTimeoutMillis, myValidationResultCacheMaximumSize);
+		} else {
+			myValidationResultCache = null;
+		}
+	}
+
 	abstract String provideDefaultResponseHeaderName();
 
 	/**
@@ -343,9 +440,31 @@ public abstract class BaseValidatingInterceptor<T> extends ValidationResultEnric
 			}
 		}
 
-		ValidationResult validationResult;
+		Cache<String, ValidationResult> cache = myValidationResultCache;
+		String cacheKey = null;
+		if (cache != null) {
+			String cacheKeyContent = provideValidationResultCacheKeyContent(theRequest, theRequestDetails);
+			if (cacheKeyContent != null) {
+				cacheKey = Hashing.sha256()
+						.hashString(cacheKeyContent, StandardCharsets.UTF_8)
+						.toString();
+			}
+		}
+
+		ValidationResult validationResult = null;
 		try {
-			validationResult = doValidate(validator, theRequest);
+			if (cacheKey != null) {
+				validationResult = cache.getIfPresent(cacheKey);
+				if (validationResult != null) {
+					ourLog.trace("Reusing cached validation result for content with hash {}", cacheKey);
+				}
+			}
+			if (validationResult == null) {
+				validationResult = doValidate(validator, theRequest);
+				if (cacheKey != null) {
+					cache.put(cacheKey, validationResult);
+				}
+			}
 		} catch (Exception e) {
 			if (myIgnoreValidatorExceptions) {
 				ourLog.warn("Validator threw an exception during validation", e);
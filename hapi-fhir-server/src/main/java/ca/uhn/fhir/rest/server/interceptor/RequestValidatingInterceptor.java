@@ -21,8 +21,10 @@ package ca.uhn.fhir.rest.server.interceptor;
 
 import ca.uhn.fhir.interceptor.api.Hook;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.AuthenticationException;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
@@ -35,6 +37,7 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.nio.charset.Charset;
 
+import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
@@ -58,6 +61,24 @@ public class RequestValidatingInterceptor extends BaseValidatingInterceptor<Stri
 		return theValidator.validateWithResult(theRequest);
 	}
 
+	@Override
+	String provideValidationResultCacheKeyContent(String theRequest, RequestDetails theRequestDetails) {
+		// The request body is validated on its own, but the conformance resources used to validate it
+		// may differ between tenants and partitions, so those are a part of the key too
+		StringBuilder retVal = new StringBuilder();
+		retVal.append("tenant=")
+				.append(defaultString(theRequestDetails.getTenantId()))
+				.append('\n');
+		if (theRequestDetails instanceof SystemRequestDetails) {
+			RequestPartitionId requestPartitionId = ((SystemRequestDetails) theRequestDetails).getRequestPartitionId();
+			if (requestPartitionId != null) {
+				retVal.append("partition=").append(requestPartitionId.toJson()).append('\n');
+			}
+		}
+		retVal.append(theRequest);
+		return retVal.toString();
+	}
+
 	@Hook(Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED)
 	public boolean incomingRequestPostProcessed(
 			RequestDetails theRequestDetails, HttpServletRequest theRequest, HttpServletResponse theResponse)
@@ -0,0 +1,36 @@
+package ca.uhn.fhir.rest.server.interceptor;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestValidatingInterceptorTest {
+
+	private final RequestValidatingInterceptor myInterceptor = new RequestValidatingInterceptor();
+
+	@Test
+	public void testValidationResultCacheKeyContent_includesTenantAndPartition() {
+		String body = "{\"resourceType\":\"Patient\"}";
+
+		SystemRequestDetails tenantA = new SystemRequestDetails();
+		tenantA.setTenantId("A");
+		SystemRequestDetails tenantA2 = new SystemRequestDetails();
+		tenantA2.setTenantId("A");
+		SystemRequestDetails tenantB = new SystemRequestDetails();
+		tenantB.setTenantId("B");
+		SystemRequestDetails partition1 = new SystemRequestDetails();
+		partition1.setRequestPartitionId(RequestPartitionId.fromPartitionId(1));
+		SystemRequestDetails partition2 = new SystemRequestDetails();
+		partition2.setRequestPartitionId(RequestPartitionId.fromPartitionId(2));
+
+		String keyA = myInterceptor.provideValidationResultCacheKeyContent(body, tenantA);
+		assertEquals(keyA, myInterceptor.provideValidationResultCacheKeyContent(body, tenantA2));
+		assertThat(keyA).isNotEqualTo(myInterceptor.provideValidationResultCacheKeyContent(body, tenantB));
+		assertThat(myInterceptor.provideValidationResultCacheKeyContent(body, partition1))
+				.isNotEqualTo(myInterceptor.provideValidationResultCacheKeyContent(body, partition2));
+		assertThat(keyA).endsWith(body);
+	}
+}
@@ -25,8 +25,8 @@ import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
 import ca.uhn.fhir.batch2.api.RunOutcome;
 import ca.uhn.fhir.batch2.api.StepExecutionDetails;
 import ca.uhn.fhir.batch2.jobs.export.models.BulkExportBinaryFileId;
-import ca.uhn.fhir.batch2.jobs.export.models.ExpandedResourcesList;
 import ca.uhn.fhir.batch2.jobs.export.models.ResourceIdList;
+import ca.uhn.fhir.batch2.jobs.models.BatchResourceId;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.i18n.Msg;
@@ -41,6 +41,7 @@ import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
+import ca.uhn.fhir.jpa.bulk.export.model.ExportPIDIteratorParameters;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -60,7 +61,6 @@ import ca.uhn.fhir.util.BinaryUtil;
 import ca.uhn.fhir.util.FhirTerser;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
 import jakarta.annotation.Nonnull;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
@@ -75,6 +75,7 @@ import org.springframework.context.ApplicationContext;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -136,7 +137,10 @@ public class ExpandResourceAndWriteBinaryStep
 	 * The {@link #fetchResourcesByIdAndConsumeThem(ResourceIdList, RequestPartitionId, Consumer)}
 	 * method loads the resources by ID, {@link ExpandResourcesConsumer} handles
 	 * the filtering and whatnot, then the {@link NdJsonResourceWriter}
-	 * ultimately writes them.
+	 * ultimately writes them. Each resource is appended to the NDJSON file
+	 * for its type as soon as it is serialized, and the files are stored as
+	 * Binary resources at the end of every fetch batch, so no more than one
+	 * batch worth of serialized resources is held in memory.
 	 */
 	@Nonnull
 	@Override
@@ -156,7 +160,7 @@ public class ExpandResourceAndWriteBinaryStep
 
 	private void expandResourcesFromList(
 			StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-			Consumer<ExpandedResourcesList> theResourceWriter) {
+			NdJsonResourceWriter theResourceWriter) {
 
 		ResourceIdList idList = theStepExecutionDetails.getData();
 		BulkExportJobParameters parameters = theStepExecutionDetails.getParameters();
@@ -164,10 +168,44 @@ public class ExpandResourceAndWriteBinaryStep
 		Consumer<List<IBaseResource>> resourceListConsumer =
 				new ExpandResourcesConsumer(theStepExecutionDetails, theResourceWriter);
 
+		if (idList.isPatientCompartment()) {
+			idList = fetchPatientCompartmentResourceIds(theStepExecutionDetails);
+		}
+
 		// search the resources
 		fetchResourcesByIdAndConsumeThem(idList, parameters.getPartitionId(), resourceListConsumer);
 	}
 
+	/**
+	 * Resolves a work chunk holding a partition of the exported patients into the IDs of
+	 * the resources in their compartments
+	 */
+	private ResourceIdList fetchPatientCompartmentResourceIds(
+			StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails) {
+		ResourceIdList patientIdList = theStepExecutionDetails.getData();
+		BulkExportJobParameters parameters = theStepExecutionDetails.getParameters();
+
+		ExportPIDIteratorParameters providerParams = new ExportPIDIteratorParameters();
+		providerParams.setInstanceId(theStepExecutionDetails.getInstance().getInstanceId());
+		providerParams.setChunkId(theStepExecutionDetails.getChunkId());
+		providerParams.setStartDate(parameters.getSince());
+		providerParams.setExportStyle(parameters.getExportStyle());
+		providerParams.setPartitionId(parameters.getPartitionId());
+		providerParams.setRequestedResourceTypes(patientIdList.getCompartmentResourceTypes());
+
+		List<String> patientPids =
+				patientIdList.getIds().stream().map(BatchResourceId::getId).collect(Collectors.toList());
+
+		List<BatchResourceId> ids = new ArrayList<>();
+		Iterator<? extends IResourcePersistentId<?>> pidIterator =
+				myBulkExportProcessor.getPatientCompartmentPidIterator(providerParams, patientPids);
+		pidIterator.forEachRemaining(pid -> ids.add(BatchResourceId.getIdFromPID(pid, pid.getResourceType())));
+
+		ResourceIdList retVal = new ResourceIdList();
+		retVal.setIds(ids);
+		return retVal;
+	}
+
 	private void fetchResourcesByIdAndConsumeThem(
 			ResourceIdList theIds,
 			RequestPartitionId theRequestPartitionId,
@@ -217,7 +255,7 @@ public class ExpandResourceAndWriteBinaryStep
 	 */
 	private void addMetadataExtensionsToBinary(
 			@Nonnull StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-			ExpandedResourcesList expandedResources,
+			String theResourceType,
 			IBaseBinary binary) {
 		// Note that this applies only to hl7.org structures, so these extensions will not be added
 		// to DSTU2 structures
@@ -241,7 +279,7 @@ public class ExpandResourceAndWriteBinaryStep
 			// resource type
 			IBaseExtension<?, ?> typeExtension = meta.addExtension();
 			typeExtension.setUrl(JpaConstants.BULK_META_EXTENSION_RESOURCE_TYPE);
-			typeExtension.setValue(myFhirContext.newPrimitiveString(expandedResources.getResourceType()));
+			typeExtension.setValue(myFhirContext.newPrimitiveString(theResourceType));
 		} else {
 			ourLog.warn(
 					"Could not attach metadata extensions to binary resource, as this binary metadata does not support extensions");
@@ -263,22 +301,17 @@ public class ExpandResourceAndWriteBinaryStep
 
 	/**
 	 * This class takes a collection of lists of resources read from the
-	 * repository, and processes them, then converts them into
-	 * {@link ExpandedResourcesList} instances, each one of which corresponds
-	 * to a single output file. We try to avoid exceeding the maximum file
-	 * size defined in
-	 * {@link JpaStorageSettings#getBulkExportFileMaximumSize()}
-	 * so we will do our best to emit multiple lists in favour of emitting
-	 * a list that exceeds that threshold.
+	 * repository, processes them, and hands each serialized resource to
+	 * the {@link NdJsonResourceWriter}.
 	 */
 	private class ExpandResourcesConsumer implements Consumer<List<IBaseResource>> {
 
-		private final Consumer<ExpandedResourcesList> myResourceWriter;
+		private final NdJsonResourceWriter myResourceWriter;
 		private final StepExecutionDetails<BulkExportJobParameters, ResourceIdList> myStepExecutionDetails;
 
 		public ExpandResourcesConsumer(
 				StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails,
-				Consumer<ExpandedResourcesList> theResourceWriter) {
+				NdJsonResourceWriter theResourceWriter) {
 			myStepExecutionDetails = theStepExecutionDetails;
 			myResourceWriter = theResourceWriter;
 		}
@@ -298,7 +331,9 @@ public class ExpandResourceAndWriteBinaryStep
 
 			// Apply post-fetch filtering
 			String resourceType = idList.getResourceType();
+			// Patient compartment chunks never include types with post-fetch filters
 			List<String> postFetchFilterUrls = parameters.getPostFetchFilterUrls().stream()
+					.filter(t -> !idList.isPatientCompartment())
 					.filter(t -> t.substring(0, t.indexOf('?')).equals(resourceType))
 					.collect(Collectors.toList());
 
@@ -335,65 +370,21 @@ public class ExpandResourceAndWriteBinaryStep
 				}
 			}
 
-			// encode them - Key is resource type, Value is a collection of serialized resources of that type
+			// encode them and write each one out straight away
 			IParser parser = getParser(parameters);
 
-			ListMultimap<String, String> resourceTypeToStringifiedResources = ArrayListMultimap.create();
-			Map<String, Integer> resourceTypeToTotalSize = new HashMap<>();
+			Map<String, Integer> resourceTypeToCount = new HashMap<>();
 			for (IBaseResource resource : theResources) {
 				String type = myFhirContext.getResourceType(resource);
-				int existingSize = resourceTypeToTotalSize.getOrDefault(type, 0);
-
-				String jsonResource = parser.encodeResourceToString(resource);
-				int newSize = existingSize + jsonResource.length();
-
-				// If adding another stringified resource to the list for the given type
-				// would exceed the configured maximum allowed, then let's send the current
-				// list and flush it. Note that if a single resource exceeds the configurable
-				// maximum then we have no choice but to send it
-				long bulkExportFileMaximumSize = myStorageSettings.getBulkExportFileMaximumSize();
-				if (newSize > bulkExportFileMaximumSize) {
-					if (existingSize == 0) {
-						// If no files are already in the collection, then this one file
-						// is bigger than the maximum allowable. We'll allow it in that
-						// case
-						ourLog.warn(
-								"Single resource size {} exceeds allowable maximum of {}, so will ignore maximum",
-								newSize,
-								bulkExportFileMaximumSize);
-					} else {
-						// Otherwise, flush the contents now before adding the next file
-						List<String> stringifiedResources = resourceTypeToStringifiedResources.get(type);
-						writeStringifiedResources(type, stringifiedResources);
-
-						resourceTypeToStringifiedResources.removeAll(type);
-						newSize = jsonResource.length();
-					}
-				}
-
-				resourceTypeToStringifiedResources.put(type, jsonResource);
-				resourceTypeToTotalSize.put(type, newSize);
+				myResourceWriter.append(type, parser.encodeResourceToString(resource));
+				resourceTypeToCount.merge(type, 1, Integer::sum);
 			}
 
-			for (String nextResourceType : resourceTypeToStringifiedResources.keySet()) {
-				List<String> stringifiedResources = resourceTypeToStringifiedResources.get(nextResourceType);
-				writeStringifiedResources(nextResourceType, stringifiedResources);
-			}
-		}
-
-		private void writeStringifiedResources(String theResourceType, List<String> theStringifiedResources) {
-			if (!theStringifiedResources.isEmpty()) {
-
-				ExpandedResourcesList output = new ExpandedResourcesList();
-				output.setStringifiedResources(theStringifiedResources);
-				output.setResourceType(theResourceType);
-				myResourceWriter.accept(output);
+			// store the files for this batch so that they aren't kept in memory across batches
+			myResourceWriter.writeAllOpenFiles();
 
-				ourLog.info(
-						"Expanding of {} resources of type {} completed",
-						theStringifiedResources.size(),
-						theResourceType);
-			}
+			resourceTypeToCount.forEach(
+					(type, count) -> ourLog.info("Expanding of {} resources of type {} completed", count, type));
 		}
 
 		private void applyPostFetchFiltering(
@@ -449,13 +440,17 @@ public class ExpandResourceAndWriteBinaryStep
 	}
 
 	/**
-	 * This class takes a collection of expanded resources, and expands it to
-	 * an NDJSON file, which is written to a Binary resource.
+	 * This class writes serialized resources into NDJSON files, one open
+	 * file per resource type, and stores each file as a Binary resource.
+	 * Files are stored whenever {@link #writeAllOpenFiles()} is called (once per
+	 * fetch batch), or earlier if appending a resource would push a file past the
+	 * maximum file size defined in {@link JpaStorageSettings#getBulkExportFileMaximumSize()}.
 	 */
-	private class NdJsonResourceWriter implements Consumer<ExpandedResourcesList> {
+	private class NdJsonResourceWriter {
 
 		private final StepExecutionDetails<BulkExportJobParameters, ResourceIdList> myStepExecutionDetails;
 		private final IJobDataSink<BulkExportBinaryFileId> myDataSink;
+		private final Map<String, NdJsonFile> myResourceTypeToOpenFile = new HashMap<>();
 		private int myNumResourcesProcessed = 0;
 
 		public NdJsonResourceWriter(
@@ -469,41 +464,66 @@ public class ExpandResourceAndWriteBinaryStep
 			return myNumResourcesProcessed;
 		}
 
-		@Override
-		public void accept(ExpandedResourcesList theExpandedResourcesList) throws JobExecutionFailedException {
-			int batchSize = theExpandedResourcesList.getStringifiedResources().size();
-			ourLog.info("Writing {} resources to binary file", batchSize);
+		public void append(String theResourceType, String theStringifiedResource) throws JobExecutionFailedException {
+			long bulkExportFileMaximumSize = myStorageSettings.getBulkExportFileMaximumSize();
+
+			// Each resource takes up one line in the file
+			int lineSize = theStringifiedResource.length() + 1;
+
+			NdJsonFile file = myResourceTypeToOpenFile.get(theResourceType);
+			if (file != null && file.mySize + lineSize > bulkExportFileMaximumSize) {
+				// Adding this resource would exceed the configured maximum, so write out the
+				// current file and start a new one
+				writeBinary(theResourceType, myResourceTypeToOpenFile.remove(theResourceType));
+				file = null;
+			}
+
+			if (file == null) {
+				if (lineSize > bulkExportFileMaximumSize) {
+					// If a single resource exceeds the configurable maximum then we have no
+					// choice but to write it on its own
+					ourLog.warn(
+							"Single resource size {} exceeds allowable maximum of {}, so will ignore maximum",
+							lineSize,
+							bulkExportFileMaximumSize);
+				}
+				file = new NdJsonFile();
+				myResourceTypeToOpenFile.put(theResourceType, file);
+			}
+
+			try {
+				file.append(theStringifiedResource);
+			} catch (IOException ex) {
+				throw newWriteFailure(theResourceType, ex);
+			}
+		}
+
+		public void writeAllOpenFiles() throws JobExecutionFailedException {
+			for (Map.Entry<String, NdJsonFile> next : myResourceTypeToOpenFile.entrySet()) {
+				writeBinary(next.getKey(), next.getValue());
+			}
+			myResourceTypeToOpenFile.clear();
+		}
+
+		private void writeBinary(String theResourceType, NdJsonFile theFile) throws JobExecutionFailedException {
+			int processedRecordsCount = theFile.myCount;
+			ourLog.info("Writing {} resources to binary file", processedRecordsCount);
 
-			myNumResourcesProcessed += batchSize;
+			myNumResourcesProcessed += processedRecordsCount;
 
 			@SuppressWarnings("unchecked")
 			IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
 
 			IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
 
-			addMetadataExtensionsToBinary(myStepExecutionDetails, theExpandedResourcesList, binary);
+			addMetadataExtensionsToBinary(myStepExecutionDetails, theResourceType, binary);
 
 			binary.setContentType(Constants.CT_FHIR_NDJSON);
 
-			int processedRecordsCount = 0;
-			try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-				try (OutputStreamWriter streamWriter = getStreamWriter(outputStream)) {
-					for (String stringified : theExpandedResourcesList.getStringifiedResources()) {
-						streamWriter.append(stringified);
-						streamWriter.append("\n");
-						processedRecordsCount++;
-					}
-					streamWriter.flush();
-					outputStream.flush();
-				}
-				binary.setContent(outputStream.toByteArray());
+			try {
+				binary.setContent(theFile.close());
 			} catch (IOException ex) {
-				String errorMsg = String.format(
-						"Failure to process resource of type %s : %s",
-						theExpandedResourcesList.getResourceType(), ex.getMessage());
-				ourLog.error(errorMsg);
-
-				throw new JobExecutionFailedException(Msg.code(2431) + errorMsg);
+				throw newWriteFailure(theResourceType, ex);
 			}
 
 			SystemRequestDetails srd = new SystemRequestDetails();
@@ -557,13 +577,42 @@ public class ExpandResourceAndWriteBinaryStep
 
 			BulkExportBinaryFileId bulkExportBinaryFileId = new BulkExportBinaryFileId();
 			bulkExportBinaryFileId.setBinaryId(id.getValueAsString());
-			bulkExportBinaryFileId.setResourceType(theExpandedResourcesList.getResourceType());
+			bulkExportBinaryFileId.setResourceType(theResourceType);
 			myDataSink.accept(bulkExportBinaryFileId);
 
-			ourLog.info(
-					"Binary writing complete for {} resources of type {}.",
-					processedRecordsCount,
-					theExpandedResourcesList.getResourceType());
+			ourLog.info("Binary writing complete for {} resources of type {}.", processedRecordsCount, theResourceType);
+		}
+
+		private JobExecutionFailedException newWriteFailure(String theResourceType, IOException theException) {
+			String errorMsg = String.format(
+					"Failure to process resource of type %s : %s", theResourceType, theException.getMessage());
+			ourLog.error(errorMsg);
+
+			return new JobExecutionFailedException(Msg.code(2431) + errorMsg);
+		}
+	}
+
+	/**
+	 * A single NDJSON output file which is being filled in memory. It holds at most
+	 * one fetch batch of resources before being stored.
+	 */
+	private class NdJsonFile {
+
+		private final ByteArrayOutputStream myOutputStream = new ByteArrayOutputStream();
+		private final OutputStreamWriter myStreamWriter = getStreamWriter(myOutputStream);
+		private int myCount;
+		private long mySize;
+
+		void append(String theStringifiedResource) throws IOException {
+			myStreamWriter.append(theStringifiedResource);
+			myStreamWriter.append("\n");
+			myCount++;
+			mySize += theStringifiedResource.length() + 1;
+		}
+
+		byte[] close() throws IOException {
+			myStreamWriter.close();
+			return myOutputStream.toByteArray();
 		}
 	}
 }
@@ -44,12 +44,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class FetchResourceIdsStep implements IFirstJobStepWorker<BulkExportJobParameters, ResourceIdList> {
 	private static final Logger ourLog = LoggerFactory.getLogger(FetchResourceIdsStep.class);
 
 	@Autowired
-	private IBulkExportProcessor myBulkExportProcessor;
+	private IBulkExportProcessor<?> myBulkExportProcessor;
 
 	@Autowired
 	private JpaStorageSettings myStorageSettings;
@@ -86,11 +87,27 @@ public class FetchResourceIdsStep implements IFirstJobStepWorker<BulkExportJobPa
 		int submissionCount = 0;
 		try {
 			Set<BatchResourceId> submittedBatchResourceIds = new HashSet<>();
+			List<String> resourceTypes = new ArrayList<>(params.getResourceTypes());
+
+			/*
+			 * In partitioned mode, the resource types in the patient compartment are exported by
+			 * work chunks which each cover a partition of the patients.
+			 */
+			if (isPartitionedPatientCompartmentExport(theStepExecutionDetails)) {
+				List<String> compartmentResourceTypes = resourceTypes.stream()
+						.filter(t -> canExportByPatientCompartment(t, params))
+						.collect(Collectors.toList());
+				if (!compartmentResourceTypes.isEmpty()) {
+					submissionCount +=
+							submitPatientCompartmentWorkChunks(providerParams, compartmentResourceTypes, theDataSink);
+					resourceTypes.removeAll(compartmentResourceTypes);
+				}
+			}
 
 			/*
 			 * We will fetch ids for each resource type in the ResourceTypes (_type filter).
 			 */
-			for (String resourceType : params.getResourceTypes()) {
+			for (String resourceType : resourceTypes) {
 				providerParams.setResourceType(resourceType);
 
 				// filters are the filters for searching
@@ -98,7 +115,7 @@ public class FetchResourceIdsStep implements IFirstJobStepWorker<BulkExportJobPa
 						"Running FetchResourceIdsStep for resource type: {} with params: {}",
 						resourceType,
 						providerParams);
-				Iterator<IResourcePersistentId> pidIterator =
+				Iterator<? extends IResourcePersistentId<?>> pidIterator =
 						myBulkExportProcessor.getResourcePidIterator(providerParams);
 				List<BatchResourceId> idsToSubmit = new ArrayList<>();
 
@@ -157,6 +174,59 @@ public class FetchResourceIdsStep implements IFirstJobStepWorker<BulkExportJobPa
 		return RunOutcome.SUCCESS;
 	}
 
+	private boolean isPartitionedPatientCompartmentExport(
+			StepExecutionDetails<BulkExportJobParameters, VoidModel> theStepExecutionDetails) {
+		BulkExportJobParameters.ExportStyle exportStyle =
+				theStepExecutionDetails.getParameters().getExportStyle();
+		// Version 1 of the job definition expands resources in a separate step which doesn't
+		// support patient compartment work chunks
+		return myStorageSettings.isBulkExportPartitionedPatientCompartmentEnabled()
+				&& (exportStyle == BulkExportJobParameters.ExportStyle.GROUP
+						|| exportStyle == BulkExportJobParameters.ExportStyle.PATIENT)
+				&& theStepExecutionDetails.getInstance().getJobDefinitionVersion() >= 2;
+	}
+
+	private static boolean canExportByPatientCompartment(String theResourceType, BulkExportJobParameters theParams) {
+		if ("Group".equals(theResourceType)
+				|| BulkDataExportProvider.PATIENT_BULK_EXPORT_FORWARD_REFERENCE_RESOURCE_TYPES.contains(
+						theResourceType)) {
+			return false;
+		}
+		// Filters are applied by searching, so these types need to be fetched the regular way
+		String prefix = theResourceType + "?";
+		return theParams.getFilters().stream().noneMatch(t -> t.startsWith(prefix))
+				&& theParams.getPostFetchFilterUrls().stream().noneMatch(t -> t.startsWith(prefix));
+	}
+
+	private int submitPatientCompartmentWorkChunks(
+			ExportPIDIteratorParameters theProviderParams,
+			List<String> theCompartmentResourceTypes,
+			IJobDataSink<ResourceIdList> theDataSink) {
+		ourLog.info(
+				"Partitioning patients for bulk export of resource types {} by patient compartment",
+				theCompartmentResourceTypes);
+
+		int submissionCount = 0;
+		Iterator<? extends IResourcePersistentId<?>> patientPidIterator =
+				myBulkExportProcessor.getPatientPidIteratorForCompartmentExport(theProviderParams);
+		List<BatchResourceId> patientIds = new ArrayList<>();
+		while (patientPidIterator.hasNext()) {
+			patientIds.add(BatchResourceId.getIdFromPID(patientPidIterator.next(), "Patient"));
+			if (patientIds.size() >= myStorageSettings.getBulkExportFileMaximumCapacity()
+					|| !patientPidIterator.hasNext()) {
+				ResourceIdList idList = new ResourceIdList();
+				idList.setIds(patientIds);
+				idList.setResourceType("Patient");
+				idList.setPatientCompartment(true);
+				idList.setCompartmentResourceTypes(theCompartmentResourceTypes);
+				theDataSink.accept(idList);
+				submissionCount++;
+				patientIds = new ArrayList<>();
+			}
+		}
+		return submissionCount;
+	}
+
 	private void submitWorkChunk(
 			List<BatchResourceId> theBatchResourceIds,
 			String theResourceType,
@@ -171,7 +241,7 @@ public class FetchResourceIdsStep implements IFirstJobStepWorker<BulkExportJobPa
 	}
 
 	@VisibleForTesting
-	public void setBulkExportProcessorForUnitTest(IBulkExportProcessor theBulkExportProcessor) {
+	public void setBulkExportProcessorForUnitTest(IBulkExportProcessor<?> theBulkExportProcessor) {
 		myBulkExportProcessor = theBulkExportProcessor;
 	}
 }
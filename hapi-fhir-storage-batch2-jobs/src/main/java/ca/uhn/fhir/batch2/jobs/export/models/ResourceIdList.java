@@ -35,6 +35,17 @@ public class ResourceIdList extends BulkExportJobBase {
 	@JsonProperty("resourceType")
 	private String myResourceType;
 
+	/**
+	 * If true, {@link #getIds()} holds a partition of the exported patients, and the chunk
+	 * exports the resources of the {@link #getCompartmentResourceTypes() compartment resource types}
+	 * in their compartments
+	 */
+	@JsonProperty("patientCompartment")
+	private boolean myPatientCompartment;
+
+	@JsonProperty("compartmentResourceTypes")
+	private List<String> myCompartmentResourceTypes;
+
 	public List<BatchResourceId> getIds() {
 		return myBatchResourceIds;
 	}
@@ -50,4 +61,20 @@ public class ResourceIdList extends BulkExportJobBase {
 	public void setResourceType(String theResourceType) {
 		myResourceType = theResourceType;
 	}
+
+	public boolean isPatientCompartment() {
+		return myPatientCompartment;
+	}
+
+	public void setPatientCompartment(boolean thePatientCompartment) {
+		myPatientCompartment = thePatientCompartment;
+	}
+
+	public List<String> getCompartmentResourceTypes() {
+		return myCompartmentResourceTypes;
+	}
+
+	public void setCompartmentResourceTypes(List<String> theCompartmentResourceTypes) {
+		myCompartmentResourceTypes = theCompartmentResourceTypes;
+	}
 }
@@ -53,6 +53,7 @@ public class DeleteExpungeAppCtx {
 				.setJobDescription("Expunge resources")
 				.setJobDefinitionVersion(1)
 				.setParametersType(DeleteExpungeJobParameters.class)
+				.throughputLimitProvider(DeleteExpungeJobParameters::getMaxResourcesPerSecond)
 				.setParametersValidator(expungeJobParametersValidator(
 						theBatch2DaoSvc, theDeleteExpungeSvc, theRequestPartitionHelperSvc))
 				.gatedExecution()
@@ -72,6 +72,7 @@ public class BulkDataImportProvider {
 	public static final String PARAM_INPUT_URL = "url";
 	public static final String PARAM_STORAGE_DETAIL_CREDENTIAL_HTTP_BASIC = "credentialHttpBasic";
 	public static final String PARAM_STORAGE_DETAIL_MAX_BATCH_RESOURCE_COUNT = "maxBatchResourceCount";
+	public static final String PARAM_STORAGE_DETAIL_TRUSTED_LOAD = "trustedLoad";
 
 	public static final String PARAM_INPUT_TYPE = "type";
 	private static final Logger ourLog = LoggerFactory.getLogger(BulkDataImportProvider.class);
@@ -154,6 +155,12 @@ public class BulkDataImportProvider {
 			if (isNotBlank(maximumBatchResourceCount)) {
 				jobParameters.setMaxBatchResourceCount(Integer.parseInt(maximumBatchResourceCount));
 			}
+
+			String trustedLoad = ParametersUtil.getParameterPartValueAsString(
+					myFhirCtx, storageDetail, PARAM_STORAGE_DETAIL_TRUSTED_LOAD);
+			if (isNotBlank(trustedLoad)) {
+				jobParameters.setTrustedLoad(Boolean.parseBoolean(trustedLoad));
+			}
 		}
 
 		RequestPartitionId partitionId =
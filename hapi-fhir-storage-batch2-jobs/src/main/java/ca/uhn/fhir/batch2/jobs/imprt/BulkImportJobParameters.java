@@ -61,6 +61,10 @@ public class BulkImportJobParameters implements IModelJson {
 	@Nullable
 	private RequestPartitionId myPartitionId;
 
+	@JsonProperty(value = "trustedLoad", required = false)
+	@Nullable
+	private Boolean myTrustedLoad;
+
 	public List<String> getNdJsonUrls() {
 		if (myNdJsonUrls == null) {
 			myNdJsonUrls = new ArrayList<>();
@@ -102,4 +106,21 @@ public class BulkImportJobParameters implements IModelJson {
 		myPartitionId = thePartitionId;
 		return this;
 	}
+
+	/**
+	 * If <code>true</code>, the references in the imported files are trusted to point at resources
+	 * which either exist and are not deleted, or are part of the import itself. The targets of
+	 * these references are then resolved once per work chunk instead of being looked up and
+	 * validated one at a time.
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isTrustedLoad() {
+		return Boolean.TRUE.equals(myTrustedLoad);
+	}
+
+	public BulkImportJobParameters setTrustedLoad(boolean theTrustedLoad) {
+		myTrustedLoad = theTrustedLoad;
+		return this;
+	}
 }
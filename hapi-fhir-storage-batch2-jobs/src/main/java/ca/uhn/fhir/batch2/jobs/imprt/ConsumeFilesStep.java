@@ -41,6 +41,8 @@ import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
+import ca.uhn.fhir.util.FhirTerser;
+import ca.uhn.fhir.util.ResourceReferenceInfo;
 import jakarta.annotation.Nonnull;
 import org.apache.commons.io.LineIterator;
 import org.hl7.fhir.instance.model.api.IBaseResource;
@@ -54,6 +56,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -103,12 +107,24 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 
 		ourLog.info("Bulk loading {} resources from source {}", resources.size(), sourceName);
 
-		storeResources(resources, theStepExecutionDetails.getParameters().getPartitionId());
+		BulkImportJobParameters parameters = theStepExecutionDetails.getParameters();
+		storeResources(resources, parameters.getPartitionId(), parameters.isTrustedLoad());
 
 		return new RunOutcome(resources.size());
 	}
 
 	public void storeResources(List<IBaseResource> resources, RequestPartitionId thePartitionId) {
+		storeResources(resources, thePartitionId, false);
+	}
+
+	/**
+	 * Stores the given resources in a single transaction.
+	 *
+	 * @param theTrustedLoad If <code>true</code>, the targets of all references in the resources are
+	 *                       resolved up front in one query, and are not individually validated
+	 */
+	public void storeResources(
+			List<IBaseResource> resources, RequestPartitionId thePartitionId, boolean theTrustedLoad) {
 		SystemRequestDetails requestDetails = new SystemRequestDetails();
 		if (thePartitionId == null) {
 			requestDetails.setRequestPartitionId(RequestPartitionId.defaultPartition());
@@ -119,13 +135,14 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 		myHapiTransactionService.execute(
 				requestDetails,
 				transactionDetails,
-				tx -> storeResourcesInsideTransaction(resources, requestDetails, transactionDetails));
+				tx -> storeResourcesInsideTransaction(resources, requestDetails, transactionDetails, theTrustedLoad));
 	}
 
 	private Void storeResourcesInsideTransaction(
 			List<IBaseResource> theResources,
 			SystemRequestDetails theRequestDetails,
-			TransactionDetails theTransactionDetails) {
+			TransactionDetails theTransactionDetails,
+			boolean theTrustedLoad) {
 		Map<IIdType, IBaseResource> ids = new HashMap<>();
 		for (IBaseResource next : theResources) {
 			if (!next.getIdElement().hasIdPart()) {
@@ -140,6 +157,9 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 		}
 
 		List<IIdType> idsList = new ArrayList<>(ids.keySet());
+		if (theTrustedLoad) {
+			preResolveReferenceTargets(theResources, ids.keySet(), theRequestDetails, theTransactionDetails);
+		}
 		List<IResourcePersistentId> resolvedIds = myIdHelperService.resolveResourcePersistentIdsWithCache(
 				theRequestDetails.getRequestPartitionId(), idsList, true);
 		for (IResourcePersistentId next : resolvedIds) {
@@ -160,6 +180,46 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 		return null;
 	}
 
+	/**
+	 * Resolves the targets of all references in the given resources with a single lookup, so that
+	 * the DAO doesn't need to resolve (and validate) each reference individually while indexing.
+	 * References to resources in this chunk are skipped since those are resolved separately, and
+	 * references which can't be resolved here are left to the regular processing.
+	 */
+	private void preResolveReferenceTargets(
+			List<IBaseResource> theResources,
+			Set<IIdType> theIdsInChunk,
+			SystemRequestDetails theRequestDetails,
+			TransactionDetails theTransactionDetails) {
+		Set<String> idsInChunk = theIdsInChunk.stream()
+				.map(t -> t.toUnqualifiedVersionless().getValue())
+				.collect(Collectors.toSet());
+
+		FhirTerser terser = myCtx.newTerser();
+		Map<String, IIdType> targets = new HashMap<>();
+		for (IBaseResource next : theResources) {
+			for (ResourceReferenceInfo nextRef : terser.getAllResourceReferences(next)) {
+				IIdType target = nextRef.getResourceReference().getReferenceElement();
+				if (target.hasResourceType() && target.hasIdPart() && !target.isLocal() && !target.isAbsolute()) {
+					IIdType targetId = target.toUnqualifiedVersionless();
+					if (!idsInChunk.contains(targetId.getValue())) {
+						targets.putIfAbsent(targetId.getValue(), targetId);
+					}
+				}
+			}
+		}
+		if (targets.isEmpty()) {
+			return;
+		}
+
+		List<IResourcePersistentId> resolvedTargets = myIdHelperService.resolveResourcePersistentIdsWithCache(
+				theRequestDetails.getRequestPartitionId(), new ArrayList<>(targets.values()), false);
+		for (IResourcePersistentId next : resolvedTargets) {
+			theTransactionDetails.addResolvedResourceId(next.getAssociatedResourceId(), next);
+		}
+		ourLog.debug("Pre-resolved {} of {} reference targets", resolvedTargets.size(), targets.size());
+	}
+
 	private <T extends IBaseResource> void updateResource(
 			RequestDetails theRequestDetails, TransactionDetails theTransactionDetails, T theResource) {
 		IFhirResourceDao<T> dao = myDaoRegistry.getResourceDao(theResource);
@@ -30,6 +30,7 @@ import ca.uhn.fhir.jpa.api.dao.IFhirSystemDao;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -57,8 +58,9 @@ public class ReindexAppCtx {
 	public ReindexProvider reindexProvider(
 			FhirContext theFhirContext,
 			IJobCoordinator theJobCoordinator,
-			IJobPartitionProvider theJobPartitionHandler) {
-		return new ReindexProvider(theFhirContext, theJobCoordinator, theJobPartitionHandler);
+			IJobPartitionProvider theJobPartitionHandler,
+			ISearchParamRegistry theSearchParamRegistry) {
+		return new ReindexProvider(theFhirContext, theJobCoordinator, theJobPartitionHandler, theSearchParamRegistry);
 	}
 
 	@Bean
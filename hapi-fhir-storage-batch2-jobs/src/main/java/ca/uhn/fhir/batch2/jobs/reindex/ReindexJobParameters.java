@@ -24,6 +24,9 @@ import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 
 public class ReindexJobParameters extends PartitionedUrlJobParameters {
@@ -31,6 +34,7 @@ public class ReindexJobParameters extends PartitionedUrlJobParameters {
 	public static final String OPTIMIZE_STORAGE = "optimizeStorage";
 	public static final String REINDEX_SEARCH_PARAMETERS = "reindexSearchParameters";
 	public static final String OPTIMISTIC_LOCK = "optimisticLock";
+	public static final String SEARCH_PARAMETERS = "searchParameters";
 
 	@JsonProperty(
 			value = OPTIMIZE_STORAGE,
@@ -53,6 +57,10 @@ public class ReindexJobParameters extends PartitionedUrlJobParameters {
 	@Nullable
 	private Boolean myOptimisticLock;
 
+	@JsonProperty(value = SEARCH_PARAMETERS, required = false)
+	@Nullable
+	private List<String> mySearchParameters;
+
 	public boolean getOptimisticLock() {
 		return defaultIfNull(myOptimisticLock, ReindexParameters.OPTIMISTIC_LOCK_DEFAULT);
 	}
@@ -80,4 +88,24 @@ public class ReindexJobParameters extends PartitionedUrlJobParameters {
 		this.myReindexSearchParameters = theReindexSearchParameters;
 		return this;
 	}
+
+	/**
+	 * @since 7.6.0
+	 */
+	public List<String> getSearchParameters() {
+		if (mySearchParameters == null) {
+			mySearchParameters = new ArrayList<>();
+		}
+		return mySearchParameters;
+	}
+
+	/**
+	 * If set, only the index rows belonging to the given search parameter names are rewritten.
+	 *
+	 * @since 7.6.0
+	 */
+	public ReindexJobParameters addSearchParameter(String theSearchParameterName) {
+		getSearchParameters().add(theSearchParameterName);
+		return this;
+	}
 }
@@ -23,13 +23,16 @@ import ca.uhn.fhir.batch2.api.IJobCoordinator;
 import ca.uhn.fhir.batch2.api.IJobPartitionProvider;
 import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
 import ca.uhn.fhir.model.api.annotation.Description;
 import ca.uhn.fhir.rest.annotation.Operation;
 import ca.uhn.fhir.rest.annotation.OperationParam;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import ca.uhn.fhir.util.ParametersUtil;
 import ca.uhn.fhir.util.UrlUtil;
 import ca.uhn.fhir.util.ValidateUtil;
@@ -39,6 +42,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBaseParameters;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -51,6 +55,7 @@ public class ReindexProvider {
 	private final FhirContext myFhirContext;
 	private final IJobCoordinator myJobCoordinator;
 	private final IJobPartitionProvider myJobPartitionProvider;
+	private final ISearchParamRegistry mySearchParamRegistry;
 
 	/**
 	 * Constructor
@@ -58,10 +63,12 @@ public class ReindexProvider {
 	public ReindexProvider(
 			FhirContext theFhirContext,
 			IJobCoordinator theJobCoordinator,
-			IJobPartitionProvider theJobPartitionProvider) {
+			IJobPartitionProvider theJobPartitionProvider,
+			ISearchParamRegistry theSearchParamRegistry) {
 		myFhirContext = theFhirContext;
 		myJobCoordinator = theJobCoordinator;
 		myJobPartitionProvider = theJobPartitionProvider;
+		mySearchParamRegistry = theSearchParamRegistry;
 	}
 
 	@Operation(name = ProviderConstants.OPERATION_REINDEX, idempotent = false)
@@ -87,6 +94,14 @@ public class ReindexProvider {
 									+ ReindexParameters.OPTIMISTIC_LOCK_DEFAULT + ")")
 					@OperationParam(name = ReindexJobParameters.OPTIMISTIC_LOCK, typeName = "boolean", min = 0, max = 1)
 					IPrimitiveType<Boolean> theOptimisticLock,
+			@Description(
+							"Optionally restricts the reindex to the index rows of one or more search parameter names (e.g. \"identifier\"). Index rows belonging to other search parameters are left untouched. If not provided, all search parameters are reindexed.")
+					@OperationParam(
+							name = ReindexJobParameters.SEARCH_PARAMETERS,
+							typeName = "code",
+							min = 0,
+							max = OperationParam.MAX_UNLIMITED)
+					List<IPrimitiveType<String>> theSearchParameters,
 			RequestDetails theRequestDetails) {
 
 		ReindexJobParameters params = new ReindexJobParameters();
@@ -125,6 +140,17 @@ public class ReindexProvider {
 					.collect(Collectors.toList());
 		}
 
+		if (theSearchParameters != null) {
+			Collection<String> resourceTypes = getResourceTypes(urls);
+			theSearchParameters.stream()
+					.map(IPrimitiveType::getValue)
+					.filter(StringUtils::isNotBlank)
+					.forEach(name -> {
+						validateSearchParameterName(resourceTypes, name);
+						params.addSearchParameter(name);
+					});
+		}
+
 		myJobPartitionProvider.getPartitionedUrls(theRequestDetails, urls).forEach(params::addPartitionedUrl);
 
 		JobInstanceStartRequest request = new JobInstanceStartRequest();
@@ -137,4 +163,28 @@ public class ReindexProvider {
 				myFhirContext, retVal, ProviderConstants.OPERATION_BATCH_RESPONSE_JOB_ID, response.getInstanceId());
 		return retVal;
 	}
+
+	private Collection<String> getResourceTypes(List<String> theUrls) {
+		if (theUrls.isEmpty()) {
+			return myFhirContext.getResourceTypes();
+		}
+		return theUrls.stream()
+				.map(url -> StringUtils.substringBefore(url, "?"))
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * The selected search parameters are only synchronized if they exist, so a misspelled
+	 * name would otherwise result in a job which silently does nothing.
+	 */
+	private void validateSearchParameterName(Collection<String> theResourceTypes, String theName) {
+		for (String resourceType : theResourceTypes) {
+			if (mySearchParamRegistry.getActiveSearchParam(resourceType, theName) != null
+					|| mySearchParamRegistry.getActiveSearchParam("Resource", theName) != null) {
+				return;
+			}
+		}
+		throw new InvalidRequestException(Msg.code(2572) + "Unknown search parameter name for "
+				+ ReindexJobParameters.SEARCH_PARAMETERS + ": " + UrlUtil.sanitizeUrlPart(theName));
+	}
 }
@@ -80,6 +80,7 @@ public class ReindexV1Config {
 				.setJobDescription("Reindex resources")
 				.setJobDefinitionVersion(1)
 				.setParametersType(ReindexJobParameters.class)
+				.throughputLimitProvider(ReindexJobParameters::getMaxResourcesPerSecond)
 				.setParametersValidator(myReindexJobParametersValidatorV1)
 				.gatedExecution()
 				.addFirstStep(
@@ -81,6 +81,7 @@ public class ReindexV2Config {
 				.setJobDescription("Reindex resources")
 				.setJobDefinitionVersion(2)
 				.setParametersType(ReindexJobParameters.class)
+				.throughputLimitProvider(ReindexJobParameters::getMaxResourcesPerSecond)
 				.setParametersValidator(myReindexJobParametersValidator)
 				.gatedExecution()
 				.addFirstStep(
@@ -111,8 +112,9 @@ public class ReindexV2Config {
 	}
 
 	@Bean("reindexGenerateRangeChunkStepV2")
-	public IJobStepWorker<ReindexJobParameters, VoidModel, ChunkRangeJson> reindexGenerateRangeChunksStep() {
-		return new GenerateRangeChunksStep<>();
+	public IJobStepWorker<ReindexJobParameters, VoidModel, ChunkRangeJson> reindexGenerateRangeChunksStep(
+			IBatch2DaoSvc theBatch2DaoSvc) {
+		return new GenerateRangeChunksStep<>(theBatch2DaoSvc, GenerateRangeChunksStep.DEFAULT_RESOURCES_PER_PID_RANGE);
 	}
 
 	@Bean("reindexLoadIdsStepV2")
@@ -0,0 +1,63 @@
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.jobs.termvalueset;
+
+import ca.uhn.fhir.batch2.api.IFirstJobStepWorker;
+import ca.uhn.fhir.batch2.api.IJobDataSink;
+import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
+import ca.uhn.fhir.batch2.api.RunOutcome;
+import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.api.VoidModel;
+import ca.uhn.fhir.jpa.term.api.ITermValueSetPreExpansionJobSvc;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPIDResult;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPreExpansionJobParameters;
+import jakarta.annotation.Nonnull;
+
+import java.util.List;
+
+public class FindTermValueSetsToPreExpandStep
+		implements IFirstJobStepWorker<TermValueSetPreExpansionJobParameters, TermValueSetPIDResult> {
+
+	private final ITermValueSetPreExpansionJobSvc myTermValueSetPreExpansionJobSvc;
+
+	public FindTermValueSetsToPreExpandStep(ITermValueSetPreExpansionJobSvc theTermValueSetPreExpansionJobSvc) {
+		myTermValueSetPreExpansionJobSvc = theTermValueSetPreExpansionJobSvc;
+	}
+
+	@Nonnull
+	@Override
+	public RunOutcome run(
+			@Nonnull StepExecutionDetails<TermValueSetPreExpansionJobParameters, VoidModel> theStepExecutionDetails,
+			@Nonnull IJobDataSink<TermValueSetPIDResult> theDataSink)
+			throws JobExecutionFailedException {
+		List<Long> pids = theStepExecutionDetails.getParameters().getTermValueSetPids();
+		if (pids.isEmpty()) {
+			pids = myTermValueSetPreExpansionJobSvc.findTermValueSetPidsToPreExpand();
+		}
+
+		for (Long next : pids) {
+			TermValueSetPIDResult result = new TermValueSetPIDResult();
+			result.setTermValueSetPID(next);
+			theDataSink.accept(result);
+		}
+
+		return new RunOutcome(pids.size());
+	}
+}
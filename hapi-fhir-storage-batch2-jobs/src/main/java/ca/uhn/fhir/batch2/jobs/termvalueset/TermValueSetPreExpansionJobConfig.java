@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.jobs.termvalueset;
+
+import ca.uhn.fhir.batch2.model.JobDefinition;
+import ca.uhn.fhir.jpa.term.api.ITermValueSetPreExpansionJobSvc;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPIDResult;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPreExpansionJobParameters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TermValueSetPreExpansionJobConfig {
+	/**
+	 * TermValueSet pre-expansion
+	 */
+	public static final String TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME = "termValueSetPreExpansionJob";
+
+	@Autowired
+	private ITermValueSetPreExpansionJobSvc myTermValueSetPreExpansionJobSvc;
+
+	/**
+	 * Pre-expand ValueSets job.
+	 * Each ValueSet is pre-expanded in its own work chunk, so ValueSets are
+	 * pre-expanded in parallel across all of the nodes in the cluster
+	 */
+	@Bean
+	public JobDefinition<TermValueSetPreExpansionJobParameters> termValueSetPreExpansionJobDefinition() {
+		return JobDefinition.newBuilder()
+				.setJobDefinitionId(TERM_VALUE_SET_PRE_EXPANSION_JOB_NAME)
+				.setJobDescription("Pre-expand ValueSets into the terminology tables")
+				.setJobDefinitionVersion(1)
+				.setParametersType(TermValueSetPreExpansionJobParameters.class)
+				.addFirstStep(
+						"FindTermValueSetsToPreExpandStep",
+						"Fetches the PIDs of the TermValueSets waiting to be pre-expanded",
+						TermValueSetPIDResult.class,
+						findTermValueSetsToPreExpandStep())
+				.addLastStep(
+						"PreExpandTermValueSetStep", "Pre-expands a single TermValueSet", preExpandTermValueSetStep())
+				.build();
+	}
+
+	@Bean
+	public FindTermValueSetsToPreExpandStep findTermValueSetsToPreExpandStep() {
+		return new FindTermValueSetsToPreExpandStep(myTermValueSetPreExpansionJobSvc);
+	}
+
+	@Bean
+	public PreExpandTermValueSetStep preExpandTermValueSetStep() {
+		return new PreExpandTermValueSetStep(myTermValueSetPreExpansionJobSvc);
+	}
+}
@@ -72,6 +72,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -236,10 +237,15 @@ public class ExpandResourceAndWriteBinaryStepTest {
 
 	@Nonnull
 	private static ArrayList<IBaseResource> createResourceList(ResourceIdList idList) {
+		return createResourceList(idList, 100);
+	}
+
+	@Nonnull
+	private static ArrayList<IBaseResource> createResourceList(ResourceIdList idList, int theCount) {
 		idList.setResourceType("Patient");
 		ArrayList<IBaseResource> resources = new ArrayList<>();
 		ArrayList<BatchResourceId> batchResourceIds = new ArrayList<>();
-		for (int i = 0; i < 100; i++) {
+		for (int i = 0; i < theCount; i++) {
 			String stringId = String.valueOf(i);
 			BatchResourceId batchResourceId = new BatchResourceId();
 			batchResourceId.setResourceType("Patient");
@@ -254,6 +260,57 @@ public class ExpandResourceAndWriteBinaryStepTest {
 		return resources;
 	}
 
+	@Test
+	public void run_multipleFetchBatches_writesOneBinaryPerBatch() {
+		// setup
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
+		IFhirResourceDao<?> patientDao = mockOutDaoRegistry();
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+
+		// 600 IDs are fetched in a batch of 500 followed by a batch of 100
+		ResourceIdList idList = new ResourceIdList();
+		ArrayList<IBaseResource> resources = createResourceList(idList, 600);
+
+		StepExecutionDetails<BulkExportJobParameters, ResourceIdList> input = createInput(
+			idList,
+			createParameters(false),
+			instance
+		);
+
+		DaoMethodOutcome methodOutcome = new DaoMethodOutcome();
+		methodOutcome.setId(new IdType("Binary/123"));
+
+		when(patientDao.search(any(), any())).thenReturn(
+			new SimpleBundleProvider(new ArrayList<>(resources.subList(0, 500))),
+			new SimpleBundleProvider(new ArrayList<>(resources.subList(500, 600))));
+		when(myIdHelperService.newPidFromStringIdAndResourceName(anyString(), anyString())).thenAnswer(t -> JpaPid.fromId(Long.parseLong(t.getArgument(0, String.class))));
+		when(myIdHelperService.translatePidsToForcedIds(any())).thenAnswer(t->{
+			Set<IResourcePersistentId<JpaPid>> inputSet = t.getArgument(0, Set.class);
+			Map<IResourcePersistentId<?>, Optional<String>> map = new HashMap<>();
+			for (var next : inputSet) {
+				map.put(next, Optional.empty());
+			}
+			return new PersistentIdToForcedIdMap<>(map);
+		});
+		when(myDaoRegistry.getResourceDao(eq("Binary")))
+			.thenReturn(binaryDao);
+		when(binaryDao.update(any(IBaseBinary.class), any(RequestDetails.class)))
+			.thenReturn(methodOutcome);
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(600, outcome.getRecordsProcessed());
+		ArgumentCaptor<IBaseBinary> binaryCaptor = ArgumentCaptor.forClass(IBaseBinary.class);
+		verify(binaryDao, times(2)).update(binaryCaptor.capture(), any(RequestDetails.class));
+		assertEquals(500, StringUtils.countOccurrencesOf(new String(binaryCaptor.getAllValues().get(0).getContent()), "\n"));
+		assertEquals(100, StringUtils.countOccurrencesOf(new String(binaryCaptor.getAllValues().get(1).getContent()), "\n"));
+		verify(sink, times(2)).accept(any(BulkExportBinaryFileId.class));
+	}
+
 	@Test
 	public void run_withIOException_throws() throws IOException {
 		// setup
@@ -262,7 +319,6 @@ public class ExpandResourceAndWriteBinaryStepTest {
 		instance.setInstanceId("1");
 		ResourceIdList idList = new ResourceIdList();
 		ArrayList<IBaseResource> resources = createResourceList(idList);
-		IFhirResourceDao<IBaseBinary> binaryDao = mock(IFhirResourceDao.class);
 		IFhirResourceDao<?> patientDao = mockOutDaoRegistry();
 		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
 
@@ -284,8 +340,6 @@ public class ExpandResourceAndWriteBinaryStepTest {
 			}
 			return new PersistentIdToForcedIdMap<>(map);
 		});
-		when(myDaoRegistry.getResourceDao(eq("Binary")))
-			.thenReturn(binaryDao);
 
 		// we're gong to mock the writer
 		OutputStreamWriter writer = mock(OutputStreamWriter.class);
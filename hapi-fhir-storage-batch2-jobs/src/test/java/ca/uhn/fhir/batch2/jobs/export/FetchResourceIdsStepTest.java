@@ -230,4 +230,57 @@ public class FetchResourceIdsStepTest {
 			found = false;
 		}
 	}
+
+	@Test
+	public void run_partitionedPatientCompartment_submitsPartitionsOfPatients() {
+		// setup
+		IJobDataSink<ResourceIdList> sink = mock(IJobDataSink.class);
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		instance.setJobDefinitionVersion(2);
+		BulkExportJobParameters parameters = createParameters(false);
+		parameters.setExportStyle(BulkExportJobParameters.ExportStyle.GROUP);
+		parameters.setGroupId("Group/G");
+		parameters.setResourceTypes(Arrays.asList("Patient", "Observation", "Practitioner"));
+		StepExecutionDetails<BulkExportJobParameters, VoidModel> input = createInput(parameters, instance);
+
+		List<JpaPid> patientIds = new ArrayList<>();
+		for (long i = 0; i < 5; i++) {
+			patientIds.add(JpaPid.fromId(i));
+		}
+		List<JpaPid> practitionerIds = List.of(JpaPid.fromId(100L));
+
+		// when
+		when(myStorageSettings.isBulkExportPartitionedPatientCompartmentEnabled()).thenReturn(true);
+		when(myStorageSettings.getBulkExportFileMaximumCapacity()).thenReturn(2);
+		when(myStorageSettings.getBulkExportFileMaximumSize()).thenReturn(10000L);
+		when(myBulkExportProcessor.getPatientPidIteratorForCompartmentExport(any(ExportPIDIteratorParameters.class)))
+			.thenReturn(patientIds.iterator());
+		when(myBulkExportProcessor.getResourcePidIterator(any(ExportPIDIteratorParameters.class)))
+			.thenReturn(practitionerIds.iterator());
+
+		// test
+		RunOutcome outcome = myFirstStep.run(input, sink);
+
+		// verify
+		assertEquals(RunOutcome.SUCCESS, outcome);
+		ArgumentCaptor<ResourceIdList> captor = ArgumentCaptor.forClass(ResourceIdList.class);
+		verify(sink, times(4)).accept(captor.capture());
+		List<ResourceIdList> idLists = captor.getAllValues();
+
+		// 5 patients in partitions of 2
+		for (int i = 0; i < 3; i++) {
+			ResourceIdList idList = idLists.get(i);
+			assertTrue(idList.isPatientCompartment());
+			assertEquals("Patient", idList.getResourceType());
+			assertThat(idList.getCompartmentResourceTypes()).containsExactly("Patient", "Observation");
+		}
+		assertThat(idLists.get(0).getIds()).hasSize(2);
+		assertThat(idLists.get(2).getIds()).hasSize(1);
+
+		// Practitioner isn't in the patient compartment, so it is fetched the regular way
+		assertEquals("Practitioner", idLists.get(3).getResourceType());
+		assertThat(idLists.get(3).isPatientCompartment()).isFalse();
+		verify(myBulkExportProcessor, times(1)).getResourcePidIterator(any(ExportPIDIteratorParameters.class));
+	}
 }
@@ -5,10 +5,14 @@ import ca.uhn.fhir.batch2.api.IJobPartitionProvider;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrl;
 import ca.uhn.fhir.batch2.model.JobInstanceStartRequest;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.rest.gclient.IOperationUntypedWithInput;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.provider.ProviderConstants;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
 import ca.uhn.fhir.test.utilities.server.RestfulServerExtension;
 import org.hl7.fhir.r4.model.BooleanType;
 import org.hl7.fhir.r4.model.CodeType;
@@ -35,11 +39,15 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNotNull;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -61,6 +69,9 @@ public class ReindexProviderTest {
 	@Mock
 	private IJobPartitionProvider myJobPartitionProvider;
 
+	@Mock
+	private ISearchParamRegistry mySearchParamRegistry;
+
 	@Captor
 	private ArgumentCaptor<JobInstanceStartRequest> myStartRequestCaptor;
 
@@ -71,7 +82,7 @@ public class ReindexProviderTest {
 	public void beforeEach() {
 		myServerExtension.registerProvider(mySvc);
 
-		when(myJobCoordinator.startInstance(isNotNull(), any()))
+		lenient().when(myJobCoordinator.startInstance(isNotNull(), any()))
 			.thenReturn(createJobStartResponse());
 	}
 
@@ -158,4 +169,50 @@ public class ReindexProviderTest {
 		assertTrue(params.getOptimisticLock());
 		assertEquals(ReindexParameters.OptimizeStorageModeEnum.NONE, params.getOptimizeStorage());
 	}
+
+	@Test
+	public void testReindex_withSearchParameter() {
+		// setup
+		Parameters input = new Parameters();
+		input.addParameter(ProviderConstants.OPERATION_REINDEX_PARAM_URL, "Observation?");
+		input.addParameter(ReindexJobParameters.SEARCH_PARAMETERS, new CodeType("code"));
+		when(myJobPartitionProvider.getPartitionedUrls(any(), any())).thenReturn(List.of(new PartitionedUrl().setUrl("Observation?")));
+		when(mySearchParamRegistry.getActiveSearchParam("Observation", "code")).thenReturn(mock(RuntimeSearchParam.class));
+
+		// Execute
+		myServerExtension
+				.getFhirClient()
+				.operation()
+				.onServer()
+				.named(ProviderConstants.OPERATION_REINDEX)
+				.withParameters(input)
+				.execute();
+
+		// Verify
+		verify(myJobCoordinator, times(1)).startInstance(isNotNull(), myStartRequestCaptor.capture());
+		ReindexJobParameters params = myStartRequestCaptor.getValue().getParameters(ReindexJobParameters.class);
+		assertThat(params.getSearchParameters()).containsExactly("code");
+	}
+
+	@Test
+	public void testReindex_withUnknownSearchParameter_isRejected() {
+		// setup
+		Parameters input = new Parameters();
+		input.addParameter(ProviderConstants.OPERATION_REINDEX_PARAM_URL, "Observation?");
+		input.addParameter(ReindexJobParameters.SEARCH_PARAMETERS, new CodeType("cdoe"));
+
+		// Execute
+		IOperationUntypedWithInput<Parameters> operation = myServerExtension
+				.getFhirClient()
+				.operation()
+				.onServer()
+				.named(ProviderConstants.OPERATION_REINDEX)
+				.withParameters(input);
+		assertThatThrownBy(operation::execute)
+				.isInstanceOf(InvalidRequestException.class)
+				.hasMessageContaining("Unknown search parameter name for " + ReindexJobParameters.SEARCH_PARAMETERS + ": cdoe");
+
+		// Verify
+		verify(myJobCoordinator, never()).startInstance(any(), any());
+	}
 }
@@ -0,0 +1,72 @@
+package ca.uhn.fhir.batch2.jobs.termvalueset;
+
+import ca.uhn.fhir.batch2.api.IJobDataSink;
+import ca.uhn.fhir.batch2.api.RunOutcome;
+import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.api.VoidModel;
+import ca.uhn.fhir.batch2.model.JobInstance;
+import ca.uhn.fhir.jpa.term.api.ITermValueSetPreExpansionJobSvc;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPIDResult;
+import ca.uhn.fhir.jpa.term.models.TermValueSetPreExpansionJobParameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FindTermValueSetsToPreExpandStepTest {
+
+	private static final JobInstance ourTestInstance = JobInstance.fromInstanceId("INSTANCE-ID");
+
+	@Mock
+	private ITermValueSetPreExpansionJobSvc myTermValueSetPreExpansionJobSvc;
+	@Mock
+	private IJobDataSink<TermValueSetPIDResult> myDataSink;
+	@InjectMocks
+	private FindTermValueSetsToPreExpandStep mySvc;
+
+	@Test
+	public void testOneChunkPerValueSetWaitingForPreExpansion() {
+		// Setup
+		when(myTermValueSetPreExpansionJobSvc.findTermValueSetPidsToPreExpand()).thenReturn(List.of(1L, 2L, 3L));
+		TermValueSetPreExpansionJobParameters parameters = new TermValueSetPreExpansionJobParameters();
+		StepExecutionDetails<TermValueSetPreExpansionJobParameters, VoidModel> details = new StepExecutionDetails<>(parameters, null, ourTestInstance, "CHUNK-ID");
+
+		// Test
+		RunOutcome outcome = mySvc.run(details, myDataSink);
+
+		// Verify
+		assertEquals(3, outcome.getRecordsProcessed());
+		ArgumentCaptor<TermValueSetPIDResult> captor = ArgumentCaptor.forClass(TermValueSetPIDResult.class);
+		verify(myDataSink, times(3)).accept(captor.capture());
+		assertThat(captor.getAllValues()).extracting(TermValueSetPIDResult::getTermValueSetPID).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	public void testExplicitValueSetPids() {
+		// Setup
+		TermValueSetPreExpansionJobParameters parameters = new TermValueSetPreExpansionJobParameters()
+			.addTermValueSetPid(5L);
+		StepExecutionDetails<TermValueSetPreExpansionJobParameters, VoidModel> details = new StepExecutionDetails<>(parameters, null, ourTestInstance, "CHUNK-ID");
+
+		// Test
+		mySvc.run(details, myDataSink);
+
+		// Verify
+		verify(myTermValueSetPreExpansionJobSvc, never()).findTermValueSetPidsToPreExpand();
+		ArgumentCaptor<TermValueSetPIDResult> captor = ArgumentCaptor.forClass(TermValueSetPIDResult.class);
+		verify(myDataSink, times(1)).accept(captor.capture());
+		assertEquals(5L, captor.getValue().getTermValueSetPID());
+	}
+}
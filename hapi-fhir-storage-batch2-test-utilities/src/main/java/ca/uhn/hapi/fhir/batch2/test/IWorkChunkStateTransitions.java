@@ -38,7 +38,9 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +49,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -241,6 +244,52 @@ public interface IWorkChunkStateTransitions extends IWorkChunkCommon, WorkChunkT
 		latch.awaitExpected();
 	}
 
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	default void enqueueWorkChunksForProcessing_enqueuesOnlyREADYChunks(boolean theOnlyReadyChunks) {
+		// setup
+		getTestManager().disableWorkChunkMessageHandler();
+
+		StringBuilder sb = new StringBuilder();
+		// first step is always complete
+		sb.append("1|COMPLETED");
+		for (WorkChunkStatusEnum status : WorkChunkStatusEnum.values()) {
+			if (theOnlyReadyChunks && status != WorkChunkStatusEnum.READY) {
+				continue;
+			}
+			// second step for all other workchunks
+			sb.append("\n2|").append(status.name());
+			sb.append("\n2|").append(status.name());
+		}
+		JobDefinition<?> jobDef = getTestManager().withJobDefinition(false);
+		String instanceId = getTestManager().createAndStoreJobInstance(jobDef);
+		JobMaintenanceStateInformation stateInformation = new JobMaintenanceStateInformation(
+			instanceId,
+			jobDef,
+			sb.toString()
+		);
+		getTestManager().createChunksInStates(stateInformation);
+
+		List<String> chunkIds = new ArrayList<>();
+		List<String> readyChunkIds = new ArrayList<>();
+		for (WorkChunk chunk : stateInformation.getInitialWorkChunks()) {
+			chunkIds.add(chunk.getId());
+			if (chunk.getStatus() == WorkChunkStatusEnum.READY) {
+				readyChunkIds.add(chunk.getId());
+			}
+		}
+
+		// test
+		List<String> enqueued = new ArrayList<>();
+		getTestManager().getSvc().enqueueWorkChunksForProcessing(chunkIds, enqueued::addAll);
+
+		// verify
+		assertThat(enqueued).containsExactlyInAnyOrderElementsOf(readyChunkIds);
+		for (String chunkId : readyChunkIds) {
+			assertEquals(WorkChunkStatusEnum.QUEUED, getTestManager().freshFetchWorkChunk(chunkId).getStatus());
+		}
+	}
+
 	/**
 	 * Nasty test for a nasty bug.
 	 * We use the transactional-outbox pattern to guarantee at-least-once delivery to the kafka queue by sending to
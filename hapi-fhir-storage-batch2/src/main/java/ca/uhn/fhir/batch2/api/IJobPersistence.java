@@ -40,6 +40,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -101,6 +102,31 @@ public interface IJobPersistence extends IWorkChunkPersistence {
 	@Transactional(propagation = Propagation.REQUIRES_NEW)
 	void enqueueWorkChunkForProcessing(String theChunkId, Consumer<Integer> theCallback);
 
+	/**
+	 * Moves a batch of work chunks from READY to QUEUED and invokes the callback with the ids of the
+	 * chunks that were transitioned, so that a notification can be sent for each of them.
+	 * Chunks that are no longer READY are skipped.
+	 * <p>
+	 * The default implementation transitions the chunks one at a time. Implementations are encouraged
+	 * to perform the transition with as few round-trips to the storage as possible.
+	 *
+	 * @param theChunkIds the ids of the chunks to enqueue
+	 * @param theCallback invoked with the ids of the chunks that were moved to QUEUED
+	 * @since 7.6.0
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	default void enqueueWorkChunksForProcessing(List<String> theChunkIds, Consumer<List<String>> theCallback) {
+		List<String> enqueued = new ArrayList<>(theChunkIds.size());
+		for (String chunkId : theChunkIds) {
+			enqueueWorkChunkForProcessing(chunkId, updated -> {
+				if (updated == 1) {
+					enqueued.add(chunkId);
+				}
+			});
+		}
+		theCallback.accept(enqueued);
+	}
+
 	/**
 	 * Updates all Work Chunks in POLL_WAITING if their nextPollTime <= now
 	 * for the given Job Instance.
@@ -0,0 +1,40 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.api;
+
+import ca.uhn.fhir.model.api.IModelJson;
+import jakarta.annotation.Nullable;
+
+/**
+ * Reads the maximum throughput requested for a job instance from its parameters. When a job
+ * definition supplies one of these and it returns a value, the work chunks of the instance are
+ * paced so that each server stays under that rate.
+ *
+ * @since 7.6.0
+ */
+@FunctionalInterface
+public interface IJobThroughputLimitProvider<PT extends IModelJson> {
+
+	/**
+	 * @return the maximum number of resources per second to process for the instance, or <code>null</code> for no limit
+	 */
+	@Nullable
+	Integer getMaxResourcesPerSecond(PT theParameters);
+}
@@ -0,0 +1,174 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Batch2 Task Processor
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.coordinator;
+
+import ca.uhn.fhir.util.Logs;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.time.DateUtils;
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces the work chunks of job instances that requested a maximum throughput (in resources per second).
+ * <p>
+ * The permitted rate for an instance starts at the requested maximum. It is halved (down to
+ * {@link #MIN_RATE_FRACTION} of the maximum) whenever a chunk fails, or takes more than
+ * {@link #SLOW_CHUNK_FACTOR} times longer per resource than the fastest chunks seen so far, which usually
+ * means the database is under load. Every normal chunk then raises the rate back toward the maximum by
+ * {@link #RECOVERY_FRACTION} of it.
+ * </p>
+ * <p>
+ * The throttle is local to this server: if several servers process chunks for the same instance, each one
+ * applies the cap independently.
+ * </p>
+ */
+public class JobInstanceThroughputThrottle {
+	static final double SLOW_CHUNK_FACTOR = 2.0;
+	static final double MIN_RATE_FRACTION = 0.1;
+	static final double RECOVERY_FRACTION = 0.1;
+	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
+	private static final long IDLE_EXPIRY_MILLIS = DateUtils.MILLIS_PER_HOUR;
+	private final Map<String, InstanceThrottle> myInstanceIdToThrottle = new ConcurrentHashMap<>();
+	private final LongSupplier myNanoClock;
+	private final LongConsumer mySleeper;
+
+	/**
+	 * Constructor
+	 */
+	public JobInstanceThroughputThrottle() {
+		this(System::nanoTime, JobInstanceThroughputThrottle::sleep);
+	}
+
+	/**
+	 * Constructor allowing tests to supply their own clock (in nanos) and sleep function (taking nanos)
+	 */
+	@VisibleForTesting
+	JobInstanceThroughputThrottle(LongSupplier theNanoClock, LongConsumer theSleeper) {
+		myNanoClock = theNanoClock;
+		mySleeper = theSleeper;
+	}
+
+	/**
+	 * Records a successfully processed chunk and blocks the calling thread for as long as needed to keep the
+	 * instance under its permitted rate.
+	 */
+	public void onChunkCompleted(
+			String theInstanceId, int theMaxResourcesPerSecond, int theRecordsProcessed, long theElapsedMillis) {
+		InstanceThrottle throttle = getThrottle(theInstanceId, theMaxResourcesPerSecond);
+		throttle.adjustForChunk(theRecordsProcessed, theElapsedMillis);
+		long waitNanos = throttle.reserve(theRecordsProcessed, myNanoClock.getAsLong());
+		if (waitNanos > 0) {
+			mySleeper.accept(waitNanos);
+		}
+	}
+
+	/**
+	 * Records a chunk that errored or failed, lowering the permitted rate of the instance.
+	 */
+	public void onChunkFailed(String theInstanceId, int theMaxResourcesPerSecond) {
+		getThrottle(theInstanceId, theMaxResourcesPerSecond).backOff();
+	}
+
+	@VisibleForTesting
+	double getPermittedRate(String theInstanceId) {
+		InstanceThrottle throttle = myInstanceIdToThrottle.get(theInstanceId);
+		return throttle != null ? throttle.myPermittedRate : 0;
+	}
+
+	private InstanceThrottle getThrottle(String theInstanceId, int theMaxResourcesPerSecond) {
+		long now = System.currentTimeMillis();
+		myInstanceIdToThrottle.values().removeIf(t -> now - t.myLastUsedMillis > IDLE_EXPIRY_MILLIS);
+		InstanceThrottle throttle = myInstanceIdToThrottle.computeIfAbsent(
+				theInstanceId, id -> new InstanceThrottle(id, myNanoClock.getAsLong()));
+		throttle.setMaxRate(theMaxResourcesPerSecond);
+		throttle.myLastUsedMillis = now;
+		return throttle;
+	}
+
+	private static void sleep(long theNanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(theNanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class InstanceThrottle {
+		private final String myInstanceId;
+		private double myMaxRate;
+		private double myPermittedRate;
+		private double myFastestMillisPerRecord = Double.MAX_VALUE;
+		private long myNextFreeNanos;
+		private volatile long myLastUsedMillis;
+
+		private InstanceThrottle(String theInstanceId, long theNowNanos) {
+			myInstanceId = theInstanceId;
+			myNextFreeNanos = theNowNanos;
+		}
+
+		synchronized void setMaxRate(double theMaxRate) {
+			if (myMaxRate != theMaxRate) {
+				myMaxRate = theMaxRate;
+				myPermittedRate = theMaxRate;
+			}
+		}
+
+		synchronized void adjustForChunk(int theRecordsProcessed, long theElapsedMillis) {
+			if (theRecordsProcessed <= 0) {
+				return;
+			}
+			double millisPerRecord = (double) theElapsedMillis / theRecordsProcessed;
+			if (millisPerRecord > myFastestMillisPerRecord * SLOW_CHUNK_FACTOR) {
+				backOff();
+			} else {
+				myPermittedRate = Math.min(myMaxRate, myPermittedRate + myMaxRate * RECOVERY_FRACTION);
+			}
+			myFastestMillisPerRecord = Math.min(myFastestMillisPerRecord, millisPerRecord);
+		}
+
+		synchronized void backOff() {
+			double newRate = Math.max(myMaxRate * MIN_RATE_FRACTION, myPermittedRate / 2);
+			if (newRate < myPermittedRate) {
+				ourLog.info(
+						"Lowering permitted throughput of job instance {} from {} to {} resources/sec",
+						myInstanceId,
+						Math.round(myPermittedRate),
+						Math.round(newRate));
+				myPermittedRate = newRate;
+			}
+		}
+
+		/**
+		 * Reserves time for the given number of records and returns how long (in nanos) the caller needs
+		 * to wait before continuing.
+		 */
+		synchronized long reserve(int theRecordsProcessed, long theNowNanos) {
+			long now = theNowNanos;
+			long start = Math.max(now, myNextFreeNanos);
+			myNextFreeNanos = start + (long) (theRecordsProcessed * TimeUnit.SECONDS.toNanos(1) / myPermittedRate);
+			return start - now;
+		}
+	}
+}
@@ -30,6 +30,7 @@ public class ReductionStepChunkProcessingResponse {
 	private List<String> mySuccessfulChunkIds;
 	private List<String> myFailedChunksIds;
 	private boolean myIsSuccessful;
+	private int myConsumedChunkCount;
 
 	public ReductionStepChunkProcessingResponse(boolean theDefaultSuccessValue) {
 		mySuccessfulChunkIds = new ArrayList<>();
@@ -61,6 +62,17 @@ public class ReductionStepChunkProcessingResponse {
 		myFailedChunksIds.add(theWorChunk.getId());
 	}
 
+	/**
+	 * The number of chunks read from the reduction step so far, regardless of outcome
+	 */
+	public int getConsumedChunkCount() {
+		return myConsumedChunkCount;
+	}
+
+	public void incrementConsumedChunkCount() {
+		myConsumedChunkCount++;
+	}
+
 	public boolean isSuccessful() {
 		return myIsSuccessful;
 	}
@@ -41,6 +41,7 @@ import ca.uhn.fhir.jpa.model.sched.ISchedulerService;
 import ca.uhn.fhir.jpa.model.sched.ScheduledJobDefinition;
 import ca.uhn.fhir.model.api.IModelJson;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.StopWatch;
 import com.google.common.annotations.VisibleForTesting;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.annotation.Nonnull;
@@ -65,6 +66,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
@@ -77,6 +79,11 @@ import static ca.uhn.fhir.batch2.util.BatchJobOpenTelemetryUtils.JOB_STEP_EXECUT
 public class ReductionStepExecutorServiceImpl implements IReductionStepExecutorService, IHasScheduledJobs {
 	public static final String SCHEDULED_JOB_ID = ReductionStepExecutorScheduledJob.class.getName();
 	private static final Logger ourLog = LoggerFactory.getLogger(ReductionStepExecutorServiceImpl.class);
+	/**
+	 * Number of chunks fed to the reducer between progress log entries
+	 */
+	static final int PROGRESS_LOG_INTERVAL = 1000;
+
 	private final Map<String, JobWorkCursor> myInstanceIdToJobWorkCursor =
 			Collections.synchronizedMap(new LinkedHashMap<>());
 	private final ExecutorService myReducerExecutor;
@@ -257,10 +264,15 @@ public class ReductionStepExecutorServiceImpl implements IReductionStepExecutorS
 			ReductionStepChunkProcessingResponse response) {
 		try {
 			executeInTransactionWithSynchronization(() -> {
+				StopWatch sw = new StopWatch();
+				// Chunks are consumed one at a time as they are streamed so that only the ids (and not
+				// the data) of the chunks already reduced are held in memory
 				try (Stream<WorkChunk> chunkIterator =
 						myJobPersistence.fetchAllWorkChunksForStepStream(instance.getInstanceId(), step.getStepId())) {
-					chunkIterator.forEach(chunk ->
-							processChunk(chunk, instance, parameters, reductionStepWorker, response, theJobWorkCursor));
+					chunkIterator.forEach(chunk -> {
+						processChunk(chunk, instance, parameters, reductionStepWorker, response, theJobWorkCursor);
+						logProgressIfNeeded(instance.getInstanceId(), response, sw);
+					});
 				}
 				return null;
 			});
@@ -320,6 +332,19 @@ public class ReductionStepExecutorServiceImpl implements IReductionStepExecutorS
 		}
 	}
 
+	private void logProgressIfNeeded(
+			String theInstanceId, ReductionStepChunkProcessingResponse theResponse, StopWatch theStopWatch) {
+		int chunkCount = theResponse.getConsumedChunkCount();
+		if (chunkCount > 0 && chunkCount % PROGRESS_LOG_INTERVAL == 0) {
+			ourLog.info(
+					"Reduction step for instance[{}] has consumed {} chunks in {} ({} chunks/sec)",
+					theInstanceId,
+					chunkCount,
+					theStopWatch,
+					theStopWatch.formatThroughput(chunkCount, TimeUnit.SECONDS));
+		}
+	}
+
 	private <T> T executeInTransactionWithSynchronization(Callable<T> runnable) {
 		return myTransactionService
 				.withRequest(null)
@@ -347,6 +372,7 @@ public class ReductionStepExecutorServiceImpl implements IReductionStepExecutorS
 			IReductionStepWorker<PT, IT, OT> theReductionStepWorker,
 			ReductionStepChunkProcessingResponse theResponseObject,
 			JobWorkCursor<PT, IT, OT> theJobWorkCursor) {
+		theResponseObject.incrementConsumedChunkCount();
 
 		/*
 		 * Reduction steps are done inline and only on gated jobs.
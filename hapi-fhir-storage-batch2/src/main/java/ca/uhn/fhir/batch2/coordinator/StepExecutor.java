@@ -21,17 +21,20 @@ package ca.uhn.fhir.batch2.coordinator;
 
 import ca.uhn.fhir.batch2.api.IJobPersistence;
 import ca.uhn.fhir.batch2.api.IJobStepWorker;
+import ca.uhn.fhir.batch2.api.IJobThroughputLimitProvider;
 import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
 import ca.uhn.fhir.batch2.api.JobStepFailedException;
 import ca.uhn.fhir.batch2.api.RetryChunkLaterException;
 import ca.uhn.fhir.batch2.api.RunOutcome;
 import ca.uhn.fhir.batch2.api.StepExecutionDetails;
+import ca.uhn.fhir.batch2.model.JobDefinition;
 import ca.uhn.fhir.batch2.model.WorkChunkCompletionEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkErrorEvent;
 import ca.uhn.fhir.batch2.model.WorkChunkStatusEnum;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.model.api.IModelJson;
 import ca.uhn.fhir.util.Logs;
+import ca.uhn.fhir.util.StopWatch;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 
@@ -42,6 +45,7 @@ import java.util.Date;
 public class StepExecutor {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
 	private final IJobPersistence myJobPersistence;
+	private final JobInstanceThroughputThrottle myThroughputThrottle = new JobInstanceThroughputThrottle();
 
 	public StepExecutor(IJobPersistence theJobPersistence) {
 		myJobPersistence = theJobPersistence;
@@ -51,6 +55,7 @@ public class StepExecutor {
 	 * Calls the worker execution step, and performs error handling logic for jobs that failed.
 	 */
 	<PT extends IModelJson, IT extends IModelJson, OT extends IModelJson> boolean executeStep(
+			JobDefinition<PT> theJobDefinition,
 			StepExecutionDetails<PT, IT> theStepExecutionDetails,
 			IJobStepWorker<PT, IT, OT> theStepWorker,
 			BaseDataSink<PT, IT, OT> theDataSink) {
@@ -58,7 +63,10 @@ public class StepExecutor {
 		String targetStepId = theDataSink.getTargetStep().getStepId();
 		String chunkId = theStepExecutionDetails.getChunkId();
 
+		Integer maxResourcesPerSecond = getMaxResourcesPerSecond(theJobDefinition, theStepExecutionDetails);
+
 		RunOutcome outcome;
+		StopWatch sw = new StopWatch();
 		try {
 			outcome = theStepWorker.run(theStepExecutionDetails, theDataSink);
 			Validate.notNull(outcome, "Step theWorker returned null: %s", theStepWorker.getClass());
@@ -82,6 +90,10 @@ public class StepExecutor {
 			}
 			return false;
 		} catch (Exception e) {
+			if (maxResourcesPerSecond != null) {
+				myThroughputThrottle.onChunkFailed(
+						theStepExecutionDetails.getInstance().getInstanceId(), maxResourcesPerSecond);
+			}
 			if (theStepExecutionDetails.hasAssociatedWorkChunk()) {
 				ourLog.info(
 						"Temporary problem executing job {} step {}, marking chunk {} as retriable ERRORED",
@@ -119,8 +131,25 @@ public class StepExecutor {
 					chunkId, recordsProcessed, recoveredErrorCount, theDataSink.getRecoveredWarning());
 
 			myJobPersistence.onWorkChunkCompletion(event);
+
+			if (maxResourcesPerSecond != null) {
+				myThroughputThrottle.onChunkCompleted(
+						theStepExecutionDetails.getInstance().getInstanceId(),
+						maxResourcesPerSecond,
+						recordsProcessed,
+						sw.getMillis());
+			}
 		}
 
 		return true;
 	}
+
+	private static <PT extends IModelJson> Integer getMaxResourcesPerSecond(
+			JobDefinition<PT> theJobDefinition, StepExecutionDetails<PT, ?> theStepExecutionDetails) {
+		IJobThroughputLimitProvider<PT> throughputLimitProvider = theJobDefinition.getThroughputLimitProvider();
+		if (throughputLimitProvider == null) {
+			return null;
+		}
+		return throughputLimitProvider.getMaxResourcesPerSecond(theStepExecutionDetails.getParameters());
+	}
 }
@@ -104,7 +104,7 @@ public class WorkChunkProcessor {
 		StepExecutionDetails<PT, IT> stepExecutionDetails = stepExecutionDetailsOpt.get();
 
 		// execute the step
-		boolean success = myStepExecutor.executeStep(stepExecutionDetails, worker, dataSink);
+		boolean success = myStepExecutor.executeStep(jobDefinition, stepExecutionDetails, worker, dataSink);
 
 		// return results with data sink
 		return new JobStepExecutorOutput<>(success, dataSink);
@@ -55,6 +55,18 @@ public class ChunkRangeJson implements IModelJson {
 	@JsonProperty("partitionId")
 	private RequestPartitionId myPartitionId;
 
+	/**
+	 * If set, only resources of {@link #getResourceType()} with a PID in the range
+	 * [startPid, endPid) are included.
+	 */
+	@Nullable
+	@JsonProperty("startPid")
+	private Long myStartPid;
+
+	@Nullable
+	@JsonProperty("endPid")
+	private Long myEndPid;
+
 	public ChunkRangeJson() {}
 
 	public ChunkRangeJson(@Nonnull Date theStart, @Nonnull Date theEnd) {
@@ -101,4 +113,24 @@ public class ChunkRangeJson implements IModelJson {
 		myPartitionId = thePartitionId;
 		return this;
 	}
+
+	@Nullable
+	public Long getStartPid() {
+		return myStartPid;
+	}
+
+	@Nullable
+	public Long getEndPid() {
+		return myEndPid;
+	}
+
+	public ChunkRangeJson setPidRange(@Nullable Long theStartPid, @Nullable Long theEndPid) {
+		myStartPid = theStartPid;
+		myEndPid = theEndPid;
+		return this;
+	}
+
+	public boolean hasPidRange() {
+		return myStartPid != null && myEndPid != null;
+	}
 }
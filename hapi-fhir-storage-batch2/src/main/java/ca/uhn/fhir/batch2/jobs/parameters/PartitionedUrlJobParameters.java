@@ -24,6 +24,7 @@ import ca.uhn.fhir.model.api.IModelJson;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.Min;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
@@ -45,6 +46,11 @@ public class PartitionedUrlJobParameters implements IModelJson {
 	@JsonProperty("partitionedUrl")
 	private List<PartitionedUrl> myPartitionedUrls;
 
+	@JsonProperty("maxResourcesPerSecond")
+	@Min(1)
+	@Nullable
+	private Integer myMaxResourcesPerSecond;
+
 	public void setRequestPartitionId(@Nullable RequestPartitionId theRequestPartitionId) {
 		myRequestPartitionId = theRequestPartitionId;
 	}
@@ -63,6 +69,27 @@ public class PartitionedUrlJobParameters implements IModelJson {
 		return myBatchSize;
 	}
 
+	/**
+	 * If set, caps the rate (in resources per second) at which this server processes the work chunks of
+	 * the job instance. The effective rate is lowered below this cap when chunks slow down or fail.
+	 * Only applies to jobs whose definition registers a
+	 * {@link ca.uhn.fhir.batch2.model.JobDefinition.Builder#throughputLimitProvider(ca.uhn.fhir.batch2.api.IJobThroughputLimitProvider) throughput limit provider}.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setMaxResourcesPerSecond(@Nullable Integer theMaxResourcesPerSecond) {
+		myMaxResourcesPerSecond = theMaxResourcesPerSecond;
+	}
+
+	/**
+	 * @see #setMaxResourcesPerSecond(Integer)
+	 * @since 7.6.0
+	 */
+	@Nullable
+	public Integer getMaxResourcesPerSecond() {
+		return myMaxResourcesPerSecond;
+	}
+
 	public List<PartitionedUrl> getPartitionedUrls() {
 		if (myPartitionedUrls == null) {
 			myPartitionedUrls = new ArrayList<>();
@@ -38,6 +38,22 @@ public class ChunkProducer implements IIdChunkProducer<ChunkRangeJson> {
 	public IResourcePidStream fetchResourceIdStream(ChunkRangeJson theData) {
 		String theUrl = theData.getUrl();
 		RequestPartitionId targetPartitionId = theData.getPartitionId();
+		if (theData.hasPidRange()) {
+			ourLog.info(
+					"Fetching resource ID chunk in partition {} for type {} - PID range {} - {}",
+					targetPartitionId,
+					theData.getResourceType(),
+					theData.getStartPid(),
+					theData.getEndPid());
+			return myBatch2DaoSvc.fetchResourceIdStreamForPidRange(
+					theData.getStart(),
+					theData.getEnd(),
+					targetPartitionId,
+					theData.getResourceType(),
+					theData.getStartPid(),
+					theData.getEndPid());
+		}
+
 		ourLog.info(
 				"Fetching resource ID chunk in partition {} for URL {} - Range {} - {}",
 				targetPartitionId,
@@ -28,13 +28,17 @@ import ca.uhn.fhir.batch2.api.VoidModel;
 import ca.uhn.fhir.batch2.jobs.chunk.ChunkRangeJson;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrl;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrlJobParameters;
+import ca.uhn.fhir.jpa.api.svc.IBatch2DaoSvc;
 import ca.uhn.fhir.util.Logs;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.thymeleaf.util.StringUtils;
 
 import java.util.Date;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import static ca.uhn.fhir.batch2.util.Batch2Utils.BATCH_START_DATE;
 
@@ -42,6 +46,35 @@ public class GenerateRangeChunksStep<PT extends PartitionedUrlJobParameters>
 		implements IFirstJobStepWorker<PT, ChunkRangeJson> {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
 
+	/**
+	 * The approximate number of resources in each PID range chunk
+	 */
+	public static final int DEFAULT_RESOURCES_PER_PID_RANGE = 10000;
+
+	private static final Pattern BARE_TYPE_URL = Pattern.compile("^[A-Z][A-Za-z]+\\?$");
+
+	@Nullable
+	private final IBatch2DaoSvc myBatch2DaoSvc;
+
+	private final int myResourcesPerPidRange;
+
+	/**
+	 * Constructor which creates one chunk per URL
+	 */
+	public GenerateRangeChunksStep() {
+		this(null, DEFAULT_RESOURCES_PER_PID_RANGE);
+	}
+
+	/**
+	 * Constructor which splits URLs that select every resource of a type (e.g. <code>Patient?</code>)
+	 * into chunks covering contiguous PID ranges, if the DAO service supports this. Each chunk then
+	 * only carries its range, and a failed chunk can be retried without redoing the rest of the type.
+	 */
+	public GenerateRangeChunksStep(@Nullable IBatch2DaoSvc theBatch2DaoSvc, int theResourcesPerPidRange) {
+		myBatch2DaoSvc = theBatch2DaoSvc;
+		myResourcesPerPidRange = theResourcesPerPidRange;
+	}
+
 	@Nonnull
 	@Override
 	public RunOutcome run(
@@ -57,10 +90,29 @@ public class GenerateRangeChunksStep<PT extends PartitionedUrlJobParameters>
 
 		if (!partitionedUrls.isEmpty()) {
 			partitionedUrls.forEach(partitionedUrl -> {
-				ChunkRangeJson chunkRangeJson = new ChunkRangeJson(start, end)
-						.setUrl(partitionedUrl.getUrl())
-						.setPartitionId(partitionedUrl.getRequestPartitionId());
-				sendChunk(chunkRangeJson, theDataSink);
+				List<Pair<Long, Long>> pidRanges = fetchPidRanges(start, end, partitionedUrl);
+				if (pidRanges == null) {
+					ChunkRangeJson chunkRangeJson = new ChunkRangeJson(start, end)
+							.setUrl(partitionedUrl.getUrl())
+							.setPartitionId(partitionedUrl.getRequestPartitionId());
+					sendChunk(chunkRangeJson, theDataSink);
+					return;
+				}
+
+				String resourceType = getResourceType(partitionedUrl.getUrl());
+				for (Pair<Long, Long> pidRange : pidRanges) {
+					ChunkRangeJson chunkRangeJson = new ChunkRangeJson(start, end)
+							.setUrl(partitionedUrl.getUrl())
+							.setResourceType(resourceType)
+							.setPartitionId(partitionedUrl.getRequestPartitionId())
+							.setPidRange(pidRange.getLeft(), pidRange.getRight());
+					sendChunk(chunkRangeJson, theDataSink);
+				}
+				ourLog.info(
+						"Split {} for partition {} into {} PID range chunks",
+						partitionedUrl.getUrl(),
+						partitionedUrl.getRequestPartitionId(),
+						pidRanges.size());
 			});
 			return RunOutcome.SUCCESS;
 		}
@@ -70,6 +122,24 @@ public class GenerateRangeChunksStep<PT extends PartitionedUrlJobParameters>
 		return RunOutcome.SUCCESS;
 	}
 
+	@Nullable
+	private List<Pair<Long, Long>> fetchPidRanges(Date theStart, Date theEnd, PartitionedUrl thePartitionedUrl) {
+		String url = thePartitionedUrl.getUrl();
+		if (myBatch2DaoSvc == null || url == null || !BARE_TYPE_URL.matcher(url).matches()) {
+			return null;
+		}
+		return myBatch2DaoSvc.fetchResourcePidRanges(
+				theStart,
+				theEnd,
+				thePartitionedUrl.getRequestPartitionId(),
+				getResourceType(url),
+				myResourcesPerPidRange);
+	}
+
+	private static String getResourceType(String theUrl) {
+		return theUrl.substring(0, theUrl.indexOf('?'));
+	}
+
 	private void sendChunk(ChunkRangeJson theData, IJobDataSink<ChunkRangeJson> theDataSink) {
 		String url = theData.getUrl();
 		ourLog.trace(
@@ -41,10 +41,13 @@ import org.slf4j.Logger;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class JobInstanceProcessor {
 	private static final Logger ourLog = Logs.getBatchTroubleshootingLog();
@@ -52,6 +55,11 @@ public class JobInstanceProcessor {
 
 	// 10k; we want to get as many as we can
 	private static final int WORK_CHUNK_METADATA_BATCH_SIZE = 10000;
+	/**
+	 * The number of READY chunks moved to QUEUED with a single statement
+	 */
+	private static final int ENQUEUE_BATCH_SIZE = 100;
+
 	private final IJobPersistence myJobPersistence;
 	private final BatchJobSender myBatchJobSender;
 	private final JobChunkProgressAccumulator myProgressAccumulator;
@@ -295,19 +303,18 @@ public class JobInstanceProcessor {
 		Iterator<WorkChunkMetadata> iter = getReadyChunks();
 
 		int counter = 0;
+		List<WorkChunkMetadata> batch = new ArrayList<>(ENQUEUE_BATCH_SIZE);
 		while (iter.hasNext()) {
-			WorkChunkMetadata metadata = iter.next();
-
-			/*
-			 * For each chunk id
-			 * * Move to QUEUE'd
-			 * * Send to topic
-			 * * flush changes
-			 * * commit
-			 */
-			updateChunkAndSendToQueue(metadata);
+			batch.add(iter.next());
 			counter++;
+
+			if (batch.size() == ENQUEUE_BATCH_SIZE) {
+				updateChunksAndSendToQueue(batch);
+				batch.clear();
+			}
 		}
+		updateChunksAndSendToQueue(batch);
+
 		ourLog.debug(
 				"Encountered {} READY work chunks for job {} of type {}",
 				counter,
@@ -316,29 +323,39 @@ public class JobInstanceProcessor {
 	}
 
 	/**
-	 * Updates the Work Chunk and sends it to the queue.
-	 *
+	 * Updates a batch of Work Chunks and sends them to the queue.
+	 * <p>
+	 * For each batch of chunks
+	 * * Move to QUEUE'd
+	 * * Send to topic
+	 * * flush changes
+	 * * commit
+	 * <p>
 	 * Because ReductionSteps are done inline by the maintenance pass,
 	 * those will not be sent to the queue (but they will still have their
 	 * status updated from READY -> QUEUED).
-	 *
-	 * Returns true after processing.
 	 */
-	private void updateChunkAndSendToQueue(WorkChunkMetadata theChunk) {
-		String chunkId = theChunk.getId();
-		myJobPersistence.enqueueWorkChunkForProcessing(chunkId, updated -> {
-			ourLog.info("Updated {} workchunk with id {}", updated, chunkId);
-			if (updated == 1) {
-				sendNotification(theChunk);
-			} else {
-				// means the work chunk is likely already gone...
-				// we'll log and skip it. If it's still in the DB, the next pass
-				// will pick it up. Otherwise, it's no longer important
-				ourLog.error(
-						"Job Instance {} failed to transition work chunk with id {} from READY to QUEUED; found {}, expected 1; skipping work chunk.",
-						theChunk.getInstanceId(),
-						theChunk.getId(),
-						updated);
+	private void updateChunksAndSendToQueue(List<WorkChunkMetadata> theChunks) {
+		if (theChunks.isEmpty()) {
+			return;
+		}
+
+		List<String> chunkIds = theChunks.stream().map(WorkChunkMetadata::getId).collect(Collectors.toList());
+		myJobPersistence.enqueueWorkChunksForProcessing(chunkIds, enqueuedIds -> {
+			ourLog.info("Updated {} of {} workchunks to QUEUED", enqueuedIds.size(), theChunks.size());
+			Set<String> enqueued = new HashSet<>(enqueuedIds);
+			for (WorkChunkMetadata chunk : theChunks) {
+				if (enqueued.contains(chunk.getId())) {
+					sendNotification(chunk);
+				} else {
+					// means the work chunk is likely already gone...
+					// we'll log and skip it. If it's still in the DB, the next pass
+					// will pick it up. Otherwise, it's no longer important
+					ourLog.error(
+							"Job Instance {} failed to transition work chunk with id {} from READY to QUEUED; skipping work chunk.",
+							chunk.getInstanceId(),
+							chunk.getId());
+				}
 			}
 		});
 	}
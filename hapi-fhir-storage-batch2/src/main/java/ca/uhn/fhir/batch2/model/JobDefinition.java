@@ -22,6 +22,7 @@ package ca.uhn.fhir.batch2.model;
 import ca.uhn.fhir.batch2.api.IJobCompletionHandler;
 import ca.uhn.fhir.batch2.api.IJobParametersValidator;
 import ca.uhn.fhir.batch2.api.IJobStepWorker;
+import ca.uhn.fhir.batch2.api.IJobThroughputLimitProvider;
 import ca.uhn.fhir.batch2.api.IReductionStepWorker;
 import ca.uhn.fhir.batch2.api.VoidModel;
 import ca.uhn.fhir.context.ConfigurationException;
@@ -52,6 +53,7 @@ public class JobDefinition<PT extends IModelJson> {
 	private final List<String> myStepIds;
 	private final IJobCompletionHandler<PT> myCompletionHandler;
 	private final IJobCompletionHandler<PT> myErrorHandler;
+	private final IJobThroughputLimitProvider<PT> myThroughputLimitProvider;
 
 	/**
 	 * Constructor
@@ -65,7 +67,8 @@ public class JobDefinition<PT extends IModelJson> {
 			IJobParametersValidator<PT> theParametersValidator,
 			boolean theGatedExecution,
 			IJobCompletionHandler<PT> theCompletionHandler,
-			IJobCompletionHandler<PT> theErrorHandler) {
+			IJobCompletionHandler<PT> theErrorHandler,
+			IJobThroughputLimitProvider<PT> theThroughputLimitProvider) {
 		Validate.isTrue(theJobDefinitionId.length() <= ID_MAX_LENGTH, "Maximum ID length is %d", ID_MAX_LENGTH);
 		Validate.notBlank(theJobDefinitionId, "No job definition ID supplied");
 		Validate.notBlank(theJobDescription, "No job description supplied");
@@ -81,6 +84,7 @@ public class JobDefinition<PT extends IModelJson> {
 		myGatedExecution = theGatedExecution;
 		myCompletionHandler = theCompletionHandler;
 		myErrorHandler = theErrorHandler;
+		myThroughputLimitProvider = theThroughputLimitProvider;
 	}
 
 	@Nullable
@@ -93,6 +97,11 @@ public class JobDefinition<PT extends IModelJson> {
 		return myErrorHandler;
 	}
 
+	@Nullable
+	public IJobThroughputLimitProvider<PT> getThroughputLimitProvider() {
+		return myThroughputLimitProvider;
+	}
+
 	@Nullable
 	public IJobParametersValidator<PT> getParametersValidator() {
 		return myParametersValidator;
@@ -178,6 +187,7 @@ public class JobDefinition<PT extends IModelJson> {
 		private boolean myGatedExecution;
 		private IJobCompletionHandler<PT> myCompletionHandler;
 		private IJobCompletionHandler<PT> myErrorHandler;
+		private IJobThroughputLimitProvider<PT> myThroughputLimitProvider;
 
 		Builder() {
 			mySteps = new ArrayList<>();
@@ -193,7 +203,8 @@ public class JobDefinition<PT extends IModelJson> {
 				@Nullable IJobParametersValidator<PT> theParametersValidator,
 				boolean theGatedExecution,
 				IJobCompletionHandler<PT> theCompletionHandler,
-				IJobCompletionHandler<PT> theErrorHandler) {
+				IJobCompletionHandler<PT> theErrorHandler,
+				IJobThroughputLimitProvider<PT> theThroughputLimitProvider) {
 			mySteps = theSteps;
 			myJobDefinitionId = theJobDefinitionId;
 			myJobDefinitionVersion = theJobDefinitionVersion;
@@ -204,6 +215,7 @@ public class JobDefinition<PT extends IModelJson> {
 			myGatedExecution = theGatedExecution;
 			myCompletionHandler = theCompletionHandler;
 			myErrorHandler = theErrorHandler;
+			myThroughputLimitProvider = theThroughputLimitProvider;
 		}
 
 		/**
@@ -249,7 +261,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myThroughputLimitProvider);
 		}
 
 		/**
@@ -278,7 +291,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myThroughputLimitProvider);
 		}
 
 		/**
@@ -304,7 +318,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myThroughputLimitProvider);
 		}
 
 		public <OT extends IModelJson> Builder<PT, OT> addFinalReducerStep(
@@ -328,7 +343,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myThroughputLimitProvider);
 		}
 
 		public JobDefinition<PT> build() {
@@ -342,7 +358,8 @@ public class JobDefinition<PT extends IModelJson> {
 					myParametersValidator,
 					myGatedExecution,
 					myCompletionHandler,
-					myErrorHandler);
+					myErrorHandler,
+					myThroughputLimitProvider);
 		}
 
 		public Builder<PT, NIT> setJobDescription(String theJobDescription) {
@@ -448,6 +465,18 @@ public class JobDefinition<PT extends IModelJson> {
 			myErrorHandler = theErrorHandler;
 			return this;
 		}
+
+		/**
+		 * Supplies an optional callback that reads the maximum throughput of an instance from its
+		 * parameters. Work chunks of instances which have a maximum are paced to stay under it.
+		 *
+		 * @since 7.6.0
+		 */
+		public Builder<PT, NIT> throughputLimitProvider(IJobThroughputLimitProvider<PT> theThroughputLimitProvider) {
+			Validate.isTrue(myThroughputLimitProvider == null, "Can not supply multiple throughput limit providers");
+			myThroughputLimitProvider = theThroughputLimitProvider;
+			return this;
+		}
 	}
 
 	public static Builder<IModelJson, VoidModel> newBuilder() {
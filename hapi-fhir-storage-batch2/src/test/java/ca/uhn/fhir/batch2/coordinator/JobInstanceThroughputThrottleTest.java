@@ -0,0 +1,76 @@
+package ca.uhn.fhir.batch2.coordinator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JobInstanceThroughputThrottleTest {
+	private static final String INSTANCE_ID = "instance-id";
+
+	private final List<Long> mySleeps = new ArrayList<>();
+	private long myNowNanos = 0;
+	private final JobInstanceThroughputThrottle mySvc = new JobInstanceThroughputThrottle(() -> myNowNanos, nanos -> {
+		mySleeps.add(nanos);
+		myNowNanos += nanos;
+	});
+
+	@Test
+	public void testFailedChunk_halvesRateDownToMinimum() {
+		mySvc.onChunkFailed(INSTANCE_ID, 1000);
+		assertEquals(500, mySvc.getPermittedRate(INSTANCE_ID));
+
+		for (int i = 0; i < 10; i++) {
+			mySvc.onChunkFailed(INSTANCE_ID, 1000);
+		}
+		assertEquals(100, mySvc.getPermittedRate(INSTANCE_ID));
+	}
+
+	@Test
+	public void testSlowChunk_lowersRate_normalChunkRecovers() {
+		// 1000 records in 100ms - the first chunk sets the baseline
+		mySvc.onChunkCompleted(INSTANCE_ID, 100000, 1000, 100);
+		assertEquals(100000, mySvc.getPermittedRate(INSTANCE_ID));
+
+		// 1000 records in 300ms is more than twice as slow
+		mySvc.onChunkCompleted(INSTANCE_ID, 100000, 1000, 300);
+		assertEquals(50000, mySvc.getPermittedRate(INSTANCE_ID));
+
+		// back to normal speed
+		mySvc.onChunkCompleted(INSTANCE_ID, 100000, 1000, 120);
+		assertEquals(60000, mySvc.getPermittedRate(INSTANCE_ID));
+	}
+
+	@Test
+	public void testChangedMaximum_resetsRate() {
+		mySvc.onChunkFailed(INSTANCE_ID, 1000);
+		assertEquals(500, mySvc.getPermittedRate(INSTANCE_ID));
+
+		mySvc.onChunkFailed(INSTANCE_ID, 4000);
+		assertEquals(2000, mySvc.getPermittedRate(INSTANCE_ID));
+	}
+
+	@Test
+	public void testCompletedChunks_arePaced() {
+		// Each chunk of 10 records at 100/sec reserves 100ms, so every chunk after the first waits for the one before
+		mySvc.onChunkCompleted(INSTANCE_ID, 100, 10, 1);
+		mySvc.onChunkCompleted(INSTANCE_ID, 100, 10, 1);
+		mySvc.onChunkCompleted(INSTANCE_ID, 100, 10, 1);
+
+		long expected = TimeUnit.MILLISECONDS.toNanos(100);
+		assertThat(mySleeps).containsExactly(expected, expected);
+	}
+
+	@Test
+	public void testCompletedChunks_afterIdlePeriod_areNotPaced() {
+		mySvc.onChunkCompleted(INSTANCE_ID, 100, 10, 1);
+		myNowNanos += TimeUnit.SECONDS.toNanos(1);
+		mySvc.onChunkCompleted(INSTANCE_ID, 100, 10, 1);
+
+		assertThat(mySleeps).isEmpty();
+	}
+}
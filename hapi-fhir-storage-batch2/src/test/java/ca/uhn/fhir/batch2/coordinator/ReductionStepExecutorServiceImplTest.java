@@ -171,6 +171,7 @@ public class ReductionStepExecutorServiceImplTest {
 		}
 
 		assertTrue(result.isSuccessful());
+		assertEquals(chunkIds.size(), result.getConsumedChunkCount());
 		ArgumentCaptor<List<String>> chunkIdCaptor = ArgumentCaptor.forClass(List.class);
 		verify(myJobPersistence).markWorkChunksWithStatusAndWipeData(eq(INSTANCE_ID),
 			chunkIdCaptor.capture(), eq(WorkChunkStatusEnum.COMPLETED), eq(null));
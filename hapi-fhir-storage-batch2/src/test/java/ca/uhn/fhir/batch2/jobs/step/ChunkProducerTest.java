@@ -17,6 +17,7 @@ import static ca.uhn.fhir.batch2.util.Batch2Utils.BATCH_START_DATE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,4 +51,24 @@ public class ChunkProducerTest {
 		assertThat(urlCaptor.getValue()).isEqualTo(url);
 
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void fetchResourceIdStream_withPidRange_fetchesRange() {
+		// setup
+		RequestPartitionId partitionId = RequestPartitionId.fromPartitionId(1);
+		ChunkRangeJson chunkRangeJson = new ChunkRangeJson(BATCH_START_DATE, new Date())
+			.setPartitionId(partitionId)
+			.setUrl("Patient?")
+			.setResourceType("Patient")
+			.setPidRange(100L, 200L);
+		IResourcePidStream stream = mock(IResourcePidStream.class);
+		when(myBatch2DaoSvc.fetchResourceIdStreamForPidRange(chunkRangeJson.getStart(), chunkRangeJson.getEnd(), partitionId, "Patient", 100L, 200L)).thenReturn(stream);
+
+		// test
+		IResourcePidStream actualStream = myChunkProducer.fetchResourceIdStream(chunkRangeJson);
+
+		// verify
+		assertThat(actualStream).isSameAs(stream);
+		verify(myBatch2DaoSvc, never()).fetchResourceIdStream(any(), any(), any(), any());
+	}
+}
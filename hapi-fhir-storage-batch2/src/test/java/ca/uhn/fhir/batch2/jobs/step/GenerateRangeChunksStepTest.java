@@ -7,8 +7,11 @@ import ca.uhn.fhir.batch2.jobs.chunk.ChunkRangeJson;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrlJobParameters;
 import ca.uhn.fhir.batch2.jobs.parameters.PartitionedUrl;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.svc.IBatch2DaoSvc;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -21,6 +24,11 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -85,4 +93,34 @@ public class GenerateRangeChunksStepTest {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void run_withPidRangeSupport_splitsBareTypeUrlsIntoPidRanges() {
+		IBatch2DaoSvc batch2DaoSvc = mock(IBatch2DaoSvc.class);
+		GenerateRangeChunksStep<PartitionedUrlJobParameters> step = new GenerateRangeChunksStep<>(batch2DaoSvc, 100);
+		RequestPartitionId partitionId = RequestPartitionId.fromPartitionId(1);
+		PartitionedUrlJobParameters parameters = new PartitionedUrlJobParameters();
+		parameters.addPartitionedUrl(new PartitionedUrl().setUrl("Patient?").setRequestPartitionId(partitionId));
+		parameters.addPartitionedUrl(new PartitionedUrl().setUrl("Observation?status=final").setRequestPartitionId(partitionId));
+
+		when(myStepExecutionDetails.getParameters()).thenReturn(parameters);
+		when(batch2DaoSvc.fetchResourcePidRanges(any(), any(), eq(partitionId), eq("Patient"), eq(100))).thenReturn(List.of(Pair.of(1L, 50L), Pair.of(50L, 99L)));
+		step.run(myStepExecutionDetails, myJobDataSink);
+
+		ArgumentCaptor<ChunkRangeJson> captor = ArgumentCaptor.forClass(ChunkRangeJson.class);
+		verify(myJobDataSink, times(3)).accept(captor.capture());
+		List<ChunkRangeJson> chunks = captor.getAllValues();
+
+		assertThat(chunks.get(0).getResourceType()).isEqualTo("Patient");
+		assertThat(chunks.get(0).getPartitionId()).isEqualTo(partitionId);
+		assertThat(chunks.get(0).getStartPid()).isEqualTo(1L);
+		assertThat(chunks.get(0).getEndPid()).isEqualTo(50L);
+		assertThat(chunks.get(1).getStartPid()).isEqualTo(50L);
+		assertThat(chunks.get(1).getEndPid()).isEqualTo(99L);
+
+		// URLs with search parameters are still fetched with a single search
+		assertThat(chunks.get(2).getUrl()).isEqualTo("Observation?status=final");
+		assertThat(chunks.get(2).hasPidRange()).isFalse();
+		verify(batch2DaoSvc, never()).fetchResourcePidRanges(any(), any(), any(), eq("Observation"), anyInt());
+	}
+}
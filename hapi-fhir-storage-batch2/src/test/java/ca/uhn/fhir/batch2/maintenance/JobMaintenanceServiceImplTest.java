@@ -69,6 +69,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -271,10 +272,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 				return getPageOfData(new ArrayList<>(chunks));
 			});
 		doAnswer(a -> {
-			Consumer<Integer> callback = a.getArgument(1);
-			callback.accept(1);
+			Consumer<List<String>> callback = a.getArgument(1);
+			callback.accept(a.getArgument(0));
 			return null;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 		stubUpdateInstanceCallback(instance1);
 
 		// Execute
@@ -434,7 +435,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// verify never updated (should remain in ready state)
 		verify(myJobPersistence, never()).fetchAllWorkChunkMetadataForJobInStates(any(), anyString(), any());
-		verify(myJobPersistence, never()).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, never()).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, never()).send(any());
 		verify(myReductionStepExecutorService)
 			.triggerReductionStep(anyString(), any());
@@ -450,10 +451,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// when
 		doAnswer(args -> {
-			Consumer<Integer> consumer = args.getArgument(1);
-			consumer.accept(1);
-			return 1;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+			Consumer<List<String>> consumer = args.getArgument(1);
+			consumer.accept(args.getArgument(0));
+			return null;
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 
 		Page<WorkChunkMetadata> page = getPageOfData(chunks);
 		when(myJobPersistence.fetchAllWorkChunkMetadataForJobInStates(any(Pageable.class), eq(INSTANCE_ID), any())).thenReturn(page);
@@ -462,7 +463,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		runEnqueueReadyChunksTest(chunks, createJobDefinition());
 
 		// verify
-		verify(myJobPersistence, times(2)).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, times(1)).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, times(2)).send(myMessageCaptor.capture());
 		List<Message<JobWorkNotification>> sentMessages = myMessageCaptor.getAllValues();
 		for (Message<JobWorkNotification> msg : sentMessages) {
@@ -486,10 +487,10 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 
 		// when
 		doAnswer(args -> {
-			Consumer<Integer> consumer = args.getArgument(1);
-			consumer.accept(0); // nothing processed
-			return 1;
-		}).when(myJobPersistence).enqueueWorkChunkForProcessing(anyString(), any());
+			Consumer<List<String>> consumer = args.getArgument(1);
+			consumer.accept(List.of()); // nothing processed
+			return null;
+		}).when(myJobPersistence).enqueueWorkChunksForProcessing(anyList(), any());
 		doAnswer(args -> {
 			IJobPersistence.JobInstanceUpdateCallback callback = args.getArgument(1);
 
@@ -506,7 +507,7 @@ public class JobMaintenanceServiceImplTest extends BaseBatch2Test {
 		runEnqueueReadyChunksTest(chunks, createJobDefinitionWithReduction());
 
 		// verify
-		verify(myJobPersistence, times(2)).enqueueWorkChunkForProcessing(anyString(), any());
+		verify(myJobPersistence, times(1)).enqueueWorkChunksForProcessing(anyList(), any());
 		verify(myWorkChannelProducer, never()).send(any());
 
 		List<ILoggingEvent> events = myLogCapture.getLogEvents();
@@ -45,6 +45,7 @@ public class MdmClearAppCtx {
 				.setJobDescription("Clear mdm links and golden resrouces")
 				.setJobDefinitionVersion(1)
 				.setParametersType(MdmClearJobParameters.class)
+				.throughputLimitProvider(MdmClearJobParameters::getMaxResourcesPerSecond)
 				.setParametersValidator(MdmJobParametersValidator(theDaoRegistry, theMdmSettings))
 				.gatedExecution()
 				.addFirstStep(
@@ -50,6 +50,7 @@ public class MdmSubmitAppCtx {
 				.setJobDescription("MDM Batch Submission")
 				.setJobDefinitionVersion(1)
 				.setParametersType(MdmSubmitJobParameters.class)
+				.throughputLimitProvider(MdmSubmitJobParameters::getMaxResourcesPerSecond)
 				.setParametersValidator(
 						mdmSubmitJobParametersValidator(theMatchUrlService, theFhirContext, theMdmSettings))
 				.addFirstStep(
@@ -181,6 +181,31 @@ public class JpaStorageSettings extends StorageSettings {
 	private boolean myExpungeEnabled;
 	private boolean myDeleteExpungeEnabled;
 	private int myExpungeBatchSize = DEFAULT_EXPUNGE_BATCH_SIZE;
+	/**
+	 * Since 7.6.0
+	 */
+	private boolean myDeleteExpungeUseTempTable = false;
+	/**
+	 * Since 7.6.0
+	 */
+	private boolean myExpungeEverythingFastPathEnabled = false;
+	/**
+	 * Since 7.6.0
+	 */
+	private boolean myTerminologyHierarchyIndexEnabled = false;
+	/**
+	 * Since 7.6.0
+	 */
+	private int myDeferredTerminologyLinkStorageThreadCount = 1;
+	/**
+	 * Since 7.6.0
+	 */
+	private int myPreExpandedValueSetValidationIndexMaxConcepts = 0;
+	/**
+	 * Since 7.6.0
+	 */
+	private boolean myPreExpandValueSetsUsingBatchJob = false;
+
 	private int myReindexThreadCount;
 	private int myExpungeThreadCount;
 	private Set<String> myBundleTypesAllowedForStorage;
@@ -322,6 +347,10 @@ public class JpaStorageSettings extends StorageSettings {
 	 * Since 7.2.0
 	 */
 	private long myBulkExportFileMaximumSize = DEFAULT_BULK_EXPORT_MAXIMUM_WORK_CHUNK_SIZE;
+	/**
+	 * Since 7.6.0
+	 */
+	private boolean myBulkExportPartitionedPatientCompartmentEnabled = false;
 	/**
 	 * Since 6.4.0
 	 */
@@ -830,6 +859,37 @@ public class JpaStorageSettings extends StorageSettings {
 		myDeferIndexingForCodesystemsOfSize = theDeferIndexingForCodesystemsOfSize;
 	}
 
+	/**
+	 * Once all of the concepts of a large code system (see {@link #getDeferIndexingForCodesystemsOfSize()})
+	 * have been stored, this setting controls the number of threads used to store the parent/child
+	 * links between them. Each thread stores batches of links in its own transaction using JDBC
+	 * batched inserts.
+	 * <p>
+	 * Defaults to 1
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public int getDeferredTerminologyLinkStorageThreadCount() {
+		return myDeferredTerminologyLinkStorageThreadCount;
+	}
+
+	/**
+	 * Once all of the concepts of a large code system (see {@link #getDeferIndexingForCodesystemsOfSize()})
+	 * have been stored, this setting controls the number of threads used to store the parent/child
+	 * links between them. Each thread stores batches of links in its own transaction using JDBC
+	 * batched inserts.
+	 * <p>
+	 * Defaults to 1
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public void setDeferredTerminologyLinkStorageThreadCount(int theDeferredTerminologyLinkStorageThreadCount) {
+		Validate.isTrue(theDeferredTerminologyLinkStorageThreadCount > 0, "Thread count must be positive");
+		myDeferredTerminologyLinkStorageThreadCount = theDeferredTerminologyLinkStorageThreadCount;
+	}
+
 	/**
 	 * Unlike with normal search queries, $everything queries have their _includes loaded by the main search thread and these included results
 	 * are added to the normal search results instead of being added on as extras in a page. This means that they will not appear multiple times
@@ -1541,6 +1601,61 @@ public class JpaStorageSettings extends StorageSettings {
 		myExpungeBatchSize = theExpungeBatchSize;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), DELETE _expunge loads the PIDs being
+	 * expunged into a temporary table once per batch, and then deletes the rows of each dependent table
+	 * by joining against it instead of repeating a literal <code>IN (...)</code> list of every PID
+	 * in each statement. This keeps the statements small and reusable, which avoids bloating the plan cache.
+	 * <p>
+	 * This is currently only supported on PostgreSQL and MS SQL Server. It is ignored on other databases.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isDeleteExpungeUseTempTable() {
+		return myDeleteExpungeUseTempTable;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), DELETE _expunge loads the PIDs being
+	 * expunged into a temporary table. See {@link #isDeleteExpungeUseTempTable()} for details.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setDeleteExpungeUseTempTable(boolean theDeleteExpungeUseTempTable) {
+		myDeleteExpungeUseTempTable = theDeleteExpungeUseTempTable;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the global <code>$expunge</code> operation
+	 * (<code>expungeEverything</code>) uses a faster strategy intended for wiping test and staging environments:
+	 * <ul>
+	 *    <li>On PostgreSQL, all tables are emptied using a single <code>TRUNCATE ... CASCADE</code> statement.
+	 *    Note that this also empties any other table with a foreign key to one of the truncated tables.</li>
+	 *    <li>On other databases, the rows of each table are deleted by {@link #getExpungeThreadCount()} parallel
+	 *    workers, each deleting its own range of primary keys. Tables are still processed one at a time in
+	 *    foreign key order.</li>
+	 * </ul>
+	 * <p>
+	 * TRUNCATE is not used if the operation targets specific partitions, or if fulltext indexing is enabled.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isExpungeEverythingFastPathEnabled() {
+		return myExpungeEverythingFastPathEnabled;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the global <code>$expunge</code> operation
+	 * uses a faster strategy. See {@link #isExpungeEverythingFastPathEnabled()} for details.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setExpungeEverythingFastPathEnabled(boolean theExpungeEverythingFastPathEnabled) {
+		myExpungeEverythingFastPathEnabled = theExpungeEverythingFastPathEnabled;
+	}
+
 	/**
 	 * Should resources be marked as needing reindexing when a
 	 * SearchParameter resource is added or changed. This should generally
@@ -1764,6 +1879,74 @@ public class JpaStorageSettings extends StorageSettings {
 		myStoreMetaSourceInformation = theStoreMetaSourceInformation;
 	}
 
+	/**
+	 * <p>
+	 * When validating a code against a pre-expanded ValueSet, pre-expansions containing up to this
+	 * many concepts are loaded into an in-memory index the first time they are used, and subsequent
+	 * validations against the same ValueSet are answered from memory instead of by querying the
+	 * pre-expansion tables. The index is discarded when the ValueSet is pre-expanded again or when its
+	 * pre-expansion is invalidated.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code 0}, which disables the index.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public int getPreExpandedValueSetValidationIndexMaxConcepts() {
+		return myPreExpandedValueSetValidationIndexMaxConcepts;
+	}
+
+	/**
+	 * <p>
+	 * When validating a code against a pre-expanded ValueSet, pre-expansions containing up to this
+	 * many concepts are loaded into an in-memory index. See
+	 * {@link #getPreExpandedValueSetValidationIndexMaxConcepts()} for details.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code 0}, which disables the index.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public void setPreExpandedValueSetValidationIndexMaxConcepts(int thePreExpandedValueSetValidationIndexMaxConcepts) {
+		myPreExpandedValueSetValidationIndexMaxConcepts = thePreExpandedValueSetValidationIndexMaxConcepts;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, the parent/child links of each stored CodeSystem version are loaded into a
+	 * compact in-memory index the first time they are needed. The index is used to find the codes above
+	 * and below a given code, and to test for subsumption, without walking the hierarchy in the database
+	 * one level at a time. The index is discarded when this server stores, adds to, removes from or
+	 * deletes the CodeSystem version. Changes made by other servers sharing the same database are only
+	 * picked up once the index expires, which happens one hour after it was built.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isTerminologyHierarchyIndexEnabled() {
+		return myTerminologyHierarchyIndexEnabled;
+	}
+
+	/**
+	 * <p>
+	 * If set to {@code true}, the parent/child links of each stored CodeSystem version are loaded into a
+	 * compact in-memory index. See {@link #isTerminologyHierarchyIndexEnabled()} for details.
+	 * </p>
+	 * <p>
+	 * The default value for this setting is {@code false}.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public void setTerminologyHierarchyIndexEnabled(boolean theTerminologyHierarchyIndexEnabled) {
+		myTerminologyHierarchyIndexEnabled = theTerminologyHierarchyIndexEnabled;
+	}
+
 	/**
 	 * <p>
 	 * If set to {@code true}, ValueSets and expansions are stored in terminology tables. This is to facilitate
@@ -2041,6 +2224,32 @@ public class JpaStorageSettings extends StorageSettings {
 		myEnableTaskPreExpandValueSets = theEnableTaskPreExpandValueSets;
 	}
 
+	/**
+	 * If this is enabled (default is <code>false</code>), the task enabled by
+	 * {@link #isEnableTaskPreExpandValueSets()} does not pre-expand ValueSets itself. Instead,
+	 * it starts a batch job that pre-expands each ValueSet in its own work chunk, so that
+	 * ValueSets are pre-expanded in parallel by all of the nodes in the cluster and the
+	 * progress of the pre-expansion can be monitored like any other batch job.
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isPreExpandValueSetsUsingBatchJob() {
+		return myPreExpandValueSetsUsingBatchJob;
+	}
+
+	/**
+	 * If this is enabled (default is <code>false</code>), the task enabled by
+	 * {@link #isEnableTaskPreExpandValueSets()} does not pre-expand ValueSets itself. Instead,
+	 * it starts a batch job that pre-expands each ValueSet in its own work chunk, so that
+	 * ValueSets are pre-expanded in parallel by all of the nodes in the cluster and the
+	 * progress of the pre-expansion can be monitored like any other batch job.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setPreExpandValueSetsUsingBatchJob(boolean thePreExpandValueSetsUsingBatchJob) {
+		myPreExpandValueSetsUsingBatchJob = thePreExpandValueSetsUsingBatchJob;
+	}
+
 	/**
 	 * If this is enabled (this is the default), this server will periodically scan for and try to delete
 	 * stale searches in the database. Otherwise, this server will not.
@@ -2386,6 +2595,40 @@ public class JpaStorageSettings extends StorageSettings {
 		myBulkExportFileMaximumSize = theBulkExportFileMaximumSize;
 	}
 
+	/**
+	 * If enabled, Group and Patient bulk exports split the set of exported patients into partitions of
+	 * {@link #getBulkExportFileMaximumCapacity()} patients, and each partition is processed by its own
+	 * work chunk. The work chunk finds the resources in the compartments of its patients for all
+	 * requested resource types using a single query on the resource link table, instead of one search
+	 * per resource type. This lets large exports spread their work over all batch workers.
+	 * <p>
+	 * Resource types with a <code>_typeFilter</code> or post-fetch filter, and types which are not in
+	 * the patient compartment (e.g. Practitioner and Organization), are still fetched the regular way.
+	 * Note that in this mode, resources referenced from the compartment resources are not included in
+	 * the export, and a resource in the compartments of patients from different partitions is written
+	 * once for each partition.
+	 * </p>
+	 * Default is <code>false</code>.
+	 *
+	 * @since 7.6.0
+	 */
+	public boolean isBulkExportPartitionedPatientCompartmentEnabled() {
+		return myBulkExportPartitionedPatientCompartmentEnabled;
+	}
+
+	/**
+	 * If enabled, Group and Patient bulk exports split the set of exported patients into partitions of
+	 * {@link #getBulkExportFileMaximumCapacity()} patients, and each partition is processed by its own
+	 * work chunk. See {@link #isBulkExportPartitionedPatientCompartmentEnabled()} for details.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setBulkExportPartitionedPatientCompartmentEnabled(
+			boolean theBulkExportPartitionedPatientCompartmentEnabled) {
+		myBulkExportPartitionedPatientCompartmentEnabled = theBulkExportPartitionedPatientCompartmentEnabled;
+	}
+
 	/**
 	 * If this setting is enabled, then gated batch jobs that produce only one chunk will immediately trigger a batch
 	 * maintenance job.  This may be useful for testing, but is not recommended for production use.
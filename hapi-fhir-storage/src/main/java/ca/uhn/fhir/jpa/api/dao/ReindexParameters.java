@@ -19,6 +19,13 @@
  */
 package ca.uhn.fhir.jpa.api.dao;
 
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
 public class ReindexParameters {
 	public static final ReindexSearchParametersEnum REINDEX_SEARCH_PARAMETERS_DEFAULT = ReindexSearchParametersEnum.ALL;
 	public static final String REINDEX_SEARCH_PARAMETERS_DEFAULT_STRING = "ALL";
@@ -28,6 +35,7 @@ public class ReindexParameters {
 	private ReindexSearchParametersEnum myReindexSearchParameters = REINDEX_SEARCH_PARAMETERS_DEFAULT;
 	private OptimizeStorageModeEnum myOptimizeStorage = OPTIMIZE_STORAGE_DEFAULT;
 	private boolean myOptimisticLock = OPTIMISTIC_LOCK_DEFAULT;
+	private Set<String> mySearchParameterNames = Collections.emptySet();
 
 	public boolean isOptimisticLock() {
 		return myOptimisticLock;
@@ -56,6 +64,31 @@ public class ReindexParameters {
 		return this;
 	}
 
+	/**
+	 * If not empty, only the index rows belonging to the named search parameters are
+	 * re-extracted and rewritten, and all other index rows are left untouched. This is only
+	 * applied when {@link #getReindexSearchParameters()} is {@link ReindexSearchParametersEnum#ALL}.
+	 *
+	 * @since 7.6.0
+	 */
+	@Nonnull
+	public Set<String> getSearchParameterNames() {
+		return mySearchParameterNames;
+	}
+
+	/**
+	 * @since 7.6.0
+	 * @see #getSearchParameterNames()
+	 */
+	public ReindexParameters setSearchParameterNames(@Nullable Collection<String> theSearchParameterNames) {
+		if (theSearchParameterNames == null || theSearchParameterNames.isEmpty()) {
+			mySearchParameterNames = Collections.emptySet();
+		} else {
+			mySearchParameterNames = Set.copyOf(theSearchParameterNames);
+		}
+		return this;
+	}
+
 	public enum ReindexSearchParametersEnum {
 		ALL,
 		NONE
@@ -24,10 +24,15 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.pid.IResourcePidList;
 import ca.uhn.fhir.jpa.api.pid.IResourcePidStream;
 import ca.uhn.fhir.jpa.api.pid.ListWrappingPidStream;
+import ca.uhn.fhir.jpa.api.pid.TypedResourcePid;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface IBatch2DaoSvc {
 
@@ -76,4 +81,70 @@ public interface IBatch2DaoSvc {
 		return new ListWrappingPidStream(fetchResourceIdsPage(
 				theStart, theEnd, 20000 /* ResourceIdListStep.DEFAULT_PAGE_SIZE */, theTargetPartitionId, theUrl));
 	}
+
+	/**
+	 * Splits the non-deleted resources of the given type, updated within the given date range and stored in the
+	 * given partition, into contiguous PID ranges which each hold approximately the given number of resources, so
+	 * that they can be fetched with
+	 * {@link #fetchResourceIdStreamForPidRange(Date, Date, RequestPartitionId, String, long, long)}.
+	 *
+	 * @param theStart The start of the date range, must be inclusive.
+	 * @param theEnd   The end of the date range, must be inclusive.
+	 * @param theRequestPartitionId The request partition ID (may be <code>null</code> on non-partitioned systems)
+	 * @param theResourceType The resource type
+	 * @param theResourcesPerRange The approximate number of resources in each range
+	 * @return The ranges as pairs of start (inclusive) and end (exclusive) PIDs, an empty list if there are no
+	 * 		resources of this type, or <code>null</code> if this implementation doesn't support fetching resources
+	 * 		by PID range
+	 * @since 7.6.0
+	 */
+	@Nullable
+	default List<Pair<Long, Long>> fetchResourcePidRanges(
+			Date theStart,
+			Date theEnd,
+			@Nullable RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			int theResourcesPerRange) {
+		return null;
+	}
+
+	/**
+	 * Fetches the IDs of all non-deleted resources of the given type with a PID in the given range, ordered by PID.
+	 * Only called with ranges returned by
+	 * {@link #fetchResourcePidRanges(Date, Date, RequestPartitionId, String, int)}. The default implementation
+	 * filters the stream of every resource of the type, so implementations which return PID ranges should
+	 * override it with a query on the range.
+	 *
+	 * @param theStart The start of the date range, must be inclusive.
+	 * @param theEnd   The end of the date range, must be inclusive.
+	 * @param theRequestPartitionId The request partition ID (may be <code>null</code> on non-partitioned systems)
+	 * @param theResourceType The resource type
+	 * @param theStartPid The start of the PID range, inclusive
+	 * @param theEndPid The end of the PID range, exclusive
+	 * @since 7.6.0
+	 */
+	default IResourcePidStream fetchResourceIdStreamForPidRange(
+			Date theStart,
+			Date theEnd,
+			@Nullable RequestPartitionId theRequestPartitionId,
+			String theResourceType,
+			long theStartPid,
+			long theEndPid) {
+		IResourcePidStream typeStream =
+				fetchResourceIdStream(theStart, theEnd, theRequestPartitionId, theResourceType + "?");
+		return new IResourcePidStream() {
+			@Override
+			public <T> T visitStream(Function<Stream<TypedResourcePid>, T> theCallback) {
+				return typeStream.visitStream(theStream -> theCallback.apply(theStream.filter(t -> {
+					long pid = ((Number) t.id.getId()).longValue();
+					return pid >= theStartPid && pid < theEndPid;
+				})));
+			}
+
+			@Override
+			public RequestPartitionId getRequestPartitionId() {
+				return typeStream.getRequestPartitionId();
+			}
+		};
+	}
 }
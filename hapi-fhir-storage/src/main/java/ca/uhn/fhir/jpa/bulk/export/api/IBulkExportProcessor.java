@@ -23,10 +23,11 @@ import ca.uhn.fhir.jpa.bulk.export.model.ExportPIDIteratorParameters;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
-public interface IBulkExportProcessor<T extends IResourcePersistentId> {
+public interface IBulkExportProcessor<T extends IResourcePersistentId<?>> {
 
 	/**
 	 * For fetching PIDs of resources
@@ -40,4 +41,26 @@ public interface IBulkExportProcessor<T extends IResourcePersistentId> {
 	 * @param theResources - the list of resources to expand
 	 */
 	void expandMdmResources(List<IBaseResource> theResources);
+
+	/**
+	 * For fetching the PIDs of the patients whose compartments are exported by a Group or Patient
+	 * style export (including MDM expanded patients if requested), without applying any
+	 * <code>_typeFilter</code> or <code>_since</code>.
+	 *
+	 * @since 7.6.0
+	 */
+	Iterator<T> getPatientPidIteratorForCompartmentExport(ExportPIDIteratorParameters theParams);
+
+	/**
+	 * For fetching the PIDs of the resources in the compartments of the given patients, for all of the
+	 * {@link ExportPIDIteratorParameters#getRequestedResourceTypes() requested resource types}. If
+	 * <code>Patient</code> is requested, the given patients are returned as well. Only the
+	 * <code>_since</code> and the partition of the parameters are applied.
+	 *
+	 * @param thePatientPids The PIDs of the patients, as returned by
+	 * 	{@link #getPatientPidIteratorForCompartmentExport(ExportPIDIteratorParameters)} (in their string form)
+	 * @since 7.6.0
+	 */
+	Iterator<T> getPatientCompartmentPidIterator(
+			ExportPIDIteratorParameters theParams, Collection<String> thePatientPids);
 }
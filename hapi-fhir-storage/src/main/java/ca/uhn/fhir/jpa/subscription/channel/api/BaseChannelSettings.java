@@ -29,6 +29,8 @@ public abstract class BaseChannelSettings implements IChannelSettings {
 	// init true to match previous behaviour
 	private boolean myUseJacksonMessageConverter = true;
 
+	private boolean myOrderedByMessageKey;
+
 	/**
 	 * Default true.  Used by IChannelNamer to decide how to qualify the channel name.
 	 */
@@ -60,4 +62,27 @@ public abstract class BaseChannelSettings implements IChannelSettings {
 	public void setUseJacksonMessageConverter(boolean theUseJacksonMessageConverter) {
 		myUseJacksonMessageConverter = theUseJacksonMessageConverter;
 	}
+
+	/**
+	 * Default false.  If true, messages sharing the same message key are handled by the same consumer, in the
+	 * order in which they were sent, while messages with different keys are still handled concurrently.  This
+	 * is used by in-memory channels; broker implementations that already partition messages by key may ignore it.
+	 *
+	 * @since 7.6.0
+	 */
+	@Override
+	public boolean isOrderedByMessageKey() {
+		return myOrderedByMessageKey;
+	}
+
+	/**
+	 * Default false.  If true, messages sharing the same message key are handled by the same consumer, in the
+	 * order in which they were sent, while messages with different keys are still handled concurrently.  This
+	 * is used by in-memory channels; broker implementations that already partition messages by key may ignore it.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setOrderedByMessageKey(boolean theOrderedByMessageKey) {
+		myOrderedByMessageKey = theOrderedByMessageKey;
+	}
 }
@@ -23,4 +23,14 @@ public interface IChannelSettings {
 	boolean isQualifyChannelName();
 
 	boolean isUseJacksonMessageConverter();
+
+	/**
+	 * If true, messages sharing the same message key should be handled by the same consumer, in the
+	 * order in which they were sent. Defaults to false.
+	 *
+	 * @since 7.6.0
+	 */
+	default boolean isOrderedByMessageKey() {
+		return false;
+	}
 }
@@ -68,12 +68,21 @@ public class LinkedBlockingChannelFactory implements IChannelFactory {
 		final String channelName = myChannelNamer.getChannelName(theChannelName, theChannelSettings);
 
 		return myChannels.computeIfAbsent(
-				channelName, t -> buildLinkedBlockingChannel(theConcurrentConsumers, channelName));
+				channelName,
+				t -> buildLinkedBlockingChannel(
+						theConcurrentConsumers, channelName, theChannelSettings.isOrderedByMessageKey()));
 	}
 
 	@Nonnull
-	private LinkedBlockingChannel buildLinkedBlockingChannel(int theConcurrentConsumers, String theChannelName) {
+	private LinkedBlockingChannel buildLinkedBlockingChannel(
+			int theConcurrentConsumers, String theChannelName, boolean theOrderedByMessageKey) {
 		String threadNamePrefix = theChannelName + "-";
+		if (theOrderedByMessageKey && theConcurrentConsumers > 1) {
+			MessageKeyPartitionedExecutor partitionedExecutor = new MessageKeyPartitionedExecutor(
+					theConcurrentConsumers, threadNamePrefix, SubscriptionConstants.DELIVERY_EXECUTOR_QUEUE_SIZE);
+			return new LinkedBlockingChannel(theChannelName, partitionedExecutor, partitionedExecutor::getQueueSize);
+		}
+
 		ThreadPoolTaskExecutor threadPoolExecutor = ThreadPoolUtil.newThreadPool(
 				theConcurrentConsumers,
 				theConcurrentConsumers,
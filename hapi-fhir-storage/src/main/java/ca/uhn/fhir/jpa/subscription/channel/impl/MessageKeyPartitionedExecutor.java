@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.channel.impl;
+
+import ca.uhn.fhir.rest.server.messaging.json.BaseJsonMessage;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.Validate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link Executor} for {@link LinkedBlockingChannel} which dispatches every message sharing the same
+ * message key (see {@link BaseJsonMessage#getMessageKeyOrDefault()}) to the same single-threaded worker.
+ * Messages with the same key are therefore handled in the order they were sent, while messages with
+ * different keys are handled concurrently. Messages without a key are distributed round-robin.
+ */
+public class MessageKeyPartitionedExecutor implements Executor {
+
+	private final List<ThreadPoolTaskExecutor> myWorkers;
+	private final AtomicInteger myRoundRobinCounter = new AtomicInteger();
+
+	/**
+	 * Constructor
+	 *
+	 * @param theWorkerCount            The number of single-threaded workers (i.e. partitions)
+	 * @param theThreadNamePrefix       The thread name prefix, must end with a hyphen
+	 * @param theQueueCapacityPerWorker The capacity of the queue of each worker
+	 */
+	public MessageKeyPartitionedExecutor(
+			int theWorkerCount, String theThreadNamePrefix, int theQueueCapacityPerWorker) {
+		Validate.isTrue(theWorkerCount > 0, "theWorkerCount must be greater than 0");
+		myWorkers = new ArrayList<>(theWorkerCount);
+		for (int i = 0; i < theWorkerCount; i++) {
+			myWorkers.add(ThreadPoolUtil.newThreadPool(1, 1, theThreadNamePrefix + i + "-", theQueueCapacityPerWorker));
+		}
+	}
+
+	@Override
+	public void execute(@Nonnull Runnable theTask) {
+		myWorkers.get(getWorkerIndex(theTask)).execute(theTask);
+	}
+
+	int getWorkerIndex(Runnable theTask) {
+		String key = getMessageKeyOrNull(theTask);
+		if (key == null) {
+			return Math.floorMod(myRoundRobinCounter.getAndIncrement(), myWorkers.size());
+		}
+		return Math.floorMod(key.hashCode(), myWorkers.size());
+	}
+
+	/**
+	 * @return the total number of tasks waiting in the queues of all workers
+	 */
+	public int getQueueSize() {
+		int retVal = 0;
+		for (ThreadPoolTaskExecutor next : myWorkers) {
+			retVal += next.getQueueSize();
+		}
+		return retVal;
+	}
+
+	public void shutdown() {
+		myWorkers.forEach(ThreadPoolTaskExecutor::shutdown);
+	}
+
+	@Nullable
+	private static String getMessageKeyOrNull(Runnable theTask) {
+		if (theTask instanceof MessageHandlingRunnable) {
+			Message<?> message = ((MessageHandlingRunnable) theTask).getMessage();
+			if (message instanceof BaseJsonMessage) {
+				return ((BaseJsonMessage<?>) message).getMessageKeyOrDefault();
+			}
+		}
+		return null;
+	}
+}
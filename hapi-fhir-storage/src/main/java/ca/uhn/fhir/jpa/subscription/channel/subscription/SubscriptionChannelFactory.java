@@ -73,6 +73,7 @@ public class SubscriptionChannelFactory {
 		ChannelProducerSettings config = new ChannelProducerSettings();
 		config.setConcurrentConsumers(getDeliveryChannelConcurrentConsumers());
 		config.setRetryConfiguration(theOptions.getRetryConfigurationParameters());
+		config.setOrderedByMessageKey(theOptions.isOrderedByMessageKey());
 		return config;
 	}
 
@@ -81,6 +82,7 @@ public class SubscriptionChannelFactory {
 		config.setConcurrentConsumers(getDeliveryChannelConcurrentConsumers());
 		if (theOptions != null) {
 			config.setRetryConfiguration(theOptions.getRetryConfigurationParameters());
+			config.setOrderedByMessageKey(theOptions.isOrderedByMessageKey());
 		}
 		return config;
 	}
@@ -0,0 +1,38 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2024 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term.api;
+
+import java.util.List;
+
+public interface ITermValueSetPreExpansionJobSvc {
+
+	/**
+	 * Returns the PIDs of all TermValueSets that are waiting to be pre-expanded
+	 */
+	List<Long> findTermValueSetPidsToPreExpand();
+
+	/**
+	 * Pre-expands a single TermValueSet into the terminology tables. Does nothing if the
+	 * TermValueSet no longer exists or is no longer waiting to be pre-expanded (e.g. because
+	 * it has already been pre-expanded by another job).
+	 * @param theTermValueSetPid - the TermValueSet PID
+	 */
+	void preExpandValueSet(long theTermValueSetPid);
+}
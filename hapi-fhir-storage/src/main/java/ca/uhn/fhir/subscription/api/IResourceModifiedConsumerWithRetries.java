@@ -38,4 +38,16 @@ public interface IResourceModifiedConsumerWithRetries {
 	 */
 	boolean submitPersisedResourceModifiedMessage(
 			IPersistedResourceModifiedMessage thePersistedResourceModifiedMessage);
+
+	/**
+	 * The implementer of this method should claim up to <code>theMaxCount</code> IPersistedResourceModifiedMessage not
+	 * already claimed by another server, submit the ResourceModifiedMessage they represent to a broker (see
+	 * {@link IResourceModifiedConsumer}) and delete the ones that were successfully submitted, in a single transaction.
+	 *
+	 * @param theMaxCount The maximum number of messages to claim.
+	 * @return The number of messages that were successfully submitted.  A value lower than <code>theMaxCount</code>
+	 * indicates that either no more messages are available or that a submission failed.
+	 * @since 7.6.0
+	 */
+	int submitPersistedResourceModifiedMessageBatch(int theMaxCount);
 }
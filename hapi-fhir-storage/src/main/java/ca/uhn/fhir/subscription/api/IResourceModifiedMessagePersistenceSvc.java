@@ -26,6 +26,7 @@ import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -44,6 +45,20 @@ public interface IResourceModifiedMessagePersistenceSvc {
 	 */
 	Page<IPersistedResourceModifiedMessage> findAllOrderedByCreatedTime(Pageable thePageable);
 
+	/**
+	 * Find and lock up to <code>theMaxCount</code> persistedResourceModifiedMessage sorted by ascending created dates
+	 * (oldest to newest), skipping any message already locked by another transaction.  This allows several
+	 * servers in a cluster to claim distinct batches of messages concurrently.
+	 * <p>
+	 * This method must be invoked within an active transaction; the returned messages stay locked until it completes.
+	 * </p>
+	 *
+	 * @param theMaxCount The maximum number of messages to claim.
+	 * @return A sorted list of persistedResourceModifiedMessage claimed by the current transaction.
+	 * @since 7.6.0
+	 */
+	List<IPersistedResourceModifiedMessage> findAndLockOldestUnclaimed(int theMaxCount);
+
 	/**
 	 * Delete a persistedResourceModifiedMessage by its primary key.
 	 *
@@ -52,6 +67,14 @@ public interface IResourceModifiedMessagePersistenceSvc {
 	 */
 	boolean deleteByPK(IPersistedResourceModifiedMessagePK thePersistedResourceModifiedMessagePK);
 
+	/**
+	 * Delete a list of persistedResourceModifiedMessage by their primary keys using a single batched statement.
+	 *
+	 * @param thePersistedResourceModifiedMessagePKs The primary keys of the persistedResourceModifiedMessage to delete.
+	 * @since 7.6.0
+	 */
+	void deleteByPKs(List<IPersistedResourceModifiedMessagePK> thePersistedResourceModifiedMessagePKs);
+
 	/**
 	 * Persist a resourceModifiedMessage and return its resulting persisted representation.
 	 *
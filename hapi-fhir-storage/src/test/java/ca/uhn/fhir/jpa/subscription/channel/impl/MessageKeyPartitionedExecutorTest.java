@@ -0,0 +1,112 @@
+package ca.uhn.fhir.jpa.subscription.channel.impl;
+
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelConsumerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelReceiver;
+import ca.uhn.fhir.jpa.subscription.model.ResourceDeliveryJsonMessage;
+import ca.uhn.fhir.jpa.subscription.model.ResourceDeliveryMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageKeyPartitionedExecutorTest {
+
+	private final MessageKeyPartitionedExecutor myExecutor = new MessageKeyPartitionedExecutor(4, "test-partition-", 100);
+
+	@AfterEach
+	public void after() {
+		myExecutor.shutdown();
+	}
+
+	@Test
+	void testGetWorkerIndex_sameKey_sameWorker() {
+		int first = myExecutor.getWorkerIndex(newTask("Patient/123"));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(first, myExecutor.getWorkerIndex(newTask("Patient/123")));
+		}
+	}
+
+	@Test
+	void testGetWorkerIndex_noKey_roundRobin() {
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			indexes.add(myExecutor.getWorkerIndex(newTask(null)));
+		}
+		assertThat(indexes).containsExactlyInAnyOrder(0, 1, 2, 3);
+	}
+
+	@Test
+	void testOrderedChannel_preservesOrderPerKey() {
+		// setup
+		LinkedBlockingChannelFactory channelFactory = new LinkedBlockingChannelFactory((name, settings) -> name);
+		ChannelProducerSettings producerSettings = new ChannelProducerSettings();
+		producerSettings.setConcurrentConsumers(4);
+		producerSettings.setOrderedByMessageKey(true);
+		IChannelProducer producer = channelFactory.getOrCreateProducer("ordered", ResourceDeliveryJsonMessage.class, producerSettings);
+		IChannelReceiver receiver = channelFactory.getOrCreateReceiver("ordered", ResourceDeliveryJsonMessage.class, new ChannelConsumerSettings());
+
+		Map<String, List<Message<?>>> received = new ConcurrentHashMap<>();
+		AtomicInteger receivedCount = new AtomicInteger();
+		receiver.subscribe(msg -> {
+			String key = ((ResourceDeliveryJsonMessage) msg).getMessageKey();
+			received.computeIfAbsent(key, k -> new ArrayList<>()).add(msg);
+			receivedCount.incrementAndGet();
+		});
+
+		// execute
+		Map<String, List<Message<?>>> sent = new ConcurrentHashMap<>();
+		for (int i = 0; i < 200; i++) {
+			String key = "Patient/" + (i % 7);
+			ResourceDeliveryJsonMessage message = newMessage(key);
+			sent.computeIfAbsent(key, k -> new ArrayList<>()).add(message);
+			producer.send(message);
+		}
+
+		// verify
+		await().until(() -> receivedCount.get() == 200);
+		assertEquals(sent.keySet(), received.keySet());
+		for (String key : sent.keySet()) {
+			assertThat(received.get(key)).containsExactlyElementsOf(sent.get(key));
+		}
+		channelFactory.stop();
+	}
+
+	private static ResourceDeliveryJsonMessage newMessage(String theKey) {
+		ResourceDeliveryMessage payload = new ResourceDeliveryMessage();
+		payload.setMessageKey(theKey);
+		return new ResourceDeliveryJsonMessage(payload);
+	}
+
+	private static MessageHandlingRunnable newTask(String theKey) {
+		ResourceDeliveryJsonMessage message = newMessage(theKey);
+		return new MessageHandlingRunnable() {
+			@Override
+			public Message<?> getMessage() {
+				return message;
+			}
+
+			@Override
+			public MessageHandler getMessageHandler() {
+				return msg -> {};
+			}
+
+			@Override
+			public void run() {
+				// nothing
+			}
+		};
+	}
+}
@@ -1,6 +1,7 @@
 package org.hl7.fhir.common.hapi.validation.support;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
@@ -85,6 +86,15 @@ public abstract class BaseValidationSupportWrapper extends BaseValidationSupport
 				theValidationSupportContext, theOptions, theCodeSystem, theCode, theDisplay, theValueSetUrl);
 	}
 
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		return myWrap.validateCodes(theValidationSupportContext, theOptions, theRequests);
+	}
+
 	@Override
 	public IValidationSupport.CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -1,32 +1,46 @@
 package org.hl7.fhir.common.hapi.validation.support;
 
 import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.time.DateUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
@@ -38,6 +52,10 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 
 	private static final Logger ourLog = LoggerFactory.getLogger(CachingValidationSupport.class);
 	public static final ValueSetExpansionOptions EMPTY_EXPANSION_OPTIONS = new ValueSetExpansionOptions();
+	/**
+	 * How long a thread waits for another thread's load of the same key before loading it itself
+	 */
+	private static final long DEFAULT_IN_FLIGHT_LOAD_WAIT_MILLIS = 30 * DateUtils.MILLIS_PER_SECOND;
 
 	private final Cache<String, Object> myCache;
 	private final Cache<String, Object> myValidateCodeCache;
@@ -47,6 +65,13 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 	private final Map<Object, Object> myNonExpiringCache;
 	private final Cache<String, Object> myExpandValueSetCache;
 	private final boolean myIsEnabledValidationForCodingsLogicalAnd;
+	private final Map<Cache<?, Object>, Long> myCacheToRefreshAheadMillis = new IdentityHashMap<>();
+	private final ConcurrentHashMap<Pair<Cache<?, Object>, Object>, InFlightLoad> myInFlightLoads =
+			new ConcurrentHashMap<>();
+	private final AtomicLong myInvalidationCount = new AtomicLong();
+	private final long myMissingResourceMillis;
+	private long myInFlightLoadWaitMillis = DEFAULT_IN_FLIGHT_LOAD_WAIT_MILLIS;
+	private LongSupplier myClock = System::currentTimeMillis;
 
 	/**
 	 * Constructor with default timeouts
@@ -82,6 +107,16 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 		myTranslateCodeCache = CacheFactory.build(theCacheTimeouts.getTranslateCodeMillis(), 5000);
 		myCache = CacheFactory.build(theCacheTimeouts.getMiscMillis(), 5000);
 		myNonExpiringCache = Collections.synchronizedMap(new HashMap<>());
+		myMissingResourceMillis = theCacheTimeouts.getMissingResourceMillis();
+
+		myCacheToRefreshAheadMillis.put(
+				myExpandValueSetCache, refreshAheadMillis(theCacheTimeouts.getExpandValueSetMillis()));
+		myCacheToRefreshAheadMillis.put(
+				myValidateCodeCache, refreshAheadMillis(theCacheTimeouts.getValidateCodeMillis()));
+		myCacheToRefreshAheadMillis.put(myLookupCodeCache, refreshAheadMillis(theCacheTimeouts.getLookupCodeMillis()));
+		myCacheToRefreshAheadMillis.put(
+				myTranslateCodeCache, refreshAheadMillis(theCacheTimeouts.getTranslateCodeMillis()));
+		myCacheToRefreshAheadMillis.put(myCache, refreshAheadMillis(theCacheTimeouts.getMiscMillis()));
 
 		LinkedBlockingQueue<Runnable> executorQueue = new LinkedBlockingQueue<>(1000);
 		BasicThreadFactory threadFactory = new BasicThreadFactory.Builder()
@@ -122,36 +157,36 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 
 	@Override
 	public IBaseResource fetchCodeSystem(String theSystem) {
-		return loadFromCache(myCache, "fetchCodeSystem " + theSystem, t -> super.fetchCodeSystem(theSystem));
+		return loadFromCache(myCache, "fetchCodeSystem " + theSystem, t -> super.fetchCodeSystem(theSystem), true);
 	}
 
 	@Override
 	public IBaseResource fetchValueSet(String theUri) {
-		return loadFromCache(myCache, "fetchValueSet " + theUri, t -> super.fetchValueSet(theUri));
+		return loadFromCache(myCache, "fetchValueSet " + theUri, t -> super.fetchValueSet(theUri), true);
 	}
 
 	@Override
 	public IBaseResource fetchStructureDefinition(String theUrl) {
 		return loadFromCache(
-				myCache, "fetchStructureDefinition " + theUrl, t -> super.fetchStructureDefinition(theUrl));
+				myCache, "fetchStructureDefinition " + theUrl, t -> super.fetchStructureDefinition(theUrl), true);
 	}
 
 	@Override
 	public byte[] fetchBinary(String theBinaryKey) {
-		return loadFromCache(myCache, "fetchBinary " + theBinaryKey, t -> super.fetchBinary(theBinaryKey));
+		return loadFromCache(myCache, "fetchBinary " + theBinaryKey, t -> super.fetchBinary(theBinaryKey), true);
 	}
 
 	@Override
 	public <T extends IBaseResource> T fetchResource(@Nullable Class<T> theClass, String theUri) {
 		return loadFromCache(
-				myCache, "fetchResource " + theClass + " " + theUri, t -> super.fetchResource(theClass, theUri));
+				myCache, "fetchResource " + theClass + " " + theUri, t -> super.fetchResource(theClass, theUri), true);
 	}
 
 	@Override
 	public boolean isCodeSystemSupported(ValidationSupportContext theValidationSupportContext, String theSystem) {
 		String key = "isCodeSystemSupported " + theSystem;
-		Boolean retVal = loadFromCacheReentrantSafe(
-				myCache, key, t -> super.isCodeSystemSupported(theValidationSupportContext, theSystem));
+		Boolean retVal =
+				loadFromCache(myCache, key, t -> super.isCodeSystemSupported(theValidationSupportContext, theSystem));
 		assert retVal != null;
 		return retVal;
 	}
@@ -185,8 +220,7 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 			String theCode,
 			String theDisplay,
 			String theValueSetUrl) {
-		String key = "validateCode " + theCodeSystem + " " + theCode + " " + defaultString(theDisplay) + " "
-				+ defaultIfBlank(theValueSetUrl, "NO_VS");
+		String key = getValidateCodeKey(theCodeSystem, theCode, theDisplay, theValueSetUrl);
 		return loadFromCache(
 				myValidateCodeCache,
 				key,
@@ -194,6 +228,53 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 						theValidationSupportContext, theOptions, theCodeSystem, theCode, theDisplay, theValueSetUrl));
 	}
 
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		long now = myClock.getAsLong();
+		CodeValidationResult[] retVal = new CodeValidationResult[theRequests.size()];
+		List<Integer> missIndexes = new ArrayList<>();
+		List<CodeValidationRequest> missRequests = new ArrayList<>();
+		for (int i = 0; i < theRequests.size(); i++) {
+			CodeValidationRequest next = theRequests.get(i);
+			String key = getValidateCodeKey(next.getSystem(), next.getCode(), next.getDisplay(), next.getValueSetUrl());
+			CacheEntry cached = (CacheEntry) myValidateCodeCache.getIfPresent(key);
+			if (cached != null && cached.isUsable(now)) {
+				retVal[i] = (CodeValidationResult) cached.getValue();
+			} else {
+				missIndexes.add(i);
+				missRequests.add(next);
+			}
+		}
+
+		// Anything not already cached is passed to the wrapped module as a single batch
+		if (!missRequests.isEmpty()) {
+			long invalidationCount = myInvalidationCount.get();
+			List<CodeValidationResult> results =
+					super.validateCodes(theValidationSupportContext, theOptions, missRequests);
+			for (int i = 0; i < missIndexes.size(); i++) {
+				CodeValidationResult result = results.get(i);
+				retVal[missIndexes.get(i)] = result;
+				CodeValidationRequest next = missRequests.get(i);
+				String key =
+						getValidateCodeKey(next.getSystem(), next.getCode(), next.getDisplay(), next.getValueSetUrl());
+				storeInCache(myValidateCodeCache, key, result, true, invalidationCount);
+			}
+		}
+
+		return Arrays.asList(retVal);
+	}
+
+	@Nonnull
+	private static String getValidateCodeKey(
+			String theCodeSystem, String theCode, String theDisplay, String theValueSetUrl) {
+		return "validateCode " + theCodeSystem + " " + theCode + " " + defaultString(theDisplay) + " "
+				+ defaultIfBlank(theValueSetUrl, "NO_VS");
+	}
+
 	@Override
 	public LookupCodeResult lookupCode(
 			ValidationSupportContext theValidationSupportContext, @Nonnull LookupCodeRequest theLookupCodeRequest) {
@@ -245,49 +326,129 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 		return loadFromCache(myTranslateCodeCache, theRequest, k -> super.translateConcept(theRequest));
 	}
 
-	@SuppressWarnings("OptionalAssignedToNull")
 	@Nullable
 	private <S, T> T loadFromCache(Cache<S, Object> theCache, S theKey, Function<S, T> theLoader) {
-		ourLog.trace("Fetching from cache: {}", theKey);
+		return loadFromCache(theCache, theKey, theLoader, false);
+	}
 
-		Function<S, Optional<T>> loaderWrapper = key -> Optional.ofNullable(theLoader.apply(theKey));
-		Optional<T> result = (Optional<T>) theCache.get(theKey, loaderWrapper);
-		assert result != null;
+	/**
+	 * Returns the cached value for the given key, loading it if needed. Concurrent misses for the same key
+	 * are coalesced so that only one thread invokes the loader while the others wait for its result, and
+	 * entries which are read close to their expiry are reloaded in the background so that callers do not
+	 * all block on the same reload once the entry expires.
+	 * <p>
+	 * The loader is never invoked from within a cache compute function. The Caffeine cache uses
+	 * ConcurrentHashMap which is not reentrant, so if we get unlucky and the hashtable needs to grow
+	 * at the same time as we are in a reentrant cache lookup, the thread would deadlock.
+	 * </p>
+	 *
+	 * @param theCacheMissingResult If <code>true</code>, a <code>null</code> result is remembered for
+	 *                              {@link CacheTimeouts#getMissingResourceMillis()}
+	 */
+	@Nullable
+	private <S, T> T loadFromCache(
+			Cache<S, Object> theCache, S theKey, Function<S, T> theLoader, boolean theCacheMissingResult) {
+		ourLog.trace("Fetching from cache: {}", theKey);
 
-		// UGH!  Animal sniffer :(
-		if (!result.isPresent()) {
-			ourLog.debug(
-					"Invalidating cache entry for key: {} since the result of the underlying query is empty", theKey);
-			theCache.invalidate(theKey);
+		long now = myClock.getAsLong();
+		CacheEntry cached = (CacheEntry) theCache.getIfPresent(theKey);
+		if (cached != null && cached.isUsable(now)) {
+			if (cached.isDueForRefresh(now)) {
+				scheduleRefresh(theCache, theKey, theLoader, theCacheMissingResult, cached);
+			}
+			return (T) cached.getValue();
 		}
 
-		return result.orElse(null);
+		return loadSingleFlight(theCache, theKey, theLoader, theCacheMissingResult);
 	}
 
-	/**
-	 * The Caffeine cache uses ConcurrentHashMap which is not reentrant, so if we get unlucky and the hashtable
-	 * needs to grow at the same time as we are in a reentrant cache lookup, the thread will deadlock.  Use this
-	 * method in place of loadFromCache in situations where a cache lookup calls another cache lookup within its lambda
-	 */
 	@Nullable
-	private <S, T> T loadFromCacheReentrantSafe(Cache<S, Object> theCache, S theKey, Function<S, T> theLoader) {
-		ourLog.trace("Reentrant fetch from cache: {}", theKey);
+	private <S, T> T loadSingleFlight(
+			Cache<S, Object> theCache, S theKey, Function<S, T> theLoader, boolean theCacheMissingResult) {
+		Pair<Cache<?, Object>, Object> inFlightKey = Pair.of(theCache, theKey);
+		InFlightLoad load = new InFlightLoad();
+		InFlightLoad existing = myInFlightLoads.putIfAbsent(inFlightKey, load);
+		if (existing != null) {
+			if (existing.getOwner() == Thread.currentThread()) {
+				// A reentrant lookup for a key this thread is already loading can't wait on itself
+				return theLoader.apply(theKey);
+			}
+			ourLog.trace("Waiting for in-flight load of: {}", theKey);
+			try {
+				return (T) existing.getFuture().get(myInFlightLoadWaitMillis, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// The other load may itself be waiting on a key this thread is loading, so don't wait any longer
+				ourLog.debug("Timed out waiting for in-flight load of {}, loading it directly", theKey);
+				return theLoader.apply(theKey);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(
+						Msg.code(2568) + "Interrupted while waiting for cache entry: " + theKey, e);
+			} catch (ExecutionException e) {
+				// The other thread's load failed, try again ourselves so that the failure is reported to this caller
+				return theLoader.apply(theKey);
+			}
+		}
 
-		Optional<T> result = (Optional<T>) theCache.getIfPresent(theKey);
-		if (result != null && result.isPresent()) {
-			return result.get();
+		try {
+			long invalidationCount = myInvalidationCount.get();
+			T retVal = theLoader.apply(theKey);
+			storeInCache(theCache, theKey, retVal, theCacheMissingResult, invalidationCount);
+			load.getFuture().complete(retVal);
+			return retVal;
+		} catch (RuntimeException | Error e) {
+			load.getFuture().completeExceptionally(e);
+			throw e;
+		} finally {
+			myInFlightLoads.remove(inFlightKey, load);
 		}
-		T value = theLoader.apply(theKey);
-		assert value != null;
+	}
 
-		theCache.put(theKey, Optional.of(value));
+	private <S, T> void scheduleRefresh(
+			Cache<S, Object> theCache,
+			S theKey,
+			Function<S, T> theLoader,
+			boolean theCacheMissingResult,
+			CacheEntry theCached) {
+		if (theCached.markRefreshScheduled()) {
+			ourLog.trace("Scheduling refresh of cache entry: {}", theKey);
+			myBackgroundExecutor.execute(() -> {
+				try {
+					loadSingleFlight(theCache, theKey, theLoader, theCacheMissingResult);
+				} catch (Exception e) {
+					ourLog.warn("Failed to refresh cache entry for key {}: {}", theKey, e.toString());
+				}
+			});
+		}
+	}
+
+	private <S> void storeInCache(
+			Cache<S, Object> theCache,
+			S theKey,
+			@Nullable Object theValue,
+			boolean theCacheMissingResult,
+			long theInvalidationCount) {
+		if (theInvalidationCount != myInvalidationCount.get()) {
+			// The caches were invalidated while we were loading, so the value may already be stale
+			return;
+		}
 
-		return value;
+		long now = myClock.getAsLong();
+		if (theValue != null) {
+			long refreshAheadMillis = myCacheToRefreshAheadMillis.getOrDefault(theCache, Long.MAX_VALUE);
+			theCache.put(theKey, new CacheEntry(theValue, saturatedAdd(now, refreshAheadMillis), Long.MAX_VALUE));
+		} else if (theCacheMissingResult && myMissingResourceMillis > 0) {
+			theCache.put(theKey, new CacheEntry(null, Long.MAX_VALUE, now + myMissingResourceMillis));
+		} else {
+			ourLog.debug(
+					"Invalidating cache entry for key: {} since the result of the underlying query is empty", theKey);
+			theCache.invalidate(theKey);
+		}
 	}
 
 	private <S, T> T loadFromCacheWithAsyncRefresh(Cache<S, Object> theCache, S theKey, Function<S, T> theLoader) {
-		T retVal = (T) theCache.getIfPresent(theKey);
-		if (retVal == null) {
+		T retVal;
+		if (theCache.getIfPresent(theKey) == null) {
 			retVal = (T) myNonExpiringCache.get(theKey);
 			if (retVal != null) {
 
@@ -306,8 +467,17 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 		return retVal;
 	}
 
+	void setInFlightLoadWaitMillisForUnitTest(long theInFlightLoadWaitMillis) {
+		myInFlightLoadWaitMillis = theInFlightLoadWaitMillis;
+	}
+
+	void setClockForUnitTest(LongSupplier theClock) {
+		myClock = theClock;
+	}
+
 	@Override
 	public void invalidateCaches() {
+		myInvalidationCount.incrementAndGet();
 		myExpandValueSetCache.invalidateAll();
 		myLookupCodeCache.invalidateAll();
 		myCache.invalidateAll();
@@ -325,6 +495,7 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 		private long myValidateCodeMillis;
 		private long myMiscMillis;
 		private long myExpandValueSetMillis;
+		private long myMissingResourceMillis;
 
 		public long getExpandValueSetMillis() {
 			return myExpandValueSetMillis;
@@ -371,6 +542,29 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 			return this;
 		}
 
+		/**
+		 * How long a conformance resource (e.g. a CodeSystem, ValueSet or StructureDefinition) which could
+		 * not be found is remembered as missing before it is looked up again. Defaults to 0, meaning that
+		 * missing resources are not cached.
+		 *
+		 * @since 7.6.0
+		 */
+		public long getMissingResourceMillis() {
+			return myMissingResourceMillis;
+		}
+
+		/**
+		 * How long a conformance resource (e.g. a CodeSystem, ValueSet or StructureDefinition) which could
+		 * not be found is remembered as missing before it is looked up again. Defaults to 0, meaning that
+		 * missing resources are not cached.
+		 *
+		 * @since 7.6.0
+		 */
+		public CacheTimeouts setMissingResourceMillis(long theMissingResourceMillis) {
+			myMissingResourceMillis = theMissingResourceMillis;
+			return this;
+		}
+
 		public static CacheTimeouts defaultValues() {
 			return new CacheTimeouts()
 					.setLookupCodeMillis(10 * DateUtils.MILLIS_PER_MINUTE)
@@ -384,4 +578,70 @@ public class CachingValidationSupport extends BaseValidationSupportWrapper imple
 	public boolean isEnabledValidationForCodingsLogicalAnd() {
 		return myIsEnabledValidationForCodingsLogicalAnd;
 	}
+
+	/**
+	 * Entries are reloaded in the background once they are read after this fraction of their timeout has elapsed
+	 */
+	private static long refreshAheadMillis(long theTimeoutMillis) {
+		if (theTimeoutMillis <= 0) {
+			return Long.MAX_VALUE;
+		}
+		return theTimeoutMillis * 3 / 4;
+	}
+
+	private static long saturatedAdd(long theValue, long theDelta) {
+		long retVal = theValue + theDelta;
+		return retVal < theValue ? Long.MAX_VALUE : retVal;
+	}
+
+	private static class CacheEntry {
+
+		private final Object myValue;
+		private final long myRefreshAtMillis;
+		private final long myExpiresAtMillis;
+		private final AtomicBoolean myRefreshScheduled = new AtomicBoolean(false);
+
+		private CacheEntry(@Nullable Object theValue, long theRefreshAtMillis, long theExpiresAtMillis) {
+			myValue = theValue;
+			myRefreshAtMillis = theRefreshAtMillis;
+			myExpiresAtMillis = theExpiresAtMillis;
+		}
+
+		@Nullable
+		private Object getValue() {
+			return myValue;
+		}
+
+		/**
+		 * Entries for missing resources expire independently of the cache they are stored in
+		 */
+		private boolean isUsable(long theNow) {
+			return theNow < myExpiresAtMillis;
+		}
+
+		private boolean isDueForRefresh(long theNow) {
+			return theNow >= myRefreshAtMillis && !myRefreshScheduled.get();
+		}
+
+		/**
+		 * @return <code>true</code> if the caller is the first to ask for this entry to be refreshed
+		 */
+		private boolean markRefreshScheduled() {
+			return myRefreshScheduled.compareAndSet(false, true);
+		}
+	}
+
+	private static class InFlightLoad {
+
+		private final Thread myOwner = Thread.currentThread();
+		private final CompletableFuture<Object> myFuture = new CompletableFuture<>();
+
+		private Thread getOwner() {
+			return myOwner;
+		}
+
+		private CompletableFuture<Object> getFuture() {
+			return myFuture;
+		}
+	}
 }
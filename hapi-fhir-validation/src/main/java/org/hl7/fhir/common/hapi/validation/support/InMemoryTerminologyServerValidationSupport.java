@@ -9,11 +9,14 @@ import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
 import ca.uhn.fhir.util.FhirVersionIndependentConcept;
 import ca.uhn.hapi.converters.canonical.VersionCanonicalizer;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.convertors.advisors.impl.BaseAdvisor_10_50;
 import org.hl7.fhir.convertors.advisors.impl.BaseAdvisor_30_50;
 import org.hl7.fhir.convertors.advisors.impl.BaseAdvisor_40_50;
@@ -32,8 +35,11 @@ import org.hl7.fhir.utilities.validation.ValidationMessage;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -58,10 +64,20 @@ import static org.hl7.fhir.common.hapi.validation.support.CommonCodeSystemsTermi
 @SuppressWarnings("EnhancedSwitchMigration")
 public class InMemoryTerminologyServerValidationSupport implements IValidationSupport {
 	private static final String OUR_PIPE_CHARACTER = "|";
+	private static final long EXPANSION_INDEX_TIMEOUT_MILLIS = 10 * DateUtils.MILLIS_PER_MINUTE;
+	private static final long EXPANSION_INDEX_MAXIMUM_SIZE = 1000;
 	private final FhirContext myCtx;
 	private final VersionCanonicalizer myVersionCanonicalizer;
 	private IssueSeverity myIssueSeverityForCodeDisplayMismatch = IssueSeverity.WARNING;
 
+	/**
+	 * Key (e.g. <code>"ValueSet http://foo|1.0"</code> or <code>"CodeSystem http://foo"</code>) to a hash index
+	 * of the codes in the expansion, so that repeated code validations against the same large enumerated
+	 * ValueSet or CodeSystem do not need to expand it and scan the expansion every time.
+	 */
+	private final Cache<String, ExpansionIndex> myExpansionIndexes =
+			CacheFactory.build(EXPANSION_INDEX_TIMEOUT_MILLIS, EXPANSION_INDEX_MAXIMUM_SIZE);
+
 	/**
 	 * Constructor
 	 *
@@ -116,6 +132,11 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 		return myCtx;
 	}
 
+	@Override
+	public void invalidateCaches() {
+		myExpansionIndexes.invalidateAll();
+	}
+
 	@Override
 	public ValueSetExpansionOutcome expandValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -253,6 +274,20 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 			@Nonnull IBaseResource theValueSet) {
 		org.hl7.fhir.r5.model.ValueSet expansion;
 		String vsUrl = CommonCodeSystemsTerminologyService.getValueSetUrl(getFhirContext(), theValueSet);
+
+		List<FhirVersionIndependentConcept> indexedConcepts = findConceptsUsingExpansionIndex(
+				theValidationSupportContext, theValueSet, null, theCodeSystemUrlAndVersion, theCode);
+		if (indexedConcepts != null) {
+			return validateCodeInExpansionConcepts(
+					theValidationSupportContext,
+					theOptions,
+					theCodeSystemUrlAndVersion,
+					theCode,
+					theDisplay,
+					indexedConcepts,
+					vsUrl);
+		}
+
 		try {
 			expansion = expandValueSetToCanonical(
 					theValidationSupportContext, theValueSet, theCodeSystemUrlAndVersion, theCode);
@@ -295,6 +330,7 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 			String theDisplay,
 			String theValueSetUrl) {
 		IBaseResource vs;
+		String codeSystemIndexKey = null;
 		if (isNotBlank(theValueSetUrl)) {
 			vs = theValidationSupportContext.getRootValidationSupport().fetchValueSet(theValueSetUrl);
 			if (vs == null) {
@@ -310,6 +346,7 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 			} else {
 				codeSystemUrl = theCodeSystem;
 			}
+			codeSystemIndexKey = "CodeSystem " + theCodeSystem;
 			switch (myCtx.getVersion().getVersion()) {
 				case DSTU2:
 				case DSTU2_HL7ORG:
@@ -381,6 +418,19 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 			}
 		}
 
+		List<FhirVersionIndependentConcept> indexedConcepts = findConceptsUsingExpansionIndex(
+				theValidationSupportContext, vs, codeSystemIndexKey, theCodeSystem, theCode);
+		if (indexedConcepts != null) {
+			return validateCodeInExpansionConcepts(
+					theValidationSupportContext,
+					theOptions,
+					theCodeSystem,
+					theCode,
+					theDisplay,
+					indexedConcepts,
+					theValueSetUrl);
+		}
+
 		ValueSetExpansionOutcome valueSetExpansionOutcome =
 				expandValueSet(theValidationSupportContext, vs, theCodeSystem, theCode);
 		if (valueSetExpansionOutcome == null) {
@@ -408,16 +458,6 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 			String theValueSetUrl) {
 		assert theExpansion != null;
 
-		final CodeValidationResult codeValidationResult;
-
-		boolean caseSensitive = true;
-		IBaseResource codeSystemToValidateResource = null;
-		if (!theOptions.isInferSystem() && isNotBlank(theCodeSystemUrlAndVersionToValidate)) {
-			codeSystemToValidateResource = theValidationSupportContext
-					.getRootValidationSupport()
-					.fetchCodeSystem(theCodeSystemUrlAndVersionToValidate);
-		}
-
 		List<FhirVersionIndependentConcept> codes = new ArrayList<>();
 		switch (getFhirVersionEnum(
 				theValidationSupportContext.getRootValidationSupport().getFhirContext(), theExpansion)) {
@@ -470,6 +510,34 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 						+ myCtx.getVersion().getVersion());
 		}
 
+		return validateCodeInExpansionConcepts(
+				theValidationSupportContext,
+				theOptions,
+				theCodeSystemUrlAndVersionToValidate,
+				theCodeToValidate,
+				theDisplayToValidate,
+				codes,
+				theValueSetUrl);
+	}
+
+	private CodeValidationResult validateCodeInExpansionConcepts(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			String theCodeSystemUrlAndVersionToValidate,
+			String theCodeToValidate,
+			String theDisplayToValidate,
+			List<FhirVersionIndependentConcept> theExpansionCodes,
+			String theValueSetUrl) {
+		final CodeValidationResult codeValidationResult;
+
+		boolean caseSensitive = true;
+		IBaseResource codeSystemToValidateResource = null;
+		if (!theOptions.isInferSystem() && isNotBlank(theCodeSystemUrlAndVersionToValidate)) {
+			codeSystemToValidateResource = theValidationSupportContext
+					.getRootValidationSupport()
+					.fetchCodeSystem(theCodeSystemUrlAndVersionToValidate);
+		}
+
 		String codeSystemResourceName = null;
 		String codeSystemResourceVersion = null;
 		String codeSystemResourceContentMode = null;
@@ -545,7 +613,7 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 				codeSystemVersionToValidate,
 				codeSystemResourceName,
 				codeSystemResourceVersion,
-				codes,
+				theExpansionCodes,
 				theOptions,
 				caseSensitive);
 		if (valueSetResult != null) {
@@ -686,6 +754,111 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 		return codeValidationResult.asLookupCodeResult(system, code);
 	}
 
+	/**
+	 * Finds the given code in a cached hash index of the expansion of the given ValueSet, building the index
+	 * first if needed. Only ValueSets whose includes all pick codes (or all codes) from a CodeSystem which can
+	 * be fetched locally are indexed, since their expansion doesn't depend on the code being validated.
+	 *
+	 * @param theIndexKey The key to cache the index under, or <code>null</code> to use the URL and version of the ValueSet
+	 * @return The matching concepts from the expansion, or <code>null</code> if the ValueSet can't be indexed and
+	 * 		has to be expanded instead
+	 */
+	@Nullable
+	private List<FhirVersionIndependentConcept> findConceptsUsingExpansionIndex(
+			ValidationSupportContext theValidationSupportContext,
+			IBaseResource theValueSet,
+			@Nullable String theIndexKey,
+			@Nullable String theWantSystemUrlAndVersion,
+			String theWantCode) {
+		FhirVersionEnum fhirVersion = myCtx.getVersion().getVersion();
+		if (isBlank(theWantCode)
+				|| !fhirVersion.isEqualOrNewerThan(FhirVersionEnum.DSTU3)
+				|| getFhirVersionEnum(
+								theValidationSupportContext
+										.getRootValidationSupport()
+										.getFhirContext(),
+								theValueSet)
+						!= fhirVersion) {
+			return null;
+		}
+
+		String indexKey = theIndexKey;
+		IBaseResource sourceValueSet = null;
+		if (indexKey == null) {
+			String valueSetUrl = CommonCodeSystemsTerminologyService.getValueSetUrl(myCtx, theValueSet);
+			if (isBlank(valueSetUrl)) {
+				return null;
+			}
+			String valueSetVersion = CommonCodeSystemsTerminologyService.getValueSetVersion(myCtx, theValueSet);
+			indexKey = "ValueSet " + valueSetUrl + OUR_PIPE_CHARACTER + defaultString(valueSetVersion);
+			sourceValueSet = theValueSet;
+		}
+
+		ExpansionIndex index = myExpansionIndexes.getIfPresent(indexKey);
+		if (index == null || !index.isCurrent(theValidationSupportContext, sourceValueSet)) {
+			index = buildExpansionIndex(theValidationSupportContext, theValueSet, sourceValueSet);
+			myExpansionIndexes.put(indexKey, index);
+		}
+
+		return index.findConcepts(theWantSystemUrlAndVersion, theWantCode);
+	}
+
+	private ExpansionIndex buildExpansionIndex(
+			ValidationSupportContext theValidationSupportContext,
+			IBaseResource theValueSet,
+			@Nullable IBaseResource theSourceValueSet) {
+		org.hl7.fhir.r5.model.ValueSet valueSet = myVersionCanonicalizer.valueSetToValidatorCanonical(theValueSet);
+		Map<String, IBaseResource> codeSystems = new HashMap<>();
+		Map<String, List<IndexedConcept>> codeToConcepts = new HashMap<>();
+
+		boolean indexable = valueSet.getCompose().getExclude().isEmpty();
+		List<org.hl7.fhir.r5.model.ValueSet.ConceptSetComponent> includes =
+				valueSet.getCompose().getInclude();
+		for (int includeIndex = 0; indexable && includeIndex < includes.size(); includeIndex++) {
+			org.hl7.fhir.r5.model.ValueSet.ConceptSetComponent include = includes.get(includeIndex);
+			if (isBlank(include.getSystem())
+					|| !include.getFilter().isEmpty()
+					|| !include.getValueSet().isEmpty()) {
+				indexable = false;
+				break;
+			}
+
+			String systemVersion = optionallyPopulateVersionFromUrl(include.getSystem(), include.getVersion());
+			String systemUrl = substringBefore(include.getSystem(), OUR_PIPE_CHARACTER);
+			String loadedCodeSystemUrl =
+					systemVersion != null ? systemUrl + OUR_PIPE_CHARACTER + systemVersion : systemUrl;
+
+			IBaseResource codeSystemResource =
+					theValidationSupportContext.getRootValidationSupport().fetchCodeSystem(loadedCodeSystemUrl);
+			codeSystems.put(loadedCodeSystemUrl, codeSystemResource);
+			if (codeSystemResource == null) {
+				indexable = false;
+				break;
+			}
+			CodeSystem codeSystem = myVersionCanonicalizer.codeSystemToValidatorCanonical(codeSystemResource);
+			if (codeSystem.getContent() == Enumerations.CodeSystemContentMode.NOTPRESENT) {
+				indexable = false;
+				break;
+			}
+
+			Set<String> wantCodes = null;
+			if (!include.getConcept().isEmpty()) {
+				wantCodes = include.getConcept().stream()
+						.map(org.hl7.fhir.r5.model.ValueSet.ConceptReferenceComponent::getCode)
+						.collect(Collectors.toSet());
+			}
+			List<FhirVersionIndependentConcept> concepts = new ArrayList<>();
+			addCodes(systemUrl, systemVersion, codeSystem.getConcept(), concepts, wantCodes);
+			for (FhirVersionIndependentConcept next : concepts) {
+				codeToConcepts
+						.computeIfAbsent(ExpansionIndex.toIndexKey(next.getCode()), t -> new ArrayList<>(1))
+						.add(new IndexedConcept(next, includeIndex, codeSystem.getCaseSensitive()));
+			}
+		}
+
+		return new ExpansionIndex(theSourceValueSet, codeSystems, indexable ? codeToConcepts : null);
+	}
+
 	@Nullable
 	private org.hl7.fhir.r5.model.ValueSet expandValueSetDstu2Hl7Org(
 			ValidationSupportContext theValidationSupportContext,
@@ -1446,6 +1619,114 @@ public class InMemoryTerminologyServerValidationSupport implements IValidationSu
 		}
 	}
 
+	/**
+	 * A hash index of the codes in a ValueSet expansion, along with the resources it was built from
+	 * so that it can be rebuilt if any of them change.
+	 */
+	private static class ExpansionIndex {
+
+		private final IBaseResource mySourceValueSet;
+		private final Map<String, IBaseResource> myCodeSystems;
+		private final Map<String, List<IndexedConcept>> myCodeToConcepts;
+
+		/**
+		 * @param theCodeToConcepts The index, or <code>null</code> if the ValueSet can't be indexed
+		 */
+		private ExpansionIndex(
+				IBaseResource theSourceValueSet,
+				Map<String, IBaseResource> theCodeSystems,
+				@Nullable Map<String, List<IndexedConcept>> theCodeToConcepts) {
+			mySourceValueSet = theSourceValueSet;
+			myCodeSystems = theCodeSystems;
+			myCodeToConcepts = theCodeToConcepts;
+		}
+
+		private boolean isCurrent(
+				ValidationSupportContext theValidationSupportContext, IBaseResource theSourceValueSet) {
+			if (mySourceValueSet != theSourceValueSet) {
+				return false;
+			}
+			for (Map.Entry<String, IBaseResource> next : myCodeSystems.entrySet()) {
+				IBaseResource codeSystem =
+						theValidationSupportContext.getRootValidationSupport().fetchCodeSystem(next.getKey());
+				if (codeSystem != next.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the concepts an expansion looking for the given code would contain, or <code>null</code>
+		 * if the ValueSet couldn't be indexed
+		 */
+		@Nullable
+		private List<FhirVersionIndependentConcept> findConcepts(
+				@Nullable String theWantSystemUrlAndVersion, String theWantCode) {
+			if (myCodeToConcepts == null) {
+				return null;
+			}
+
+			String wantSystemUrl = null;
+			String wantSystemVersion = null;
+			if (theWantSystemUrlAndVersion != null) {
+				int versionIndex = theWantSystemUrlAndVersion.indexOf(OUR_PIPE_CHARACTER);
+				if (versionIndex > -1) {
+					wantSystemUrl = theWantSystemUrlAndVersion.substring(0, versionIndex);
+					wantSystemVersion = theWantSystemUrlAndVersion.substring(versionIndex + 1);
+				} else {
+					wantSystemUrl = theWantSystemUrlAndVersion;
+				}
+			}
+
+			List<FhirVersionIndependentConcept> retVal = new ArrayList<>(1);
+			int matchingIncludeIndex = -1;
+			for (IndexedConcept next :
+					myCodeToConcepts.getOrDefault(toIndexKey(theWantCode), Collections.emptyList())) {
+				// Expanding for a single code stops at the first include which contains it
+				if (matchingIncludeIndex != -1 && next.myIncludeIndex != matchingIncludeIndex) {
+					break;
+				}
+				FhirVersionIndependentConcept concept = next.myConcept;
+				if (wantSystemUrl != null && !wantSystemUrl.equals(concept.getSystem())) {
+					continue;
+				}
+				if (wantSystemVersion != null && !wantSystemVersion.equals(concept.getSystemVersion())) {
+					continue;
+				}
+				boolean matches;
+				if (next.myCaseSensitive) {
+					matches = theWantCode.equals(concept.getCode());
+				} else {
+					matches = theWantCode.equalsIgnoreCase(concept.getCode());
+				}
+				if (matches) {
+					retVal.add(concept);
+					matchingIncludeIndex = next.myIncludeIndex;
+				}
+			}
+			return retVal;
+		}
+
+		private static String toIndexKey(String theCode) {
+			return theCode.toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private static class IndexedConcept {
+
+		private final FhirVersionIndependentConcept myConcept;
+		private final int myIncludeIndex;
+		private final boolean myCaseSensitive;
+
+		private IndexedConcept(
+				FhirVersionIndependentConcept theConcept, int theIncludeIndex, boolean theCaseSensitive) {
+			myConcept = theConcept;
+			myIncludeIndex = theIncludeIndex;
+			myCaseSensitive = theCaseSensitive;
+		}
+	}
+
 	public static class ExpansionCouldNotBeCompletedInternallyException extends Exception {
 
 		private static final long serialVersionUID = -2226561628771483085L;
@@ -1,34 +1,124 @@
 package org.hl7.fhir.common.hapi.validation.support;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.parser.LenientErrorHandler;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
 import ca.uhn.fhir.util.ClasspathUtil;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.npm.NpmPackage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
  * This interceptor loads and parses FHIR NPM Conformance Packages, and makes the
  * artifacts found within them available to the FHIR validator.
+ * <p>
+ * By default every CodeSystem, ValueSet, StructureDefinition and SearchParameter in a package
+ * is parsed as soon as the package is loaded. If {@link #setLazyLoading(boolean) lazy loading}
+ * is enabled, the package index is used to register these resources by URL and only their
+ * compressed JSON is kept. Resources are parsed the first time they are requested, and a bounded
+ * number of parsed instances are cached.
+ * </p>
  *
  * @since 5.5.0
  */
 public class NpmPackageValidationSupport extends PrePopulatedValidationSupport {
 
+	private static final Logger ourLog = LoggerFactory.getLogger(NpmPackageValidationSupport.class);
+	private static final String[] LAZY_RESOURCE_TYPES = {
+		"CodeSystem", "ValueSet", "StructureDefinition", "SearchParameter"
+	};
+	private final Map<String, Map<String, LazyResource>> myResourceTypeToUrlToLazyResource = new HashMap<>();
+	private final Map<String, List<LazyResource>> myResourceTypeToLazyResources = new HashMap<>();
+	private boolean myLazyLoading;
+	private int myParsedResourceCacheSize = 1000;
+	private Cache<LazyResource, IBaseResource> myParsedResourceCache;
+
 	/**
 	 * Constructor
 	 */
 	public NpmPackageValidationSupport(@Nonnull FhirContext theFhirContext) {
 		super(theFhirContext);
+		for (String next : LAZY_RESOURCE_TYPES) {
+			myResourceTypeToUrlToLazyResource.put(next, new HashMap<>());
+			myResourceTypeToLazyResources.put(next, new ArrayList<>());
+		}
+		myParsedResourceCache = CacheFactory.build(DateUtils.MILLIS_PER_HOUR, myParsedResourceCacheSize);
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), conformance resources from packages
+	 * loaded after this call are kept in compressed form and only parsed when they are first requested.
+	 * This greatly reduces the memory used by large packages, at the cost of parsing a resource again
+	 * if it has been evicted from the cache of parsed resources.
+	 * <p>
+	 * Note that this mainly benefits CodeSystems and ValueSets, which are fetched by URL as they are
+	 * needed. The instance validator enumerates every StructureDefinition through
+	 * {@link #fetchAllStructureDefinitions()} in order to index types, so all StructureDefinitions
+	 * are parsed the first time a resource is validated and remain referenced by the validator
+	 * (and by {@link CachingValidationSupport} if it is used) from then on. Packages which consist
+	 * mostly of profiles will therefore see little saving when used for validation.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 * @see #setParsedResourceCacheSize(int)
+	 */
+	public void setLazyLoading(boolean theLazyLoading) {
+		myLazyLoading = theLazyLoading;
+	}
+
+	/**
+	 * @since 7.6.0
+	 * @see #setLazyLoading(boolean)
+	 */
+	public boolean isLazyLoading() {
+		return myLazyLoading;
+	}
+
+	/**
+	 * Sets the maximum number of lazily loaded resources which are kept in parsed form (default is 1000).
+	 * Only used if {@link #setLazyLoading(boolean) lazy loading} is enabled.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setParsedResourceCacheSize(int theParsedResourceCacheSize) {
+		Validate.isTrue(theParsedResourceCacheSize > 0, "theParsedResourceCacheSize must be greater than 0");
+		myParsedResourceCacheSize = theParsedResourceCacheSize;
+		myParsedResourceCache = CacheFactory.build(DateUtils.MILLIS_PER_HOUR, theParsedResourceCacheSize);
+	}
+
+	/**
+	 * @since 7.6.0
+	 * @see #setParsedResourceCacheSize(int)
+	 */
+	public int getParsedResourceCacheSize() {
+		return myParsedResourceCacheSize;
 	}
 
 	/**
@@ -41,7 +131,11 @@ public class NpmPackageValidationSupport extends PrePopulatedValidationSupport {
 		try (InputStream is = ClasspathUtil.loadResourceAsStream(theClasspath)) {
 			NpmPackage pkg = NpmPackage.fromPackage(is);
 			if (pkg.getFolders().containsKey("package")) {
-				loadResourcesFromPackage(pkg);
+				if (myLazyLoading) {
+					registerResourcesFromPackage(pkg);
+				} else {
+					loadResourcesFromPackage(pkg);
+				}
 				loadBinariesFromPackage(pkg);
 			}
 		}
@@ -61,10 +155,194 @@ public class NpmPackageValidationSupport extends PrePopulatedValidationSupport {
 		}
 	}
 
+	private void registerResourcesFromPackage(NpmPackage thePackage) throws IOException {
+		validateNotLocked();
+
+		for (NpmPackage.PackageResourceInformation next : thePackage.listIndexedResources(LAZY_RESOURCE_TYPES)) {
+			if (isBlank(next.getUrl())) {
+				ourLog.warn(
+						"Skipping {} {} in package {} as it has no URL",
+						next.getResourceType(),
+						next.getFilename(),
+						thePackage.name());
+				continue;
+			}
+
+			byte[] content;
+			try (InputStream is = thePackage.load(next)) {
+				content = IOUtils.toByteArray(is);
+			}
+			LazyResource resource = new LazyResource(next.getResourceType(), next.getFilename(), compress(content));
+			Map<String, LazyResource> urlToResource = myResourceTypeToUrlToLazyResource.get(next.getResourceType());
+			for (String url : createUrlKeys(next.getUrl(), next.getVersion())) {
+				urlToResource.put(url, resource);
+			}
+			myResourceTypeToLazyResources.get(next.getResourceType()).add(resource);
+		}
+	}
+
 	private void loadBinariesFromPackage(NpmPackage thePackage) throws IOException {
 		List<String> binaries = thePackage.list("other");
 		for (String binaryName : binaries) {
 			addBinary(TextFile.streamToBytes(thePackage.load("other", binaryName)), binaryName);
 		}
 	}
+
+	@Override
+	public List<IBaseResource> fetchAllConformanceResources() {
+		List<IBaseResource> retVal = super.fetchAllConformanceResources();
+		retVal.addAll(parseAll("CodeSystem"));
+		retVal.addAll(parseAll("StructureDefinition"));
+		retVal.addAll(parseAll("ValueSet"));
+		return retVal;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	@Override
+	public <T extends IBaseResource> List<T> fetchAllSearchParameters() {
+		List<T> lazy = (List<T>) parseAll("SearchParameter");
+		if (lazy.isEmpty()) {
+			return super.fetchAllSearchParameters();
+		}
+		List<T> retVal = new ArrayList<>(super.fetchAllSearchParameters());
+		retVal.addAll(lazy);
+		return retVal;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T extends IBaseResource> List<T> fetchAllStructureDefinitions() {
+		List<T> lazy = (List<T>) parseAll("StructureDefinition");
+		if (lazy.isEmpty()) {
+			return super.fetchAllStructureDefinitions();
+		}
+		List<T> retVal = new ArrayList<>(super.fetchAllStructureDefinitions());
+		retVal.addAll(lazy);
+		return retVal;
+	}
+
+	@Override
+	public IBaseResource fetchCodeSystem(String theSystem) {
+		IBaseResource retVal = super.fetchCodeSystem(theSystem);
+		if (retVal == null) {
+			retVal = parseByUrl("CodeSystem", theSystem);
+		}
+		return retVal;
+	}
+
+	@Override
+	public IBaseResource fetchValueSet(String theUri) {
+		IBaseResource retVal = super.fetchValueSet(theUri);
+		if (retVal == null) {
+			retVal = parseByUrl("ValueSet", theUri);
+		}
+		return retVal;
+	}
+
+	@Override
+	public IBaseResource fetchStructureDefinition(String theUrl) {
+		IBaseResource retVal = super.fetchStructureDefinition(theUrl);
+		if (retVal == null) {
+			retVal = parseByUrl("StructureDefinition", theUrl);
+		}
+		return retVal;
+	}
+
+	@Override
+	public boolean isCodeSystemSupported(ValidationSupportContext theValidationSupportContext, String theSystem) {
+		return super.isCodeSystemSupported(theValidationSupportContext, theSystem)
+				|| myResourceTypeToUrlToLazyResource.get("CodeSystem").containsKey(theSystem);
+	}
+
+	@Override
+	public boolean isValueSetSupported(ValidationSupportContext theValidationSupportContext, String theValueSetUrl) {
+		return super.isValueSetSupported(theValidationSupportContext, theValueSetUrl)
+				|| myResourceTypeToUrlToLazyResource.get("ValueSet").containsKey(theValueSetUrl);
+	}
+
+	@Override
+	public int countAll() {
+		int retVal = super.countAll();
+		for (List<LazyResource> next : myResourceTypeToLazyResources.values()) {
+			retVal += next.size();
+		}
+		return retVal;
+	}
+
+	@Nullable
+	private IBaseResource parseByUrl(String theResourceType, String theUrl) {
+		if (theUrl == null) {
+			return null;
+		}
+		LazyResource resource =
+				myResourceTypeToUrlToLazyResource.get(theResourceType).get(theUrl);
+		if (resource == null) {
+			return null;
+		}
+		return parse(resource);
+	}
+
+	private List<IBaseResource> parseAll(String theResourceType) {
+		List<LazyResource> resources = myResourceTypeToLazyResources.get(theResourceType);
+		List<IBaseResource> retVal = new ArrayList<>(resources.size());
+		for (LazyResource next : resources) {
+			retVal.add(parse(next));
+		}
+		return retVal;
+	}
+
+	private IBaseResource parse(LazyResource theResource) {
+		return myParsedResourceCache.get(theResource, t -> {
+			ourLog.debug("Parsing {} {}", t.getResourceType(), t.getFilename());
+			IParser parser = getFhirContext().newJsonParser();
+			parser.setParserErrorHandler(new LenientErrorHandler(false));
+			return parser.parseResource(new String(decompress(t.getCompressedContent()), StandardCharsets.UTF_8));
+		});
+	}
+
+	private static byte[] compress(byte[] theContent) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(theContent.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(theContent);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] decompress(byte[] theCompressedContent) {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(theCompressedContent))) {
+			return IOUtils.toByteArray(gzip);
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2569) + "Failed to decompress package resource", e);
+		}
+	}
+
+	/**
+	 * A conformance resource that has been registered but not necessarily parsed. Instances use identity
+	 * equality so that they can be used as cache keys.
+	 */
+	private static class LazyResource {
+
+		private final String myResourceType;
+		private final String myFilename;
+		private final byte[] myCompressedContent;
+
+		private LazyResource(String theResourceType, String theFilename, byte[] theCompressedContent) {
+			myResourceType = theResourceType;
+			myFilename = theFilename;
+			myCompressedContent = theCompressedContent;
+		}
+
+		private String getResourceType() {
+			return myResourceType;
+		}
+
+		private String getFilename() {
+			return myFilename;
+		}
+
+		private byte[] getCompressedContent() {
+			return myCompressedContent;
+		}
+	}
 }
@@ -133,7 +133,7 @@ public class PrePopulatedValidationSupport extends BaseStaticResourceValidationS
 		myBinaries.put(theBinaryKey, theBinary);
 	}
 
-	private synchronized void validateNotLocked() {
+	synchronized void validateNotLocked() {
 		Validate.isTrue(myLocked == false, "Can not add to validation support, module is locked");
 	}
 
@@ -173,25 +173,48 @@ public class PrePopulatedValidationSupport extends BaseStaticResourceValidationS
 		Validate.notNull(url, "the" + theResourceName + ".getUrl() must not return null");
 		Validate.notBlank(url, "the" + theResourceName + ".getUrl() must return a value");
 
-		String urlWithoutVersion;
-		int pipeIdx = url.indexOf('|');
-		if (pipeIdx != -1) {
-			urlWithoutVersion = url.substring(0, pipeIdx);
-		} else {
-			urlWithoutVersion = url;
-		}
-
-		HashSet<String> retVal = Sets.newHashSet(url, urlWithoutVersion);
-
 		Optional<IBase> versionValue =
 				resourceDef.getChildByName("version").getAccessor().getFirstValueOrNull(theResource);
 		String version = versionValue
 				.map(t -> (((IPrimitiveType<?>) t).getValueAsString()))
 				.orElse(null);
-		if (isNotBlank(version)) {
-			retVal.add(urlWithoutVersion + "|" + version);
+
+		return createUrlKeys(url, version);
+	}
+
+	/**
+	 * Returns every key that a resource with the given URL and version is stored under, i.e. the URL with
+	 * and without its version, and the last one and two path segments of each of those.
+	 */
+	static Set<String> createUrlKeys(String theUrl, @Nullable String theVersion) {
+		String urlWithoutVersion;
+		int pipeIdx = theUrl.indexOf('|');
+		if (pipeIdx != -1) {
+			urlWithoutVersion = theUrl.substring(0, pipeIdx);
+		} else {
+			urlWithoutVersion = theUrl;
 		}
 
+		HashSet<String> urls = Sets.newHashSet(theUrl, urlWithoutVersion);
+		if (isNotBlank(theVersion)) {
+			urls.add(urlWithoutVersion + "|" + theVersion);
+		}
+
+		Set<String> retVal = new HashSet<>();
+		for (String url : urls) {
+			if (isNotBlank(url)) {
+				retVal.add(url);
+
+				int lastSlashIdx = url.lastIndexOf('/');
+				if (lastSlashIdx != -1) {
+					retVal.add(url.substring(lastSlashIdx + 1));
+					int previousSlashIdx = url.lastIndexOf('/', lastSlashIdx - 1);
+					if (previousSlashIdx != -1) {
+						retVal.add(url.substring(previousSlashIdx + 1));
+					}
+				}
+			}
+		}
 		return retVal;
 	}
 
@@ -224,19 +247,8 @@ public class PrePopulatedValidationSupport extends BaseStaticResourceValidationS
 	private <T extends IBaseResource> void addToMap(
 			T theResource, List<T> theList, Map<String, T> theMap, Collection<String> theUrls) {
 		theList.add(theResource);
-		for (String urls : theUrls) {
-			if (isNotBlank(urls)) {
-				theMap.put(urls, theResource);
-
-				int lastSlashIdx = urls.lastIndexOf('/');
-				if (lastSlashIdx != -1) {
-					theMap.put(urls.substring(lastSlashIdx + 1), theResource);
-					int previousSlashIdx = urls.lastIndexOf('/', lastSlashIdx - 1);
-					if (previousSlashIdx != -1) {
-						theMap.put(urls.substring(previousSlashIdx + 1), theResource);
-					}
-				}
-			}
+		for (String url : theUrls) {
+			theMap.put(url, theResource);
 		}
 	}
 
@@ -345,7 +357,7 @@ public class PrePopulatedValidationSupport extends BaseStaticResourceValidationS
 				+ myCodeSystems.size()
 				+ myStructureDefinitions.size()
 				+ myValueSets.size()
-				+ myStructureDefinitions.size();
+				+ mySearchParameters.size();
 	}
 
 	@Override
@@ -2,6 +2,7 @@ package org.hl7.fhir.common.hapi.validation.support;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
@@ -9,17 +10,24 @@ import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.TranslateConceptResults;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.SummaryEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.rest.gclient.IQuery;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.util.BundleBuilder;
 import ca.uhn.fhir.util.BundleUtil;
+import ca.uhn.fhir.util.FhirTerser;
+import ca.uhn.fhir.util.OperationOutcomeUtil;
 import ca.uhn.fhir.util.ParametersUtil;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBundle;
 import org.hl7.fhir.instance.model.api.IBaseDatatype;
 import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
@@ -39,14 +47,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.util.ParametersUtil.getNamedParameterResource;
 import static ca.uhn.fhir.util.ParametersUtil.getNamedParameterValueAsString;
+import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -55,6 +67,12 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * from a remote FHIR based terminology server. It will invoke the FHIR
  * <a href="http://hl7.org/fhir/valueset-operation-validate-code.html">ValueSet/$validate-code</a>
  * operation in order to validate codes.
+ * <p>
+ * This class does not cache results itself. Wrap it in a {@link CachingValidationSupport} to avoid
+ * repeating calls to the terminology server. If many threads validate codes concurrently,
+ * {@link #setBatchWindowMillis(long) request batching} can be enabled to combine their calls into
+ * <code>batch</code> Bundles.
+ * </p>
  */
 public class RemoteTerminologyServiceValidationSupport extends BaseValidationSupport implements IValidationSupport {
 	private static final Logger ourLog = LoggerFactory.getLogger(RemoteTerminologyServiceValidationSupport.class);
@@ -64,6 +82,11 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 
 	private String myBaseUrl;
 	private final List<Object> myClientInterceptors = new ArrayList<>();
+	private final Object myPendingBatchLock = new Object();
+	private List<PendingValidateCode> myPendingBatch;
+	private long myBatchWindowMillis;
+	private int myMaximumBatchSize = 100;
+	private volatile boolean myBatchNotSupported;
 
 	/**
 	 * Constructor
@@ -93,9 +116,220 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 			String theDisplay,
 			String theValueSetUrl) {
 
+		if (myBatchWindowMillis > 0 && isNotBlank(theCode) && !myBatchNotSupported) {
+			CodeValidationRequest request =
+					new CodeValidationRequest(theCodeSystem, theCode, theDisplay, theValueSetUrl);
+			return validateCodeInBatch(theValidationSupportContext, theOptions, request);
+		}
+
 		return invokeRemoteValidateCode(theCodeSystem, theCode, theDisplay, theValueSetUrl, null);
 	}
 
+	/**
+	 * Adds the request to the batch which is currently being collected. The first thread to add to a
+	 * batch waits for the batch window to elapse and then sends the whole batch, while the other
+	 * threads wait for their results.
+	 */
+	private CodeValidationResult validateCodeInBatch(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			CodeValidationRequest theRequest) {
+		PendingValidateCode pending = new PendingValidateCode(theRequest);
+		List<PendingValidateCode> batchToSend = null;
+		synchronized (myPendingBatchLock) {
+			if (myPendingBatch == null) {
+				myPendingBatch = new ArrayList<>();
+				batchToSend = myPendingBatch;
+			}
+			myPendingBatch.add(pending);
+			if (myPendingBatch.size() >= myMaximumBatchSize) {
+				// The next request starts a new batch
+				myPendingBatch = null;
+			}
+		}
+
+		if (batchToSend != null) {
+			sendBatch(theValidationSupportContext, theOptions, batchToSend);
+		}
+
+		CodeValidationResult retVal = pending.getResult();
+		if (pending.isValidateIndividually()) {
+			// The batch failed, so validate this code on its own and report any failure to this caller only
+			retVal = invokeRemoteValidateCode(
+					theRequest.getSystem(),
+					theRequest.getCode(),
+					theRequest.getDisplay(),
+					theRequest.getValueSetUrl(),
+					null);
+		}
+		return retVal;
+	}
+
+	private void sendBatch(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			List<PendingValidateCode> theBatch) {
+		try {
+			Thread.sleep(myBatchWindowMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (myPendingBatchLock) {
+			if (myPendingBatch == theBatch) {
+				myPendingBatch = null;
+			}
+		}
+
+		// No other thread can add to the batch anymore
+		List<CodeValidationRequest> requests =
+				theBatch.stream().map(PendingValidateCode::getRequest).collect(Collectors.toList());
+		try {
+			List<CodeValidationResult> results = validateCodes(theValidationSupportContext, theOptions, requests);
+			for (int i = 0; i < theBatch.size(); i++) {
+				theBatch.get(i).getFuture().complete(results.get(i));
+			}
+		} catch (RuntimeException e) {
+			// A failure may only concern some of the codes, so don't hand it to every caller in the batch
+			ourLog.warn(
+					"Failed to validate a batch of {} codes, validating them individually: {}",
+					theBatch.size(),
+					e.toString());
+			for (PendingValidateCode next : theBatch) {
+				next.setValidateIndividually();
+				next.getFuture().complete(null);
+			}
+		} catch (Error e) {
+			for (PendingValidateCode next : theBatch) {
+				next.getFuture().completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Validates all of the given codes using a single <code>batch</code> Bundle containing one
+	 * <code>$validate-code</code> invocation per code. If the terminology server rejects the batch,
+	 * each code is validated using an individual request instead.
+	 */
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			ValidationSupportContext theValidationSupportContext,
+			ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		if (theRequests.size() < 2 || myBatchNotSupported) {
+			return validateCodesIndividually(theRequests);
+		}
+
+		FhirContext fhirContext = getFhirContext();
+		FhirTerser terser = fhirContext.newTerser();
+		BundleBuilder bundleBuilder = new BundleBuilder(fhirContext);
+		bundleBuilder.setType("batch");
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < theRequests.size(); i++) {
+			CodeValidationRequest next = theRequests.get(i);
+			if (isBlank(next.getCode())) {
+				continue;
+			}
+			String valueSetUrl = StringUtils.defaultIfBlank(next.getValueSetUrl(), null);
+			IBaseParameters input = buildValidateCodeInputParameters(
+					next.getSystem(), next.getCode(), next.getDisplay(), valueSetUrl, null);
+			String resourceType = valueSetUrl == null ? "CodeSystem" : "ValueSet";
+
+			IBase entry = bundleBuilder.addEntry();
+			bundleBuilder.addToEntry(entry, "resource", input);
+			terser.setElement(entry, "request.method", "POST");
+			terser.setElement(entry, "request.url", resourceType + "/$validate-code");
+			indexes.add(i);
+		}
+
+		CodeValidationResult[] retVal = new CodeValidationResult[theRequests.size()];
+		if (indexes.isEmpty()) {
+			return Arrays.asList(retVal);
+		}
+
+		List<IBase> responseEntries;
+		try {
+			IBaseBundle response = provideClient()
+					.transaction()
+					.withBundle(bundleBuilder.getBundle())
+					.execute();
+			responseEntries = terser.getValues(response, "entry");
+		} catch (BaseServerResponseException e) {
+			ourLog.warn(
+					"Terminology server rejected a batch of {} $validate-code requests, validating individually: {}",
+					indexes.size(),
+					e.getMessage());
+			if (isBatchNotSupportedStatus(e.getStatusCode())) {
+				// Don't keep sending batches to a server which doesn't support them
+				myBatchNotSupported = true;
+			}
+			return validateCodesIndividually(theRequests);
+		}
+		if (responseEntries.size() != indexes.size()) {
+			ourLog.warn(
+					"Terminology server returned {} entries for a batch of {} $validate-code requests, validating individually",
+					responseEntries.size(),
+					indexes.size());
+			return validateCodesIndividually(theRequests);
+		}
+
+		for (int i = 0; i < indexes.size(); i++) {
+			CodeValidationRequest request = theRequests.get(indexes.get(i));
+			String valueSetUrl = StringUtils.defaultIfBlank(request.getValueSetUrl(), null);
+			ValidationErrorMessageBuilder errorMessageBuilder =
+					createErrorMessageBuilder(request.getSystem(), request.getCode(), valueSetUrl, null);
+
+			IBase responseEntry = responseEntries.get(i);
+			IBaseResource output = terser.getSingleValueOrNull(responseEntry, "resource", IBaseResource.class);
+			if (output instanceof IBaseParameters) {
+				retVal[indexes.get(i)] =
+						createCodeValidationResult((IBaseParameters) output, errorMessageBuilder, request.getCode());
+			} else {
+				String status = defaultString(terser.getSinglePrimitiveValueOrNull(responseEntry, "response.status"));
+				if (status.startsWith("404") || status.startsWith("400")) {
+					// Same outcome as a ResourceNotFoundException or InvalidRequestException on the single path
+					String serverMessage = status;
+					if (output instanceof IBaseOperationOutcome) {
+						serverMessage =
+								OperationOutcomeUtil.getFirstIssueDetails(fhirContext, (IBaseOperationOutcome) output);
+					}
+					CodeValidationIssueCode issueCode = status.startsWith("404")
+							? CodeValidationIssueCode.NOT_FOUND
+							: CodeValidationIssueCode.CODE_INVALID;
+					retVal[indexes.get(i)] = createErrorCodeValidationResult(
+							issueCode, errorMessageBuilder.buildErrorMessage(serverMessage));
+				} else {
+					// Any other failure (e.g. a 5xx) is not an answer about the code, so ask for it on its own
+					ourLog.debug(
+							"Batch entry for code {} returned status {}, validating individually",
+							request.getCode(),
+							status);
+					retVal[indexes.get(i)] = invokeRemoteValidateCode(
+							request.getSystem(), request.getCode(), request.getDisplay(), valueSetUrl, null);
+				}
+			}
+		}
+
+		return Arrays.asList(retVal);
+	}
+
+	private List<CodeValidationResult> validateCodesIndividually(List<CodeValidationRequest> theRequests) {
+		List<CodeValidationResult> retVal = new ArrayList<>(theRequests.size());
+		for (CodeValidationRequest next : theRequests) {
+			retVal.add(invokeRemoteValidateCode(
+					next.getSystem(), next.getCode(), next.getDisplay(), next.getValueSetUrl(), null));
+		}
+		return retVal;
+	}
+
+	private static boolean isBatchNotSupportedStatus(int theStatusCode) {
+		return theStatusCode == Constants.STATUS_HTTP_400_BAD_REQUEST
+				|| theStatusCode == Constants.STATUS_HTTP_404_NOT_FOUND
+				|| theStatusCode == Constants.STATUS_HTTP_405_METHOD_NOT_ALLOWED
+				|| theStatusCode == Constants.STATUS_HTTP_501_NOT_IMPLEMENTED;
+	}
+
 	@Override
 	public CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -585,20 +819,8 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 
 		IGenericClient client = provideClient();
 
-		// this message builder can be removed once we introduce a parameter object like CodeValidationRequest
-		ValidationErrorMessageBuilder errorMessageBuilder = theServerMessage -> {
-			if (theValueSetUrl == null && theValueSet == null) {
-				return getErrorMessage(
-						ERROR_CODE_UNKNOWN_CODE_IN_CODE_SYSTEM, theCodeSystem, theCode, getBaseUrl(), theServerMessage);
-			}
-			return getErrorMessage(
-					ERROR_CODE_UNKNOWN_CODE_IN_VALUE_SET,
-					theCodeSystem,
-					theCode,
-					theValueSetUrl,
-					getBaseUrl(),
-					theServerMessage);
-		};
+		ValidationErrorMessageBuilder errorMessageBuilder =
+				createErrorMessageBuilder(theCodeSystem, theCode, theValueSetUrl, theValueSet);
 
 		IBaseParameters input =
 				buildValidateCodeInputParameters(theCodeSystem, theCode, theDisplay, theValueSetUrl, theValueSet);
@@ -625,6 +847,24 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 		}
 	}
 
+	// this message builder can be removed once CodeValidationRequest is used for single code validations too
+	private ValidationErrorMessageBuilder createErrorMessageBuilder(
+			String theCodeSystem, String theCode, String theValueSetUrl, IBaseResource theValueSet) {
+		return theServerMessage -> {
+			if (theValueSetUrl == null && theValueSet == null) {
+				return getErrorMessage(
+						ERROR_CODE_UNKNOWN_CODE_IN_CODE_SYSTEM, theCodeSystem, theCode, getBaseUrl(), theServerMessage);
+			}
+			return getErrorMessage(
+					ERROR_CODE_UNKNOWN_CODE_IN_VALUE_SET,
+					theCodeSystem,
+					theCode,
+					theValueSetUrl,
+					getBaseUrl(),
+					theServerMessage);
+		};
+	}
+
 	private CodeValidationResult createErrorCodeValidationResult(
 			CodeValidationIssueCode theIssueCode, String theMessage) {
 		IssueSeverity severity = IssueSeverity.ERROR;
@@ -781,6 +1021,52 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 	public void setBaseUrl(String theBaseUrl) {
 		Validate.notBlank(theBaseUrl, "theBaseUrl must be provided");
 		myBaseUrl = theBaseUrl;
+		myBatchNotSupported = false;
+	}
+
+	/**
+	 * If set to a value greater than 0 (default is 0), calls to
+	 * {@link #validateCode(ValidationSupportContext, ConceptValidationOptions, String, String, String, String)}
+	 * made by concurrent threads within this many milliseconds of each other are sent to the terminology
+	 * server together as a single <code>batch</code> Bundle. Every call is delayed by up to this amount,
+	 * so this should only be enabled when many threads validate codes at the same time.
+	 * <p>
+	 * If the terminology server does not support <code>batch</code> Bundles, codes are validated
+	 * individually instead.
+	 * </p>
+	 *
+	 * @since 7.6.0
+	 */
+	public void setBatchWindowMillis(long theBatchWindowMillis) {
+		Validate.isTrue(theBatchWindowMillis >= 0, "theBatchWindowMillis must not be negative");
+		myBatchWindowMillis = theBatchWindowMillis;
+	}
+
+	/**
+	 * @since 7.6.0
+	 * @see #setBatchWindowMillis(long)
+	 */
+	public long getBatchWindowMillis() {
+		return myBatchWindowMillis;
+	}
+
+	/**
+	 * Sets the maximum number of codes which are sent in a single batch (default is 100). Only used
+	 * if {@link #setBatchWindowMillis(long) request batching} is enabled.
+	 *
+	 * @since 7.6.0
+	 */
+	public void setMaximumBatchSize(int theMaximumBatchSize) {
+		Validate.isTrue(theMaximumBatchSize > 0, "theMaximumBatchSize must be greater than 0");
+		myMaximumBatchSize = theMaximumBatchSize;
+	}
+
+	/**
+	 * @since 7.6.0
+	 * @see #setMaximumBatchSize(int)
+	 */
+	public int getMaximumBatchSize() {
+		return myMaximumBatchSize;
 	}
 
 	/**
@@ -796,4 +1082,49 @@ public class RemoteTerminologyServiceValidationSupport extends BaseValidationSup
 		Validate.notNull(theClientInterceptor, "theClientInterceptor must not be null");
 		myClientInterceptors.add(theClientInterceptor);
 	}
+
+	private static class PendingValidateCode {
+
+		private final CodeValidationRequest myRequest;
+		private final CompletableFuture<CodeValidationResult> myFuture = new CompletableFuture<>();
+		private volatile boolean myValidateIndividually;
+
+		private PendingValidateCode(CodeValidationRequest theRequest) {
+			myRequest = theRequest;
+		}
+
+		private boolean isValidateIndividually() {
+			return myValidateIndividually;
+		}
+
+		private void setValidateIndividually() {
+			myValidateIndividually = true;
+		}
+
+		private CodeValidationRequest getRequest() {
+			return myRequest;
+		}
+
+		private CompletableFuture<CodeValidationResult> getFuture() {
+			return myFuture;
+		}
+
+		private CodeValidationResult getResult() {
+			try {
+				return myFuture.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InternalErrorException(
+						Msg.code(2570) + "Interrupted while waiting for $validate-code batch", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				if (e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw new InternalErrorException(Msg.code(2571) + e.getCause().getMessage(), e.getCause());
+			}
+		}
+	}
 }
@@ -3,6 +3,7 @@ package org.hl7.fhir.common.hapi.validation.support;
 import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.LookupCodeRequest;
@@ -18,8 +19,11 @@ import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.slf4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
@@ -385,6 +389,69 @@ public class ValidationSupportChain implements IValidationSupport {
 		return null;
 	}
 
+	@Nonnull
+	@Override
+	public List<CodeValidationResult> validateCodes(
+			@Nonnull ValidationSupportContext theValidationSupportContext,
+			@Nonnull ConceptValidationOptions theOptions,
+			@Nonnull List<CodeValidationRequest> theRequests) {
+		CodeValidationResult[] retVal = new CodeValidationResult[theRequests.size()];
+		List<Integer> unresolved = new ArrayList<>(theRequests.size());
+		for (int i = 0; i < theRequests.size(); i++) {
+			unresolved.add(i);
+		}
+
+		for (IValidationSupport next : myChain) {
+			if (unresolved.isEmpty()) {
+				break;
+			}
+
+			// Pass each module every unresolved request it supports in a single call
+			Map<String, Boolean> supported = new HashMap<>();
+			List<Integer> indexes = new ArrayList<>();
+			List<CodeValidationRequest> requests = new ArrayList<>();
+			for (Integer nextIndex : unresolved) {
+				CodeValidationRequest request = theRequests.get(nextIndex);
+				String valueSetUrl = request.getValueSetUrl();
+				boolean isSupported;
+				if (isBlank(valueSetUrl)) {
+					isSupported = supported.computeIfAbsent(
+							"CodeSystem " + request.getSystem(),
+							t -> next.isCodeSystemSupported(theValidationSupportContext, request.getSystem()));
+				} else {
+					isSupported = supported.computeIfAbsent(
+							"ValueSet " + valueSetUrl,
+							t -> next.isValueSetSupported(theValidationSupportContext, valueSetUrl));
+				}
+				if (isSupported) {
+					indexes.add(nextIndex);
+					requests.add(request);
+				}
+			}
+			if (requests.isEmpty()) {
+				continue;
+			}
+
+			List<CodeValidationResult> results = next.validateCodes(theValidationSupportContext, theOptions, requests);
+			Validate.isTrue(
+					results.size() == requests.size(),
+					"Validation support module %s returned %d results for %d requests",
+					next.getName(),
+					results.size(),
+					requests.size());
+			for (int i = 0; i < indexes.size(); i++) {
+				retVal[indexes.get(i)] = results.get(i);
+			}
+			unresolved.removeIf(t -> retVal[t] != null);
+
+			if (ourLog.isDebugEnabled()) {
+				ourLog.debug("{} of {} codes validated by {}", requests.size(), theRequests.size(), next.getName());
+			}
+		}
+
+		return Arrays.asList(retVal);
+	}
+
 	@Override
 	public CodeValidationResult validateCodeInValueSet(
 			ValidationSupportContext theValidationSupportContext,
@@ -1,11 +1,13 @@
 package org.hl7.fhir.common.hapi.validation.validator;
 
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
 import ca.uhn.fhir.sl.cache.LoadingCache;
 import ca.uhn.fhir.system.HapiSystemProperties;
@@ -15,6 +17,7 @@ import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.time.DateUtils;
 import org.fhir.ucum.UcumService;
 import org.hl7.fhir.common.hapi.validation.support.ValidationSupportUtils;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -56,6 +59,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -72,7 +76,17 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 	private final ValidationSupportContext myValidationSupportContext;
 	private final VersionCanonicalizer myVersionCanonicalizer;
 	private final LoadingCache<ResourceKey, IBaseResource> myFetchResourceCache;
+	/**
+	 * The core validator caches compiled FHIRPath constraints and slicing discriminators on the
+	 * canonical StructureDefinition instances it is given, so we hold on to each converted (and
+	 * snapshotted) resource for as long as the underlying validation support keeps returning
+	 * the same source instance. This means that an expiry of {@link #myFetchResourceCache} only
+	 * costs a lookup, not a new conversion, snapshot and FHIRPath compilation.
+	 */
+	private final Cache<ResourceKey, CompiledResource> myCompiledResourceCache;
+
 	private volatile List<StructureDefinition> myAllStructures;
+	private volatile Map<String, List<StructureDefinition>> myTypeToStructures;
 	private volatile Set<String> myAllPrimitiveTypes;
 	private Parameters myExpansionProfile;
 
@@ -83,6 +97,8 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 
 		long timeoutMillis = HapiSystemProperties.getTestValidationResourceCachesMs();
 
+		myCompiledResourceCache = CacheFactory.build(DateUtils.MILLIS_PER_HOUR, 10000);
+
 		myFetchResourceCache = CacheFactory.build(timeoutMillis, 10000, key -> {
 			String fetchResourceName = key.getResourceName();
 			if (myValidationSupportContext
@@ -111,6 +127,12 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 					.getRootValidationSupport()
 					.fetchResource(fetchResourceType, key.getUri());
 
+			CompiledResource compiled = myCompiledResourceCache.getIfPresent(key);
+			if (compiled != null && fetched != null && compiled.getSource() == fetched) {
+				return compiled.getCanonical();
+			}
+			IBaseResource source = fetched;
+
 			Resource canonical = myVersionCanonicalizer.resourceToValidatorCanonical(fetched);
 
 			if (canonical instanceof StructureDefinition) {
@@ -128,6 +150,10 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 				}
 			}
 
+			if (canonical != null) {
+				myCompiledResourceCache.put(key, new CompiledResource(source, canonical));
+			}
+
 			return canonical;
 		});
 
@@ -246,6 +272,11 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 				try {
 					StructureDefinition converted = myVersionCanonicalizer.structureDefinitionToCanonical(next);
 					retVal.add(converted);
+					if (converted.hasUrl() && !converted.getSnapshot().isEmpty()) {
+						// Share the instance with fetchResource so that both use the same compiled state
+						ResourceKey key = new ResourceKey("StructureDefinition", converted.getUrl());
+						myCompiledResourceCache.put(key, new CompiledResource(next, converted));
+					}
 				} catch (FHIRException e) {
 					throw new InternalErrorException(Msg.code(659) + e);
 				}
@@ -610,9 +641,23 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 
 	@Override
 	public List<StructureDefinition> fetchTypeDefinitions(String theTypeName) {
-		List<StructureDefinition> allStructures = new ArrayList<>(allStructures());
-		allStructures.removeIf(sd -> !sd.hasType() || !sd.getType().equals(theTypeName));
-		return allStructures;
+		List<StructureDefinition> structures = typeToStructures().getOrDefault(theTypeName, Collections.emptyList());
+		return new ArrayList<>(structures);
+	}
+
+	private Map<String, List<StructureDefinition>> typeToStructures() {
+		Map<String, List<StructureDefinition>> retVal = myTypeToStructures;
+		if (retVal == null) {
+			retVal = new HashMap<>();
+			for (StructureDefinition next : allStructures()) {
+				if (next.hasType()) {
+					retVal.computeIfAbsent(next.getType(), t -> new ArrayList<>())
+							.add(next);
+				}
+			}
+			myTypeToStructures = retVal;
+		}
+		return retVal;
 	}
 
 	@Override
@@ -812,9 +857,64 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 	@Override
 	public void validateCodeBatch(
 			ValidationOptions options, List<? extends CodingValidationRequest> codes, ValueSet vs) {
-		for (CodingValidationRequest next : codes) {
-			ValidationResult outcome = validateCode(options, next.getCoding(), vs);
-			next.setResult(outcome);
+		IBaseResource convertedVs = null;
+		try {
+			if (vs != null) {
+				convertedVs = myVersionCanonicalizer.valueSetFromValidatorCanonical(vs);
+			}
+		} catch (FHIRException e) {
+			throw new InternalErrorException(Msg.code(2574) + e);
+		}
+
+		ConceptValidationOptions validationOptions = convertConceptValidationOptions(options);
+
+		/*
+		 * ValueSet membership is checked code by code, but the code system checks
+		 * which follow it are passed down the chain as a single batch so that
+		 * modules which support it can answer them all at once.
+		 */
+		List<IValidationSupport.CodeValidationResult> results = new ArrayList<>(codes.size());
+		List<CodeValidationRequest> codeSystemRequests = new ArrayList<>(codes.size());
+		List<Integer> codeSystemRequestIndexes = new ArrayList<>(codes.size());
+		for (int i = 0; i < codes.size(); i++) {
+			Coding coding = codes.get(i).getCoding();
+			IValidationSupport.CodeValidationResult result = null;
+			if (convertedVs != null) {
+				result = myValidationSupportContext
+						.getRootValidationSupport()
+						.validateCodeInValueSet(
+								myValidationSupportContext,
+								validationOptions,
+								coding.getSystem(),
+								coding.getCode(),
+								coding.getDisplay(),
+								convertedVs);
+			}
+			results.add(result);
+			if (convertedVs == null || result != null) {
+				codeSystemRequests.add(
+						new CodeValidationRequest(coding.getSystem(), coding.getCode(), coding.getDisplay(), null));
+				codeSystemRequestIndexes.add(i);
+			}
+		}
+
+		if (!codeSystemRequests.isEmpty()) {
+			List<IValidationSupport.CodeValidationResult> codeSystemResults = myValidationSupportContext
+					.getRootValidationSupport()
+					.validateCodes(myValidationSupportContext, validationOptions, codeSystemRequests);
+			for (int i = 0; i < codeSystemRequestIndexes.size(); i++) {
+				int index = codeSystemRequestIndexes.get(i);
+				if (convertedVs == null) {
+					results.set(index, codeSystemResults.get(i));
+				} else {
+					addCodeSystemIssues(results.get(index), codeSystemResults.get(i));
+				}
+			}
+		}
+
+		for (int i = 0; i < codes.size(); i++) {
+			CodingValidationRequest next = codes.get(i);
+			next.setResult(convertValidationResult(next.getCoding().getSystem(), results.get(i)));
 		}
 	}
 
@@ -858,23 +958,29 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 			*/
 			IValidationSupport.CodeValidationResult codeSystemResult =
 					validateCodeInCodeSystem(theValidationOptions, theSystem, theCode, theDisplay);
-			final boolean valueSetResultContainsInvalidDisplay = result.getCodeValidationIssues().stream()
-					.anyMatch(codeValidationIssue -> codeValidationIssue.getCoding()
-							== IValidationSupport.CodeValidationIssueCoding.INVALID_DISPLAY);
-			if (codeSystemResult != null) {
-				for (IValidationSupport.CodeValidationIssue codeValidationIssue :
-						codeSystemResult.getCodeValidationIssues()) {
-					/* Value set validation should already have checked the display name. If we get INVALID_DISPLAY
-					issues from code system validation, they will only repeat what was already caught.
-					*/
-					if (codeValidationIssue.getCoding() != IValidationSupport.CodeValidationIssueCoding.INVALID_DISPLAY
-							|| !valueSetResultContainsInvalidDisplay) {
-						result.addCodeValidationIssue(codeValidationIssue);
-					}
+			addCodeSystemIssues(result, codeSystemResult);
+		}
+		return result;
+	}
+
+	private static void addCodeSystemIssues(
+			@Nonnull IValidationSupport.CodeValidationResult theValueSetResult,
+			@Nullable IValidationSupport.CodeValidationResult theCodeSystemResult) {
+		final boolean valueSetResultContainsInvalidDisplay = theValueSetResult.getCodeValidationIssues().stream()
+				.anyMatch(codeValidationIssue -> codeValidationIssue.getCoding()
+						== IValidationSupport.CodeValidationIssueCoding.INVALID_DISPLAY);
+		if (theCodeSystemResult != null) {
+			for (IValidationSupport.CodeValidationIssue codeValidationIssue :
+					theCodeSystemResult.getCodeValidationIssues()) {
+				/* Value set validation should already have checked the display name. If we get INVALID_DISPLAY
+				issues from code system validation, they will only repeat what was already caught.
+				*/
+				if (codeValidationIssue.getCoding() != IValidationSupport.CodeValidationIssueCoding.INVALID_DISPLAY
+						|| !valueSetResultContainsInvalidDisplay) {
+					theValueSetResult.addCodeValidationIssue(codeValidationIssue);
 				}
 			}
 		}
-		return result;
 	}
 
 	private IValidationSupport.CodeValidationResult validateCodeInCodeSystem(
@@ -941,6 +1047,10 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 
 	public void invalidateCaches() {
 		myFetchResourceCache.invalidateAll();
+		myCompiledResourceCache.invalidateAll();
+		myAllStructures = null;
+		myAllPrimitiveTypes = null;
+		myTypeToStructures = null;
 	}
 
 	@Override
@@ -1013,6 +1123,24 @@ public class VersionSpecificWorkerContextWrapper extends I18nBase implements IWo
 				new ValidationSupportContext(theValidationSupport), versionCanonicalizer);
 	}
 
+	private static class CompiledResource {
+		private final IBaseResource mySource;
+		private final Resource myCanonical;
+
+		private CompiledResource(IBaseResource theSource, Resource theCanonical) {
+			mySource = theSource;
+			myCanonical = theCanonical;
+		}
+
+		public IBaseResource getSource() {
+			return mySource;
+		}
+
+		public Resource getCanonical() {
+			return myCanonical;
+		}
+	}
+
 	private static class ResourceKey {
 		private final int myHashCode;
 		private final String myResourceName;
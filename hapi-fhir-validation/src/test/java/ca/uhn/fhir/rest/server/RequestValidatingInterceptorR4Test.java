@@ -53,6 +53,7 @@ import org.mockito.Mockito;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -402,6 +403,41 @@ public class RequestValidatingInterceptorR4Test extends BaseValidationTestWithIn
 		assertThat(status.toString()).doesNotContain("X-FHIR-Request-Validation");
 	}
 
+	@Test
+	public void testValidationResultCache() throws Exception {
+		myInterceptor.setAddResponseHeaderOnSeverity(null);
+		myInterceptor.setAddResponseOutcomeHeaderOnSeverity(ResultSeverityEnum.INFORMATION);
+		IValidatorModule module = mock(IValidatorModule.class);
+		myInterceptor.addValidatorModule(module);
+		myInterceptor.setValidationResultCacheTimeoutMillis(60000);
+
+		Patient patient = new Patient();
+		patient.addIdentifier().setValue("002");
+		String encoded = ourCtx.newJsonParser().encodeResourceToString(patient);
+		patient.addIdentifier().setValue("003");
+		String encoded2 = ourCtx.newJsonParser().encodeResourceToString(patient);
+
+		// Identical payloads are only validated once
+		for (String next : List.of(encoded, encoded, encoded2, encoded)) {
+			HttpPost httpPost = new HttpPost("http://localhost:" + ourPort + "/Patient");
+			httpPost.setEntity(new StringEntity(next, ContentType.create(Constants.CT_FHIR_JSON, "UTF-8")));
+			try (CloseableHttpResponse status = ourClient.getClient().execute(httpPost)) {
+				assertEquals(201, status.getStatusLine().getStatusCode());
+				assertThat(status.toString()).contains("X-FHIR-Request-Validation");
+			}
+		}
+		Mockito.verify(module, Mockito.times(2)).validateResource(Mockito.any(IValidationContext.class));
+
+		// Clearing the cache forces revalidation
+		myInterceptor.clearValidationResultCache();
+		HttpPost httpPost = new HttpPost("http://localhost:" + ourPort + "/Patient");
+		httpPost.setEntity(new StringEntity(encoded, ContentType.create(Constants.CT_FHIR_JSON, "UTF-8")));
+		try (CloseableHttpResponse status = ourClient.getClient().execute(httpPost)) {
+			assertEquals(201, status.getStatusLine().getStatusCode());
+		}
+		Mockito.verify(module, Mockito.times(3)).validateResource(Mockito.any(IValidationContext.class));
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testInterceptorExceptionIseNoIgnore() throws Exception {
@@ -1,12 +1,18 @@
 package org.hl7.fhir.common.hapi.validation.support;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
 import com.google.common.collect.Lists;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.time.DateUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.ValueSet;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
@@ -14,13 +20,26 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.util.TestUtil.sleepAtLeast;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -99,6 +118,184 @@ public class CachingValidationSupportTest {
 		assertEquals(theIsEnabledValidationForCodingsLogicalAnd != null && theIsEnabledValidationForCodingsLogicalAnd, support.isEnabledValidationForCodingsLogicalAnd());
 	}
 
+	@Test
+	public void validateCodes_onlyUncachedCodesArePassedToWrappedSupport() {
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.validateCodes(any(), any(), any())).thenAnswer(t -> {
+			List<CodeValidationRequest> requests = t.getArgument(2);
+			return requests.stream()
+				.map(r -> "unknown".equals(r.getCode()) ? null : new IValidationSupport.CodeValidationResult().setCode(r.getCode()))
+				.collect(Collectors.toList());
+		});
+		final CachingValidationSupport support = getSupport(null, null);
+		ValidationSupportContext context = new ValidationSupportContext(support);
+		CodeValidationRequest request1 = new CodeValidationRequest("http://foo", "1", null, null);
+		CodeValidationRequest request2 = new CodeValidationRequest("http://foo", "2", null, null);
+		CodeValidationRequest unknown = new CodeValidationRequest("http://foo", "unknown", null, null);
+
+		List<IValidationSupport.CodeValidationResult> results = support.validateCodes(context, new ConceptValidationOptions(), List.of(request1, unknown));
+		assertThat(results).hasSize(2);
+		assertEquals("1", results.get(0).getCode());
+		assertNull(results.get(1));
+
+		results = support.validateCodes(context, new ConceptValidationOptions(), List.of(request2, request1, unknown));
+		assertThat(results).hasSize(3);
+		assertEquals("2", results.get(0).getCode());
+		assertEquals("1", results.get(1).getCode());
+		assertNull(results.get(2));
+
+		// Misses are not remembered by default, so the unknown code is asked for again
+		verify(myValidationSupport, times(1)).validateCodes(any(), any(), eq(List.of(request1, unknown)));
+		verify(myValidationSupport, times(1)).validateCodes(any(), any(), eq(List.of(request2, unknown)));
+	}
+
+	@Test
+	public void validateCodes_missingResourceCachingEnabled_missIsRemembered() {
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.validateCodes(any(), any(), any())).thenAnswer(t -> {
+			List<CodeValidationRequest> requests = t.getArgument(2);
+			return requests.stream()
+				.map(r -> "unknown".equals(r.getCode()) ? null : new IValidationSupport.CodeValidationResult().setCode(r.getCode()))
+				.collect(Collectors.toList());
+		});
+		CachingValidationSupport.CacheTimeouts cacheTimeouts = CachingValidationSupport.CacheTimeouts
+			.defaultValues()
+			.setMissingResourceMillis(10000);
+		final CachingValidationSupport support = getSupport(cacheTimeouts, null);
+		ValidationSupportContext context = new ValidationSupportContext(support);
+		CodeValidationRequest request1 = new CodeValidationRequest("http://foo", "1", null, null);
+		CodeValidationRequest request2 = new CodeValidationRequest("http://foo", "2", null, null);
+		CodeValidationRequest unknown = new CodeValidationRequest("http://foo", "unknown", null, null);
+
+		support.validateCodes(context, new ConceptValidationOptions(), List.of(request1, unknown));
+		List<IValidationSupport.CodeValidationResult> results = support.validateCodes(context, new ConceptValidationOptions(), List.of(request2, unknown));
+		assertThat(results).hasSize(2);
+		assertEquals("2", results.get(0).getCode());
+		assertNull(results.get(1));
+
+		verify(myValidationSupport, times(1)).validateCodes(any(), any(), eq(List.of(request1, unknown)));
+		verify(myValidationSupport, times(1)).validateCodes(any(), any(), eq(List.of(request2)));
+	}
+
+	@Test
+	public void fetchValueSet_concurrentMisses_loadOnlyOnce() throws Exception {
+		ValueSet valueSet = new ValueSet();
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.fetchValueSet("http://foo")).thenAnswer(t -> {
+			loadStarted.countDown();
+			Thread.sleep(500);
+			return valueSet;
+		});
+		final CachingValidationSupport support = getSupport(null, null);
+
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<IBaseResource>> futures = new ArrayList<>();
+			futures.add(executor.submit(() -> support.fetchValueSet("http://foo")));
+			assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> support.fetchValueSet("http://foo")));
+			}
+			for (Future<IBaseResource> next : futures) {
+				assertThat(next.get(10, TimeUnit.SECONDS)).isSameAs(valueSet);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(myValidationSupport, times(1)).fetchValueSet("http://foo");
+	}
+
+	@Test
+	public void fetchValueSet_missingResourceCachingEnabled_missIsRemembered() {
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.fetchValueSet("http://foo")).thenReturn(null);
+		CachingValidationSupport.CacheTimeouts cacheTimeouts = CachingValidationSupport.CacheTimeouts
+			.defaultValues()
+			.setMissingResourceMillis(10000);
+		final CachingValidationSupport support = getSupport(cacheTimeouts, null);
+
+		assertNull(support.fetchValueSet("http://foo"));
+		assertNull(support.fetchValueSet("http://foo"));
+		verify(myValidationSupport, times(1)).fetchValueSet("http://foo");
+
+		support.invalidateCaches();
+		assertNull(support.fetchValueSet("http://foo"));
+		verify(myValidationSupport, times(2)).fetchValueSet("http://foo");
+	}
+
+	@Test
+	public void fetchValueSet_missingResourceCachingDisabled_missIsNotRemembered() {
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.fetchValueSet("http://foo")).thenReturn(null);
+		final CachingValidationSupport support = getSupport(null, null);
+
+		assertNull(support.fetchValueSet("http://foo"));
+		assertNull(support.fetchValueSet("http://foo"));
+		verify(myValidationSupport, times(2)).fetchValueSet("http://foo");
+	}
+
+	@Test
+	public void fetchValueSet_entryNearingExpiry_isRefreshedInBackground() {
+		ValueSet valueSet0 = new ValueSet();
+		ValueSet valueSet1 = new ValueSet();
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.fetchValueSet("http://foo")).thenReturn(valueSet0, valueSet1);
+		final CachingValidationSupport support = getSupport(null, null);
+		AtomicLong now = new AtomicLong(System.currentTimeMillis());
+		support.setClockForUnitTest(now::get);
+
+		assertThat(support.fetchValueSet("http://foo")).isSameAs(valueSet0);
+
+		// Before the refresh-ahead point (3/4 of the 10 minute timeout) the entry is simply returned
+		now.addAndGet(7 * DateUtils.MILLIS_PER_MINUTE);
+		assertThat(support.fetchValueSet("http://foo")).isSameAs(valueSet0);
+		verify(myValidationSupport, times(1)).fetchValueSet("http://foo");
+
+		// Past the refresh-ahead point, the current value is returned while a reload happens in the background
+		now.addAndGet(DateUtils.MILLIS_PER_MINUTE);
+		assertThat(support.fetchValueSet("http://foo")).isSameAs(valueSet0);
+		await().until(() -> support.fetchValueSet("http://foo") == valueSet1);
+		verify(myValidationSupport, times(2)).fetchValueSet("http://foo");
+	}
+
+	@Test
+	public void fetchValueSet_inFlightLoadTakesTooLong_waiterLoadsDirectly() throws Exception {
+		ValueSet valueSet0 = new ValueSet();
+		ValueSet valueSet1 = new ValueSet();
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch releaseLoad = new CountDownLatch(1);
+		AtomicInteger loadCount = new AtomicInteger();
+		when(myValidationSupport.getFhirContext()).thenReturn(ourCtx);
+		when(myValidationSupport.fetchValueSet("http://foo")).thenAnswer(t -> {
+			if (loadCount.getAndIncrement() == 0) {
+				// Simulates a load which is stuck, e.g. waiting on a key the other thread is loading
+				loadStarted.countDown();
+				assertTrue(releaseLoad.await(10, TimeUnit.SECONDS));
+				return valueSet0;
+			}
+			return valueSet1;
+		});
+		final CachingValidationSupport support = getSupport(null, null);
+		support.setInFlightLoadWaitMillisForUnitTest(100);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<IBaseResource> stuck = executor.submit(() -> support.fetchValueSet("http://foo"));
+			assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+
+			assertThat(support.fetchValueSet("http://foo")).isSameAs(valueSet1);
+
+			releaseLoad.countDown();
+			assertThat(stuck.get(10, TimeUnit.SECONDS)).isSameAs(valueSet0);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		verify(myValidationSupport, times(2)).fetchValueSet("http://foo");
+	}
+
 	@Nonnull
 	private CachingValidationSupport getSupport(@Nullable CachingValidationSupport.CacheTimeouts theCacheTimeouts, @Nullable Boolean theIsEnabledValidationForCodingsLogicalAnd) {
 		if (theCacheTimeouts == null) {
@@ -4,6 +4,7 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.LookupCodeRequest;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.fhirpath.BaseValidationTestWithInlineMocks;
@@ -570,6 +571,75 @@ public class InMemoryTerminologyServerValidationSupportTest extends BaseValidati
 		assertEquals("MODERNA COVID-19 mRNA-1273", valueSet.getExpansion().getContains().get(0).getDisplay());
 	}
 
+	@Test
+	public void testValidateCode_LargeEnumeratedValueSet() {
+		myPrePopulated.addCodeSystem(createLargeCodeSystem("Display"));
+
+		ValueSet vs = new ValueSet();
+		vs.setUrl("http://example.com/ValueSet/large");
+		vs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		ValueSet.ConceptSetComponent vsInclude = vs.getCompose().addInclude();
+		vsInclude.setSystem("http://example.com/CodeSystem/large");
+		for (int i = 0; i < 5000; i += 2) {
+			vsInclude.addConcept().setCode("code-" + i);
+		}
+		myPrePopulated.addValueSet(vs);
+
+		ValidationSupportContext valCtx = new ValidationSupportContext(myChain);
+		ConceptValidationOptions options = new ConceptValidationOptions();
+		String codeSystemUrl = "http://example.com/CodeSystem/large";
+		String valueSetUrl = "http://example.com/ValueSet/large";
+		IValidationSupport.CodeValidationResult outcome;
+
+		// Good code
+		outcome = mySvc.validateCode(valCtx, options, codeSystemUrl, "code-10", null, valueSetUrl);
+		assertTrue(outcome.isOk());
+		assertEquals("Display 10", outcome.getDisplay());
+		outcome = mySvc.validateCodeInValueSet(valCtx, options, codeSystemUrl, "code-4998", null, vs);
+		assertTrue(outcome.isOk());
+		assertEquals("Display 4998", outcome.getDisplay());
+
+		// CodeSystem is not case sensitive
+		outcome = mySvc.validateCode(valCtx, options, codeSystemUrl, "CODE-20", null, valueSetUrl);
+		assertTrue(outcome.isOk());
+		assertEquals("Display 20", outcome.getDisplay());
+
+		// Code is in the CodeSystem but not in the ValueSet
+		outcome = mySvc.validateCode(valCtx, options, codeSystemUrl, "code-11", null, valueSetUrl);
+		assertFalse(outcome.isOk());
+		assertEquals("Unknown code 'http://example.com/CodeSystem/large#code-11' for in-memory expansion of ValueSet 'http://example.com/ValueSet/large'", outcome.getMessage());
+
+		// Wrong system
+		outcome = mySvc.validateCode(valCtx, options, "http://example.com/CodeSystem/other", "code-10", null, valueSetUrl);
+		assertFalse(outcome.isOk());
+
+		// Lookup without a ValueSet
+		IValidationSupport.LookupCodeResult lookupOutcome = mySvc.lookupCode(valCtx, new LookupCodeRequest(codeSystemUrl, "code-11"));
+		assertNotNull(lookupOutcome);
+		assertTrue(lookupOutcome.isFound());
+		assertEquals("Display 11", lookupOutcome.getCodeDisplay());
+
+		// Replacing the CodeSystem is picked up
+		myPrePopulated.addCodeSystem(createLargeCodeSystem("New display"));
+		outcome = mySvc.validateCode(valCtx, options, codeSystemUrl, "code-10", null, valueSetUrl);
+		assertTrue(outcome.isOk());
+		assertEquals("New display 10", outcome.getDisplay());
+		lookupOutcome = mySvc.lookupCode(valCtx, new LookupCodeRequest(codeSystemUrl, "code-11"));
+		assertEquals("New display 11", lookupOutcome.getCodeDisplay());
+	}
+
+	private static CodeSystem createLargeCodeSystem(String theDisplayPrefix) {
+		CodeSystem cs = new CodeSystem();
+		cs.setUrl("http://example.com/CodeSystem/large");
+		cs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		cs.setContent(CodeSystem.CodeSystemContentMode.COMPLETE);
+		cs.setCaseSensitive(false);
+		for (int i = 0; i < 5000; i++) {
+			cs.addConcept().setCode("code-" + i).setDisplay(theDisplayPrefix + " " + i);
+		}
+		return cs;
+	}
+
     @ParameterizedTest
 	 @ValueSource(strings = {"http://terminology.hl7.org/CodeSystem/v2-0360|2.7","http://terminology.hl7.org/CodeSystem/v2-0360"})
     void testValidateCodeInValueSet_VsExpandedWithIncludes(String theCodeSystemUri) {
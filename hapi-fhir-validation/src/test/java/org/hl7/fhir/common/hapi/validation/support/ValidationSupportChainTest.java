@@ -3,12 +3,20 @@ package org.hl7.fhir.common.hapi.validation.support;
 import ca.uhn.fhir.context.ConfigurationException;
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
+import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.DefaultProfileValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport;
+import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.fhirpath.BaseValidationTestWithInlineMocks;
 import ca.uhn.fhir.i18n.Msg;
+import jakarta.annotation.Nonnull;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -64,6 +72,37 @@ public class ValidationSupportChainTest extends BaseValidationTestWithInlineMock
 	}
 
 
+	@Test
+	public void validateCodes_normally_passesUnresolvedCodesToNextSupportInOneCall() {
+		FhirContext ctx = FhirContext.forR4Cached();
+		CodeSystemValidationSupport validationSupport1 = new CodeSystemValidationSupport(ctx, "http://foo", "1");
+		CodeSystemValidationSupport validationSupport2 = new CodeSystemValidationSupport(ctx, "http://foo", "1", "2", "3");
+		CodeSystemValidationSupport validationSupport3 = new CodeSystemValidationSupport(ctx, "http://bar", "1");
+		ValidationSupportChain validationSupportChain = new ValidationSupportChain(validationSupport1, validationSupport2, validationSupport3);
+
+		CodeValidationRequest foo1 = new CodeValidationRequest("http://foo", "1", null, null);
+		CodeValidationRequest foo2 = new CodeValidationRequest("http://foo", "2", null, null);
+		CodeValidationRequest foo3 = new CodeValidationRequest("http://foo", "3", null, null);
+		CodeValidationRequest foo4 = new CodeValidationRequest("http://foo", "4", null, null);
+		CodeValidationRequest bar1 = new CodeValidationRequest("http://bar", "1", null, null);
+
+		List<IValidationSupport.CodeValidationResult> results = validationSupportChain.validateCodes(
+			new ValidationSupportContext(validationSupportChain),
+			new ConceptValidationOptions(),
+			List.of(foo1, bar1, foo2, foo4, foo3));
+
+		assertThat(results).hasSize(5);
+		assertEquals("1", results.get(0).getCode());
+		assertEquals("1", results.get(1).getCode());
+		assertEquals("2", results.get(2).getCode());
+		assertNull(results.get(3));
+		assertEquals("3", results.get(4).getCode());
+
+		assertThat(validationSupport1.myBatches).containsExactly(List.of(foo1, foo2, foo4, foo3));
+		assertThat(validationSupport2.myBatches).containsExactly(List.of(foo2, foo4, foo3));
+		assertThat(validationSupport3.myBatches).containsExactly(List.of(bar1));
+	}
+
 	private static IValidationSupport createMockValidationSupport() {
 		IValidationSupport validationSupport;
 		validationSupport = mock(IValidationSupport.class);
@@ -74,6 +113,39 @@ public class ValidationSupportChainTest extends BaseValidationTestWithInlineMock
 	}
 
 
+	private static class CodeSystemValidationSupport extends BaseValidationSupport {
+
+		private final String mySystem;
+		private final Set<String> myCodes;
+		private final List<List<CodeValidationRequest>> myBatches = new ArrayList<>();
+
+		private CodeSystemValidationSupport(FhirContext theFhirContext, String theSystem, String... theCodes) {
+			super(theFhirContext);
+			mySystem = theSystem;
+			myCodes = Set.of(theCodes);
+		}
+
+		@Override
+		public boolean isCodeSystemSupported(ValidationSupportContext theValidationSupportContext, String theSystem) {
+			return mySystem.equals(theSystem);
+		}
+
+		@Nonnull
+		@Override
+		public List<CodeValidationResult> validateCodes(ValidationSupportContext theValidationSupportContext, ConceptValidationOptions theOptions, @Nonnull List<CodeValidationRequest> theRequests) {
+			myBatches.add(theRequests);
+			return super.validateCodes(theValidationSupportContext, theOptions, theRequests);
+		}
+
+		@Override
+		public CodeValidationResult validateCode(ValidationSupportContext theValidationSupportContext, ConceptValidationOptions theOptions, String theCodeSystem, String theCode, String theDisplay, String theValueSetUrl) {
+			if (myCodes.contains(theCode)) {
+				return new CodeValidationResult().setCode(theCode);
+			}
+			return null;
+		}
+	}
+
 	private static IValidationSupport createMockValidationSupportWithSingleBinary(String expected_binary_key, byte[] expected_binary_content) {
 		IValidationSupport validationSupport1  = createMockValidationSupport();
 		when(validationSupport1.fetchBinary(expected_binary_key)).thenReturn(expected_binary_content);
@@ -2,29 +2,36 @@ package org.hl7.fhir.common.hapi.validation.validator;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.fhirpath.BaseValidationTestWithInlineMocks;
 import ca.uhn.fhir.i18n.HapiLocalizer;
+import ca.uhn.fhir.system.HapiSystemProperties;
 import ca.uhn.hapi.converters.canonical.VersionCanonicalizer;
 
+import org.hl7.fhir.r5.model.Coding;
 import org.hl7.fhir.r5.model.Resource;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
 import org.hl7.fhir.r5.model.ValueSet;
+import org.hl7.fhir.r5.terminologies.utilities.CodingValidationRequest;
 import org.hl7.fhir.utilities.validation.ValidationOptions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.quality.Strictness;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class VersionSpecificWorkerContextWrapperTest extends BaseValidationTestWithInlineMocks {
@@ -101,6 +108,33 @@ public class VersionSpecificWorkerContextWrapperTest extends BaseValidationTestW
 		verify(validationSupport, times(1)).validateCode(any(), any(), eq("http://codesystems.com/system"), eq("code0"), any(), any());
 	}
 
+	@Test
+	public void validateCodeBatch_withoutValueSet_validatesCodesAsOneBatch() {
+		// setup
+		IValidationSupport validationSupport = mockValidationSupport();
+		ValidationSupportContext mockContext = mockValidationSupportContext(validationSupport);
+		VersionCanonicalizer versionCanonicalizer = new VersionCanonicalizer(FhirContext.forR5Cached());
+		VersionSpecificWorkerContextWrapper wrapper = new VersionSpecificWorkerContextWrapper(mockContext, versionCanonicalizer);
+
+		when(validationSupport.validateCodes(any(), any(), any())).thenReturn(Arrays.asList(
+			new IValidationSupport.CodeValidationResult().setCode("code0"),
+			null));
+		List<CodingValidationRequest> requests = List.of(
+			new CodingValidationRequest(new Coding("http://codesystems.com/system", "code0", null)),
+			new CodingValidationRequest(new Coding("http://codesystems.com/system", "code1", null)));
+
+		// execute
+		wrapper.validateCodeBatch(new ValidationOptions(), requests, null);
+
+		// verify
+		ArgumentCaptor<List<CodeValidationRequest>> captor = ArgumentCaptor.forClass(List.class);
+		verify(validationSupport, times(1)).validateCodes(any(), any(), captor.capture());
+		verify(validationSupport, never()).validateCode(any(), any(), any(), any(), any(), any());
+		assertThat(captor.getValue()).extracting(CodeValidationRequest::getCode).containsExactly("code0", "code1");
+		assertThat(requests.get(0).getResult().getCode()).isEqualTo("code0");
+		assertThat(requests.get(1).getResult().isOk()).isFalse();
+	}
+
 	@Test
 	public void isPrimitive_primitive() {
 		// setup
@@ -138,6 +172,63 @@ public class VersionSpecificWorkerContextWrapperTest extends BaseValidationTestW
 		assertThat(wrapper.isPrimitiveType("Unknown")).isFalse();
 	}
 
+	@Test
+	public void fetchResource_sourceUnchangedAfterExpiry_reusesCanonicalInstance() {
+		HapiSystemProperties.setTestValidationResourceCachesMs(0);
+		try {
+			// setup
+			IValidationSupport validationSupport = mock(IValidationSupport.class);
+			when(validationSupport.getFhirContext()).thenReturn(FhirContext.forR4Cached());
+			ValidationSupportContext mockContext = mockValidationSupportContext(validationSupport);
+			VersionCanonicalizer versionCanonicalizer = new VersionCanonicalizer(FhirContext.forR4Cached());
+			VersionSpecificWorkerContextWrapper wrapper = new VersionSpecificWorkerContextWrapper(mockContext, versionCanonicalizer);
+
+			String url = "http://example.com/StructureDefinition/MyPatient";
+			org.hl7.fhir.r4.model.StructureDefinition sd = new org.hl7.fhir.r4.model.StructureDefinition();
+			sd.setUrl(url).setType("Patient");
+			sd.getSnapshot().addElement().setPath("Patient");
+			when(validationSupport.fetchResource(any(), eq(url))).thenReturn(sd);
+
+			// execute
+			StructureDefinition first = wrapper.fetchResource(StructureDefinition.class, url);
+			StructureDefinition second = wrapper.fetchResource(StructureDefinition.class, url);
+
+			// verify
+			verify(validationSupport, times(2)).fetchResource(any(), eq(url));
+			assertThat(first).isNotNull();
+			assertThat(second).isSameAs(first);
+
+			// A new source instance is converted again
+			when(validationSupport.fetchResource(any(), eq(url))).thenReturn(sd.copy());
+			StructureDefinition third = wrapper.fetchResource(StructureDefinition.class, url);
+			assertThat(third).isNotSameAs(first);
+			assertThat(third.getUrl()).isEqualTo(url);
+		} finally {
+			System.clearProperty("TEST_SYSTEM_PROP_VALIDATION_RESOURCE_CACHES_MS");
+		}
+	}
+
+	@Test
+	public void fetchTypeDefinitions_returnsStructuresForType() {
+		// setup
+		IValidationSupport validationSupport = mockValidationSupport();
+		ValidationSupportContext mockContext = mockValidationSupportContext(validationSupport);
+		VersionCanonicalizer versionCanonicalizer = new VersionCanonicalizer(FhirContext.forR5Cached());
+		VersionSpecificWorkerContextWrapper wrapper = new VersionSpecificWorkerContextWrapper(mockContext, versionCanonicalizer);
+
+		List<StructureDefinition> structDefs = createStructureDefinitions();
+		structDefs.forEach(sd -> sd.setType(sd.getName()));
+		when(mockContext.getRootValidationSupport().<StructureDefinition>fetchAllStructureDefinitions()).thenReturn(structDefs);
+
+		// execute & verify
+		assertThat(wrapper.fetchTypeDefinitions("Person")).extracting(StructureDefinition::getName).containsExactly("Person");
+		assertThat(wrapper.fetchTypeDefinitions("Unknown")).isEmpty();
+
+		// The returned list is a copy
+		wrapper.fetchTypeDefinitions("Person").clear();
+		assertThat(wrapper.fetchTypeDefinitions("Person")).hasSize(1);
+	}
+
 	private List<StructureDefinition> createStructureDefinitions() {
 		StructureDefinition stringType = createPrimitive("string");
 		StructureDefinition boolType = createPrimitive("boolean");
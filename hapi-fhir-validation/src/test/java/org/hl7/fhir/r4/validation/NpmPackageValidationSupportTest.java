@@ -13,8 +13,14 @@ import org.hl7.fhir.common.hapi.validation.support.NpmPackageValidationSupport;
 import org.hl7.fhir.common.hapi.validation.support.SnapshotGeneratingValidationSupport;
 import org.hl7.fhir.common.hapi.validation.support.ValidationSupportChain;
 import org.hl7.fhir.common.hapi.validation.validator.FhirInstanceValidator;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.StructureDefinition;
+import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +30,7 @@ import java.util.Map;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NpmPackageValidationSupportTest extends BaseValidationTestWithInlineMocks {
@@ -36,12 +43,13 @@ public class NpmPackageValidationSupportTest extends BaseValidationTestWithInlin
 		"dummyBinary2.txt", "myDummyContent2".getBytes()
 	);
 
-	@Test
-	public void testValidateWithPackage() throws IOException {
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	public void testValidateWithPackage(boolean theLazyLoading) throws IOException {
 
 		// Create an NPM Package Support module and load one package in from
 		// the classpath
-		NpmPackageValidationSupport npmPackageSupport = getNpmPackageValidationSupport("classpath:package/UK.Core.r4-1.1.0.tgz");
+		NpmPackageValidationSupport npmPackageSupport = getNpmPackageValidationSupport("classpath:package/UK.Core.r4-1.1.0.tgz", theLazyLoading);
 
 		// Create a support chain including the NPM Package Support
 		ValidationSupportChain validationSupportChain = new ValidationSupportChain(
@@ -73,9 +81,41 @@ public class NpmPackageValidationSupportTest extends BaseValidationTestWithInlin
 
 	}
 
+	@Test
+	public void loadPackageFromClasspath_lazyLoading_parsesResourcesOnDemand() throws IOException {
+		NpmPackageValidationSupport eagerSupport = getNpmPackageValidationSupport("classpath:package/ihe.iti.mhd.tgz");
+		NpmPackageValidationSupport lazySupport = getNpmPackageValidationSupport("classpath:package/ihe.iti.mhd.tgz", true);
+
+		assertEquals(eagerSupport.countAll(), lazySupport.countAll());
+		assertEquals(eagerSupport.fetchAllConformanceResources().size(), lazySupport.fetchAllConformanceResources().size());
+		assertEquals(eagerSupport.fetchAllStructureDefinitions().size(), lazySupport.fetchAllStructureDefinitions().size());
+
+		for (IBaseResource next : eagerSupport.fetchAllConformanceResources()) {
+			if (next instanceof StructureDefinition structureDefinition) {
+				String url = structureDefinition.getUrl();
+				IBaseResource fetched = lazySupport.fetchStructureDefinition(url);
+				assertEquals(url, ((StructureDefinition) fetched).getUrl());
+				assertThat(lazySupport.fetchStructureDefinition(url.substring(url.lastIndexOf('/') + 1))).isSameAs(fetched);
+			} else if (next instanceof ValueSet valueSet) {
+				assertTrue(lazySupport.isValueSetSupported(null, valueSet.getUrl()));
+				assertEquals(valueSet.getUrl(), ((ValueSet) lazySupport.fetchValueSet(valueSet.getUrl())).getUrl());
+			} else if (next instanceof CodeSystem codeSystem) {
+				assertTrue(lazySupport.isCodeSystemSupported(null, codeSystem.getUrl()));
+				assertEquals(codeSystem.getUrl(), ((CodeSystem) lazySupport.fetchCodeSystem(codeSystem.getUrl())).getUrl());
+			}
+		}
+		assertNull(lazySupport.fetchValueSet("http://example.com/ValueSet/unknown"));
+	}
+
 	@Nonnull
 	private NpmPackageValidationSupport getNpmPackageValidationSupport(String theClasspath) throws IOException {
+		return getNpmPackageValidationSupport(theClasspath, false);
+	}
+
+	@Nonnull
+	private NpmPackageValidationSupport getNpmPackageValidationSupport(String theClasspath, boolean theLazyLoading) throws IOException {
 		NpmPackageValidationSupport npmPackageSupport = new NpmPackageValidationSupport(myFhirContext);
+		npmPackageSupport.setLazyLoading(theLazyLoading);
 		npmPackageSupport.loadPackageFromClasspath(theClasspath);
 		return npmPackageSupport;
 	}
@@ -91,10 +131,12 @@ public class NpmPackageValidationSupportTest extends BaseValidationTestWithInlin
 		}
 	}
 
-	@Test
-	public void testValidateIheMhdPackage() throws IOException {
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	public void testValidateIheMhdPackage(boolean theLazyLoading) throws IOException {
+		NpmPackageValidationSupport npmPackageSupport = getNpmPackageValidationSupport("classpath:package/ihe.iti.mhd.tgz", theLazyLoading);
 		ValidationSupportChain validationSupportChain = new ValidationSupportChain();
-		validationSupportChain.addValidationSupport(getNpmPackageValidationSupport("classpath:package/ihe.iti.mhd.tgz"));
+		validationSupportChain.addValidationSupport(npmPackageSupport);
 		validationSupportChain.addValidationSupport(new DefaultProfileValidationSupport(myFhirContext));
 		validationSupportChain.addValidationSupport(new CommonCodeSystemsTerminologyService(myFhirContext));
 		validationSupportChain.addValidationSupport(new InMemoryTerminologyServerValidationSupport(myFhirContext));
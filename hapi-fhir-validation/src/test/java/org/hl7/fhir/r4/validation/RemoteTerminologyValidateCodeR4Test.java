@@ -1,16 +1,22 @@
 package org.hl7.fhir.r4.validation;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.support.CodeValidationRequest;
 import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.IValidationSupport.CodeValidationResult;
 import ca.uhn.fhir.parser.IJsonLikeParser;
+import ca.uhn.fhir.rest.annotation.Transaction;
+import ca.uhn.fhir.rest.annotation.TransactionParam;
 import ca.uhn.fhir.rest.client.api.IClientInterceptor;
 import ca.uhn.fhir.rest.client.api.IHttpRequest;
 import ca.uhn.fhir.rest.client.api.IHttpResponse;
 import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
 import ca.uhn.fhir.rest.client.interceptor.LoggingInterceptor;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.NotImplementedOperationException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.test.utilities.server.RestfulServerExtension;
 import ca.uhn.fhir.util.ClasspathUtil;
@@ -21,6 +27,7 @@ import org.hl7.fhir.common.hapi.validation.IValidationProviders;
 import org.hl7.fhir.common.hapi.validation.support.RemoteTerminologyServiceValidationSupport;
 import org.hl7.fhir.instance.model.api.IBaseOperationOutcome;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
 import org.hl7.fhir.r4.model.OperationOutcome;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.Resource;
@@ -35,16 +42,25 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hl7.fhir.common.hapi.validation.support.RemoteTerminologyServiceValidationSupport.ERROR_CODE_UNKNOWN_CODE_IN_CODE_SYSTEM;
 import static org.hl7.fhir.common.hapi.validation.support.RemoteTerminologyServiceValidationSupport.ERROR_CODE_UNKNOWN_CODE_IN_VALUE_SET;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -155,6 +171,150 @@ public class RemoteTerminologyValidateCodeR4Test implements IRemoteTerminologyVa
 		assertEquals(IValidationProviders.VALUE_SET_URL, myValueSetProvider.getValueSet());
 	}
 
+	@Test
+	void validateCodes_serverSupportsBatch_sendsOneBatchRequest() {
+		MyBatchProviderR4 batchProvider = new MyBatchProviderR4();
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		try {
+			List<CodeValidationRequest> requests = List.of(
+					new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, "code-1", null, null),
+					new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, "code-2", null, null),
+					new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, "bad-code", null, null));
+
+			List<CodeValidationResult> outcomes = mySvc.validateCodes(null, new ConceptValidationOptions(), requests);
+
+			assertThat(outcomes).hasSize(3);
+			assertTrue(outcomes.get(0).isOk());
+			assertEquals("code-1", outcomes.get(0).getCode());
+			assertTrue(outcomes.get(1).isOk());
+			assertEquals("code-2", outcomes.get(1).getCode());
+			assertFalse(outcomes.get(2).isOk());
+			assertEquals(1, batchProvider.getInvocationCount());
+			assertNull(myCodeSystemProvider.getCode());
+		} finally {
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	@Test
+	void validateCodes_batchEntryFailsWithServerError_thatCodeIsValidatedIndividually() {
+		createCodeSystemReturnParameters(true, IValidationProviders.DISPLAY, null, null);
+		MyBatchProviderR4 batchProvider = new MyBatchProviderR4();
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		try {
+			List<CodeValidationRequest> requests = List.of(
+					new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, "code-1", null, null),
+					new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, "failing-code", null, null));
+
+			List<CodeValidationResult> outcomes = mySvc.validateCodes(null, new ConceptValidationOptions(), requests);
+
+			assertThat(outcomes).hasSize(2);
+			assertTrue(outcomes.get(0).isOk());
+			assertEquals("code-1", outcomes.get(0).getCode());
+			assertTrue(outcomes.get(1).isOk());
+			assertEquals(1, batchProvider.getInvocationCount());
+			assertEquals("failing-code", myCodeSystemProvider.getCode());
+		} finally {
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	@Test
+	void validateCodes_serverDoesNotSupportBatch_validatesIndividually() {
+		createCodeSystemReturnParameters(true, IValidationProviders.DISPLAY, null, null);
+
+		List<CodeValidationRequest> requests = List.of(
+				new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, IValidationProviders.CODE, IValidationProviders.DISPLAY, null),
+				new CodeValidationRequest(IValidationProviders.CODE_SYSTEM, IValidationProviders.CODE, IValidationProviders.DISPLAY, null));
+
+		List<CodeValidationResult> outcomes = mySvc.validateCodes(null, new ConceptValidationOptions(), requests);
+
+		assertThat(outcomes).hasSize(2);
+		assertTrue(outcomes.get(0).isOk());
+		assertTrue(outcomes.get(1).isOk());
+		assertEquals(IValidationProviders.CODE, myCodeSystemProvider.getCode());
+	}
+
+	@Test
+	void validateCode_batchWindowEnabled_concurrentCallsAreSentAsOneBatch() throws Exception {
+		MyBatchProviderR4 batchProvider = new MyBatchProviderR4();
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		mySvc.setBatchWindowMillis(1000);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<CodeValidationResult>> futures = new ArrayList<>();
+			for (String code : List.of("code-1", "code-2", "bad-code")) {
+				futures.add(executor.submit(() -> mySvc.validateCode(null, new ConceptValidationOptions(), IValidationProviders.CODE_SYSTEM, code, null, null)));
+			}
+
+			assertTrue(futures.get(0).get(10, TimeUnit.SECONDS).isOk());
+			assertTrue(futures.get(1).get(10, TimeUnit.SECONDS).isOk());
+			assertFalse(futures.get(2).get(10, TimeUnit.SECONDS).isOk());
+			assertEquals(1, batchProvider.getInvocationCount());
+			assertNull(myCodeSystemProvider.getCode());
+		} finally {
+			executor.shutdownNow();
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	@Test
+	void validateCode_batchWindowEnabledAndServerDoesNotSupportBatch_validatesIndividually() throws Exception {
+		createCodeSystemReturnParameters(true, IValidationProviders.DISPLAY, null, null);
+		MyRejectingBatchProviderR4 batchProvider = new MyRejectingBatchProviderR4(new NotImplementedOperationException("batch is not supported"));
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		mySvc.setBatchWindowMillis(1000);
+		try {
+			List<Future<CodeValidationResult>> futures = validateConcurrently(2, IValidationProviders.CODE_SYSTEM, null);
+			assertTrue(futures.get(0).get(10, TimeUnit.SECONDS).isOk());
+			assertTrue(futures.get(1).get(10, TimeUnit.SECONDS).isOk());
+			assertEquals(1, batchProvider.getInvocationCount());
+
+			// Once the server has rejected a batch, batching is turned off
+			futures = validateConcurrently(2, IValidationProviders.CODE_SYSTEM, null);
+			assertTrue(futures.get(0).get(10, TimeUnit.SECONDS).isOk());
+			assertTrue(futures.get(1).get(10, TimeUnit.SECONDS).isOk());
+			assertEquals(1, batchProvider.getInvocationCount());
+		} finally {
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	@Test
+	void validateCode_batchWindowEnabledAndBatchFails_failureOnlyReachesAffectedCaller() throws Exception {
+		createCodeSystemReturnParameters(true, IValidationProviders.DISPLAY, null, null);
+		myValueSetProvider.setException(new InternalErrorException("value set validation failed"));
+		MyRejectingBatchProviderR4 batchProvider = new MyRejectingBatchProviderR4(new InternalErrorException("batch failed"));
+		ourRestfulServerExtension.getRestfulServer().registerProvider(batchProvider);
+		mySvc.setBatchWindowMillis(1000);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<CodeValidationResult> codeSystemFuture = executor.submit(() -> mySvc.validateCode(null, new ConceptValidationOptions(), IValidationProviders.CODE_SYSTEM, IValidationProviders.CODE, IValidationProviders.DISPLAY, null));
+			Future<CodeValidationResult> valueSetFuture = executor.submit(() -> mySvc.validateCode(null, new ConceptValidationOptions(), IValidationProviders.CODE_SYSTEM, IValidationProviders.CODE, IValidationProviders.DISPLAY, IValidationProviders.VALUE_SET_URL));
+
+			assertTrue(codeSystemFuture.get(10, TimeUnit.SECONDS).isOk());
+			ExecutionException exception = assertThrows(ExecutionException.class, () -> valueSetFuture.get(10, TimeUnit.SECONDS));
+			assertThat(exception.getCause()).isInstanceOf(InternalErrorException.class);
+			assertEquals(1, batchProvider.getInvocationCount());
+		} finally {
+			executor.shutdownNow();
+			ourRestfulServerExtension.getRestfulServer().unregisterProvider(batchProvider);
+		}
+	}
+
+	private List<Future<CodeValidationResult>> validateConcurrently(int theCount, String theCodeSystem, String theValueSetUrl) {
+		ExecutorService executor = Executors.newFixedThreadPool(theCount);
+		try {
+			List<Future<CodeValidationResult>> retVal = new ArrayList<>();
+			for (int i = 0; i < theCount; i++) {
+				retVal.add(executor.submit(() -> mySvc.validateCode(null, new ConceptValidationOptions(), theCodeSystem, IValidationProviders.CODE, IValidationProviders.DISPLAY, theValueSetUrl)));
+			}
+			return retVal;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Override
 	public Parameters createParameters(Boolean theResult, String theDisplay, String theMessage, IBaseResource theIssuesResource) {
 		Parameters parameters = new Parameters()
@@ -340,4 +500,60 @@ public class RemoteTerminologyValidateCodeR4Test implements IRemoteTerminologyVa
 			public String getCapturedSystemParameter() { return capturedSystemParameter; }
 		}
 	}
+
+	/**
+	 * Answers batch Bundles of <code>$validate-code</code> requests. Every code is valid except <code>bad-code</code>,
+	 * and the entry for <code>failing-code</code> fails with a server error.
+	 */
+	public static class MyBatchProviderR4 {
+		private int myInvocationCount;
+
+		@Transaction
+		public Bundle transaction(@TransactionParam Bundle theInput) {
+			myInvocationCount++;
+			Bundle retVal = new Bundle();
+			retVal.setType(Bundle.BundleType.BATCHRESPONSE);
+			for (Bundle.BundleEntryComponent next : theInput.getEntry()) {
+				Parameters input = (Parameters) next.getResource();
+				String code = input.getParameterValue("code").primitiveValue();
+				if ("failing-code".equals(code)) {
+					OperationOutcome outcome = new OperationOutcome();
+					outcome.addIssue().setSeverity(OperationOutcome.IssueSeverity.ERROR).setDiagnostics("Server failure");
+					retVal.addEntry().setResource(outcome).getResponse().setStatus("500 Internal Server Error");
+					continue;
+				}
+				Parameters output = new Parameters();
+				output.addParameter("result", !"bad-code".equals(code));
+				output.addParameter("code", code);
+				retVal.addEntry().setResource(output).getResponse().setStatus("200 OK");
+			}
+			return retVal;
+		}
+
+		public int getInvocationCount() {
+			return myInvocationCount;
+		}
+	}
+
+	/**
+	 * Counts batch Bundles and rejects each of them with the given exception.
+	 */
+	public static class MyRejectingBatchProviderR4 {
+		private final BaseServerResponseException myException;
+		private final AtomicInteger myInvocationCount = new AtomicInteger();
+
+		public MyRejectingBatchProviderR4(BaseServerResponseException theException) {
+			myException = theException;
+		}
+
+		@Transaction
+		public Bundle transaction(@TransactionParam Bundle theInput) {
+			myInvocationCount.incrementAndGet();
+			throw myException;
+		}
+
+		public int getInvocationCount() {
+			return myInvocationCount.get();
+		}
+	}
 }